@@ -9,6 +9,7 @@ import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
 import org.elasticsearch.client.RestHighLevelClient;
+import com.github.zhuyizhuo.util.BulkIndexer;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -41,7 +42,8 @@ import java.util.logging.Logger;
  * <h2>配置说明</h2>
  * 配置文件: application.properties<br>
  * 主要配置项前缀: elasticsearch.<br>
- * 支持配置多节点URL、端口、认证信息、超时设置和连接池参数
+ * 支持配置多节点URL、端口、认证信息、超时设置和连接池参数<br>
+ * 批量写入配置项前缀: elasticsearch.bulk.
  */
 public final class ESClientConfig {
     
@@ -59,6 +61,12 @@ public final class ESClientConfig {
     private static final String PROP_SOCKET_TIMEOUT = "elasticsearch.socket-timeout";
     private static final String PROP_MAX_TOTAL_CONNECTIONS = "elasticsearch.max-total-connections";
     private static final String PROP_DEFAULT_MAX_PER_ROUTE = "elasticsearch.default-max-per-route";
+    private static final String PROP_BULK_ACTIONS = "elasticsearch.bulk.actions";
+    private static final String PROP_BULK_SIZE_MB = "elasticsearch.bulk.size-mb";
+    private static final String PROP_BULK_FLUSH_INTERVAL = "elasticsearch.bulk.flush-interval";
+    private static final String PROP_BULK_CONCURRENT_REQUESTS = "elasticsearch.bulk.concurrent-requests";
+    private static final String PROP_BULK_INITIAL_BACKOFF = "elasticsearch.bulk.initial-backoff";
+    private static final String PROP_BULK_MAX_RETRIES = "elasticsearch.bulk.max-retries";
     
     // 静态初始化块 - 加载配置
     static {
@@ -92,6 +100,12 @@ public final class ESClientConfig {
         properties.setProperty(PROP_SOCKET_TIMEOUT, "30000");
         properties.setProperty(PROP_MAX_TOTAL_CONNECTIONS, "30");
         properties.setProperty(PROP_DEFAULT_MAX_PER_ROUTE, "10");
+        properties.setProperty(PROP_BULK_ACTIONS, "1000");
+        properties.setProperty(PROP_BULK_SIZE_MB, "5");
+        properties.setProperty(PROP_BULK_FLUSH_INTERVAL, "1000");
+        properties.setProperty(PROP_BULK_CONCURRENT_REQUESTS, "2");
+        properties.setProperty(PROP_BULK_INITIAL_BACKOFF, "100");
+        properties.setProperty(PROP_BULK_MAX_RETRIES, "5");
     }
     
     /**
@@ -175,6 +189,22 @@ public final class ESClientConfig {
         }
     }
     
+    /**
+     * 创建批量写入管道的构建器，参数从配置文件读取
+     * 
+     * @param client RestHighLevelClient 实例
+     * @return 已按配置设置参数的 BulkIndexer 构建器
+     */
+    public static BulkIndexer.Builder bulkIndexerBuilder(RestHighLevelClient client) {
+        return BulkIndexer.builder(client)
+                .bulkActions(parseIntSafely(PROP_BULK_ACTIONS, 1000))
+                .bulkSizeMb(parseIntSafely(PROP_BULK_SIZE_MB, 5))
+                .flushIntervalMillis(parseIntSafely(PROP_BULK_FLUSH_INTERVAL, 1000))
+                .concurrentRequests(parseIntSafely(PROP_BULK_CONCURRENT_REQUESTS, 2))
+                .initialBackoffMillis(parseIntSafely(PROP_BULK_INITIAL_BACKOFF, 100))
+                .maxRetries(parseIntSafely(PROP_BULK_MAX_RETRIES, 5));
+    }
+    
     /**
      * 安全地解析整数配置
      * 
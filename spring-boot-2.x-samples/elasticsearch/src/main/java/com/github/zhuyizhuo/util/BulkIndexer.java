@@ -0,0 +1,445 @@
+package com.github.zhuyizhuo.util;
+
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.rest.RestStatus;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * 批量写入管道
+ * 基于 BulkProcessor 把单条写请求攒成 bulk 请求发送，避免每个文档一次HTTP往返
+ *
+ * <ul>
+ *   <li>缓冲的请求数达到 bulkActions、大小达到 bulkSizeMb 或距上次发送超过 flushIntervalMillis 时发送</li>
+ *   <li>最多同时有 concurrentRequests 个 bulk 请求在执行，都在执行中时 {@link #add} 会阻塞，形成背压</li>
+ *   <li>返回 429 (TOO_MANY_REQUESTS) 的单条请求按指数退避重新加入管道，最多重试 maxRetries 次</li>
+ *   <li>其他失败和重试次数用完的请求逐条交给 failureHandler</li>
+ * </ul>
+ *
+ * 重试由本类按单条请求处理，没有使用 BulkProcessor 自带的 BackoffPolicy：
+ * 自带的重试只在一个 bulk 响应中所有失败都是 429 时才生效，混有其他失败时 429 的请求也不会重试
+ */
+public class BulkIndexer implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(BulkIndexer.class.getName());
+
+    /**
+     * 单次重试的最大等待时间
+     */
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final BulkProcessor processor;
+    private final ScheduledThreadPoolExecutor retryScheduler;
+    private final long initialBackoffMillis;
+    private final int maxRetries;
+    private final Consumer<ItemFailure> failureHandler;
+
+    /**
+     * 收到过 429 的请求及其已重试次数，按对象身份区分请求
+     */
+    private final Map<DocWriteRequest<?>, Integer> retryCounts = Collections.synchronizedMap(new IdentityHashMap<>());
+    private final AtomicInteger inFlightBulks = new AtomicInteger();
+    private final AtomicInteger pendingRetries = new AtomicInteger();
+
+    /**
+     * 是否已经关闭，以及关闭时是否全部处理完成；重复关闭直接返回第一次关闭的结果
+     */
+    private boolean closed;
+    private boolean closedCleanly;
+
+    private final LongAdder bulks = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+
+    private BulkIndexer(Builder builder) {
+        this.initialBackoffMillis = builder.initialBackoffMillis;
+        this.maxRetries = builder.maxRetries;
+        this.failureHandler = builder.failureHandler;
+        this.retryScheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "bulk-indexer-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.processor = BulkProcessor.builder(builder.bulkConsumer, new Listener())
+                .setBulkActions(builder.bulkActions)
+                .setBulkSize(new ByteSizeValue(builder.bulkSizeMb, ByteSizeUnit.MB))
+                .setFlushInterval(TimeValue.timeValueMillis(builder.flushIntervalMillis))
+                .setConcurrentRequests(builder.concurrentRequests)
+                .setBackoffPolicy(BackoffPolicy.noBackoff())
+                .build();
+    }
+
+    /**
+     * 创建构建器
+     * @param client RestHighLevelClient 实例
+     * @return 构建器
+     */
+    public static Builder builder(RestHighLevelClient client) {
+        return new Builder((request, listener) -> client.bulkAsync(request, RequestOptions.DEFAULT, listener));
+    }
+
+    /**
+     * 创建构建器，由 bulkConsumer 异步执行 bulk 请求，测试时用来代替真实的客户端
+     */
+    static Builder builder(BiConsumer<BulkRequest, ActionListener<BulkResponse>> bulkConsumer) {
+        return new Builder(bulkConsumer);
+    }
+
+    /**
+     * 加入一条写请求 (IndexRequest、UpdateRequest 或 DeleteRequest)
+     * @param request 写请求
+     * @return 当前实例
+     */
+    public BulkIndexer add(DocWriteRequest<?> request) {
+        processor.add(request);
+        return this;
+    }
+
+    /**
+     * 立即发送缓冲中的请求
+     */
+    public void flush() {
+        processor.flush();
+    }
+
+    /**
+     * 等待所有请求 (包括等待重试的请求) 处理完成后关闭管道
+     * 只有第一次调用会等待和关闭，之后的调用直接返回第一次的结果
+     * @param timeout 最长等待时间
+     * @param unit 时间单位
+     * @return 是否在超时前全部处理完成
+     * @throws InterruptedException 等待时被中断，此时管道已关闭，不再等待剩余的请求
+     */
+    public synchronized boolean awaitClose(long timeout, TimeUnit unit) throws InterruptedException {
+        if (closed) {
+            return closedCleanly;
+        }
+        closed = true;
+        try {
+            long timeoutNanos = unit.toNanos(timeout);
+            long start = System.nanoTime();
+            boolean drained = false;
+            while (System.nanoTime() - start < timeoutNanos) {
+                if (pendingRetries.get() == 0) {
+                    // flush 会在当前线程调用 beforeBulk，之后读到的 inFlightBulks 包含刚发送的请求
+                    processor.flush();
+                    // afterBulk 先登记重试再减少 inFlightBulks，所以要先读 inFlightBulks
+                    if (inFlightBulks.get() == 0 && pendingRetries.get() == 0) {
+                        drained = true;
+                        break;
+                    }
+                }
+                Thread.sleep(10);
+            }
+            long remaining = Math.max(0, timeoutNanos - (System.nanoTime() - start));
+            closedCleanly = processor.awaitClose(remaining, TimeUnit.NANOSECONDS) && drained;
+            return closedCleanly;
+        } catch (InterruptedException e) {
+            processor.close();
+            throw e;
+        } finally {
+            // 超时后仍在等待的重试任务执行时管道已关闭，会作为失败交给 failureHandler；
+            // 之后才返回的 429 无法再调度重试，同样直接交给 failureHandler
+            retryScheduler.shutdown();
+        }
+    }
+
+    /**
+     * 等待所有请求处理完成后关闭管道，已经关闭时不做任何操作
+     */
+    @Override
+    public void close() {
+        try {
+            awaitClose(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 已发送的 bulk 请求数
+     */
+    public long getBulks() {
+        return bulks.sum();
+    }
+
+    /**
+     * 写入成功的请求数
+     */
+    public long getSucceeded() {
+        return succeeded.sum();
+    }
+
+    /**
+     * 最终失败的请求数
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * 因 429 重试的次数
+     */
+    public long getRetried() {
+        return retried.sum();
+    }
+
+    private void onItemFailure(DocWriteRequest<?> request, RestStatus status, String message, Throwable cause) {
+        if (status == RestStatus.TOO_MANY_REQUESTS) {
+            int attempt = retryCounts.merge(request, 1, Integer::sum);
+            if (attempt <= maxRetries) {
+                pendingRetries.incrementAndGet();
+                try {
+                    retryScheduler.schedule(() -> retry(request), backoffMillis(attempt), TimeUnit.MILLISECONDS);
+                    retried.increment();
+                    return;
+                } catch (RejectedExecutionException e) {
+                    // awaitClose 超时后管道已关闭，不能在 bulk 回调线程中抛出异常，直接作为失败处理
+                    pendingRetries.decrementAndGet();
+                    retryCounts.remove(request);
+                    failed.increment();
+                    failureHandler.accept(new ItemFailure(request, status, "重试时管道已关闭: " + message, cause, attempt - 1));
+                    return;
+                }
+            }
+        }
+        Integer failures = retryCounts.remove(request);
+        int retries = failures == null ? 0 : failures;
+        if (status == RestStatus.TOO_MANY_REQUESTS) {
+            // 最后一次 429 没有再重试
+            retries--;
+        }
+        failed.increment();
+        failureHandler.accept(new ItemFailure(request, status, message, cause, retries));
+    }
+
+    private void retry(DocWriteRequest<?> request) {
+        try {
+            processor.add(request);
+        } catch (Exception e) {
+            // 管道已关闭
+            Integer attempts = retryCounts.remove(request);
+            failed.increment();
+            failureHandler.accept(new ItemFailure(request, RestStatus.TOO_MANY_REQUESTS, "重试时管道已关闭: " + e.getMessage(),
+                    e, attempts == null ? 0 : attempts));
+        } finally {
+            pendingRetries.decrementAndGet();
+        }
+    }
+
+    private long backoffMillis(int attempt) {
+        return Math.min(initialBackoffMillis << Math.min(attempt - 1, 20), MAX_BACKOFF_MILLIS);
+    }
+
+    /**
+     * 逐条检查 bulk 响应
+     */
+    private class Listener implements BulkProcessor.Listener {
+
+        @Override
+        public void beforeBulk(long executionId, BulkRequest request) {
+            inFlightBulks.incrementAndGet();
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+            try {
+                bulks.increment();
+                List<DocWriteRequest<?>> requests = request.requests();
+                for (BulkItemResponse item : response.getItems()) {
+                    DocWriteRequest<?> itemRequest = requests.get(item.getItemId());
+                    if (item.isFailed()) {
+                        onItemFailure(itemRequest, item.status(), item.getFailureMessage(), item.getFailure().getCause());
+                    } else {
+                        succeeded.increment();
+                        retryCounts.remove(itemRequest);
+                    }
+                }
+            } finally {
+                inFlightBulks.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+            try {
+                bulks.increment();
+                // 整个 bulk 请求失败，429 时所有请求都重试，其他情况所有请求都失败
+                RestStatus status = ExceptionsHelper.status(failure);
+                logger.warning("bulk 请求失败，共 " + request.numberOfActions() + " 条, 状态: " + status + ", 原因: " + failure.getMessage());
+                for (DocWriteRequest<?> itemRequest : request.requests()) {
+                    onItemFailure(itemRequest, status, failure.getMessage(), failure);
+                }
+            } finally {
+                inFlightBulks.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 单条请求的失败信息
+     */
+    public static class ItemFailure {
+
+        private final DocWriteRequest<?> request;
+        private final RestStatus status;
+        private final String message;
+        private final Throwable cause;
+        private final int retries;
+
+        ItemFailure(DocWriteRequest<?> request, RestStatus status, String message, Throwable cause, int retries) {
+            this.request = request;
+            this.status = status;
+            this.message = message;
+            this.cause = cause;
+            this.retries = retries;
+        }
+
+        /**
+         * 失败的写请求，可用于记录或重新提交
+         */
+        public DocWriteRequest<?> getRequest() {
+            return request;
+        }
+
+        public String getIndex() {
+            return request.index();
+        }
+
+        public String getId() {
+            return request.id();
+        }
+
+        public DocWriteRequest.OpType getOpType() {
+            return request.opType();
+        }
+
+        public RestStatus getStatus() {
+            return status;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public Throwable getCause() {
+            return cause;
+        }
+
+        /**
+         * 因 429 已重试的次数
+         */
+        public int getRetries() {
+            return retries;
+        }
+
+        @Override
+        public String toString() {
+            return "ItemFailure{index=" + getIndex() + ", id=" + getId() + ", opType=" + getOpType()
+                    + ", status=" + status + ", retries=" + retries + ", message=" + message + "}";
+        }
+    }
+
+    /**
+     * BulkIndexer 构建器
+     */
+    public static class Builder {
+
+        private final BiConsumer<BulkRequest, ActionListener<BulkResponse>> bulkConsumer;
+        private int bulkActions = 1000;
+        private long bulkSizeMb = 5;
+        private long flushIntervalMillis = 1000;
+        private int concurrentRequests = 2;
+        private long initialBackoffMillis = 100;
+        private int maxRetries = 5;
+        private Consumer<ItemFailure> failureHandler = failure -> logger.warning("bulk 写入失败: " + failure);
+
+        private Builder(BiConsumer<BulkRequest, ActionListener<BulkResponse>> bulkConsumer) {
+            this.bulkConsumer = bulkConsumer;
+        }
+
+        /**
+         * 缓冲的请求数达到该值时发送，默认 1000
+         */
+        public Builder bulkActions(int bulkActions) {
+            this.bulkActions = bulkActions;
+            return this;
+        }
+
+        /**
+         * 缓冲的请求大小达到该值 (MB) 时发送，默认 5
+         */
+        public Builder bulkSizeMb(long bulkSizeMb) {
+            this.bulkSizeMb = bulkSizeMb;
+            return this;
+        }
+
+        /**
+         * 缓冲的请求最多等待的时间 (毫秒)，默认 1000
+         */
+        public Builder flushIntervalMillis(long flushIntervalMillis) {
+            this.flushIntervalMillis = flushIntervalMillis;
+            return this;
+        }
+
+        /**
+         * 同时执行的 bulk 请求数，0 表示在调用 add 的线程中同步发送，默认 2
+         */
+        public Builder concurrentRequests(int concurrentRequests) {
+            this.concurrentRequests = concurrentRequests;
+            return this;
+        }
+
+        /**
+         * 429 第一次重试前的等待时间 (毫秒)，之后每次翻倍，默认 100
+         */
+        public Builder initialBackoffMillis(long initialBackoffMillis) {
+            this.initialBackoffMillis = initialBackoffMillis;
+            return this;
+        }
+
+        /**
+         * 429 最多重试次数，默认 5
+         */
+        public Builder maxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        /**
+         * 单条请求最终失败时的处理，默认记录警告日志
+         */
+        public Builder failureHandler(Consumer<ItemFailure> failureHandler) {
+            this.failureHandler = failureHandler;
+            return this;
+        }
+
+        public BulkIndexer build() {
+            return new BulkIndexer(this);
+        }
+    }
+}
\ No newline at end of file
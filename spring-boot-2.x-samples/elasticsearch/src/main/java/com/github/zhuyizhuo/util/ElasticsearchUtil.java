@@ -1,8 +1,8 @@
 package com.github.zhuyizhuo.util;
 
+import com.github.zhuyizhuo.config.ESClientConfig;
+import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
-import org.elasticsearch.action.bulk.BulkRequest;
-import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.delete.DeleteResponse;
 import org.elasticsearch.action.get.GetRequest;
@@ -30,9 +30,12 @@ import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.xcontent.XContentType;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Elasticsearch 工具类
@@ -152,13 +155,58 @@ public class ElasticsearchUtil implements AutoCloseable {
 
     /**
      * 批量操作 (新增、更新、删除)
-     * @param operations 操作列表
+     * 失败的操作记录警告日志
+     * @param operations 操作列表，元素为 IndexRequest、UpdateRequest 或 DeleteRequest
      * @return 是否全部成功
      * @throws IOException 可能的IO异常
      */
     public boolean bulkOperation(List<?> operations) throws IOException {
-        // 实际业务场景中需要实现具体逻辑
-        return false;
+        return bulkOperation(operations, null);
+    }
+
+    /**
+     * 批量操作 (新增、更新、删除)
+     * 按 ESClientConfig 中的 elasticsearch.bulk.* 配置分批并发发送，429 的操作按退避策略重试
+     * @param operations 操作列表，元素为 IndexRequest、UpdateRequest 或 DeleteRequest
+     * @param failureHandler 单条操作最终失败时的处理，为 null 时记录警告日志
+     * @return 是否全部成功
+     * @throws IOException 可能的IO异常
+     */
+    public boolean bulkOperation(List<?> operations, Consumer<BulkIndexer.ItemFailure> failureHandler) throws IOException {
+        for (Object operation : operations) {
+            if (!(operation instanceof DocWriteRequest)) {
+                throw new IllegalArgumentException("不支持的批量操作类型: "
+                        + (operation == null ? null : operation.getClass().getName()));
+            }
+        }
+        BulkIndexer.Builder builder = bulkIndexer();
+        if (failureHandler != null) {
+            builder.failureHandler(failureHandler);
+        }
+        BulkIndexer indexer = builder.build();
+        try {
+            for (Object operation : operations) {
+                indexer.add((DocWriteRequest<?>) operation);
+            }
+            if (!indexer.awaitClose(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("批量操作被中断");
+        } finally {
+            indexer.close();
+        }
+        return indexer.getFailed() == 0;
+    }
+
+    /**
+     * 创建批量写入管道的构建器，适合持续写入大量文档
+     * 默认参数来自 ESClientConfig 中的 elasticsearch.bulk.* 配置
+     * @return BulkIndexer 构建器
+     */
+    public BulkIndexer.Builder bulkIndexer() {
+        return ESClientConfig.bulkIndexerBuilder(client);
     }
 
     /**
@@ -0,0 +1,205 @@
+package com.github.zhuyizhuo.util;
+
+import junit.framework.TestCase;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.rest.RestStatus;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * BulkIndexer 测试
+ * 用模拟的 bulkAsync 代替 Elasticsearch：在另一个线程中按文档ID决定每条请求的结果
+ */
+public class BulkIndexerTest extends TestCase {
+
+    private static final String INDEX = "test-index";
+
+    private final ExecutorService cluster = Executors.newFixedThreadPool(2);
+    private final List<BulkIndexer.ItemFailure> failures = new CopyOnWriteArrayList<>();
+    private final AtomicInteger bulkRequests = new AtomicInteger();
+
+    /**
+     * 每个文档ID剩余的 429 次数
+     */
+    private final Map<String, AtomicInteger> rejections = new ConcurrentHashMap<>();
+
+    /**
+     * 剩余整个 bulk 请求返回 429 的次数
+     */
+    private final AtomicInteger bulkRejections = new AtomicInteger();
+
+    /**
+     * 不为null时 bulk 响应等待它打开后才返回
+     */
+    private volatile CountDownLatch responseGate;
+
+    @Override
+    protected void tearDown() {
+        cluster.shutdownNow();
+    }
+
+    public void testAllRequestsSucceed() throws Exception {
+        BulkIndexer indexer = newIndexer(5);
+        addDocuments(indexer, 23);
+
+        assertTrue(indexer.awaitClose(10, TimeUnit.SECONDS));
+        assertEquals(23, indexer.getSucceeded());
+        assertEquals(0, indexer.getFailed());
+        assertEquals(5, indexer.getBulks());
+        assertEquals(5, bulkRequests.get());
+        assertTrue(failures.isEmpty());
+    }
+
+    public void testItemRejectedWith429IsRetried() throws Exception {
+        rejections.put("doc-3", new AtomicInteger(2));
+        BulkIndexer indexer = newIndexer(5);
+        addDocuments(indexer, 10);
+
+        assertTrue(indexer.awaitClose(10, TimeUnit.SECONDS));
+        assertEquals(10, indexer.getSucceeded());
+        assertEquals(0, indexer.getFailed());
+        assertEquals(2, indexer.getRetried());
+    }
+
+    public void testItemStillRejectedAfterMaxRetriesFails() throws Exception {
+        rejections.put("doc-1", new AtomicInteger(Integer.MAX_VALUE));
+        BulkIndexer indexer = newIndexer(5);
+        addDocuments(indexer, 3);
+
+        assertTrue(indexer.awaitClose(10, TimeUnit.SECONDS));
+        assertEquals(2, indexer.getSucceeded());
+        assertEquals(1, indexer.getFailed());
+        assertEquals(1, failures.size());
+        assertEquals("doc-1", failures.get(0).getId());
+        assertEquals(RestStatus.TOO_MANY_REQUESTS, failures.get(0).getStatus());
+        assertEquals(3, failures.get(0).getRetries());
+    }
+
+    public void testWholeBulkRejectedWith429IsRetried() throws Exception {
+        bulkRejections.set(1);
+        BulkIndexer indexer = newIndexer(5);
+        addDocuments(indexer, 5);
+
+        assertTrue(indexer.awaitClose(10, TimeUnit.SECONDS));
+        assertEquals(5, indexer.getSucceeded());
+        assertEquals(0, indexer.getFailed());
+        assertEquals(5, indexer.getRetried());
+        assertEquals(2, bulkRequests.get());
+    }
+
+    public void testCloseAfterAwaitCloseIsNoOp() throws Exception {
+        BulkIndexer indexer = newIndexer(5);
+        addDocuments(indexer, 3);
+
+        // 与 ElasticsearchUtil.bulkOperation 一样先 awaitClose，再在 finally 中 close
+        assertTrue(indexer.awaitClose(10, TimeUnit.SECONDS));
+        indexer.close();
+        indexer.close();
+        assertTrue(indexer.awaitClose(10, TimeUnit.SECONDS));
+        assertEquals(3, indexer.getSucceeded());
+        assertEquals(1, bulkRequests.get());
+
+        try {
+            indexer.add(document(99));
+            fail("关闭后不能再加入请求");
+        } catch (IllegalStateException expected) {
+            // 管道已关闭
+        }
+    }
+
+    public void testRejectionAfterAwaitCloseTimeoutIsReportedAsFailure() throws Exception {
+        rejections.put("doc-1", new AtomicInteger(1));
+        responseGate = new CountDownLatch(1);
+        BulkIndexer indexer = newIndexer(5);
+        addDocuments(indexer, 3);
+
+        // bulk 请求还没有返回，等待超时，重试调度器随之关闭
+        assertFalse(indexer.awaitClose(100, TimeUnit.MILLISECONDS));
+        responseGate.countDown();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((failures.isEmpty() || indexer.getSucceeded() < 2) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, failures.size());
+        assertEquals("doc-1", failures.get(0).getId());
+        assertEquals(RestStatus.TOO_MANY_REQUESTS, failures.get(0).getStatus());
+        assertEquals(0, failures.get(0).getRetries());
+        assertEquals(2, indexer.getSucceeded());
+        assertEquals(1, indexer.getFailed());
+        assertEquals(0, indexer.getRetried());
+    }
+
+    private BulkIndexer newIndexer(int bulkActions) {
+        return BulkIndexer.builder(bulkAsync())
+                .bulkActions(bulkActions)
+                .flushIntervalMillis(60_000)
+                .concurrentRequests(2)
+                .initialBackoffMillis(1)
+                .maxRetries(3)
+                .failureHandler(failures::add)
+                .build();
+    }
+
+    private BiConsumer<BulkRequest, ActionListener<BulkResponse>> bulkAsync() {
+        return (request, listener) -> {
+            bulkRequests.incrementAndGet();
+            cluster.execute(() -> {
+                CountDownLatch gate = responseGate;
+                if (gate != null) {
+                    try {
+                        gate.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (bulkRejections.getAndDecrement() > 0) {
+                    listener.onFailure(new ElasticsearchStatusException("rejected execution", RestStatus.TOO_MANY_REQUESTS));
+                    return;
+                }
+                List<DocWriteRequest<?>> requests = request.requests();
+                BulkItemResponse[] items = new BulkItemResponse[requests.size()];
+                for (int i = 0; i < items.length; i++) {
+                    DocWriteRequest<?> item = requests.get(i);
+                    AtomicInteger remaining = rejections.get(item.id());
+                    if (remaining != null && remaining.getAndDecrement() > 0) {
+                        items[i] = BulkItemResponse.failure(i, item.opType(), new BulkItemResponse.Failure(INDEX, "_doc",
+                                item.id(), new IllegalStateException("rejected execution"), RestStatus.TOO_MANY_REQUESTS));
+                    } else {
+                        items[i] = BulkItemResponse.success(i, item.opType(),
+                                new IndexResponse(new ShardId(INDEX, "uuid", 0), "_doc", item.id(), 1, 1, 1, true));
+                    }
+                }
+                listener.onResponse(new BulkResponse(items, 1));
+            });
+        };
+    }
+
+    private static void addDocuments(BulkIndexer indexer, int count) {
+        for (int i = 0; i < count; i++) {
+            indexer.add(document(i));
+        }
+    }
+
+    private static IndexRequest document(int i) {
+        return new IndexRequest(INDEX).id("doc-" + i).source("name", "doc" + i);
+    }
+}
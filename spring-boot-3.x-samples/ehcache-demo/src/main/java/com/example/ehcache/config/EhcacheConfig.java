@@ -1,21 +1,112 @@
 package com.example.ehcache.config;
 
+import org.ehcache.PersistentCacheManager;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.CacheManagerBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.config.units.EntryUnit;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.core.spi.service.ServiceFactory;
+import org.ehcache.core.spi.service.StatisticsService;
+import org.ehcache.core.statistics.TierStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
 /**
  * Ehcache 配置类
- * 配置通过注解和XML两种方式支持
  * <p>
  * 说明：
  * 1. @EnableCaching 启用Spring Cache支持
- * 2. 缓存具体配置通过以下两种方式：
- *    - 注解方式：在Service方法上使用@Cacheable、@CachePut、@CacheEvict等注解
- *    - XML方式：通过ehcache.xml文件配置，可在application.yml中启用
+ * 2. 缓存通过 application.yml 中的 ehcache.* 属性配置，每个缓存使用 堆内存 → 堆外内存 → 持久化磁盘 三层存储
+ * 3. 直接使用原生 Ehcache 3 API 创建缓存管理器，堆外和磁盘层使用 {@link UserCacheValueSerializer} 代替Java序列化
+ * 4. 磁盘层为持久化存储，应用正常关闭时写入磁盘，重启后可以直接从磁盘层命中，不需要重新查询数据库
  */
 @Configuration
 @EnableCaching
+@EnableConfigurationProperties(EhcacheProperties.class)
 public class EhcacheConfig {
-    // Spring Boot会自动检测并配置Ehcache
-    // 如果需要自定义配置，可以在这里添加相关Bean
-}
\ No newline at end of file
+
+    private static final Logger log = LoggerFactory.getLogger(EhcacheConfig.class);
+
+    /**
+     * Ehcache 统计服务，提供每个缓存各存储层的命中统计
+     * <p>
+     * 和缓存管理器自动发现服务的方式一样，通过 Ehcache 注册的 {@link ServiceFactory} 创建，不直接依赖 internal 包中的实现类
+     */
+    @Bean
+    @SuppressWarnings("unchecked")
+    public StatisticsService ehcacheStatisticsService() {
+        for (ServiceFactory<?> factory : ServiceLoader.load(ServiceFactory.class, EhcacheConfig.class.getClassLoader())) {
+            if (StatisticsService.class.isAssignableFrom(factory.getServiceType())) {
+                return ((ServiceFactory<StatisticsService>) factory).create(null);
+            }
+        }
+        throw new IllegalStateException("No Ehcache StatisticsService factory found on the classpath");
+    }
+
+    /**
+     * 原生 Ehcache 缓存管理器，关闭时把磁盘层数据持久化
+     */
+    @Bean(destroyMethod = "close")
+    public PersistentCacheManager ehcacheManager(EhcacheProperties properties, StatisticsService statisticsService) {
+        CacheManagerBuilder<PersistentCacheManager> builder = CacheManagerBuilder.newCacheManagerBuilder()
+                .using(statisticsService)
+                .with(CacheManagerBuilder.persistence(new File(properties.getPersistenceDirectory())));
+        for (Map.Entry<String, EhcacheProperties.CacheSpec> entry : properties.getCaches().entrySet()) {
+            builder = builder.withCache(entry.getKey(), cacheConfiguration(entry.getValue()));
+        }
+        PersistentCacheManager cacheManager = builder.build(true);
+
+        for (String cacheName : properties.getCaches().keySet()) {
+            TierStatistics disk = statisticsService.getCacheStatistics(cacheName).getTierStatistics().get("Disk");
+            if (disk != null) {
+                log.info("缓存 {} 从磁盘层恢复了 {} 条数据", cacheName, disk.getMappings());
+            }
+        }
+        return cacheManager;
+    }
+
+    /**
+     * Spring 缓存管理器，把原生 Ehcache 缓存适配为 Spring Cache
+     */
+    @Bean
+    @SuppressWarnings("unchecked")
+    public CacheManager cacheManager(PersistentCacheManager ehcacheManager, EhcacheProperties properties) {
+        List<EhcacheSpringCache> caches = new ArrayList<>();
+        for (Map.Entry<String, EhcacheProperties.CacheSpec> entry : properties.getCaches().entrySet()) {
+            String cacheName = entry.getKey();
+            org.ehcache.Cache<?, Object> cache = ehcacheManager.getCache(cacheName, entry.getValue().getKeyType(), Object.class);
+            caches.add(new EhcacheSpringCache(cacheName, (org.ehcache.Cache<Object, Object>) cache));
+        }
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(caches);
+        return cacheManager;
+    }
+
+    private CacheConfigurationBuilder<?, Object> cacheConfiguration(EhcacheProperties.CacheSpec spec) {
+        ResourcePoolsBuilder pools = ResourcePoolsBuilder.newResourcePoolsBuilder()
+                .heap(spec.getHeapEntries(), EntryUnit.ENTRIES);
+        if (spec.getOffheapMb() > 0) {
+            pools = pools.offheap(spec.getOffheapMb(), MemoryUnit.MB);
+        }
+        if (spec.getDiskMb() > 0) {
+            pools = pools.disk(spec.getDiskMb(), MemoryUnit.MB, spec.isPersistent());
+        }
+        return CacheConfigurationBuilder.newCacheConfigurationBuilder(spec.getKeyType(), Object.class, pools)
+                .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(spec.getTtl()))
+                .withValueSerializer(new UserCacheValueSerializer());
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.ehcache.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ehcache 分层存储配置属性
+ * <p>
+ * 每个缓存依次使用 堆内存 → 堆外内存 → 持久化磁盘 三层存储，
+ * 某一层的容量配置为0时跳过该层；各层容量必须逐层增大
+ */
+@ConfigurationProperties(prefix = "ehcache")
+public class EhcacheProperties {
+
+    /**
+     * 磁盘层持久化目录
+     */
+    private String persistenceDirectory = System.getProperty("java.io.tmpdir") + "/ehcache-demo";
+
+    /**
+     * 缓存名称到分层配置的映射
+     */
+    private Map<String, CacheSpec> caches = new LinkedHashMap<>();
+
+    public String getPersistenceDirectory() {
+        return persistenceDirectory;
+    }
+
+    public void setPersistenceDirectory(String persistenceDirectory) {
+        this.persistenceDirectory = persistenceDirectory;
+    }
+
+    public Map<String, CacheSpec> getCaches() {
+        return caches;
+    }
+
+    public void setCaches(Map<String, CacheSpec> caches) {
+        this.caches = caches;
+    }
+
+    /**
+     * 单个缓存的分层配置
+     */
+    public static class CacheSpec {
+
+        /**
+         * 缓存键类型
+         */
+        private Class<?> keyType = String.class;
+
+        /**
+         * 存活时间
+         */
+        private Duration ttl = Duration.ofMinutes(5);
+
+        /**
+         * 堆内存层条目数
+         */
+        private long heapEntries = 100;
+
+        /**
+         * 堆外内存层容量（MB），0表示不使用
+         */
+        private long offheapMb = 0;
+
+        /**
+         * 磁盘层容量（MB），0表示不使用
+         */
+        private long diskMb = 0;
+
+        /**
+         * 磁盘层是否在重启后保留数据
+         */
+        private boolean persistent = true;
+
+        public Class<?> getKeyType() {
+            return keyType;
+        }
+
+        public void setKeyType(Class<?> keyType) {
+            this.keyType = keyType;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public long getHeapEntries() {
+            return heapEntries;
+        }
+
+        public void setHeapEntries(long heapEntries) {
+            this.heapEntries = heapEntries;
+        }
+
+        public long getOffheapMb() {
+            return offheapMb;
+        }
+
+        public void setOffheapMb(long offheapMb) {
+            this.offheapMb = offheapMb;
+        }
+
+        public long getDiskMb() {
+            return diskMb;
+        }
+
+        public void setDiskMb(long diskMb) {
+            this.diskMb = diskMb;
+        }
+
+        public boolean isPersistent() {
+            return persistent;
+        }
+
+        public void setPersistent(boolean persistent) {
+            this.persistent = persistent;
+        }
+    }
+}
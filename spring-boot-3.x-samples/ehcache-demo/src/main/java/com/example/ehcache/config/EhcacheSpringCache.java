@@ -0,0 +1,164 @@
+package com.example.ehcache.config;
+
+import org.ehcache.config.ResourceType;
+import org.ehcache.config.SizedResourcePool;
+import org.ehcache.config.units.EntryUnit;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * 将原生 Ehcache 3 缓存适配为 Spring 的 Cache 接口
+ * <p>
+ * 不经过 JCache 层，可以直接使用 Ehcache 的分层存储、持久化和统计服务
+ */
+public class EhcacheSpringCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+    private final org.ehcache.Cache<Object, Object> cache;
+
+    /**
+     * 堆内存层的条目数，批量读取的键数不超过该值时逐个get，否则使用getAll
+     */
+    private final long heapEntries;
+
+    /**
+     * 正在加载的键，同一个键的并发未命中只加载一次，不同的键互不阻塞
+     */
+    private final ConcurrentMap<Object, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+
+    public EhcacheSpringCache(String name, org.ehcache.Cache<Object, Object> cache) {
+        super(true);
+        this.name = name;
+        this.cache = cache;
+        SizedResourcePool heap = cache.getRuntimeConfiguration().getResourcePools().getPoolForResource(ResourceType.Core.HEAP);
+        this.heapEntries = heap != null && heap.getUnit() == EntryUnit.ENTRIES ? heap.getSize() : 0;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public org.ehcache.Cache<Object, Object> getNativeCache() {
+        return cache;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        return cache.get(key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object storeValue = cache.get(key);
+        if (storeValue != null) {
+            return (T) fromStoreValue(storeValue);
+        }
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> existing = loading.putIfAbsent(key, mine);
+        if (existing != null) {
+            // 其他线程正在加载同一个键，等待其结果
+            try {
+                return (T) fromStoreValue(existing.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ValueRetrievalException(key, valueLoader, e);
+            } catch (ExecutionException e) {
+                throw new ValueRetrievalException(key, valueLoader, e.getCause());
+            }
+        }
+        try {
+            // 抢到加载权之前，上一个加载者可能刚刚写入缓存
+            storeValue = cache.get(key);
+            if (storeValue == null) {
+                storeValue = toStoreValue(valueLoader.call());
+                cache.put(key, storeValue);
+            }
+            mine.complete(storeValue);
+            return (T) fromStoreValue(storeValue);
+        } catch (Exception e) {
+            mine.completeExceptionally(e);
+            throw new ValueRetrievalException(key, valueLoader, e);
+        } finally {
+            loading.remove(key, mine);
+        }
+    }
+
+    /**
+     * 批量读取
+     * <p>
+     * 读取所有键，未命中的键一次性交给批量加载器加载，再通过一次 putAll 写回缓存；
+     * 键数不超过堆内存层容量时逐个get（都在堆内存层时比getAll的批量计算路径快），
+     * 超过时使用一次 getAll，从堆外和磁盘层批量读取更快（见 GetUsersByIdsBenchmark）；
+     * 加载器没有返回的键按null值缓存，避免不存在的数据反复穿透到数据源
+     * @param keys 缓存键
+     * @param batchLoader 批量加载器，参数为未命中的键，返回键到值的映射，与 CacheLoaderWriter#loadAll 的约定一致
+     * @return 键到值的映射，按传入键的顺序排列，不存在的数据值为null
+     */
+    public Map<Object, Object> getAll(Collection<?> keys, Function<Set<Object>, Map<Object, Object>> batchLoader) {
+        Set<Object> keySet = new LinkedHashSet<>(keys);
+        Map<Object, Object> stored = keySet.size() > heapEntries ? cache.getAll(keySet) : null;
+
+        Map<Object, Object> result = new HashMap<>();
+        Set<Object> misses = new LinkedHashSet<>();
+        for (Object key : keySet) {
+            Object storeValue = stored != null ? stored.get(key) : cache.get(key);
+            if (storeValue == null) {
+                misses.add(key);
+            } else {
+                result.put(key, fromStoreValue(storeValue));
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            Map<Object, Object> loaded = batchLoader.apply(misses);
+            Map<Object, Object> toStore = new HashMap<>();
+            for (Object key : misses) {
+                Object value = loaded.get(key);
+                toStore.put(key, toStoreValue(value));
+                result.put(key, value);
+            }
+            cache.putAll(toStore);
+        }
+
+        Map<Object, Object> ordered = new LinkedHashMap<>();
+        for (Object key : keySet) {
+            ordered.put(key, result.get(key));
+        }
+        return ordered;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        cache.put(key, toStoreValue(value));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        return toValueWrapper(cache.putIfAbsent(key, toStoreValue(value)));
+    }
+
+    @Override
+    public void evict(Object key) {
+        cache.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        cache.clear();
+    }
+}
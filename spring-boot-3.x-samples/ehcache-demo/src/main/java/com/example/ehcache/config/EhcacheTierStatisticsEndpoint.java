@@ -0,0 +1,72 @@
+package com.example.ehcache.config;
+
+import org.ehcache.core.spi.service.StatisticsService;
+import org.ehcache.core.statistics.CacheStatistics;
+import org.ehcache.core.statistics.TierStatistics;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 缓存分层命中率端点
+ * <p>
+ * 访问 /actuator/cachetiers 查看所有缓存，/actuator/cachetiers/{cacheName} 查看单个缓存。
+ * 每一层的命中率 = 该层命中次数 / 到达该层的请求次数，上层未命中的请求才会到达下层
+ */
+@Component
+@Endpoint(id = "cachetiers")
+public class EhcacheTierStatisticsEndpoint {
+
+    private final StatisticsService statisticsService;
+    private final EhcacheProperties properties;
+
+    public EhcacheTierStatisticsEndpoint(StatisticsService statisticsService, EhcacheProperties properties) {
+        this.statisticsService = statisticsService;
+        this.properties = properties;
+    }
+
+    @ReadOperation
+    public Map<String, Object> tiers() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (String cacheName : properties.getCaches().keySet()) {
+            result.put(cacheName, cacheTiers(cacheName));
+        }
+        return result;
+    }
+
+    @ReadOperation
+    public Map<String, Object> cacheTiers(@Selector String cacheName) {
+        CacheStatistics statistics = statisticsService.getCacheStatistics(cacheName);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("hits", statistics.getCacheHits());
+        result.put("misses", statistics.getCacheMisses());
+        result.put("hitRatio", ratio(statistics.getCacheHits(), statistics.getCacheMisses()));
+        result.put("evictions", statistics.getCacheEvictions());
+        result.put("expirations", statistics.getCacheExpirations());
+
+        Map<String, Object> tiers = new LinkedHashMap<>();
+        for (Map.Entry<String, TierStatistics> entry : statistics.getTierStatistics().entrySet()) {
+            TierStatistics tier = entry.getValue();
+            Map<String, Object> tierResult = new LinkedHashMap<>();
+            tierResult.put("hits", tier.getHits());
+            tierResult.put("misses", tier.getMisses());
+            tierResult.put("hitRatio", ratio(tier.getHits(), tier.getMisses()));
+            tierResult.put("mappings", tier.getMappings());
+            tierResult.put("evictions", tier.getEvictions());
+            tierResult.put("occupiedBytes", tier.getOccupiedByteSize());
+            tierResult.put("allocatedBytes", tier.getAllocatedByteSize());
+            tiers.put(entry.getKey(), tierResult);
+        }
+        result.put("tiers", tiers);
+        return result;
+    }
+
+    private double ratio(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
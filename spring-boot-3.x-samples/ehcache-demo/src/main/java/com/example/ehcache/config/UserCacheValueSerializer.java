@@ -0,0 +1,150 @@
+package com.example.ehcache.config;
+
+import com.example.ehcache.entity.User;
+import org.ehcache.spi.serialization.Serializer;
+import org.ehcache.spi.serialization.SerializerException;
+import org.springframework.cache.support.NullValue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 用户缓存值序列化器
+ * <p>
+ * 堆外内存层和磁盘层需要把值序列化为字节，默认的Java序列化会写入完整的类描述信息，体积大、速度慢。
+ * 这里按字段手工编码，首字节为类型标记：
+ * <ul>
+ *     <li>0：Spring缓存的null值标记 {@link NullValue}</li>
+ *     <li>1：单个 {@link User}</li>
+ *     <li>2：{@link User} 列表</li>
+ * </ul>
+ * 序列化器没有状态，持久化的磁盘数据在重启后可以直接读取
+ */
+public class UserCacheValueSerializer implements Serializer<Object> {
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_USER = 1;
+    private static final byte TYPE_USER_LIST = 2;
+
+    @Override
+    public ByteBuffer serialize(Object object) throws SerializerException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            if (object instanceof NullValue) {
+                out.writeByte(TYPE_NULL);
+            } else if (object instanceof User user) {
+                out.writeByte(TYPE_USER);
+                writeUser(out, user);
+            } else if (object instanceof List<?> list) {
+                out.writeByte(TYPE_USER_LIST);
+                out.writeInt(list.size());
+                for (Object element : list) {
+                    writeUser(out, (User) element);
+                }
+            } else {
+                throw new SerializerException("Unsupported cache value type: " + object.getClass().getName());
+            }
+        } catch (IOException | ClassCastException e) {
+            throw new SerializerException("Failed to serialize cache value", e);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    @Override
+    public Object read(ByteBuffer binary) throws SerializerException {
+        byte type = binary.get();
+        switch (type) {
+            case TYPE_NULL:
+                return NullValue.INSTANCE;
+            case TYPE_USER:
+                return readUser(binary);
+            case TYPE_USER_LIST:
+                int size = binary.getInt();
+                List<User> users = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    users.add(readUser(binary));
+                }
+                return users;
+            default:
+                throw new SerializerException("Unknown cache value type: " + type);
+        }
+    }
+
+    @Override
+    public boolean equals(Object object, ByteBuffer binary) throws SerializerException {
+        return object.equals(read(binary));
+    }
+
+    private void writeUser(DataOutputStream out, User user) throws IOException {
+        writeNullableLong(out, user.getId());
+        writeString(out, user.getUsername());
+        writeString(out, user.getEmail());
+        out.writeBoolean(user.getAge() != null);
+        if (user.getAge() != null) {
+            out.writeInt(user.getAge());
+        }
+        LocalDateTime createTime = user.getCreateTime();
+        out.writeBoolean(createTime != null);
+        if (createTime != null) {
+            out.writeLong(createTime.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(createTime.getNano());
+        }
+    }
+
+    private User readUser(ByteBuffer in) {
+        User user = new User();
+        user.setId(readNullableLong(in));
+        user.setUsername(readString(in));
+        user.setEmail(readString(in));
+        if (in.get() != 0) {
+            user.setAge(in.getInt());
+        }
+        if (in.get() != 0) {
+            long epochSecond = in.getLong();
+            int nano = in.getInt();
+            user.setCreateTime(LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC));
+        }
+        return user;
+    }
+
+    private void writeNullableLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private Long readNullableLong(ByteBuffer in) {
+        return in.get() != 0 ? in.getLong() : null;
+    }
+
+    /**
+     * 字符串编码为 长度 + UTF-8字节，长度为-1表示null
+     */
+    private void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
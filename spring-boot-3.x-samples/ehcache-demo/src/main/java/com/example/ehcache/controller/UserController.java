@@ -69,6 +69,15 @@ public class UserController {
         return ResponseEntity.ok(user);
     }
 
+    /**
+     * 根据ID批量获取用户信息
+     * 示例：/api/users/batch?ids=1,2,3
+     */
+    @GetMapping("/batch")
+    public ResponseEntity<List<User>> getUsersByIds(@RequestParam List<Long> ids) {
+        return ResponseEntity.ok(userService.getUsersByIds(ids));
+    }
+
     /**
      * 获取所有用户信息
      */
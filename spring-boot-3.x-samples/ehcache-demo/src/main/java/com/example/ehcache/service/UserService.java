@@ -17,6 +17,14 @@ public interface UserService {
      */
     User getUserById(Long id);
 
+    /**
+     * 根据ID批量获取用户信息
+     * 缓存未命中的ID通过一次批量查询加载
+     * @param ids 用户ID列表
+     * @return 存在的用户，按传入ID的顺序排列
+     */
+    List<User> getUsersByIds(List<Long> ids);
+
     /**
      * 获取所有用户信息
      * @return 用户列表
@@ -1,7 +1,10 @@
 package com.example.ehcache.service.impl;
 
+import com.example.ehcache.config.EhcacheSpringCache;
 import com.example.ehcache.entity.User;
 import com.example.ehcache.service.UserService;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
@@ -9,10 +12,12 @@ import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -22,12 +27,22 @@ import java.util.concurrent.ConcurrentHashMap;
 @Service
 public class UserServiceImpl implements UserService {
 
+    private static final String ALL_USERS_KEY = "allUsers";
+
     // 模拟数据库存储
     private final Map<Long, User> userRepository = new ConcurrentHashMap<>();
     private long nextId = 1;
 
+    private final CacheManager cacheManager;
+
+    /**
+     * 用户列表视图锁：数据库写入和列表缓存的增量更新在同一把锁内完成，保证列表与数据库的写入顺序一致
+     */
+    private final Object userListLock = new Object();
+
     // 初始化一些测试数据
-    public UserServiceImpl() {
+    public UserServiceImpl(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
         saveUser(new User(nextId++, "张三", "zhangsan@example.com", 25));
         saveUser(new User(nextId++, "李四", "lisi@example.com", 30));
         saveUser(new User(nextId++, "王五", "wangwu@example.com", 28));
@@ -47,68 +62,115 @@ public class UserServiceImpl implements UserService {
     }
 
     /**
-     * 使用@Cacheable注解，将所有用户列表缓存
+     * 批量获取用户
+     * 通过 {@link EhcacheSpringCache#getAll} 读取所有ID，未命中的ID通过一次批量查询加载，再用putAll写回缓存；
+     * 与逐个调用getUserById相比，N个ID只需要一次数据库查询和一次缓存写入
      */
     @Override
-    @Cacheable(value = "userListCache", key = "'allUsers'")
-    public List<User> getAllUsers() {
+    public List<User> getUsersByIds(List<Long> ids) {
+        EhcacheSpringCache userCache = (EhcacheSpringCache) cacheManager.getCache("userCache");
+        Map<Object, Object> users = userCache.getAll(ids, this::loadUsers);
+        List<User> result = new ArrayList<>(users.size());
+        for (Object user : users.values()) {
+            if (user != null) {
+                result.add((User) user);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 批量加载用户，模拟一次 where id in (...) 查询
+     */
+    private Map<Object, Object> loadUsers(Set<Object> ids) {
         simulateSlowService();
-        System.out.println("从数据库查询所有用户");
-        return new ArrayList<>(userRepository.values());
+        System.out.println("从数据库批量查询用户: " + ids);
+        Map<Object, Object> users = new HashMap<>();
+        for (Object id : ids) {
+            User user = userRepository.get((Long) id);
+            if (user != null) {
+                users.put(id, user);
+            }
+        }
+        return users;
     }
 
     /**
-     * 保存用户，同时清除列表缓存
+     * 获取所有用户，列表缓存在userListCache中
+     * 写操作不再清除列表缓存，而是增量更新缓存中的列表，列表缓存命中时读取为O(1)；
+     * 只有列表缓存不存在（首次访问、过期或清除缓存）时才查询数据库重建
      */
     @Override
-    @Caching(
-        put = @CachePut(value = "userCache", key = "#result.id"),
-        evict = @CacheEvict(value = "userListCache", key = "'allUsers'")
-    )
+    public List<User> getAllUsers() {
+        Cache userListCache = cacheManager.getCache("userListCache");
+        List<User> cached = cachedUserList(userListCache);
+        if (cached != null) {
+            return cached;
+        }
+        synchronized (userListLock) {
+            // 重建期间的写操作等待重建完成后再增量更新，不会被重建结果覆盖
+            cached = cachedUserList(userListCache);
+            if (cached != null) {
+                return cached;
+            }
+            simulateSlowService();
+            System.out.println("从数据库查询所有用户");
+            List<User> users = Collections.unmodifiableList(new ArrayList<>(userRepository.values()));
+            userListCache.put(ALL_USERS_KEY, users);
+            return users;
+        }
+    }
+
+    /**
+     * 保存用户，同时增量更新列表缓存
+     */
+    @Override
+    @CachePut(value = "userCache", key = "#result.id")
     public User saveUser(User user) {
-        if (user.getId() == null) {
-            user.setId(nextId++);
+        synchronized (userListLock) {
+            if (user.getId() == null) {
+                user.setId(nextId++);
+            }
+            userRepository.put(user.getId(), user);
+            patchUserList(user.getId(), user);
         }
-        userRepository.put(user.getId(), user);
         System.out.println("保存用户: " + user);
         return user;
     }
 
     /**
-     * 更新用户，使用@CachePut更新缓存，使用@CacheEvict清除列表缓存
+     * 更新用户，使用@CachePut更新缓存，同时增量更新列表缓存
      */
     @Override
-    @Caching(
-        put = @CachePut(value = "userCache", key = "#user.id"),
-        evict = @CacheEvict(value = "userListCache", key = "'allUsers'")
-    )
+    @CachePut(value = "userCache", key = "#user.id")
     public User updateUser(User user) {
-        if (!userRepository.containsKey(user.getId())) {
-            throw new IllegalArgumentException("用户不存在: " + user.getId());
+        synchronized (userListLock) {
+            if (!userRepository.containsKey(user.getId())) {
+                throw new IllegalArgumentException("用户不存在: " + user.getId());
+            }
+            userRepository.put(user.getId(), user);
+            patchUserList(user.getId(), user);
         }
-        userRepository.put(user.getId(), user);
         System.out.println("更新用户: " + user);
         return user;
     }
 
     /**
      * 删除用户信息
-     * 使用@Caching注解，同时删除userCache中的指定用户和清除userListCache
+     * 删除userCache中的指定用户，同时从列表缓存中移除该用户
      */
     @Override
-    @Caching(
-        evict = {
-            @CacheEvict(value = "userCache", key = "#id"),
-            @CacheEvict(value = "userListCache", key = "'allUsers'")
-        }
-    )
+    @CacheEvict(value = "userCache", key = "#id")
     public boolean deleteUser(Long id) {
-        // 检查用户是否存在
-        if (!userRepository.containsKey(id)) {
-            return false;
+        synchronized (userListLock) {
+            // 检查用户是否存在
+            if (!userRepository.containsKey(id)) {
+                return false;
+            }
+            // 删除用户
+            userRepository.remove(id);
+            patchUserList(id, null);
         }
-        // 删除用户
-        userRepository.remove(id);
         return true;
     }
 
@@ -126,6 +188,43 @@ public class UserServiceImpl implements UserService {
         System.out.println("清除所有用户缓存");
     }
 
+    /**
+     * 增量更新列表缓存（写时复制）
+     * 基于缓存中的列表复制出新列表，替换、追加或移除指定用户后整体写回；
+     * 已经返回给读者的旧列表不会被修改。列表未缓存时不做处理，下次读取时重建
+     * @param id 用户ID
+     * @param user 新的用户数据，null表示删除
+     */
+    private void patchUserList(Long id, User user) {
+        Cache userListCache = cacheManager.getCache("userListCache");
+        List<User> current = cachedUserList(userListCache);
+        if (current == null) {
+            return;
+        }
+        List<User> patched = new ArrayList<>(current.size() + 1);
+        boolean found = false;
+        for (User existing : current) {
+            if (id.equals(existing.getId())) {
+                found = true;
+                if (user != null) {
+                    patched.add(user);
+                }
+            } else {
+                patched.add(existing);
+            }
+        }
+        if (!found && user != null) {
+            patched.add(user);
+        }
+        userListCache.put(ALL_USERS_KEY, Collections.unmodifiableList(patched));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<User> cachedUserList(Cache userListCache) {
+        Cache.ValueWrapper wrapper = userListCache.get(ALL_USERS_KEY);
+        return wrapper != null ? (List<User>) wrapper.get() : null;
+    }
+
     /**
      * 模拟慢服务调用
      */
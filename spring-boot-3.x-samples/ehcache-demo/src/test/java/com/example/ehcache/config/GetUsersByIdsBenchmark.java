@@ -0,0 +1,129 @@
+package com.example.ehcache.config;
+
+import com.example.ehcache.entity.User;
+import org.ehcache.CacheManager;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.CacheManagerBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.config.units.EntryUnit;
+import org.ehcache.config.units.MemoryUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比 getUsersByIds 的批量读取（一次 getAll、一次批量加载、一次 putAll）与逐个 get(key, valueLoader) 的耗时
+ * <p>
+ * 缓存与 application.yml 中的 userCache 相同：100 条堆内存 + 16MB 堆外内存，不使用磁盘层。
+ * 加载器不模拟 UserServiceImpl 中 300ms 的延迟，每次查询固定消耗 QUERY_TOKENS 的CPU，代表一次数据库往返的固定开销；
+ * hit 场景全部命中缓存，miss 场景每次调用前清空缓存
+ * <p>
+ * 运行：执行 main 方法，或 mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.ehcache.config.GetUsersByIdsBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GetUsersByIdsBenchmark {
+
+    private static final long QUERY_TOKENS = 1000;
+
+    @Param({"10", "100", "1000"})
+    private int ids;
+
+    @Param({"hit", "miss"})
+    private String scenario;
+
+    private CacheManager cacheManager;
+    private EhcacheSpringCache userCache;
+    private final Map<Long, User> userRepository = new HashMap<>();
+    private List<Long> keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cacheManager = CacheManagerBuilder.newCacheManagerBuilder()
+                .withCache("userCache", CacheConfigurationBuilder.newCacheConfigurationBuilder(Long.class, Object.class,
+                                ResourcePoolsBuilder.newResourcePoolsBuilder()
+                                        .heap(100, EntryUnit.ENTRIES)
+                                        .offheap(16, MemoryUnit.MB))
+                        .withValueSerializer(new UserCacheValueSerializer()))
+                .build(true);
+        @SuppressWarnings("unchecked")
+        org.ehcache.Cache<Object, Object> nativeCache = (org.ehcache.Cache<Object, Object>) (org.ehcache.Cache<?, ?>)
+                cacheManager.getCache("userCache", Long.class, Object.class);
+        userCache = new EhcacheSpringCache("userCache", nativeCache);
+
+        keys = new ArrayList<>(ids);
+        for (long id = 1; id <= ids; id++) {
+            userRepository.put(id, new User(id, "user" + id, "user" + id + "@example.com", 20 + (int) (id % 40)));
+            keys.add(id);
+        }
+        if ("hit".equals(scenario)) {
+            batch();
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void clearOnMiss() {
+        if ("miss".equals(scenario)) {
+            userCache.clear();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cacheManager.close();
+    }
+
+    @Benchmark
+    public Map<Object, Object> batch() {
+        return userCache.getAll(keys, this::loadUsers);
+    }
+
+    @Benchmark
+    public void perKey(Blackhole blackhole) {
+        for (Long id : keys) {
+            blackhole.consume(userCache.get(id, () -> loadUser(id)));
+        }
+    }
+
+    /**
+     * 与 UserServiceImpl.loadUsers 相同：一次查询加载所有未命中的ID
+     */
+    private Map<Object, Object> loadUsers(Set<Object> missing) {
+        Blackhole.consumeCPU(QUERY_TOKENS);
+        Map<Object, Object> users = new HashMap<>();
+        for (Object id : missing) {
+            User user = userRepository.get((Long) id);
+            if (user != null) {
+                users.put(id, user);
+            }
+        }
+        return users;
+    }
+
+    private User loadUser(Long id) {
+        Blackhole.consumeCPU(QUERY_TOKENS);
+        return userRepository.get(id);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(GetUsersByIdsBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
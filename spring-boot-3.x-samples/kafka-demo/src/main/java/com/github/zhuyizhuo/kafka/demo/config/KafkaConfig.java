@@ -5,19 +5,28 @@ import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
+import com.github.zhuyizhuo.kafka.demo.serde.KafkaMessageBinaryDeserializer;
+import com.github.zhuyizhuo.kafka.demo.serde.KafkaMessageBinarySerializer;
+import com.github.zhuyizhuo.kafka.demo.serde.LocalSchemaRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
+import org.springframework.kafka.support.serializer.DelegatingByTopicDeserializer;
+import org.springframework.kafka.support.serializer.DelegatingByTopicSerializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 import org.springframework.kafka.config.TopicBuilder;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 /**
  * Kafka配置类
@@ -34,20 +43,57 @@ public class KafkaConfig {
     @Value("${kafka-demo.topics.batch-topic}")
     private String batchTopic;
     
+    @Value("${kafka-demo.topics.load-topic:kafka-demo-load-topic}")
+    private String loadTopic;
+    
+    // 生产者吞吐相关配置，默认值与原先的固定配置一致，启用 throughput profile 后切换为高吞吐配置
+    @Value("${kafka-demo.producer.batch-size:16384}")
+    private int producerBatchSize;
+    
+    @Value("${kafka-demo.producer.linger-ms:0}")
+    private int producerLingerMs;
+    
+    @Value("${kafka-demo.producer.compression-type:none}")
+    private String producerCompressionType;
+    
+    @Value("${kafka-demo.producer.enable-idempotence:true}")
+    private boolean producerEnableIdempotence;
+    
+    @Value("${kafka-demo.producer.buffer-memory:33554432}")
+    private long producerBufferMemory;
+    
+    @Value("${kafka-demo.producer.max-in-flight-requests:5}")
+    private int producerMaxInFlightRequests;
+    
+    // 使用二进制格式传输 KafkaMessage 的主题，其余主题使用JSON
+    @Value("${kafka-demo.serde.binary-topics:}")
+    private String[] binaryTopics;
+    
     // 从配置文件中读取Kafka服务器地址
     @Value("${spring.kafka.bootstrap-servers}")
     private String kafkaBootstrapServers;
     
     /**
-     * 配置Kafka AdminClient
+     * 配置Kafka AdminClient，整个应用共用一个实例，应用关闭时自动关闭
      */
     @Bean
     public AdminClient adminClient() {
         Map<String, Object> configs = new HashMap<>();
         configs.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaBootstrapServers);
+        configs.put(AdminClientConfig.REQUEST_TIMEOUT_MS_CONFIG, 30000);
+        configs.put(AdminClientConfig.RETRIES_CONFIG, 3);
+        configs.put(AdminClientConfig.RETRY_BACKOFF_MS_CONFIG, 1000);
         return AdminClient.create(configs);
     }
     
+    /**
+     * 本地Schema注册中心，二进制序列化器和反序列化器共用
+     */
+    @Bean
+    public LocalSchemaRegistry localSchemaRegistry() {
+        return new LocalSchemaRegistry();
+    }
+    
     /**
      * 配置Kafka Producer Factory
      */
@@ -55,13 +101,25 @@ public class KafkaConfig {
     public ProducerFactory<String, Object> producerFactory() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaBootstrapServers);
-        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
         configProps.put(ProducerConfig.ACKS_CONFIG, "all");
         configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
-        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, 16384);
-        configProps.put(ProducerConfig.BUFFER_MEMORY_CONFIG, 33554432);
-        return new DefaultKafkaProducerFactory<>(configProps);
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, producerBatchSize);
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, producerLingerMs);
+        configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, producerCompressionType);
+        configProps.put(ProducerConfig.BUFFER_MEMORY_CONFIG, producerBufferMemory);
+        // 开启幂等后重试不会产生重复消息，每个连接最多5个在途请求时仍能保证分区内顺序
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, producerEnableIdempotence);
+        configProps.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, producerMaxInFlightRequests);
+        // binary-topics 中的主题使用二进制格式，其余主题使用JSON
+        Map<Pattern, Serializer<?>> serializers = new LinkedHashMap<>();
+        KafkaMessageBinarySerializer binarySerializer = new KafkaMessageBinarySerializer(localSchemaRegistry());
+        for (String topic : binaryTopics) {
+            if (!topic.isBlank()) {
+                serializers.put(Pattern.compile(Pattern.quote(topic.trim())), binarySerializer);
+            }
+        }
+        return new DefaultKafkaProducerFactory<>(configProps, new StringSerializer(),
+                new DelegatingByTopicSerializer(serializers, new JsonSerializer<>()));
     }
     
     /**
@@ -81,10 +139,16 @@ public class KafkaConfig {
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaBootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, "kafka-demo-group");
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
-        props.put(JsonDeserializer.TRUSTED_PACKAGES, "com.github.zhuyizhuo.kafka.demo.model");
-        return new DefaultKafkaConsumerFactory<>(props);
+        Map<Pattern, Deserializer<?>> deserializers = new LinkedHashMap<>();
+        KafkaMessageBinaryDeserializer binaryDeserializer = new KafkaMessageBinaryDeserializer(localSchemaRegistry());
+        for (String topic : binaryTopics) {
+            if (!topic.isBlank()) {
+                deserializers.put(Pattern.compile(Pattern.quote(topic.trim())), binaryDeserializer);
+            }
+        }
+        return new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(),
+                new DelegatingByTopicDeserializer(deserializers,
+                        new JsonDeserializer<>().trustedPackages("com.github.zhuyizhuo.kafka.demo.model")));
     }
     
     /**
@@ -157,4 +221,16 @@ public class KafkaConfig {
                 ))
                 .build();
     }
+    
+    /**
+     * 创建压测消息主题，只用于生产者吞吐测试，没有消费者
+     */
+    @Bean
+    public NewTopic loadTopic() {
+        return TopicBuilder.name(loadTopic)
+                .partitions(6)
+                .replicas(1)
+                .configs(java.util.Map.of("retention.ms", "3600000")) // 1小时
+                .build();
+    }
 }
\ No newline at end of file
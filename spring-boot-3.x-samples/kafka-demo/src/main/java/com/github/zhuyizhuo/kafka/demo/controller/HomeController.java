@@ -1,6 +1,9 @@
 package com.github.zhuyizhuo.kafka.demo.controller;
 
+import com.github.zhuyizhuo.kafka.demo.metrics.ConsumerMetrics;
+import com.github.zhuyizhuo.kafka.demo.model.BulkSendResult;
 import com.github.zhuyizhuo.kafka.demo.model.KafkaMessage;
+import com.github.zhuyizhuo.kafka.demo.service.KafkaLoadGeneratorService;
 import com.github.zhuyizhuo.kafka.demo.service.KafkaProducerService;
 import com.github.zhuyizhuo.kafka.demo.service.KafkaTopicService;
 import com.github.zhuyizhuo.kafka.demo.listener.KafkaConsumerListener;
@@ -15,8 +18,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * 首页控制器
@@ -34,18 +37,19 @@ public class HomeController {
     @Autowired
     private KafkaTopicService topicService;
     
+    @Autowired
+    private KafkaLoadGeneratorService loadGeneratorService;
+    
+    @Autowired
+    private ConsumerMetrics consumerMetrics;
+    
     /**
      * 首页
      */
     @GetMapping("/")
     public String home(Model model) {
         // 获取消息接收统计信息
-        ConcurrentHashMap<String, AtomicInteger> countMap = consumerListener.getMessageCountMap();
-        
-        Map<String, Integer> stats = new HashMap<>();
-        stats.put("stringMessage", countMap.getOrDefault("stringMessage", new AtomicInteger(0)).get());
-        stats.put("jsonMessage", countMap.getOrDefault("jsonMessage", new AtomicInteger(0)).get());
-        stats.put("batchMessage", countMap.getOrDefault("batchMessage", new AtomicInteger(0)).get());
+        Map<String, Long> stats = messageStats();
         
         // 获取Kafka主题列表
         try {
@@ -134,23 +138,102 @@ public class HomeController {
         return result;
     }
     
+    /**
+     * 生产者压测
+     */
+    @Operation(summary = "生产者压测", description = "向压测主题发送指定数量的消息，返回吞吐量(msgs/sec)和p50/p99确认延迟")
+    @PostMapping("/api/producer/load-test")
+    @ResponseBody
+    public Map<String, Object> loadTest(
+            @RequestParam(defaultValue = "100000") int count,
+            @RequestParam(defaultValue = "512") int payloadBytes,
+            @RequestParam(defaultValue = "120") int timeoutSeconds) {
+        
+        Map<String, Object> result = new HashMap<>();
+        try {
+            BulkSendResult sendResult = loadGeneratorService.runLoadTest(count, payloadBytes)
+                    .get(timeoutSeconds, TimeUnit.SECONDS);
+            result.put("success", sendResult.isAllSucceeded());
+            result.put("message", String.format("发送 %d 条消息，成功 %d 条，%.0f msgs/sec",
+                    sendResult.total(), sendResult.succeeded(), sendResult.messagesPerSecond()));
+            result.put("data", sendResult);
+        } catch (IllegalArgumentException e) {
+            result.put("success", false);
+            result.put("message", e.getMessage());
+        } catch (TimeoutException e) {
+            result.put("success", false);
+            result.put("message", "压测未在 " + timeoutSeconds + " 秒内完成，剩余消息仍在后台发送");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.put("success", false);
+            result.put("message", "压测被中断");
+        } catch (Exception e) {
+            result.put("success", false);
+            result.put("message", "压测失败: " + e.getMessage());
+        }
+        return result;
+    }
+    
+    /**
+     * 当前在途的批量消息数
+     */
+    @Operation(summary = "获取生产者在途消息数", description = "获取批量发送中已发送但尚未确认的消息数，以及排队等待发送线程的批量请求数")
+    @GetMapping("/api/producer/in-flight")
+    @ResponseBody
+    public Map<String, Object> getProducerInFlight() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("inFlight", producerService.getBulkInFlight());
+        result.put("queued", producerService.getBulkQueued());
+        return result;
+    }
+    
     /**
      * 获取消息接收统计
      */
     @Operation(summary = "获取消息统计", description = "获取各类消息的接收统计数据")
     @GetMapping("/api/stats")
     @ResponseBody
-    public Map<String, Integer> getStats() {
-        ConcurrentHashMap<String, AtomicInteger> countMap = consumerListener.getMessageCountMap();
-        
-        Map<String, Integer> stats = new HashMap<>();
-        stats.put("stringMessage", countMap.getOrDefault("stringMessage", new AtomicInteger(0)).get());
-        stats.put("jsonMessage", countMap.getOrDefault("jsonMessage", new AtomicInteger(0)).get());
-        stats.put("batchMessage", countMap.getOrDefault("batchMessage", new AtomicInteger(0)).get());
+    public Map<String, Long> getStats() {
+        return messageStats();
+    }
+    
+    /**
+     * 获取消费指标
+     */
+    @Operation(summary = "获取消费指标", description = "获取每个分区的消费速率和积压，以及每个主题的端到端延迟和处理耗时分位数")
+    @GetMapping("/api/metrics/consumer")
+    @ResponseBody
+    public Map<String, Object> getConsumerMetrics() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("data", consumerMetrics.snapshot());
+        return result;
+    }
+    
+    private Map<String, Long> messageStats() {
+        Map<String, Long> counts = consumerMetrics.getMessageCounts();
         
+        Map<String, Long> stats = new HashMap<>();
+        stats.put("stringMessage", counts.getOrDefault("stringMessage", 0L));
+        stats.put("jsonMessage", counts.getOrDefault("jsonMessage", 0L));
+        stats.put("batchMessage", counts.getOrDefault("batchMessage", 0L));
         return stats;
     }
     
+    /**
+     * 获取批量消息处理状态
+     */
+    @Operation(summary = "获取批量消费状态", description = "获取批量消息的处理模式、在途消息数以及每个分区的已提交偏移量和积压")
+    @GetMapping("/api/consumer/batch-status")
+    @ResponseBody
+    public Map<String, Object> getBatchStatus() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("data", consumerListener.getBatchProcessingStatus());
+        return result;
+    }
+    
     /**
      * 获取Kafka主题列表
      */
@@ -200,6 +283,51 @@ public class HomeController {
         return result;
     }
     
+    /**
+     * 批量创建Kafka主题
+     */
+    @Operation(summary = "批量创建主题", description = "在一次请求中创建多个主题，主题名称用逗号分隔")
+    @PostMapping("/api/topics/batch-create")
+    @ResponseBody
+    public Map<String, Object> createTopics(@RequestParam List<String> topicNames) {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            List<String> names = topicNames.stream().map(String::trim).filter(name -> !name.isEmpty()).toList();
+            if (names.isEmpty()) {
+                result.put("success", false);
+                result.put("message", "主题名称不能为空");
+                return result;
+            }
+            
+            Map<String, Boolean> created = topicService.createTopics(names);
+            result.put("success", true);
+            result.put("message", "新建 " + created.values().stream().filter(Boolean::booleanValue).count() + " 个主题");
+            result.put("data", created);
+        } catch (Exception e) {
+            result.put("success", false);
+            result.put("message", "批量创建主题失败: " + e.getMessage());
+        }
+        return result;
+    }
+    
+    /**
+     * 批量查询Kafka主题信息
+     */
+    @Operation(summary = "查询主题信息", description = "在一次请求中查询多个主题的分区数和副本数，主题名称用逗号分隔")
+    @GetMapping("/api/topics/describe")
+    @ResponseBody
+    public Map<String, Object> describeTopics(@RequestParam List<String> topicNames) {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            result.put("success", true);
+            result.put("data", topicService.describeTopics(topicNames));
+        } catch (Exception e) {
+            result.put("success", false);
+            result.put("message", "查询主题信息失败: " + e.getMessage());
+        }
+        return result;
+    }
+    
     /**
      * 删除Kafka主题
      */
@@ -1,15 +1,18 @@
 package com.github.zhuyizhuo.kafka.demo.listener;
 
+import com.github.zhuyizhuo.kafka.demo.metrics.ConsumerMetrics;
 import com.github.zhuyizhuo.kafka.demo.model.KafkaMessage;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Map;
 
 /**
  * Kafka消费者监听器
@@ -17,9 +20,6 @@ import java.util.concurrent.atomic.AtomicInteger;
 @Component
 public class KafkaConsumerListener {
 
-    // 用于存储接收到的消息计数
-    private final ConcurrentHashMap<String, AtomicInteger> messageCountMap = new ConcurrentHashMap<>();
-    
     @Value("${kafka-demo.topics.demo-topic}")
     private String demoTopic;
     
@@ -29,17 +29,32 @@ public class KafkaConsumerListener {
     @Value("${kafka-demo.topics.batch-topic}")
     private String batchTopic;
     
+    // 批量消息处理模式：parallel 按key并行处理，sequential 在监听器线程中逐条处理
+    @Value("${kafka-demo.consumer.batch-mode:parallel}")
+    private String batchMode;
+    
+    // 模拟每条批量消息的业务处理耗时（毫秒），用于观察并行处理的效果
+    @Value("${kafka-demo.consumer.simulated-processing-millis:0}")
+    private long simulatedProcessingMillis;
+    
+    @Autowired
+    private KeyOrderedBatchProcessor batchProcessor;
+    
+    @Autowired
+    private ConsumerMetrics consumerMetrics;
+    
     /**
      * 监听简单字符串消息
      */
     @KafkaListener(topics = "${kafka-demo.topics.demo-topic}", groupId = "${spring.kafka.consumer.group-id}")
     public void listenStringMessage(ConsumerRecord<String, String> record, Acknowledgment acknowledgment) {
         try {
+            long start = System.nanoTime();
             String message = record.value();
             System.out.println("接收到字符串消息: " + message + ", 分区: " + record.partition() + ", 偏移量: " + record.offset());
             
-            // 更新消息计数
-            messageCountMap.computeIfAbsent("stringMessage", k -> new AtomicInteger(0)).incrementAndGet();
+            // 记录消费指标
+            consumerMetrics.record("stringMessage", record, System.nanoTime() - start);
             
             // 手动确认消息
             acknowledgment.acknowledge();
@@ -54,11 +69,12 @@ public class KafkaConsumerListener {
     @KafkaListener(topics = "${kafka-demo.topics.json-topic}", groupId = "${spring.kafka.consumer.group-id}")
     public void listenJsonMessage(ConsumerRecord<String, KafkaMessage> record, Acknowledgment acknowledgment) {
         try {
+            long start = System.nanoTime();
             KafkaMessage message = record.value();
             System.out.println("接收到JSON消息: " + message + ", 分区: " + record.partition() + ", 偏移量: " + record.offset());
             
-            // 更新消息计数
-            messageCountMap.computeIfAbsent("jsonMessage", k -> new AtomicInteger(0)).incrementAndGet();
+            // 记录消费指标
+            consumerMetrics.record("jsonMessage", record, System.nanoTime() - start);
             
             // 手动确认消息
             acknowledgment.acknowledge();
@@ -69,20 +85,23 @@ public class KafkaConsumerListener {
     
     /**
      * 批量监听消息
+     * <p>
+     * parallel 模式下由 {@link KeyOrderedBatchProcessor} 按key并行处理并按分区提交连续成功的偏移量，
+     * sequential 模式下逐条处理后确认整批消息
      */
     @KafkaListener(topics = "${kafka-demo.topics.batch-topic}", groupId = "${spring.kafka.consumer.group-id}", containerFactory = "batchKafkaListenerContainerFactory")
-    public void listenBatchMessages(List<ConsumerRecord<String, KafkaMessage>> records, Acknowledgment acknowledgment) {
+    public void listenBatchMessages(List<ConsumerRecord<String, KafkaMessage>> records, Acknowledgment acknowledgment,
+                                    Consumer<?, ?> consumer) {
         try {
-            System.out.println("接收到批量消息，数量: " + records.size());
+            if ("parallel".equals(batchMode)) {
+                batchProcessor.processAndCommit(records, consumer, this::processBatchRecord);
+                return;
+            }
             
             for (ConsumerRecord<String, KafkaMessage> record : records) {
-                KafkaMessage message = record.value();
-                System.out.println("批量消息内容: " + message + ", 分区: " + record.partition() + ", 偏移量: " + record.offset());
+                processBatchRecord(record);
             }
             
-            // 更新消息计数
-            messageCountMap.computeIfAbsent("batchMessage", k -> new AtomicInteger(0)).addAndGet(records.size());
-            
             // 手动确认所有消息
             acknowledgment.acknowledge();
         } catch (Exception e) {
@@ -91,9 +110,25 @@ public class KafkaConsumerListener {
     }
     
     /**
-     * 获取消息接收统计信息
+     * 处理单条批量消息
+     */
+    private void processBatchRecord(ConsumerRecord<String, KafkaMessage> record) throws InterruptedException {
+        long start = System.nanoTime();
+        if (simulatedProcessingMillis > 0) {
+            Thread.sleep(simulatedProcessingMillis);
+        }
+        // 记录消费指标
+        consumerMetrics.record("batchMessage", record, System.nanoTime() - start);
+    }
+    
+    /**
+     * 获取批量消息并行处理状态：在途消息数和每个分区的提交进度、积压
      */
-    public ConcurrentHashMap<String, AtomicInteger> getMessageCountMap() {
-        return messageCountMap;
+    public Map<String, Object> getBatchProcessingStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("mode", batchMode);
+        status.put("inFlight", batchProcessor.getInFlight());
+        status.put("partitions", batchProcessor.getPartitionStatus());
+        return status;
     }
 }
\ No newline at end of file
@@ -0,0 +1,300 @@
+package com.github.zhuyizhuo.kafka.demo.listener;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批量消息并行处理器
+ * <p>
+ * 把一次拉取到的批量消息按 分区+消息key 拆分成多条处理链，交给工作线程池并行处理：
+ * 1. 同一个key的消息在同一条处理链中按偏移量顺序处理，某条消息失败后该key后续的消息不再处理，保证同一key内的顺序
+ * 2. 不同key的消息并行处理，没有key的消息每条单独处理
+ * 3. 整批处理结束后，每个分区只提交到 从批次起点开始连续处理成功的最大偏移量，
+ *    第一条未成功的消息及其之后的消息通过 seek 在下次拉取时重新投递（至少一次语义，之后已成功的消息可能被重复处理）
+ * 4. 同一条消息累计失败 max-attempts 次后发送到死信主题（原主题名 + dead-letter-suffix）并跳过，
+ *    该key后续的消息继续处理，避免一条始终失败的消息让分区永远停在同一个偏移量；死信发送失败时仍按失败重新投递
+ */
+@Component
+public class KeyOrderedBatchProcessor implements DisposableBean {
+
+    private final ExecutorService workers;
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+
+    /**
+     * 单条消息最多处理次数，达到后发送到死信主题，0表示不限次数
+     */
+    private final int maxAttempts;
+
+    /**
+     * 死信主题后缀
+     */
+    private final String deadLetterSuffix;
+
+    /**
+     * 处理失败过的消息（主题、分区、偏移量）及其失败次数，处理成功或发送到死信主题后移除
+     */
+    private final ConcurrentHashMap<List<Object>, Integer> failedAttempts = new ConcurrentHashMap<>();
+
+    /**
+     * 已提交给工作线程但尚未处理完成的消息数
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * 每个分区的提交进度和积压
+     */
+    private final ConcurrentHashMap<TopicPartition, PartitionProgress> partitions = new ConcurrentHashMap<>();
+
+    public KeyOrderedBatchProcessor(@Value("${kafka-demo.consumer.worker-threads:8}") int workerThreads,
+                                    @Value("${kafka-demo.consumer.virtual-threads:false}") boolean virtualThreads,
+                                    @Value("${kafka-demo.consumer.max-attempts:3}") int maxAttempts,
+                                    @Value("${kafka-demo.consumer.dead-letter-suffix:.DLT}") String deadLetterSuffix,
+                                    KafkaTemplate<String, Object> kafkaTemplate) {
+        this.maxAttempts = maxAttempts;
+        this.deadLetterSuffix = deadLetterSuffix;
+        this.kafkaTemplate = kafkaTemplate;
+        ExecutorService executor = virtualThreads ? newVirtualThreadExecutor() : null;
+        if (virtualThreads && executor == null) {
+            System.err.println("当前JDK不支持虚拟线程，改用 " + workerThreads + " 个平台线程处理批量消息");
+        }
+        if (executor == null) {
+            AtomicInteger threadIndex = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(workerThreads, runnable -> {
+                Thread thread = new Thread(runnable, "kafka-batch-worker-" + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.workers = executor;
+    }
+
+    /**
+     * 并行处理一批消息并提交偏移量，必须在监听器线程中调用
+     * @param records 一次拉取的消息
+     * @param consumer 监听器线程的消费者，用于提交偏移量和重新定位未成功的消息
+     * @param handler 单条消息的处理逻辑，抛出异常表示处理失败
+     * @return 处理成功的消息数
+     */
+    public <V> int processAndCommit(List<ConsumerRecord<String, V>> records, Consumer<?, ?> consumer,
+                                    RecordHandler<V> handler) {
+        // 按 分区+key 拆分处理链，链内保持拉取顺序（即偏移量顺序）
+        Map<Object, List<ConsumerRecord<String, V>>> chains = new LinkedHashMap<>();
+        for (ConsumerRecord<String, V> record : records) {
+            Object chainKey = record.key() == null
+                    ? record
+                    : List.of(record.partition(), record.topic(), record.key());
+            chains.computeIfAbsent(chainKey, k -> new ArrayList<>()).add(record);
+        }
+
+        inFlight.addAndGet(records.size());
+        List<List<ConsumerRecord<String, V>>> chainList = new ArrayList<>(chains.values());
+        List<CompletableFuture<Integer>> futures = new ArrayList<>(chainList.size());
+        for (List<ConsumerRecord<String, V>> chain : chainList) {
+            futures.add(CompletableFuture.supplyAsync(() -> processChain(chain, handler), workers));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        // 汇总每个分区中处理成功的偏移量
+        Map<TopicPartition, TreeMap<Long, Boolean>> results = new HashMap<>();
+        int succeeded = 0;
+        for (int i = 0; i < chainList.size(); i++) {
+            List<ConsumerRecord<String, V>> chain = chainList.get(i);
+            int processed = futures.get(i).join();
+            succeeded += processed;
+            for (int j = 0; j < chain.size(); j++) {
+                ConsumerRecord<String, V> record = chain.get(j);
+                results.computeIfAbsent(new TopicPartition(record.topic(), record.partition()), tp -> new TreeMap<>())
+                        .put(record.offset(), j < processed);
+            }
+        }
+
+        commitContiguous(results, consumer);
+        return succeeded;
+    }
+
+    /**
+     * 按顺序处理一条处理链，返回从链头开始连续处理成功的消息数
+     */
+    private <V> int processChain(List<ConsumerRecord<String, V>> chain, RecordHandler<V> handler) {
+        int processed = 0;
+        try {
+            for (ConsumerRecord<String, V> record : chain) {
+                List<Object> attemptKey = List.of(record.topic(), record.partition(), record.offset());
+                try {
+                    handler.handle(record);
+                    failedAttempts.remove(attemptKey);
+                } catch (Exception e) {
+                    int attempts = failedAttempts.merge(attemptKey, 1, Integer::sum);
+                    System.err.println("处理批量消息失败，分区: " + record.partition() + ", 偏移量: " + record.offset()
+                            + ", 第 " + attempts + " 次, 错误: " + e.getMessage());
+                    if (maxAttempts <= 0 || attempts < maxAttempts || !sendToDeadLetter(record, e)) {
+                        break;
+                    }
+                    failedAttempts.remove(attemptKey);
+                }
+                processed++;
+                inFlight.decrementAndGet();
+            }
+        } finally {
+            // 失败后未处理的消息不再计入在途数
+            inFlight.addAndGet(-(chain.size() - processed));
+        }
+        return processed;
+    }
+
+    /**
+     * 把多次处理失败的消息发送到死信主题，消息头与 Spring Kafka 的 DeadLetterPublishingRecoverer 一致
+     * @return 是否发送成功，失败时该消息按处理失败重新投递
+     */
+    private boolean sendToDeadLetter(ConsumerRecord<String, ?> record, Exception cause) {
+        ProducerRecord<String, Object> deadLetter = new ProducerRecord<>(record.topic() + deadLetterSuffix,
+                null, record.key(), record.value());
+        deadLetter.headers().add(KafkaHeaders.DLT_ORIGINAL_TOPIC, record.topic().getBytes(StandardCharsets.UTF_8));
+        deadLetter.headers().add(KafkaHeaders.DLT_ORIGINAL_PARTITION,
+                String.valueOf(record.partition()).getBytes(StandardCharsets.UTF_8));
+        deadLetter.headers().add(KafkaHeaders.DLT_ORIGINAL_OFFSET,
+                String.valueOf(record.offset()).getBytes(StandardCharsets.UTF_8));
+        deadLetter.headers().add(KafkaHeaders.DLT_EXCEPTION_FQCN, cause.getClass().getName().getBytes(StandardCharsets.UTF_8));
+        deadLetter.headers().add(KafkaHeaders.DLT_EXCEPTION_MESSAGE,
+                String.valueOf(cause.getMessage()).getBytes(StandardCharsets.UTF_8));
+        try {
+            kafkaTemplate.send(deadLetter).get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            System.err.println("发送死信消息失败，分区: " + record.partition() + ", 偏移量: " + record.offset()
+                    + ", 错误: " + e.getMessage());
+            return false;
+        }
+        partitions.computeIfAbsent(new TopicPartition(record.topic(), record.partition()), k -> new PartitionProgress())
+                .deadLettered.incrementAndGet();
+        System.err.println("消息处理失败 " + maxAttempts + " 次，已发送到死信主题 " + deadLetter.topic()
+                + "，分区: " + record.partition() + ", 偏移量: " + record.offset());
+        return true;
+    }
+
+    /**
+     * 每个分区提交到连续成功的最大偏移量，并把消费位置重置到第一条未成功的消息
+     */
+    private void commitContiguous(Map<TopicPartition, TreeMap<Long, Boolean>> results, Consumer<?, ?> consumer) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        Map<TopicPartition, Long> retryFrom = new HashMap<>();
+        for (Map.Entry<TopicPartition, TreeMap<Long, Boolean>> entry : results.entrySet()) {
+            Long lastCompleted = null;
+            for (Map.Entry<Long, Boolean> offset : entry.getValue().entrySet()) {
+                if (!offset.getValue()) {
+                    retryFrom.put(entry.getKey(), offset.getKey());
+                    break;
+                }
+                lastCompleted = offset.getKey();
+            }
+            if (lastCompleted != null) {
+                offsets.put(entry.getKey(), new OffsetAndMetadata(lastCompleted + 1));
+            }
+        }
+
+        if (!offsets.isEmpty()) {
+            consumer.commitSync(offsets);
+        }
+        retryFrom.forEach(consumer::seek);
+
+        for (TopicPartition tp : results.keySet()) {
+            PartitionProgress progress = partitions.computeIfAbsent(tp, k -> new PartitionProgress());
+            OffsetAndMetadata committed = offsets.get(tp);
+            if (committed != null) {
+                progress.committedOffset.set(committed.offset());
+            }
+            if (retryFrom.containsKey(tp)) {
+                progress.retries.incrementAndGet();
+            }
+            // currentLag 使用消费者拉取时获得的日志末端偏移量计算，不会发起网络请求
+            OptionalLong lag = consumer.currentLag(tp);
+            if (lag.isPresent()) {
+                progress.lag.set(lag.getAsLong());
+            }
+        }
+    }
+
+    /**
+     * 当前在途的消息数
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 每个分区的已提交偏移量、积压消息数、重试次数和发送到死信主题的消息数
+     */
+    public Map<String, Map<String, Long>> getPartitionStatus() {
+        Map<String, Map<String, Long>> status = new TreeMap<>();
+        partitions.forEach((tp, progress) -> {
+            Map<String, Long> partition = new LinkedHashMap<>();
+            partition.put("committedOffset", progress.committedOffset.get());
+            partition.put("lag", progress.lag.get());
+            partition.put("retries", progress.retries.get());
+            partition.put("deadLettered", progress.deadLettered.get());
+            status.put(tp.toString(), partition);
+        });
+        return status;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        workers.shutdown();
+        if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * JDK 21 及以上使用虚拟线程，低版本JDK返回null
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 单条消息处理逻辑
+     */
+    @FunctionalInterface
+    public interface RecordHandler<V> {
+        void handle(ConsumerRecord<String, V> record) throws Exception;
+    }
+
+    private static class PartitionProgress {
+        private final AtomicLong committedOffset = new AtomicLong(-1);
+        private final AtomicLong lag = new AtomicLong(-1);
+        private final AtomicLong retries = new AtomicLong();
+        private final AtomicLong deadLettered = new AtomicLong();
+    }
+}
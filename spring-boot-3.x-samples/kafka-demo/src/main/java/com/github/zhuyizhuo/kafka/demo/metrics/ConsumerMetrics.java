@@ -0,0 +1,266 @@
+package com.github.zhuyizhuo.kafka.demo.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.record.RecordBatch;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Kafka消费指标
+ * <p>
+ * 通过 Micrometer 发布以下指标，可以在 /actuator/metrics 中查看：
+ * 1. kafka.demo.consumer.records：每个分区消费的消息数
+ * 2. kafka.demo.consumer.rate：每个分区最近一个统计周期的消费速率（条/秒）
+ * 3. kafka.demo.consumer.e2e.latency：从消息时间戳到处理完成的端到端延迟
+ * 4. kafka.demo.consumer.processing：单条消息的处理耗时
+ * 5. kafka.demo.consumer.lag：消费者组在每个分区的积压，定时从Broker查询
+ * <p>
+ * 记录消息时只做 LongAdder 累加和直方图记录，指标对象按主题、分区缓存，不在每条消息上查找注册表
+ */
+@Component
+public class ConsumerMetrics implements DisposableBean {
+
+    private static final long RATE_INTERVAL_MILLIS = 5000;
+
+    private final MeterRegistry registry;
+    private final AdminClient adminClient;
+    private final String groupId;
+    private final ScheduledExecutorService scheduler;
+
+    private final ConcurrentHashMap<String, LongAdder> messageCounts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<TopicPartition, PartitionMeters> partitions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, TopicMeters> topics = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<TopicPartition, AtomicLong> lags = new ConcurrentHashMap<>();
+
+    public ConsumerMetrics(MeterRegistry registry, AdminClient adminClient,
+                                @Value("${spring.kafka.consumer.group-id}") String groupId,
+                                @Value("${kafka-demo.metrics.lag-interval-ms:10000}") long lagIntervalMillis) {
+        this.registry = registry;
+        this.adminClient = adminClient;
+        this.groupId = groupId;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "kafka-consumer-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::updateRates, RATE_INTERVAL_MILLIS, RATE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::updateLag, lagIntervalMillis, lagIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 记录一条处理完成的消息
+     * @param messageType 消息类型，用于首页统计
+     * @param record 消息
+     * @param processingNanos 处理耗时（纳秒）
+     */
+    public void record(String messageType, ConsumerRecord<?, ?> record, long processingNanos) {
+        messageCounts.computeIfAbsent(messageType, k -> new LongAdder()).increment();
+
+        TopicPartition tp = new TopicPartition(record.topic(), record.partition());
+        PartitionMeters partitionMeters = partitions.get(tp);
+        if (partitionMeters == null) {
+            partitionMeters = partitions.computeIfAbsent(tp, this::createPartitionMeters);
+        }
+        partitionMeters.count.increment();
+        partitionMeters.counter.increment();
+
+        TopicMeters topicMeters = topics.get(record.topic());
+        if (topicMeters == null) {
+            topicMeters = topics.computeIfAbsent(record.topic(), this::createTopicMeters);
+        }
+        topicMeters.processing.record(processingNanos, TimeUnit.NANOSECONDS);
+        if (record.timestamp() != RecordBatch.NO_TIMESTAMP) {
+            long latencyMillis = Math.max(0, System.currentTimeMillis() - record.timestamp());
+            topicMeters.endToEndLatency.record(latencyMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 各类消息的处理数量
+     */
+    public Map<String, Long> getMessageCounts() {
+        Map<String, Long> counts = new HashMap<>();
+        messageCounts.forEach((type, count) -> counts.put(type, count.sum()));
+        return counts;
+    }
+
+    /**
+     * 当前的消费指标快照：每个分区的消费数、速率、积压，每个主题的延迟和处理耗时分位数
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> partitionStats = new TreeMap<>();
+        partitions.forEach((tp, meters) -> {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("records", meters.count.sum());
+            stats.put("ratePerSecond", meters.ratePerSecond);
+            AtomicLong lag = lags.get(tp);
+            stats.put("lag", lag == null ? null : lag.get());
+            partitionStats.put(tp.toString(), stats);
+        });
+        lags.forEach((tp, lag) -> {
+            // 有积压但本实例还没有消费过的分区
+            if (!partitionStats.containsKey(tp.toString())) {
+                Map<String, Object> stats = new LinkedHashMap<>();
+                stats.put("records", 0L);
+                stats.put("ratePerSecond", 0.0);
+                stats.put("lag", lag.get());
+                partitionStats.put(tp.toString(), stats);
+            }
+        });
+
+        Map<String, Object> topicStats = new TreeMap<>();
+        topics.forEach((topic, meters) -> {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("endToEndLatencyMillis", percentiles(meters.endToEndLatency.takeSnapshot()));
+            stats.put("processingMillis", percentiles(meters.processing.takeSnapshot()));
+            topicStats.put(topic, stats);
+        });
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("groupId", groupId);
+        snapshot.put("messageCounts", getMessageCounts());
+        snapshot.put("partitions", partitionStats);
+        snapshot.put("topics", topicStats);
+        return snapshot;
+    }
+
+    private PartitionMeters createPartitionMeters(TopicPartition tp) {
+        String partition = String.valueOf(tp.partition());
+        PartitionMeters meters = new PartitionMeters(Counter.builder("kafka.demo.consumer.records")
+                .description("消费的消息数")
+                .tag("topic", tp.topic())
+                .tag("partition", partition)
+                .register(registry));
+        Gauge.builder("kafka.demo.consumer.rate", meters, m -> m.ratePerSecond)
+                .description("最近一个统计周期的消费速率（条/秒）")
+                .tag("topic", tp.topic())
+                .tag("partition", partition)
+                .register(registry);
+        return meters;
+    }
+
+    private TopicMeters createTopicMeters(String topic) {
+        Timer endToEndLatency = Timer.builder("kafka.demo.consumer.e2e.latency")
+                .description("从消息时间戳到处理完成的端到端延迟")
+                .tag("topic", topic)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        Timer processing = Timer.builder("kafka.demo.consumer.processing")
+                .description("单条消息的处理耗时")
+                .tag("topic", topic)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        return new TopicMeters(endToEndLatency, processing);
+    }
+
+    private void updateRates() {
+        long now = System.currentTimeMillis();
+        partitions.values().forEach(meters -> meters.updateRate(now));
+    }
+
+    /**
+     * 查询消费者组已提交的偏移量和分区的最新偏移量，二者之差即为积压
+     */
+    private void updateLag() {
+        try {
+            Map<TopicPartition, OffsetAndMetadata> committed = adminClient.listConsumerGroupOffsets(groupId)
+                    .partitionsToOffsetAndMetadata().get(10, TimeUnit.SECONDS);
+            Map<TopicPartition, OffsetSpec> request = new HashMap<>();
+            committed.forEach((tp, offset) -> {
+                if (offset != null) {
+                    request.put(tp, OffsetSpec.latest());
+                }
+            });
+            if (request.isEmpty()) {
+                return;
+            }
+            Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> endOffsets =
+                    adminClient.listOffsets(request).all().get(10, TimeUnit.SECONDS);
+            endOffsets.forEach((tp, end) -> {
+                long lag = Math.max(0, end.offset() - committed.get(tp).offset());
+                lags.computeIfAbsent(tp, this::registerLagGauge).set(lag);
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("查询消费者组积压失败: " + e.getMessage());
+        }
+    }
+
+    private AtomicLong registerLagGauge(TopicPartition tp) {
+        AtomicLong lag = new AtomicLong();
+        Gauge.builder("kafka.demo.consumer.lag", lag, AtomicLong::get)
+                .description("消费者组在分区上的积压消息数")
+                .tag("group", groupId)
+                .tag("topic", tp.topic())
+                .tag("partition", String.valueOf(tp.partition()))
+                .register(registry);
+        return lag;
+    }
+
+    private static Map<String, Object> percentiles(HistogramSnapshot snapshot) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("count", snapshot.count());
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            result.put("p" + Math.round(percentile.percentile() * 100), percentile.value(TimeUnit.MILLISECONDS));
+        }
+        result.put("max", snapshot.max(TimeUnit.MILLISECONDS));
+        return result;
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    private static class PartitionMeters {
+        private final Counter counter;
+        private final LongAdder count = new LongAdder();
+        private volatile double ratePerSecond;
+        private long lastCount;
+        private long lastMillis = System.currentTimeMillis();
+
+        private PartitionMeters(Counter counter) {
+            this.counter = counter;
+        }
+
+        /**
+         * 只在统计线程中调用
+         */
+        private void updateRate(long now) {
+            long current = count.sum();
+            long elapsed = now - lastMillis;
+            if (elapsed > 0) {
+                ratePerSecond = (current - lastCount) * 1000.0 / elapsed;
+            }
+            lastCount = current;
+            lastMillis = now;
+        }
+    }
+
+    private record TopicMeters(Timer endToEndLatency, Timer processing) {
+    }
+}
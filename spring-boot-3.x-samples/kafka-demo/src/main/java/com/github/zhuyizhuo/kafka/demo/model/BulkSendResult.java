@@ -0,0 +1,22 @@
+package com.github.zhuyizhuo.kafka.demo.model;
+
+/**
+ * 批量发送结果
+ *
+ * @param total 消息总数
+ * @param succeeded 发送成功数
+ * @param failed 发送失败数
+ * @param elapsedMillis 从开始发送到最后一条确认的耗时（毫秒）
+ * @param messagesPerSecond 每秒成功发送的消息数
+ * @param p50AckMillis 确认延迟中位数（毫秒）
+ * @param p99AckMillis 确认延迟99分位（毫秒）
+ * @param maxAckMillis 最大确认延迟（毫秒）
+ * @param firstError 第一条失败消息的错误信息，全部成功时为null
+ */
+public record BulkSendResult(int total, int succeeded, int failed, long elapsedMillis, double messagesPerSecond,
+                             double p50AckMillis, double p99AckMillis, double maxAckMillis, String firstError) {
+
+    public boolean isAllSucceeded() {
+        return failed == 0 && succeeded == total;
+    }
+}
@@ -17,8 +17,21 @@ public class KafkaMessage implements Serializable {
     private LocalDateTime timestamp;
     
     public KafkaMessage() {
-        this.id = UUID.randomUUID().toString();
-        this.timestamp = LocalDateTime.now();
+        this(true);
+    }
+    
+    private KafkaMessage(boolean generateDefaults) {
+        if (generateDefaults) {
+            this.id = UUID.randomUUID().toString();
+            this.timestamp = LocalDateTime.now();
+        }
+    }
+    
+    /**
+     * 创建不生成id和时间的空消息，供反序列化时填充字段，避免每条消息都生成一次UUID
+     */
+    public static KafkaMessage empty() {
+        return new KafkaMessage(false);
     }
     
     public KafkaMessage(String content, String sender) {
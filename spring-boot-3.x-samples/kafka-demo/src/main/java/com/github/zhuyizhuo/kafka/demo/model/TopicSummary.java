@@ -0,0 +1,12 @@
+package com.github.zhuyizhuo.kafka.demo.model;
+
+/**
+ * 主题概要信息
+ *
+ * @param name 主题名称
+ * @param partitions 分区数
+ * @param replicationFactor 副本数
+ * @param internal 是否为Kafka内部主题
+ */
+public record TopicSummary(String name, int partitions, int replicationFactor, boolean internal) {
+}
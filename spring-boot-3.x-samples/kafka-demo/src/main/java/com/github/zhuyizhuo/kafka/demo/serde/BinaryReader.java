@@ -0,0 +1,66 @@
+package com.github.zhuyizhuo.kafka.demo.serde;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 可复用的二进制读取器，直接在消息的字节数组上读取，不复制数据
+ */
+final class BinaryReader {
+
+    private byte[] data;
+    private int position;
+
+    void reset(byte[] data) {
+        this.data = data;
+        this.position = 0;
+    }
+
+    /**
+     * 释放对上一条消息字节数组的引用
+     */
+    void release() {
+        this.data = null;
+    }
+
+    byte readByte() {
+        checkRemaining(1);
+        return data[position++];
+    }
+
+    int readInt() {
+        checkRemaining(4);
+        return ((data[position++] & 0xFF) << 24)
+                | ((data[position++] & 0xFF) << 16)
+                | ((data[position++] & 0xFF) << 8)
+                | (data[position++] & 0xFF);
+    }
+
+    long readVarLong() {
+        long zigzag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = readByte();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IllegalArgumentException("变长整数格式错误");
+    }
+
+    String readString() {
+        int length = (int) readVarLong();
+        if (length < 0) {
+            return null;
+        }
+        checkRemaining(length);
+        String value = new String(data, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    private void checkRemaining(int length) {
+        if (length > data.length - position) {
+            throw new IllegalArgumentException("消息数据不完整，位置: " + position + ", 需要: " + length + " 字节");
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.github.zhuyizhuo.kafka.demo.serde;
+
+import com.github.zhuyizhuo.kafka.demo.model.KafkaMessage;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * KafkaMessage 二进制反序列化器
+ * <p>
+ * 根据消息头部的Schema ID找到写入时的Schema，按该Schema的字段顺序读取：
+ * 1. 每个Schema ID对应的字段解析器只在第一次遇到时生成，之后直接复用，不做反射查找
+ * 2. 写入方Schema中当前版本不认识的字段读取后丢弃，当前版本新增而写入方没有的字段保持为null
+ * 3. 每个线程复用同一个读取器，直接在消息字节数组上解析
+ */
+public class KafkaMessageBinaryDeserializer implements Deserializer<KafkaMessage> {
+
+    private final LocalSchemaRegistry registry;
+    private final Map<Integer, FieldReader[]> readersBySchemaId = new ConcurrentHashMap<>();
+    private final ThreadLocal<BinaryReader> readers = ThreadLocal.withInitial(BinaryReader::new);
+
+    public KafkaMessageBinaryDeserializer(LocalSchemaRegistry registry) {
+        this.registry = registry;
+        // Schema ID由指纹计算，只消费不生产的应用注册当前版本后也能解析其他实例或重启前写入的消息
+        registry.register(KafkaMessageSchema.SUBJECT, KafkaMessageSchema.FIELDS);
+    }
+
+    @Override
+    public KafkaMessage deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        BinaryReader reader = readers.get();
+        reader.reset(data);
+        try {
+            if (reader.readByte() != KafkaMessageBinarySerializer.MAGIC_BYTE) {
+                throw new SerializationException("主题 " + topic + " 的消息不是二进制格式");
+            }
+            FieldReader[] fieldReaders = readersBySchemaId.computeIfAbsent(reader.readInt(), this::compile);
+            KafkaMessage message = KafkaMessage.empty();
+            for (FieldReader fieldReader : fieldReaders) {
+                Object value = switch (fieldReader.type()) {
+                    case STRING -> reader.readString();
+                    case TIMESTAMP -> readTimestamp(reader);
+                };
+                if (fieldReader.setter() != null) {
+                    fieldReader.setter().accept(message, value);
+                }
+            }
+            return message;
+        } catch (IllegalArgumentException e) {
+            throw new SerializationException("主题 " + topic + " 的消息解析失败: " + e.getMessage(), e);
+        } finally {
+            reader.release();
+        }
+    }
+
+    private FieldReader[] compile(int schemaId) {
+        List<LocalSchemaRegistry.Field> fields = registry.getById(schemaId).fields();
+        FieldReader[] fieldReaders = new FieldReader[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            LocalSchemaRegistry.Field field = fields.get(i);
+            fieldReaders[i] = new FieldReader(field.type(), KafkaMessageSchema.SETTERS.get(field.name()));
+        }
+        return fieldReaders;
+    }
+
+    private LocalDateTime readTimestamp(BinaryReader reader) {
+        if (reader.readByte() == 0) {
+            return null;
+        }
+        long epochSecond = reader.readVarLong();
+        int nano = (int) reader.readVarLong();
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+
+    /**
+     * 字段解析器，setter 为null表示当前版本没有该字段，读取后丢弃
+     */
+    private record FieldReader(LocalSchemaRegistry.FieldType type, BiConsumer<KafkaMessage, Object> setter) {
+    }
+}
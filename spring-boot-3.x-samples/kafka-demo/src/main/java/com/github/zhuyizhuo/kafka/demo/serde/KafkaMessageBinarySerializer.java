@@ -0,0 +1,67 @@
+package com.github.zhuyizhuo.kafka.demo.serde;
+
+import com.github.zhuyizhuo.kafka.demo.model.KafkaMessage;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * KafkaMessage 二进制序列化器
+ * <p>
+ * 消息格式：魔数(1字节) + Schema ID(4字节) + 按Schema字段顺序写入的字段值，
+ * 字符串为 变长长度 + UTF-8 字节，时间为 是否为空(1字节) + 秒 + 纳秒。
+ * 与JSON相比不写字段名和类型头，消息更小，编码时也不需要反射
+ */
+public class KafkaMessageBinarySerializer implements Serializer<KafkaMessage> {
+
+    static final byte MAGIC_BYTE = 0x0;
+
+    private final LocalSchemaRegistry.Schema schema;
+    private final LocalSchemaRegistry.FieldType[] types;
+    private final Function<KafkaMessage, Object>[] getters;
+    private final ThreadLocal<BinaryWriter> writers = ThreadLocal.withInitial(() -> new BinaryWriter(256));
+
+    @SuppressWarnings("unchecked")
+    public KafkaMessageBinarySerializer(LocalSchemaRegistry registry) {
+        this.schema = registry.register(KafkaMessageSchema.SUBJECT, KafkaMessageSchema.FIELDS);
+        List<LocalSchemaRegistry.Field> fields = schema.fields();
+        this.types = new LocalSchemaRegistry.FieldType[fields.size()];
+        this.getters = new Function[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            types[i] = fields.get(i).type();
+            getters[i] = KafkaMessageSchema.GETTERS.get(fields.get(i).name());
+        }
+    }
+
+    @Override
+    public byte[] serialize(String topic, KafkaMessage message) {
+        if (message == null) {
+            return null;
+        }
+        BinaryWriter writer = writers.get();
+        writer.reset();
+        writer.writeByte(MAGIC_BYTE);
+        writer.writeInt(schema.id());
+        for (int i = 0; i < types.length; i++) {
+            Object value = getters[i].apply(message);
+            switch (types[i]) {
+                case STRING -> writer.writeString((String) value);
+                case TIMESTAMP -> writeTimestamp(writer, (LocalDateTime) value);
+            }
+        }
+        return writer.toByteArray();
+    }
+
+    private void writeTimestamp(BinaryWriter writer, LocalDateTime value) {
+        if (value == null) {
+            writer.writeByte(0);
+            return;
+        }
+        writer.writeByte(1);
+        writer.writeVarLong(value.toEpochSecond(ZoneOffset.UTC));
+        writer.writeVarLong(value.getNano());
+    }
+}
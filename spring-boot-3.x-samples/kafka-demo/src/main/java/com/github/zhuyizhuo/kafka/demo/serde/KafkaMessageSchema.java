@@ -0,0 +1,46 @@
+package com.github.zhuyizhuo.kafka.demo.serde;
+
+import com.github.zhuyizhuo.kafka.demo.model.KafkaMessage;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * KafkaMessage 的Schema定义
+ * <p>
+ * 字段读写通过预先定义的方法引用完成，序列化和反序列化时不需要反射
+ */
+public final class KafkaMessageSchema {
+
+    public static final String SUBJECT = "kafka-demo.KafkaMessage";
+
+    /**
+     * 当前版本的字段，新增字段只能追加在末尾
+     */
+    public static final List<LocalSchemaRegistry.Field> FIELDS = List.of(
+            new LocalSchemaRegistry.Field("id", LocalSchemaRegistry.FieldType.STRING),
+            new LocalSchemaRegistry.Field("content", LocalSchemaRegistry.FieldType.STRING),
+            new LocalSchemaRegistry.Field("sender", LocalSchemaRegistry.FieldType.STRING),
+            new LocalSchemaRegistry.Field("timestamp", LocalSchemaRegistry.FieldType.TIMESTAMP)
+    );
+
+    static final Map<String, Function<KafkaMessage, Object>> GETTERS = Map.of(
+            "id", KafkaMessage::getId,
+            "content", KafkaMessage::getContent,
+            "sender", KafkaMessage::getSender,
+            "timestamp", KafkaMessage::getTimestamp
+    );
+
+    static final Map<String, BiConsumer<KafkaMessage, Object>> SETTERS = Map.of(
+            "id", (message, value) -> message.setId((String) value),
+            "content", (message, value) -> message.setContent((String) value),
+            "sender", (message, value) -> message.setSender((String) value),
+            "timestamp", (message, value) -> message.setTimestamp((LocalDateTime) value)
+    );
+
+    private KafkaMessageSchema() {
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.zhuyizhuo.kafka.demo.serde;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 本地Schema注册中心
+ * <p>
+ * 模拟 Confluent Schema Registry 的基本功能：按主题(subject)注册Schema并分配Schema ID，
+ * 生产者在每条消息头部写入Schema ID，消费者根据ID找到写入时的Schema解析消息。
+ * <p>
+ * Schema ID 由主题名和字段列表的指纹（SHA-256 的前4个字节）计算得到，而不是按注册顺序递增：
+ * 应用重启或多个实例各自注册同一个Schema时得到相同的ID，Kafka中已有的消息重启后仍然可以解析。
+ * Schema只保存在应用内存中，消费者只能解析本应用注册过的Schema（当前版本和启动时注册的历史版本），
+ * 生产环境应替换为独立的注册中心服务
+ */
+public class LocalSchemaRegistry {
+
+    private final Map<Integer, Schema> schemasById = new ConcurrentHashMap<>();
+    private final Map<String, Schema> latestBySubject = new ConcurrentHashMap<>();
+
+    /**
+     * 注册Schema，已注册过相同主题和字段的Schema时直接返回已有的Schema
+     * @throws IllegalStateException 指纹与另一个不同的Schema冲突
+     */
+    public synchronized Schema register(String subject, List<Field> fields) {
+        int id = fingerprint(subject, fields);
+        Schema existing = schemasById.get(id);
+        if (existing != null) {
+            if (!existing.subject().equals(subject) || !existing.fields().equals(fields)) {
+                throw new IllegalStateException("Schema指纹冲突: " + subject + " 与 " + existing.subject());
+            }
+            return existing;
+        }
+        Schema latest = latestBySubject.get(subject);
+        int version = latest == null ? 1 : latest.version() + 1;
+        Schema schema = new Schema(id, subject, version, List.copyOf(fields));
+        schemasById.put(schema.id(), schema);
+        latestBySubject.put(subject, schema);
+        return schema;
+    }
+
+    /**
+     * 计算Schema指纹：主题名和按顺序排列的 字段名:类型 的SHA-256摘要，取前4个字节
+     */
+    static int fingerprint(String subject, List<Field> fields) {
+        StringBuilder canonical = new StringBuilder(subject);
+        for (Field field : fields) {
+            canonical.append('|').append(field.name()).append(':').append(field.type().name());
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(hash).getInt();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    }
+
+    /**
+     * 根据Schema ID查询
+     */
+    public Schema getById(int id) {
+        Schema schema = schemasById.get(id);
+        if (schema == null) {
+            throw new IllegalArgumentException("未知的Schema ID: " + id);
+        }
+        return schema;
+    }
+
+    /**
+     * 查询主题的最新Schema
+     */
+    public Schema getLatest(String subject) {
+        return latestBySubject.get(subject);
+    }
+
+    /**
+     * 字段类型
+     */
+    public enum FieldType {
+        STRING,
+        TIMESTAMP
+    }
+
+    /**
+     * Schema字段，按声明顺序写入
+     */
+    public record Field(String name, FieldType type) {
+    }
+
+    /**
+     * 已注册的Schema
+     */
+    public record Schema(int id, String subject, int version, List<Field> fields) {
+    }
+}
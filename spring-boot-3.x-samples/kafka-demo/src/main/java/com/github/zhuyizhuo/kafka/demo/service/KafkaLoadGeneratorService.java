@@ -0,0 +1,71 @@
+package com.github.zhuyizhuo.kafka.demo.service;
+
+import com.github.zhuyizhuo.kafka.demo.model.BulkSendResult;
+import com.github.zhuyizhuo.kafka.demo.model.KafkaMessage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 生产者压测服务
+ * <p>
+ * 向压测主题发送指定数量和大小的消息，统计吞吐量和确认延迟，
+ * 可以对比默认配置和 throughput profile 下的生产者性能
+ */
+@Service
+public class KafkaLoadGeneratorService {
+
+    /**
+     * 单次压测的最大消息数
+     */
+    public static final int MAX_MESSAGE_COUNT = 1_000_000;
+
+    /**
+     * 单条消息的最大内容字节数
+     */
+    public static final int MAX_PAYLOAD_BYTES = 1024 * 1024;
+
+    @Autowired
+    private KafkaProducerService producerService;
+
+    @Value("${kafka-demo.topics.load-topic:kafka-demo-load-topic}")
+    private String loadTopic;
+
+    /**
+     * 执行一次压测
+     * @param count 消息数量
+     * @param payloadBytes 每条消息内容的字节数
+     * @return 所有消息确认后完成的压测结果
+     */
+    public CompletableFuture<BulkSendResult> runLoadTest(int count, int payloadBytes) {
+        if (count <= 0 || count > MAX_MESSAGE_COUNT) {
+            throw new IllegalArgumentException("消息数量必须在 1 到 " + MAX_MESSAGE_COUNT + " 之间");
+        }
+        if (payloadBytes < 0 || payloadBytes > MAX_PAYLOAD_BYTES) {
+            throw new IllegalArgumentException("消息大小必须在 0 到 " + MAX_PAYLOAD_BYTES + " 字节之间");
+        }
+        String payload = "x".repeat(payloadBytes);
+        return producerService.sendBulk(loadTopic, generatedMessages(count, payload));
+    }
+
+    /**
+     * 按需生成消息的列表，发送到第几条才创建第几条消息，百万级压测不需要预先在内存中创建所有消息
+     */
+    private List<KafkaMessage> generatedMessages(int count, String payload) {
+        return new AbstractList<>() {
+            @Override
+            public KafkaMessage get(int index) {
+                return new KafkaMessage(payload, "load-generator");
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+}
@@ -1,6 +1,8 @@
 package com.github.zhuyizhuo.kafka.demo.service;
 
+import com.github.zhuyizhuo.kafka.demo.model.BulkSendResult;
 import com.github.zhuyizhuo.kafka.demo.model.KafkaMessage;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
@@ -8,84 +10,175 @@ import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 import java.util.concurrent.CompletableFuture;
 
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Kafka消息生产者服务
  */
 @Service
-public class KafkaProducerService {
+public class KafkaProducerService implements DisposableBean {
 
     @Autowired
     private KafkaTemplate<String, Object> kafkaTemplate;
-    
+
     @Value("${kafka-demo.topics.demo-topic}")
     private String demoTopic;
-    
+
     @Value("${kafka-demo.topics.json-topic}")
     private String jsonTopic;
-    
+
     @Value("${kafka-demo.topics.batch-topic}")
     private String batchTopic;
-    
+
+    /**
+     * 批量发送的在途消息窗口：已发送但尚未收到确认的消息数达到上限时，发送线程等待确认释放名额
+     */
+    private final Semaphore inFlightPermits;
+    private final int bulkMaxInFlight;
+
+    /**
+     * 执行批量发送循环的线程，在途消息达到上限时由这些线程等待，调用线程不会被阻塞。
+     * 线程数和排队的批量请求数都有上限，队列满时新的批量请求直接失败，背压传递给调用方
+     */
+    private final AtomicInteger bulkSenderCount = new AtomicInteger();
+    private final ThreadPoolExecutor bulkSendExecutor;
+
+    public KafkaProducerService(@Value("${kafka-demo.producer.bulk-max-in-flight:10000}") int bulkMaxInFlight,
+                                @Value("${kafka-demo.producer.bulk-senders:2}") int bulkSenders,
+                                @Value("${kafka-demo.producer.bulk-queue-capacity:16}") int bulkQueueCapacity) {
+        this.bulkMaxInFlight = bulkMaxInFlight;
+        this.inFlightPermits = new Semaphore(bulkMaxInFlight);
+        this.bulkSendExecutor = new ThreadPoolExecutor(bulkSenders, bulkSenders, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(bulkQueueCapacity), r -> {
+                    Thread thread = new Thread(r, "kafka-bulk-send-" + bulkSenderCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
     /**
      * 发送简单字符串消息
      */
     public void sendStringMessage(String message) {
         sendMessageWithCallback(demoTopic, null, message);
     }
-    
+
     /**
      * 发送JSON格式消息
      */
     public void sendJsonMessage(KafkaMessage message) {
         sendMessageWithCallback(jsonTopic, message.getId(), message);
     }
-    
+
     /**
-     * 批量发送消息
+     * 批量发送消息，等待所有消息确认
      */
     public boolean sendBatchMessages(List<KafkaMessage> messages, int timeoutSeconds) {
-        CountDownLatch latch = new CountDownLatch(messages.size());
-        AtomicInteger successCount = new AtomicInteger(0);
-        
-        for (KafkaMessage message : messages) {
-            CompletableFuture<SendResult<String, Object>> future = kafkaTemplate.send(batchTopic, message.getId(), message);
-            
-            future.whenComplete((result, ex) -> {
-                if (ex == null) {
-                    successCount.incrementAndGet();
-                } else {
-                    System.err.println("消息发送失败: " + ex.getMessage());
-                }
-                latch.countDown();
-            });
-        }
-        
         try {
-            latch.await(timeoutSeconds, TimeUnit.SECONDS);
-            return successCount.get() == messages.size();
+            return sendBulk(batchTopic, messages).get(timeoutSeconds, TimeUnit.SECONDS).isAllSucceeded();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             return false;
+        } catch (ExecutionException | TimeoutException e) {
+            System.err.println("批量消息发送失败: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 非阻塞批量发送
+     * <p>
+     * 发送循环在批量发送线程中执行，调用方立即拿到Future，所有消息确认后Future完成，
+     * 结果中包含成功数、吞吐量和确认延迟分位数；调用方对Future设置的超时覆盖从提交到全部确认的整个过程。
+     * 在途消息数受 kafka-demo.producer.bulk-max-in-flight 限制，达到上限时批量发送线程等待确认释放名额，
+     * 避免生产速度超过Broker处理能力时无限占用生产者缓冲区。
+     * 批量发送线程都在忙且排队的批量请求达到 kafka-demo.producer.bulk-queue-capacity 时，
+     * 返回的Future以 RejectedExecutionException 异常完成，调用方可稍后重试。
+     */
+    public CompletableFuture<BulkSendResult> sendBulk(String topic, List<KafkaMessage> messages) {
+        BulkSendTracker tracker = new BulkSendTracker(messages.size());
+        try {
+            bulkSendExecutor.execute(new BulkSendTask(topic, messages, tracker));
+        } catch (RejectedExecutionException e) {
+            String reason = bulkSendExecutor.isShutdown() ? "生产者已关闭" : "批量发送队列已满，请稍后重试";
+            return CompletableFuture.failedFuture(new RejectedExecutionException(reason, e));
         }
+        return tracker.future();
     }
-    
+
+    /**
+     * 逐条交给生产者，在途消息达到上限时等待
+     */
+    private void submitAll(String topic, List<KafkaMessage> messages, BulkSendTracker tracker) {
+        for (int i = 0; i < messages.size(); i++) {
+            try {
+                inFlightPermits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                tracker.abort(messages.size() - i, e);
+                break;
+            }
+            KafkaMessage message = messages.get(i);
+            int index = i;
+            long sendNanos = System.nanoTime();
+            try {
+                kafkaTemplate.send(topic, message.getId(), message).whenComplete((result, ex) -> {
+                    inFlightPermits.release();
+                    tracker.complete(index, System.nanoTime() - sendNanos, ex);
+                });
+            } catch (Exception e) {
+                inFlightPermits.release();
+                tracker.complete(index, System.nanoTime() - sendNanos, e);
+            }
+        }
+    }
+
+    /**
+     * 当前在途（已发送未确认）的批量消息数
+     */
+    public int getBulkInFlight() {
+        return bulkMaxInFlight - inFlightPermits.availablePermits();
+    }
+
+    /**
+     * 排队等待批量发送线程的批量请求数
+     */
+    public int getBulkQueued() {
+        return bulkSendExecutor.getQueue().size();
+    }
+
+    @Override
+    public void destroy() {
+        // 中断等待名额的发送线程，未发送的消息按失败计入结果；仍在排队的批量请求直接失败
+        for (Runnable queued : bulkSendExecutor.shutdownNow()) {
+            if (queued instanceof BulkSendTask task) {
+                task.tracker.abort(task.messages.size(), new RejectedExecutionException("生产者已关闭"));
+            }
+        }
+    }
+
     /**
      * 发送带回调的消息
      */
     private void sendMessageWithCallback(String topic, String key, Object message) {
         CompletableFuture<SendResult<String, Object>> future;
-        
+
         if (key != null) {
             future = kafkaTemplate.send(topic, key, message);
         } else {
             future = kafkaTemplate.send(topic, message);
         }
-        
+
         future.whenComplete((result, ex) -> {
             if (ex == null) {
                 System.out.println("消息发送成功: " + result.getRecordMetadata());
@@ -94,4 +187,92 @@ public class KafkaProducerService {
             }
         });
     }
+
+    /**
+     * 一次批量发送请求，关闭时据此让仍在排队的请求失败
+     */
+    private final class BulkSendTask implements Runnable {
+        private final String topic;
+        private final List<KafkaMessage> messages;
+        private final BulkSendTracker tracker;
+
+        private BulkSendTask(String topic, List<KafkaMessage> messages, BulkSendTracker tracker) {
+            this.topic = topic;
+            this.messages = messages;
+            this.tracker = tracker;
+        }
+
+        @Override
+        public void run() {
+            submitAll(topic, messages, tracker);
+        }
+    }
+
+    /**
+     * 汇总一次批量发送中每条消息的确认结果
+     */
+    private static class BulkSendTracker {
+        private final CompletableFuture<BulkSendResult> future = new CompletableFuture<>();
+        private final long startNanos = System.nanoTime();
+        private final int total;
+        private final long[] ackNanos; // 每条消息的确认延迟，失败或未发送为0
+        private final AtomicInteger remaining;
+        private final AtomicReference<String> firstError = new AtomicReference<>();
+
+        private BulkSendTracker(int total) {
+            this.total = total;
+            this.ackNanos = new long[total];
+            this.remaining = new AtomicInteger(total);
+            if (total == 0) {
+                finish();
+            }
+        }
+
+        private CompletableFuture<BulkSendResult> future() {
+            return future;
+        }
+
+        private void complete(int index, long latencyNanos, Throwable ex) {
+            if (ex == null) {
+                ackNanos[index] = Math.max(1, latencyNanos);
+            } else {
+                firstError.compareAndSet(null, ex.getMessage());
+            }
+            if (remaining.decrementAndGet() == 0) {
+                finish();
+            }
+        }
+
+        /**
+         * 发送线程被中断或批量发送已关闭，剩余消息按失败处理
+         */
+        private void abort(int unsent, Throwable ex) {
+            firstError.compareAndSet(null, "发送被中断: " + ex);
+            if (remaining.addAndGet(-unsent) == 0) {
+                finish();
+            }
+        }
+
+        private void finish() {
+            long elapsedNanos = System.nanoTime() - startNanos;
+            // remaining 归零之前所有回调对数组的写入都已完成（happens-before 由 AtomicInteger 保证）
+            long[] latencies = Arrays.stream(ackNanos).filter(n -> n > 0).sorted().toArray();
+            int succeeded = latencies.length;
+            double seconds = elapsedNanos / 1_000_000_000.0;
+            future.complete(new BulkSendResult(total, succeeded, total - succeeded,
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                    seconds > 0 ? succeeded / seconds : 0,
+                    percentileMillis(latencies, 0.50), percentileMillis(latencies, 0.99),
+                    latencies.length > 0 ? latencies[latencies.length - 1] / 1_000_000.0 : 0,
+                    firstError.get()));
+        }
+
+        private static double percentileMillis(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
 }
\ No newline at end of file
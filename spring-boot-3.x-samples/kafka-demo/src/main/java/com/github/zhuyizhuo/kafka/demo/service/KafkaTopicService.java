@@ -1,109 +1,265 @@
 package com.github.zhuyizhuo.kafka.demo.service;
 
+import com.github.zhuyizhuo.kafka.demo.model.TopicSummary;
 import org.apache.kafka.clients.admin.*;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.errors.TopicExistsException;
+import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Kafka主题管理服务
+ * <p>
+ * 所有操作共用 KafkaConfig 中的 AdminClient，不再每次调用都新建连接；
+ * 主题列表在本地缓存 kafka-demo.admin.metadata-ttl-ms 毫秒，创建和删除主题成功后直接更新缓存；
+ * 缓存过期时同一时间只有一个查询请求，并发的调用共用它的结果
  */
 @Service
 public class KafkaTopicService {
 
-    @Value("${spring.kafka.bootstrap-servers}")
-    private String bootstrapServers;
     private static final int DEFAULT_PARTITIONS = 1;
     private static final short DEFAULT_REPLICATION_FACTOR = 1;
-    private static final int TIMEOUT_MS = 30000;
+    private static final int TIMEOUT_SECONDS = 30;
+
+    @Autowired
+    private AdminClient adminClient;
+
+    @Value("${kafka-demo.admin.metadata-ttl-ms:5000}")
+    private long metadataTtlMillis;
 
     /**
-     * 获取AdminClient实例
+     * 缓存的主题列表，整体替换保证读取时看到的是一致的快照
      */
-    private AdminClient getAdminClient() {
-        Properties props = new Properties();
-        props.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        props.put(AdminClientConfig.REQUEST_TIMEOUT_MS_CONFIG, TIMEOUT_MS);
-        props.put(AdminClientConfig.RETRIES_CONFIG, 3);
-        props.put(AdminClientConfig.RETRY_BACKOFF_MS_CONFIG, 1000);
-        return KafkaAdminClient.create(props);
-    }
+    private volatile TopicCache topicCache;
+
+    /**
+     * 缓存被创建、删除主题修改的次数，查询期间发生过修改时查询结果可能已经过时，不写入缓存
+     */
+    private long cacheVersion;
+
+    /**
+     * 正在进行的主题列表查询
+     */
+    private final AtomicReference<CompletableFuture<Set<String>>> inFlightListing = new AtomicReference<>();
 
     /**
-     * 获取所有主题列表
+     * 获取所有主题列表，缓存未过期时直接返回缓存
      */
     public List<String> listTopics() {
-        try (AdminClient adminClient = getAdminClient()) {
-            ListTopicsResult topics = adminClient.listTopics();
-            Set<String> topicNames = topics.names().get(30, TimeUnit.SECONDS);
-            return new ArrayList<>(topicNames);
-        } catch (Exception e) {
-            throw new RuntimeException("获取主题列表失败: " + e.getMessage(), e);
+        return await(listTopicsAsync(false), "获取主题列表失败");
+    }
+
+    /**
+     * 异步获取主题列表
+     * @param forceRefresh 是否忽略缓存重新从Broker查询
+     */
+    public CompletableFuture<List<String>> listTopicsAsync(boolean forceRefresh) {
+        TopicCache cache = topicCache;
+        if (!forceRefresh && cache != null && !cache.isExpired(metadataTtlMillis)) {
+            return CompletableFuture.completedFuture(new ArrayList<>(cache.names()));
+        }
+        CompletableFuture<Set<String>> listing = new CompletableFuture<>();
+        CompletableFuture<Set<String>> existing = inFlightListing.compareAndExchange(null, listing);
+        if (existing != null) {
+            return existing.thenApply(ArrayList::new);
         }
+        long version = currentCacheVersion();
+        try {
+            toCompletableFuture(adminClient.listTopics().names()).whenComplete((names, ex) -> {
+                // 先清除再完成，之后到达的调用发起新的查询，不会拿到已经完成的旧请求
+                inFlightListing.compareAndSet(listing, null);
+                if (ex != null) {
+                    listing.completeExceptionally(unwrap(ex));
+                } else {
+                    listing.complete(installListing(names, version));
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlightListing.compareAndSet(listing, null);
+            listing.completeExceptionally(e);
+        }
+        return listing.thenApply(ArrayList::new);
     }
 
     /**
      * 创建主题
+     * @return 主题已存在时返回false
      */
     public boolean createTopic(String topicName) {
-        try (AdminClient adminClient = getAdminClient()) {
-            // 检查主题是否已存在
-            ListTopicsResult topics = adminClient.listTopics();
-            Set<String> topicNames = topics.names().get(30, TimeUnit.SECONDS);
-            
-            if (topicNames.contains(topicName)) {
-                return false; // 主题已存在
-            }
-
-            // 创建主题配置
-            NewTopic newTopic = new NewTopic(topicName, DEFAULT_PARTITIONS, DEFAULT_REPLICATION_FACTOR);
-            CreateTopicsResult result = adminClient.createTopics(Collections.singletonList(newTopic));
-            
-            // 等待创建完成
-            result.all().get(30, TimeUnit.SECONDS);
-            return true;
-        } catch (Exception e) {
-            throw new RuntimeException("创建主题失败: " + e.getMessage(), e);
+        return await(createTopicsAsync(Collections.singletonList(topicName)), "创建主题失败").get(topicName);
+    }
+
+    /**
+     * 批量创建主题，所有主题在一次请求中提交
+     * @return 主题名称到是否新建的映射，已存在的主题为false
+     */
+    public Map<String, Boolean> createTopics(Collection<String> topicNames) {
+        return await(createTopicsAsync(topicNames), "批量创建主题失败");
+    }
+
+    /**
+     * 异步批量创建主题，不预先查询主题列表，由Broker返回的 TopicExistsException 判断主题是否已存在
+     */
+    public CompletableFuture<Map<String, Boolean>> createTopicsAsync(Collection<String> topicNames) {
+        List<NewTopic> newTopics = new ArrayList<>();
+        for (String topicName : new LinkedHashSet<>(topicNames)) {
+            newTopics.add(new NewTopic(topicName, DEFAULT_PARTITIONS, DEFAULT_REPLICATION_FACTOR));
         }
+        Map<String, KafkaFuture<Void>> futures = adminClient.createTopics(newTopics).values();
+
+        Map<String, CompletableFuture<Boolean>> results = new LinkedHashMap<>();
+        futures.forEach((topicName, future) -> results.put(topicName, toCompletableFuture(future)
+                .thenApply(ignored -> {
+                    updateCache(topicName, true);
+                    return true;
+                })
+                .exceptionally(ex -> {
+                    if (unwrap(ex) instanceof TopicExistsException) {
+                        updateCache(topicName, true);
+                        return false;
+                    }
+                    throw new CompletionException(unwrap(ex));
+                })));
+        return collect(results);
     }
 
     /**
      * 删除主题
+     * @return 主题不存在时返回false
      */
     public boolean deleteTopic(String topicName) {
-        try (AdminClient adminClient = getAdminClient()) {
-            // 检查主题是否存在
-            ListTopicsResult topics = adminClient.listTopics();
-            Set<String> topicNames = topics.names().get(30, TimeUnit.SECONDS);
-            
-            if (!topicNames.contains(topicName)) {
-                return false; // 主题不存在
-            }
-
-            // 删除主题
-            DeleteTopicsResult result = adminClient.deleteTopics(Collections.singletonList(topicName));
-            
-            // 等待删除完成
-            result.all().get(30, TimeUnit.SECONDS);
-            return true;
-        } catch (Exception e) {
-            throw new RuntimeException("删除主题失败: " + e.getMessage(), e);
-        }
+        return await(deleteTopicAsync(topicName), "删除主题失败");
+    }
+
+    /**
+     * 异步删除主题，不预先查询主题列表，由Broker返回的 UnknownTopicOrPartitionException 判断主题是否存在
+     */
+    public CompletableFuture<Boolean> deleteTopicAsync(String topicName) {
+        KafkaFuture<Void> future = adminClient.deleteTopics(Collections.singletonList(topicName)).topicNameValues().get(topicName);
+        return toCompletableFuture(future)
+                .thenApply(ignored -> {
+                    updateCache(topicName, false);
+                    return true;
+                })
+                .exceptionally(ex -> {
+                    if (unwrap(ex) instanceof UnknownTopicOrPartitionException) {
+                        updateCache(topicName, false);
+                        return false;
+                    }
+                    throw new CompletionException(unwrap(ex));
+                });
     }
 
     /**
-     * 检查主题是否存在
+     * 批量查询主题的分区和副本信息，所有主题在一次请求中查询
+     */
+    public Map<String, TopicSummary> describeTopics(Collection<String> topicNames) {
+        return await(describeTopicsAsync(topicNames), "查询主题信息失败");
+    }
+
+    /**
+     * 异步批量查询主题的分区和副本信息
+     */
+    public CompletableFuture<Map<String, TopicSummary>> describeTopicsAsync(Collection<String> topicNames) {
+        return toCompletableFuture(adminClient.describeTopics(new LinkedHashSet<>(topicNames)).allTopicNames())
+                .thenApply(descriptions -> {
+                    Map<String, TopicSummary> summaries = new LinkedHashMap<>();
+                    for (String topicName : topicNames) {
+                        TopicDescription description = descriptions.get(topicName);
+                        summaries.put(topicName, new TopicSummary(description.name(),
+                                description.partitions().size(),
+                                description.partitions().isEmpty() ? 0 : description.partitions().get(0).replicas().size(),
+                                description.isInternal()));
+                    }
+                    return summaries;
+                });
+    }
+
+    /**
+     * 检查主题是否存在，使用缓存的主题列表
      */
     public boolean topicExists(String topicName) {
-        try (AdminClient adminClient = getAdminClient()) {
-            ListTopicsResult topics = adminClient.listTopics();
-            Set<String> topicNames = topics.names().get(30, TimeUnit.SECONDS);
-            return topicNames.contains(topicName);
+        return listTopics().contains(topicName);
+    }
+
+    /**
+     * 创建或删除主题成功后直接修改缓存，不需要重新查询整个主题列表
+     */
+    private synchronized void updateCache(String topicName, boolean exists) {
+        cacheVersion++;
+        TopicCache cache = topicCache;
+        if (cache == null || cache.names().contains(topicName) == exists) {
+            return;
+        }
+        Set<String> names = new HashSet<>(cache.names());
+        if (exists) {
+            names.add(topicName);
+        } else {
+            names.remove(topicName);
+        }
+        topicCache = new TopicCache(Set.copyOf(names), cache.loadedAt());
+    }
+
+    private synchronized long currentCacheVersion() {
+        return cacheVersion;
+    }
+
+    /**
+     * 查询期间没有创建或删除主题时写入缓存；否则丢弃查询结果，返回已经包含这些修改的缓存
+     */
+    private synchronized Set<String> installListing(Set<String> names, long version) {
+        if (version == cacheVersion) {
+            TopicCache cache = new TopicCache(Set.copyOf(names), System.currentTimeMillis());
+            topicCache = cache;
+            return cache.names();
+        }
+        TopicCache cache = topicCache;
+        return cache != null ? cache.names() : Set.copyOf(names);
+    }
+
+    private static <T> CompletableFuture<T> toCompletableFuture(KafkaFuture<T> future) {
+        return future.toCompletionStage().toCompletableFuture();
+    }
+
+    private static <K, V> CompletableFuture<Map<K, V>> collect(Map<K, CompletableFuture<V>> futures) {
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            Map<K, V> result = new LinkedHashMap<>();
+            futures.forEach((key, future) -> result.put(key, future.join()));
+            return result;
+        });
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        while ((ex instanceof CompletionException || ex instanceof ExecutionException) && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+        return ex;
+    }
+
+    private static <T> T await(CompletableFuture<T> future, String errorMessage) {
+        try {
+            return future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(errorMessage + ": 操作被中断", e);
         } catch (Exception e) {
-            throw new RuntimeException("检查主题失败: " + e.getMessage(), e);
+            Throwable cause = unwrap(e);
+            throw new RuntimeException(errorMessage + ": " + cause.getMessage(), cause);
+        }
+    }
+
+    private record TopicCache(Set<String> names, long loadedAt) {
+        boolean isExpired(long ttlMillis) {
+            return System.currentTimeMillis() - loadedAt > ttlMillis;
         }
     }
-}
\ No newline at end of file
+}
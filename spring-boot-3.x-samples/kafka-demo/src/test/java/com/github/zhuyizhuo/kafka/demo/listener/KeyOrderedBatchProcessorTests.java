@@ -0,0 +1,176 @@
+package com.github.zhuyizhuo.kafka.demo.listener;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 批量消息并行处理器测试，使用模拟的 Consumer 和 KafkaTemplate 检查提交的偏移量、seek 位置和死信发送
+ */
+class KeyOrderedBatchProcessorTests {
+
+    private static final String TOPIC = "orders";
+    private static final TopicPartition TP = new TopicPartition(TOPIC, 0);
+
+    @SuppressWarnings("unchecked")
+    private final Consumer<String, String> consumer = mock(Consumer.class);
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, Object> kafkaTemplate = mock(KafkaTemplate.class);
+    private final KeyOrderedBatchProcessor processor = new KeyOrderedBatchProcessor(8, false, 2, ".DLT", kafkaTemplate);
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        processor.destroy();
+    }
+
+    @Test
+    void outOfOrderCompletionCommitsAfterWholeBatch() {
+        // 偏移量0的消息等其余消息全部处理完才完成
+        CountDownLatch othersDone = new CountDownLatch(4);
+        List<Long> completed = new CopyOnWriteArrayList<>();
+        int succeeded = processor.processAndCommit(records("k0", "k1", "k2", "k3", "k4"), consumer, record -> {
+            if (record.offset() == 0) {
+                assertTrue(othersDone.await(5, TimeUnit.SECONDS));
+            }
+            completed.add(record.offset());
+            othersDone.countDown();
+        });
+
+        assertEquals(5, succeeded);
+        assertEquals(0L, completed.get(4));
+        verify(consumer).commitSync(Map.of(TP, new OffsetAndMetadata(5)));
+        verify(consumer, never()).seek(any(TopicPartition.class), anyLong());
+        assertEquals(0, processor.getInFlight());
+        assertEquals(5L, processor.getPartitionStatus().get(TP.toString()).get("committedOffset"));
+    }
+
+    @Test
+    void failureInMiddleCommitsContiguousPrefixAndSeeksBack() {
+        // 偏移量2失败，它之后的3、4先于0完成，也只能提交到2
+        CountDownLatch laterDone = new CountDownLatch(2);
+        int succeeded = processor.processAndCommit(records("k0", "k1", "k2", "k3", "k4"), consumer, record -> {
+            switch ((int) record.offset()) {
+                case 0 -> assertTrue(laterDone.await(5, TimeUnit.SECONDS));
+                case 2 -> throw new IllegalStateException("boom");
+                case 3, 4 -> laterDone.countDown();
+                default -> { }
+            }
+        });
+
+        assertEquals(4, succeeded);
+        verify(consumer).commitSync(Map.of(TP, new OffsetAndMetadata(2)));
+        verify(consumer).seek(TP, 2L);
+        verifyNoInteractions(kafkaTemplate);
+        assertEquals(1L, processor.getPartitionStatus().get(TP.toString()).get("retries"));
+    }
+
+    @Test
+    void failureStopsLaterRecordsWithSameKey() {
+        Set<Long> handled = ConcurrentHashMap.newKeySet();
+        processor.processAndCommit(records("a", "b", "a", "b"), consumer, record -> {
+            handled.add(record.offset());
+            if (record.offset() == 0) {
+                throw new IllegalStateException("boom");
+            }
+        });
+
+        // key a 的第二条消息没有被处理，key b 不受影响
+        assertEquals(Set.of(0L, 1L, 3L), handled);
+        verify(consumer, never()).commitSync(anyMap());
+        verify(consumer).seek(TP, 0L);
+        assertEquals(0, processor.getInFlight());
+    }
+
+    @Test
+    void exhaustedRetriesAreSentToDeadLetterTopic() {
+        doReturn(CompletableFuture.completedFuture(null)).when(kafkaTemplate).send(any(ProducerRecord.class));
+        KeyOrderedBatchProcessor.RecordHandler<String> handler = record -> {
+            if (record.offset() == 1) {
+                throw new IllegalStateException("poison");
+            }
+        };
+
+        // 第一次失败：提交到1并重新定位
+        processor.processAndCommit(records("k0", "k1", "k2"), consumer, handler);
+        verify(consumer).commitSync(Map.of(TP, new OffsetAndMetadata(1)));
+        verify(consumer).seek(TP, 1L);
+        verifyNoInteractions(kafkaTemplate);
+
+        // 重新投递后第二次失败，达到最大次数：发送到死信主题并跳过
+        int succeeded = processor.processAndCommit(records(1, "k1", "k2"), consumer, handler);
+        assertEquals(2, succeeded);
+        verify(consumer).commitSync(Map.of(TP, new OffsetAndMetadata(3)));
+        verify(consumer, times(1)).seek(any(TopicPartition.class), anyLong());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<ProducerRecord<String, Object>> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(captor.capture());
+        ProducerRecord<String, Object> deadLetter = captor.getValue();
+        assertEquals(TOPIC + ".DLT", deadLetter.topic());
+        assertEquals("k1", deadLetter.key());
+        assertEquals("value-1", deadLetter.value());
+        assertEquals("1", header(deadLetter, KafkaHeaders.DLT_ORIGINAL_OFFSET));
+        assertEquals(IllegalStateException.class.getName(), header(deadLetter, KafkaHeaders.DLT_EXCEPTION_FQCN));
+        assertEquals(1L, processor.getPartitionStatus().get(TP.toString()).get("deadLettered"));
+    }
+
+    @Test
+    void failedDeadLetterSendIsRetried() {
+        doReturn(CompletableFuture.failedFuture(new IllegalStateException("DLT unavailable")))
+                .when(kafkaTemplate).send(any(ProducerRecord.class));
+        KeyOrderedBatchProcessor.RecordHandler<String> handler = record -> {
+            throw new IllegalStateException("poison");
+        };
+
+        processor.processAndCommit(records("k0"), consumer, handler);
+        processor.processAndCommit(records("k0"), consumer, handler);
+
+        // 死信发送失败时按处理失败重新投递，不提交偏移量
+        verify(kafkaTemplate).send(any(ProducerRecord.class));
+        verify(consumer, never()).commitSync(anyMap());
+        verify(consumer, times(2)).seek(TP, 0L);
+        assertEquals(0L, processor.getPartitionStatus().get(TP.toString()).get("deadLettered"));
+    }
+
+    private static List<ConsumerRecord<String, String>> records(String... keys) {
+        return records(0, keys);
+    }
+
+    /**
+     * 生成分区0上从 firstOffset 开始的连续消息
+     */
+    private static List<ConsumerRecord<String, String>> records(long firstOffset, String... keys) {
+        List<ConsumerRecord<String, String>> records = new ArrayList<>();
+        for (int i = 0; i < keys.length; i++) {
+            long offset = firstOffset + i;
+            records.add(new ConsumerRecord<>(TOPIC, 0, offset, keys[i], "value-" + offset));
+        }
+        return records;
+    }
+
+    private static String header(ProducerRecord<?, ?> record, String name) {
+        return new String(record.headers().lastHeader(name).value(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,175 @@
+package com.github.zhuyizhuo.kafka.demo.serde;
+
+import com.github.zhuyizhuo.kafka.demo.model.KafkaMessage;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * KafkaMessage 二进制序列化格式测试
+ * <p>
+ * 其他版本的写入方和读取方用手工注册的Schema模拟：在末尾追加了字段的新版本写入方，以及缺少末尾字段的旧版本写入方
+ */
+class KafkaMessageBinarySerdeTests {
+
+    private static final String TOPIC = "binary-topic";
+
+    private final LocalSchemaRegistry registry = new LocalSchemaRegistry();
+    private final KafkaMessageBinarySerializer serializer = new KafkaMessageBinarySerializer(registry);
+    private final KafkaMessageBinaryDeserializer deserializer = new KafkaMessageBinaryDeserializer(registry);
+
+    @Test
+    void roundTripPreservesAllFields() {
+        KafkaMessage message = message("id-1", "内容 café 😀", "发送者", LocalDateTime.of(2024, 5, 17, 8, 30, 15, 123_456_789));
+
+        KafkaMessage decoded = deserializer.deserialize(TOPIC, serializer.serialize(TOPIC, message));
+
+        assertEquals(message.getId(), decoded.getId());
+        assertEquals(message.getContent(), decoded.getContent());
+        assertEquals(message.getSender(), decoded.getSender());
+        assertEquals(message.getTimestamp(), decoded.getTimestamp());
+    }
+
+    @Test
+    void roundTripPreservesNulls() {
+        KafkaMessage message = message(null, null, null, null);
+
+        KafkaMessage decoded = deserializer.deserialize(TOPIC, serializer.serialize(TOPIC, message));
+
+        assertNull(decoded.getId());
+        assertNull(decoded.getContent());
+        assertNull(decoded.getSender());
+        assertNull(decoded.getTimestamp());
+        assertNull(serializer.serialize(TOPIC, null));
+        assertNull(deserializer.deserialize(TOPIC, null));
+    }
+
+    @Test
+    void roundTripPreservesEmptyStringAndTimestampBeforeEpoch() {
+        // 1970年之前的时间戳秒数为负数，按ZigZag变长编码
+        KafkaMessage message = message("", "", "sender", LocalDateTime.of(1969, 12, 31, 23, 59, 59, 1));
+
+        KafkaMessage decoded = deserializer.deserialize(TOPIC, serializer.serialize(TOPIC, message));
+
+        assertEquals("", decoded.getId());
+        assertEquals("", decoded.getContent());
+        assertEquals(message.getTimestamp(), decoded.getTimestamp());
+    }
+
+    @Test
+    void varLongRoundTripsNegativeAndExtremeValues() {
+        long[] values = {0, 1, -1, 63, -64, 64, -65, Integer.MIN_VALUE, Integer.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE};
+        BinaryWriter writer = new BinaryWriter(4);
+        for (long value : values) {
+            writer.writeVarLong(value);
+        }
+        BinaryReader reader = new BinaryReader();
+        reader.reset(writer.toByteArray());
+        for (long value : values) {
+            assertEquals(value, reader.readVarLong());
+        }
+    }
+
+    @Test
+    void readerSkipsFieldsAddedByNewerWriter() {
+        // 新版本在末尾追加了 priority 字段，当前版本读取后丢弃
+        List<LocalSchemaRegistry.Field> newerFields = new ArrayList<>(KafkaMessageSchema.FIELDS);
+        newerFields.add(new LocalSchemaRegistry.Field("priority", LocalSchemaRegistry.FieldType.STRING));
+        newerFields.add(new LocalSchemaRegistry.Field("expiresAt", LocalSchemaRegistry.FieldType.TIMESTAMP));
+        LocalSchemaRegistry.Schema newer = registry.register(KafkaMessageSchema.SUBJECT, newerFields);
+        LocalDateTime timestamp = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+        BinaryWriter writer = header(newer);
+        writer.writeString("id-1");
+        writer.writeString("content");
+        writer.writeString("sender");
+        writeTimestamp(writer, timestamp);
+        writer.writeString("HIGH");
+        writeTimestamp(writer, timestamp.plusDays(1));
+
+        KafkaMessage decoded = deserializer.deserialize(TOPIC, writer.toByteArray());
+
+        assertEquals("id-1", decoded.getId());
+        assertEquals("content", decoded.getContent());
+        assertEquals("sender", decoded.getSender());
+        assertEquals(timestamp, decoded.getTimestamp());
+    }
+
+    @Test
+    void fieldsMissingFromOlderWriterAreNull() {
+        // 旧版本只有 id 和 content 两个字段
+        LocalSchemaRegistry.Schema older = registry.register(KafkaMessageSchema.SUBJECT, KafkaMessageSchema.FIELDS.subList(0, 2));
+
+        BinaryWriter writer = header(older);
+        writer.writeString("id-1");
+        writer.writeString("content");
+
+        KafkaMessage decoded = deserializer.deserialize(TOPIC, writer.toByteArray());
+
+        assertEquals("id-1", decoded.getId());
+        assertEquals("content", decoded.getContent());
+        assertNull(decoded.getSender());
+        assertNull(decoded.getTimestamp());
+    }
+
+    @Test
+    void badMagicByteIsRejected() {
+        byte[] data = serializer.serialize(TOPIC, message("id-1", "content", "sender", null));
+        data[0] = 0x7B; // '{'，JSON消息的第一个字节
+
+        assertThrows(SerializationException.class, () -> deserializer.deserialize(TOPIC, data));
+    }
+
+    @Test
+    void unknownSchemaIdIsRejected() {
+        byte[] data = serializer.serialize(TOPIC, message("id-1", "content", "sender", null));
+        int unknownId = registry.getLatest(KafkaMessageSchema.SUBJECT).id() + 1;
+        data[1] = (byte) (unknownId >>> 24);
+        data[2] = (byte) (unknownId >>> 16);
+        data[3] = (byte) (unknownId >>> 8);
+        data[4] = (byte) unknownId;
+
+        SerializationException e = assertThrows(SerializationException.class, () -> deserializer.deserialize(TOPIC, data));
+        assertTrue(e.getMessage().contains("未知的Schema ID"));
+    }
+
+    @Test
+    void truncatedMessageIsRejected() {
+        byte[] data = serializer.serialize(TOPIC, message("id-1", "content", "sender", LocalDateTime.now()));
+
+        for (int length = 0; length < data.length; length++) {
+            byte[] truncated = Arrays.copyOf(data, length);
+            assertThrows(SerializationException.class, () -> deserializer.deserialize(TOPIC, truncated),
+                    "截断到 " + length + " 字节的消息应该被拒绝");
+        }
+    }
+
+    private static KafkaMessage message(String id, String content, String sender, LocalDateTime timestamp) {
+        KafkaMessage message = KafkaMessage.empty();
+        message.setId(id);
+        message.setContent(content);
+        message.setSender(sender);
+        message.setTimestamp(timestamp);
+        return message;
+    }
+
+    private static BinaryWriter header(LocalSchemaRegistry.Schema schema) {
+        BinaryWriter writer = new BinaryWriter(64);
+        writer.writeByte(KafkaMessageBinarySerializer.MAGIC_BYTE);
+        writer.writeInt(schema.id());
+        return writer;
+    }
+
+    private static void writeTimestamp(BinaryWriter writer, LocalDateTime value) {
+        writer.writeByte(1);
+        writer.writeVarLong(value.toEpochSecond(ZoneOffset.UTC));
+        writer.writeVarLong(value.getNano());
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.zhuyizhuo.kafka.demo.serde;
+
+import com.github.zhuyizhuo.kafka.demo.model.KafkaMessage;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比 KafkaConfig 中两种消息值序列化方式（json / binary）处理 KafkaMessage 的耗时
+ * 每条消息序列化后的字节数在每组参数开始时输出
+ * <p>
+ * json 方式与 KafkaConfig 中非二进制主题使用的 JsonSerializer 相同；反序列化不读取类型头，直接按 KafkaMessage 解析
+ * <p>
+ * 运行：执行 main 方法，或 mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.github.zhuyizhuo.kafka.demo.serde.KafkaMessageSerdeBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KafkaMessageSerdeBenchmark {
+
+    private static final String TOPIC = "demo-topic";
+
+    @Param({"json", "binary"})
+    private String serializerType;
+
+    @Param({"32", "1024"})
+    private int contentLength;
+
+    private Serializer<KafkaMessage> serializer;
+    private Deserializer<KafkaMessage> deserializer;
+    private KafkaMessage message;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        if ("binary".equals(serializerType)) {
+            LocalSchemaRegistry registry = new LocalSchemaRegistry();
+            serializer = new KafkaMessageBinarySerializer(registry);
+            deserializer = new KafkaMessageBinaryDeserializer(registry);
+        } else {
+            serializer = new JsonSerializer<>();
+            deserializer = new JsonDeserializer<>(KafkaMessage.class, false);
+        }
+        message = new KafkaMessage("x".repeat(contentLength), "benchmark-sender");
+        message.setTimestamp(LocalDateTime.of(2024, 1, 1, 12, 0));
+        bytes = serializer.serialize(TOPIC, message);
+        System.out.println("[" + serializerType + "/" + contentLength + "] bytes per message: " + bytes.length);
+    }
+
+    @TearDown
+    public void tearDown() {
+        serializer.close();
+        deserializer.close();
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(TOPIC, message);
+    }
+
+    @Benchmark
+    public KafkaMessage deserialize() {
+        return deserializer.deserialize(TOPIC, bytes);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(KafkaMessageSerdeBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.zhuyizhuo.kafka.demo.service;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.CreateTopicsResult;
+import org.apache.kafka.clients.admin.ListTopicsResult;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.internals.KafkaFutureImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 主题列表缓存测试，使用模拟的 AdminClient 控制查询完成的时机
+ */
+class KafkaTopicServiceTests {
+
+    private final AdminClient adminClient = mock(AdminClient.class);
+    private final KafkaTopicService service = new KafkaTopicService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "adminClient", adminClient);
+        ReflectionTestUtils.setField(service, "metadataTtlMillis", 60_000L);
+    }
+
+    @Test
+    void concurrentListingsShareOneRequest() {
+        KafkaFutureImpl<Set<String>> names = stubListTopics();
+
+        CompletableFuture<List<String>> first = service.listTopicsAsync(false);
+        CompletableFuture<List<String>> second = service.listTopicsAsync(true);
+        names.complete(Set.of("orders"));
+
+        assertEquals(List.of("orders"), first.join());
+        assertEquals(List.of("orders"), second.join());
+        verify(adminClient, times(1)).listTopics();
+
+        // 结果已写入缓存
+        assertEquals(List.of("orders"), service.listTopics());
+        verify(adminClient, times(1)).listTopics();
+    }
+
+    @Test
+    void listingStartedBeforeCreateDoesNotOverwriteCache() {
+        KafkaFutureImpl<Set<String>> initial = stubListTopics();
+        CompletableFuture<List<String>> warmUp = service.listTopicsAsync(false);
+        initial.complete(Set.of("orders"));
+        assertEquals(List.of("orders"), warmUp.join());
+
+        // 刷新查询发出后创建主题，查询结果里还没有新主题
+        KafkaFutureImpl<Set<String>> stale = stubListTopics();
+        CompletableFuture<List<String>> refresh = service.listTopicsAsync(true);
+        KafkaFutureImpl<Void> created = new KafkaFutureImpl<>();
+        CreateTopicsResult createResult = mock(CreateTopicsResult.class);
+        doReturn(Map.<String, KafkaFuture<Void>>of("payments", created)).when(createResult).values();
+        doReturn(createResult).when(adminClient).createTopics(anyCollection());
+        CompletableFuture<Map<String, Boolean>> create = service.createTopicsAsync(List.of("payments"));
+        created.complete(null);
+        assertTrue(create.join().get("payments"));
+        stale.complete(Set.of("orders"));
+
+        assertEquals(Set.of("orders", "payments"), Set.copyOf(refresh.join()));
+        assertTrue(service.topicExists("payments"));
+        verify(adminClient, times(2)).listTopics();
+    }
+
+    @Test
+    void failedListingIsNotShared() {
+        KafkaFutureImpl<Set<String>> failed = stubListTopics();
+        CompletableFuture<List<String>> first = service.listTopicsAsync(false);
+        failed.completeExceptionally(new IllegalStateException("broker unavailable"));
+        assertTrue(first.isCompletedExceptionally());
+
+        KafkaFutureImpl<Set<String>> retried = stubListTopics();
+        CompletableFuture<List<String>> second = service.listTopicsAsync(false);
+        retried.complete(Set.of("orders"));
+        assertEquals(List.of("orders"), second.join());
+    }
+
+    private KafkaFutureImpl<Set<String>> stubListTopics() {
+        KafkaFutureImpl<Set<String>> names = new KafkaFutureImpl<>();
+        ListTopicsResult result = mock(ListTopicsResult.class);
+        doReturn(names).when(result).names();
+        doReturn(result).when(adminClient).listTopics();
+        return names;
+    }
+}
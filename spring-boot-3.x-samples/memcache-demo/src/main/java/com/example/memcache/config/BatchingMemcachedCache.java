@@ -0,0 +1,158 @@
+package com.example.memcache.config;
+
+import net.rubyeye.xmemcached.MemcachedClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 批量读取、异步写入的Memcached缓存实现
+ * <ul>
+ *     <li>读操作交给 {@link MemcachedGetBatcher} 合并成多键get，最多等待 readBudgetMillis，超时按未命中处理</li>
+ *     <li>写操作和删除交给 {@link MemcachedAsyncWriter} 使用noreply命令异步发送，失败在后台重试</li>
+ * </ul>
+ * null值使用Spring的 {@link org.springframework.cache.support.NullValue} 存储，可以被序列化到Memcached
+ */
+public class BatchingMemcachedCache extends AbstractValueAdaptingCache {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchingMemcachedCache.class);
+
+    private final String name;
+    private final MemcachedClient client;
+    private final MemcachedNamespaceManager namespaces;
+    private final MemcachedGetBatcher batcher;
+    private final MemcachedAsyncWriter writer;
+    private final MemcachedCacheLoader loader;
+    private final int defaultExpiry;
+    private final long readBudgetMillis;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder budgetExceeded = new LongAdder();
+
+    public BatchingMemcachedCache(String name, MemcachedClient client, MemcachedNamespaceManager namespaces, MemcachedGetBatcher batcher,
+                                  MemcachedAsyncWriter writer, MemcachedCacheLoader loader, int defaultExpiry, long readBudgetMillis) {
+        super(true);
+        this.name = name;
+        this.client = client;
+        this.namespaces = namespaces;
+        this.batcher = batcher;
+        this.writer = writer;
+        this.loader = loader;
+        this.defaultExpiry = defaultExpiry;
+        this.readBudgetMillis = readBudgetMillis;
+        log.info("Creating batching Memcached cache: {} with expiry: {}s, read budget: {}ms", name, defaultExpiry, readBudgetMillis);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return client;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        return MemcachedCacheLoader.unwrap(read(namespaces.key(name, key)));
+    }
+
+    /**
+     * 读取原始缓存值，可能是加载器写入的 {@link MemcachedCacheLoader.LoadedValue}
+     */
+    private Object read(String cacheKey) {
+        // 本节点尚未写入完成的值优先返回，保证读到自己的写入
+        Object pending = writer.pendingValue(cacheKey);
+        if (pending != null) {
+            if (writer.isDeleted(pending)) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return pending;
+        }
+
+        try {
+            Object value = batcher.get(cacheKey).get(readBudgetMillis, TimeUnit.MILLISECONDS);
+            if (value != null) {
+                hits.increment();
+            } else {
+                misses.increment();
+            }
+            return value;
+        } catch (TimeoutException e) {
+            budgetExceeded.increment();
+            misses.increment();
+            log.debug("Memcached read exceeded budget of {}ms for key: {}", readBudgetMillis, cacheKey);
+            return null;
+        } catch (ExecutionException e) {
+            misses.increment();
+            log.warn("Error getting cache from Memcached for key {}: {}", cacheKey, e.getCause().getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String cacheKey = namespaces.key(name, key);
+        try {
+            // 未命中时由加载器合并并发加载，结果通过异步写入器写回
+            return loader.get(cacheKey, read(cacheKey), defaultExpiry, valueLoader);
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        writer.set(namespaces.key(name, key), defaultExpiry, toStoreValue(value));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        String cacheKey = namespaces.key(name, key);
+        try {
+            // add是原子操作，键已存在时不会覆盖
+            if (client.add(cacheKey, defaultExpiry, toStoreValue(value))) {
+                return null;
+            }
+        } catch (Exception e) {
+            log.error("Error in putIfAbsent operation for key {}: {}", cacheKey, e.getMessage());
+            return null;
+        }
+        return get(key);
+    }
+
+    @Override
+    public void evict(Object key) {
+        writer.delete(namespaces.key(name, key));
+    }
+
+    @Override
+    public void clear() {
+        // 递增命名空间版本号，该缓存的所有键同时失效
+        namespaces.clear(name);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("readBudgetExceeded", budgetExceeded.sum());
+        return stats;
+    }
+}
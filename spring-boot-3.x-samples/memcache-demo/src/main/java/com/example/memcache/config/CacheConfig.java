@@ -2,12 +2,13 @@ package com.example.memcache.config;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CachingConfigurerSupport;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.cache.support.NullValue;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.util.Assert;
@@ -19,14 +20,17 @@ import net.rubyeye.xmemcached.exception.MemcachedException;
 import net.rubyeye.xmemcached.utils.AddrUtil;
 
 import java.io.IOException;
-import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Memcache配置类，实现Spring Cache接口与XMemcached的集成
@@ -38,6 +42,8 @@ public class CacheConfig extends CachingConfigurerSupport {
 
     private static final Logger log = LoggerFactory.getLogger(CacheConfig.class);
 
+    private static final int MAX_ASYNC_WRITE_RETRIES = 3; // 异步写入失败最大重试次数
+
     @Value("${memcache.servers:localhost:11211}")  // 提供默认值
     private String memcacheServers;
     
@@ -59,6 +65,54 @@ public class CacheConfig extends CachingConfigurerSupport {
     @Value("${memcache.defaultExpiry:3600}")
     private int defaultExpiry; // 默认缓存过期时间，单位秒
 
+    @Value("${memcache.cacheMode:simple}")
+    private String cacheMode; // 缓存模式：simple（逐键同步读写）或 batching（合并读取、异步写入）
+
+    @Value("${memcache.batchWindowMillis:1}")
+    private long batchWindowMillis; // 合并读请求的时间窗口，单位毫秒
+
+    @Value("${memcache.batchMaxSize:100}")
+    private int batchMaxSize; // 单次多键get的最大键数
+
+    @Value("${memcache.batchFetchThreads:4}")
+    private int batchFetchThreads; // 执行多键get的线程数
+
+    @Value("${memcache.readBudgetMillis:50}")
+    private long readBudgetMillis; // 读操作最长等待时间，超时按未命中处理，单位毫秒
+
+    @Value("${memcache.asyncWriteThreads:4}")
+    private int asyncWriteThreads; // 异步写线程数
+
+    @Value("${memcache.asyncWriteQueueCapacity:10000}")
+    private int asyncWriteQueueCapacity; // 每个异步写线程的队列容量
+
+    @Value("${memcache.loadLeaseEnabled:false}")
+    private boolean loadLeaseEnabled; // 是否启用跨节点加载租约
+
+    @Value("${memcache.loadLeaseSeconds:5}")
+    private int loadLeaseSeconds; // 加载租约有效期，单位秒
+
+    @Value("${memcache.loadLeaseWaitMillis:200}")
+    private long loadLeaseWaitMillis; // 没有旧值时等待租约持有者加载完成的最长时间，单位毫秒
+
+    @Value("${memcache.staleSeconds:60}")
+    private int staleSeconds; // 逻辑过期后旧值继续保留的时间，单位秒
+
+    @Value("${memcache.earlyRefreshBeta:1.0}")
+    private double earlyRefreshBeta; // 提前刷新系数，0表示关闭
+
+    @Value("${memcache.refreshThreads:2}")
+    private int refreshThreads; // 后台刷新线程数
+
+    @Value("${memcache.refreshQueueCapacity:1000}")
+    private int refreshQueueCapacity; // 等待执行的后台刷新数上限，队列满时跳过刷新
+
+    @Value("${memcache.loadWaitMillis:3000}")
+    private long loadWaitMillis; // 等待本机同一个键的加载结果的最长时间，超时后自行加载，单位毫秒
+
+    @Value("${memcache.namespaceRefreshMillis:1000}")
+    private long namespaceRefreshMillis; // 本地缓存的命名空间版本号同步间隔，单位毫秒
+
     @Bean(destroyMethod = "shutdown")  // 添加销毁方法，确保资源正确释放
     public MemcachedClient memcachedClient() {
         try {
@@ -120,64 +174,75 @@ public class CacheConfig extends CachingConfigurerSupport {
     @Bean
     @Override
     public CacheManager cacheManager() {
-        log.info("Creating XMemcachedCacheManager with default expiry: {}s", defaultExpiry);
+        log.info("Creating XMemcachedCacheManager with default expiry: {}s, mode: {}", defaultExpiry, cacheMode);
         MemcachedClient client = memcachedClient();
-        return new XMemcachedCacheManager(client, Arrays.asList("userCache", "userListCache"), defaultExpiry);
+        MemcachedNamespaceManager namespaces = new MemcachedNamespaceManager(client, namespaceRefreshMillis, opTimeout);
+        if ("batching".equalsIgnoreCase(cacheMode)) {
+            MemcachedGetBatcher batcher = new MemcachedGetBatcher(client, TimeUnit.MILLISECONDS.toMicros(batchWindowMillis),
+                    batchMaxSize, batchFetchThreads, opTimeout);
+            MemcachedAsyncWriter writer = new MemcachedAsyncWriter(client, asyncWriteThreads, asyncWriteQueueCapacity, MAX_ASYNC_WRITE_RETRIES);
+            MemcachedCacheLoader loader = cacheLoader(client, writer::set, key -> {
+                // 异步写入器中尚未写入完成的值优先
+                Object pending = writer.pendingValue(key);
+                if (pending != null) {
+                    return writer.isDeleted(pending) ? null : pending;
+                }
+                return client.get(key);
+            });
+            return new XMemcachedCacheManager(Arrays.asList("userCache", "userListCache"),
+                    name -> new BatchingMemcachedCache(name, client, namespaces, batcher, writer, loader, defaultExpiry, readBudgetMillis),
+                    () -> {
+                        Map<String, Object> stats = new LinkedHashMap<>();
+                        stats.put("loader", loader.stats());
+                        stats.put("namespaces", namespaces.stats());
+                        stats.put("batcher", batcher.stats());
+                        stats.put("writer", writer.stats());
+                        return stats;
+                    },
+                    () -> {
+                        batcher.shutdown();
+                        writer.shutdown();
+                        loader.shutdown();
+                        namespaces.shutdown();
+                    });
+        }
+        MemcachedCacheLoader loader = cacheLoader(client, client::set, client::get);
+        return new XMemcachedCacheManager(Arrays.asList("userCache", "userListCache"),
+                name -> new XMemcachedCache(name, client, namespaces, loader, defaultExpiry),
+                () -> {
+                    Map<String, Object> stats = new LinkedHashMap<>();
+                    stats.put("loader", loader.stats());
+                    stats.put("namespaces", namespaces.stats());
+                    return stats;
+                },
+                () -> {
+                    loader.shutdown();
+                    namespaces.shutdown();
+                });
     }
 
-    @Bean
-    @Override
-    public KeyGenerator keyGenerator() {
-        log.info("Configuring cache key generator");
-        return (target, method, params) -> {
-            StringBuilder sb = new StringBuilder();
-            // 使用类名和方法名作为前缀
-            sb.append(target.getClass().getSimpleName());
-            sb.append(":");
-            sb.append(method.getName());
-            
-            // 添加参数
-            if (params != null && params.length > 0) {
-                sb.append(":");
-                for (int i = 0; i < params.length; i++) {
-                    if (params[i] != null) {
-                        // 对于复杂对象，使用其hashCode而不是toString，避免生成过长的键
-                        sb.append(params[i].hashCode());
-                    } else {
-                        sb.append("null");
-                    }
-                    
-                    if (i < params.length - 1) {
-                        sb.append(",");
-                    }
-                }
-            }
-            
-            // Memcached键长度限制，通常建议不超过250字节
-            String key = sb.toString();
-            if (key.length() > 250) {
-                // 如果键过长，使用其哈希值作为键
-                key = String.valueOf(key.hashCode());
-                log.debug("Cache key too long, using hash: {}", key);
-            }
-            
-            return key;
-        };
+    private MemcachedCacheLoader cacheLoader(MemcachedClient client, MemcachedCacheLoader.EntryWriter entryWriter,
+                                             MemcachedCacheLoader.EntryReader entryReader) {
+        return new MemcachedCacheLoader(client, entryWriter, entryReader, loadLeaseEnabled, loadLeaseSeconds, loadLeaseWaitMillis,
+                staleSeconds, earlyRefreshBeta, loadWaitMillis, refreshThreads, refreshQueueCapacity);
     }
 
     /**
      * XMemcached缓存管理器，适配Spring的CacheManager接口
      * 实现了更完善的缓存生命周期管理
      */
-    class XMemcachedCacheManager implements CacheManager {
-        private final MemcachedClient client;
+    public class XMemcachedCacheManager implements CacheManager, DisposableBean {
+        private final Function<String, Cache> cacheFactory; // 按缓存模式创建缓存实例
+        private final Supplier<Map<String, Object>> componentStats; // 缓存模式使用的各组件的统计信息
+        private final Runnable shutdownHook; // 释放缓存模式使用的线程资源
         private final Map<String, Cache> caches = new ConcurrentHashMap<>();
-        private final int defaultExpiry; // 默认缓存过期时间
         private final AtomicBoolean initialized = new AtomicBoolean(false);
         
-        public XMemcachedCacheManager(MemcachedClient client, Collection<String> cacheNames, int defaultExpiry) {
-            this.client = client;
-            this.defaultExpiry = defaultExpiry;
+        public XMemcachedCacheManager(Collection<String> cacheNames, Function<String, Cache> cacheFactory,
+                                      Supplier<Map<String, Object>> componentStats, Runnable shutdownHook) {
+            this.cacheFactory = cacheFactory;
+            this.componentStats = componentStats;
+            this.shutdownHook = shutdownHook;
             
             // 初始化缓存
             if (cacheNames != null && !cacheNames.isEmpty()) {
@@ -194,7 +259,7 @@ public class CacheConfig extends CachingConfigurerSupport {
         private void initializeCaches(Collection<String> cacheNames) {
             cacheNames.forEach(cacheName -> {
                 log.info("Initializing cache: {}", cacheName);
-                caches.put(cacheName, new XMemcachedCache(cacheName, client, defaultExpiry));
+                caches.put(cacheName, cacheFactory.apply(cacheName));
             });
         }
         
@@ -202,23 +267,41 @@ public class CacheConfig extends CachingConfigurerSupport {
         public Cache getCache(String name) {
             Assert.hasText(name, "Cache name must not be empty");
             
-            Cache cache = caches.get(name);
-            if (cache == null) {
-                // 动态创建缓存
-                cache = new XMemcachedCache(name, client, defaultExpiry);
-                caches.put(name, cache);
-                
+            // 动态创建缓存
+            return caches.computeIfAbsent(name, cacheName -> {
                 if (initialized.get()) {
-                    log.info("Dynamically created cache: {}", name);
+                    log.info("Dynamically created cache: {}", cacheName);
                 }
-            }
-            return cache;
+                return cacheFactory.apply(cacheName);
+            });
         }
         
         @Override
         public Collection<String> getCacheNames() {
             return caches.keySet();
         }
+
+        /**
+         * 汇总加载器、命名空间、批量读取和异步写入等组件的统计信息，以及各缓存的命中情况
+         */
+        public Map<String, Object> stats() {
+            Map<String, Object> stats = componentStats.get();
+            Map<String, Object> cacheStats = new LinkedHashMap<>();
+            caches.forEach((cacheName, cache) -> {
+                if (cache instanceof BatchingMemcachedCache batching) {
+                    cacheStats.put(cacheName, batching.stats());
+                }
+            });
+            if (!cacheStats.isEmpty()) {
+                stats.put("caches", cacheStats);
+            }
+            return stats;
+        }
+
+        @Override
+        public void destroy() {
+            shutdownHook.run();
+        }
     }
 
 
@@ -231,12 +314,17 @@ public class CacheConfig extends CachingConfigurerSupport {
         private static final Logger log = LoggerFactory.getLogger(XMemcachedCache.class);
         private final String name;
         private final MemcachedClient client;
+        private final MemcachedNamespaceManager namespaces; // 命名空间版本号，用于生成缓存键和清空缓存
+        private final MemcachedCacheLoader loader; // 未命中时合并并发加载
         private final int defaultExpiry; // 缓存过期时间
         private static final int MAX_RETRY_COUNT = 2; // 操作失败最大重试次数
         
-        public XMemcachedCache(String name, MemcachedClient client, int defaultExpiry) {
+        public XMemcachedCache(String name, MemcachedClient client, MemcachedNamespaceManager namespaces,
+                               MemcachedCacheLoader loader, int defaultExpiry) {
             this.name = name;
             this.client = client;
+            this.namespaces = namespaces;
+            this.loader = loader;
             this.defaultExpiry = defaultExpiry;
             log.info("Creating Memcached cache: {} with expiry: {}s", name, defaultExpiry);
         }
@@ -257,7 +345,7 @@ public class CacheConfig extends CachingConfigurerSupport {
             String cacheKey = generateKey(key);
             
             try {
-                T value = client.get(cacheKey);
+                T value = (T) MemcachedCacheLoader.unwrap(client.get(cacheKey));
                 
                 // 检查是否为null值标记
                 if (value == NullValue.INSTANCE) {
@@ -292,33 +380,17 @@ public class CacheConfig extends CachingConfigurerSupport {
             String cacheKey = generateKey(key);
             
             // 尝试从缓存获取
+            Object cached = null;
             try {
-                T value = client.get(cacheKey);
-                
-                // 检查是否为null值标记
-                if (value == NullValue.INSTANCE) {
-                    return null;
-                }
-                
-                if (value != null) {
-                    return value;
-                }
+                cached = client.get(cacheKey);
             } catch (Exception e) {
                 log.error("Error getting cache from Memcached for key {}: {}", cacheKey, e.getMessage(), e);
                 // 缓存读取失败时，不抛出异常，而是尝试加载值
             }
             
-            // 缓存未命中或读取失败，从valueLoader加载
+            // 缓存未命中、已过期或读取失败，由加载器合并并发加载，避免缓存击穿
             try {
-                T value = valueLoader.call();
-                
-                // 只有加载成功且值不为null时才放入缓存
-                if (value != null) {
-                    // 放入缓存时使用重试机制
-                    putWithRetry(cacheKey, value, defaultExpiry, 0);
-                }
-                
-                return value;
+                return loader.get(cacheKey, cached, defaultExpiry, valueLoader);
             } catch (Exception e) {
                 if (e instanceof RuntimeException) {
                     throw (RuntimeException) e;
@@ -332,12 +404,12 @@ public class CacheConfig extends CachingConfigurerSupport {
             String cacheKey = generateKey(key);
             
             try {
-                Object value = client.get(cacheKey);
-                // 检查是否为null值标记
-                if (value == NullValue.INSTANCE) {
-                    value = null;
+                Object value = MemcachedCacheLoader.unwrap(client.get(cacheKey));
+                if (value == null) {
+                    return null;
                 }
-                return value != null ? new SimpleValueWrapper(value) : null;
+                // 缓存的null值包装为值为null的结果，与未命中区分
+                return new SimpleValueWrapper(value == NullValue.INSTANCE ? null : value);
             } catch (Exception e) {
                 log.error("Error getting cache from Memcached for key {}: {}", cacheKey, e.getMessage(), e);
                 // 对于get方法，可以返回null而不是抛出异常，避免缓存问题影响业务流程
@@ -403,7 +475,7 @@ public class CacheConfig extends CachingConfigurerSupport {
             
             try {
                 // 先获取现有值
-                Object existing = client.get(cacheKey);
+                Object existing = MemcachedCacheLoader.unwrap(client.get(cacheKey));
                 
                 // 检查是否为特殊的null标记对象
                 if (existing == NullValue.INSTANCE) {
@@ -439,67 +511,15 @@ public class CacheConfig extends CachingConfigurerSupport {
         
         @Override
         public void clear() {
-            log.info("开始清除缓存: {}", name);
-            
-            try {
-                // 在实际项目中，Memcached确实不支持直接按前缀删除
-                // 但是我们可以实现一个简单的清除策略：使用前缀查询并删除
-                // 注意：在生产环境中，如果缓存项非常多，这种方法可能效率不高
-                // 更高效的方式是使用命名空间模式
-                
-                // 对于用户列表缓存，我们知道具体的键
-                if ("userListCache".equals(name)) {
-                    String listKey = generateKey("allUsers");
-                    client.delete(listKey);
-                    log.info("已清除用户列表缓存: {}", listKey);
-                    return;
-                }
-                
-                // 对于用户缓存，我们从模拟数据库中获取所有用户ID并逐个清除
-                if ("userCache".equals(name)) {
-                    // 这里我们假设可以访问到用户服务来获取所有用户ID
-                    // 在实际项目中，可能需要其他方式来获取缓存的键
-                    // 由于我们在UserServiceImpl中有client访问，这里简化处理
-                    log.info("对于用户缓存，建议使用UserServiceImpl中的clearCache方法来精确清除特定用户缓存");
-                    
-                    // 注意：在实际生产环境中，可能需要实现更复杂的缓存键管理
-                    // 例如使用Redis而不是Memcached，或者使用命名空间模式
-                }
-                
-                log.info("缓存清除操作已尝试完成");
-            } catch (Exception e) {
-                log.error("清除缓存时发生错误: {}", e.getMessage(), e);
-            }
+            // Memcached不支持按前缀删除，通过递增命名空间版本号使该缓存的所有键同时失效
+            namespaces.clear(name);
         }
         
         /**
-         * 特殊的空值标记类，用于缓存null值
-         */
-        private static class NullValue {
-            public static final NullValue INSTANCE = new NullValue();
-            
-            private NullValue() {
-                // 私有构造函数
-            }
-        }
-        
-        /**
-         * 生成缓存键，遵循Memcached键的最佳实践
-         * 1. 键长度不超过250字节
-         * 2. 包含缓存名称作为前缀，便于区分和管理
+         * 生成缓存键，格式为 缓存名:命名空间版本号:业务键
          */
         private String generateKey(Object key) {
-            String rawKey = key != null ? key.toString() : "null";
-            String cacheKey = name + ":" + rawKey;
-            
-            // Memcached键长度限制，通常建议不超过250字节
-            // 如果键过长，使用其哈希值作为键
-            if (cacheKey.length() > 250) {
-                cacheKey = name + ":" + rawKey.hashCode();
-                log.debug("Cache key too long, using hash: {}", cacheKey);
-            }
-            
-            return cacheKey;
+            return namespaces.key(name, key);
         }
         
         /**
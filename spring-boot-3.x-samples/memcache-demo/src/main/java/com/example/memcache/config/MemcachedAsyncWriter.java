@@ -0,0 +1,176 @@
+package com.example.memcache.config;
+
+import net.rubyeye.xmemcached.MemcachedClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Memcached异步写入器
+ * <p>
+ * 写操作使用noreply命令在后台线程发送，调用线程不等待服务端响应；
+ * 写入按键哈希分配到单线程分片，保证同一个键的set/delete顺序不变；
+ * 失败时通过定时任务按指数退避重试，不占用调用线程和写线程。
+ * 尚未发送完成的值保存在本地，读操作可以立即读到自己的写入。
+ * 分片队列满时只丢弃set写入（丢失的只是一次缓存填充）；删除不能丢弃，否则旧值会一直留在缓存中，
+ * 因此被拒绝的删除在调用线程上同步执行。
+ */
+public class MemcachedAsyncWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(MemcachedAsyncWriter.class);
+
+    private static final Object DELETED = new Object();
+
+    private final MemcachedClient client;
+    private final int maxRetries;
+    private final ExecutorService[] shards;
+    private final ScheduledExecutorService retryScheduler;
+
+    /**
+     * 尚未写入Memcached的值，删除操作使用DELETED标记
+     */
+    private final Map<String, Object> pendingWrites = new ConcurrentHashMap<>();
+
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder syncDeletes = new LongAdder();
+
+    /**
+     * @param client Memcached客户端
+     * @param threads 写线程（分片）数
+     * @param queueCapacity 每个分片的队列容量，队列满时丢弃set写入，删除改为同步执行
+     * @param maxRetries 最大重试次数
+     */
+    public MemcachedAsyncWriter(MemcachedClient client, int threads, int queueCapacity, int maxRetries) {
+        this.client = client;
+        this.maxRetries = maxRetries;
+        this.shards = new ExecutorService[threads];
+        for (int i = 0; i < threads; i++) {
+            shards[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), MemcachedGetBatcher.namedThreadFactory("memcached-write-" + i));
+        }
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(MemcachedGetBatcher.namedThreadFactory("memcached-write-retry"));
+    }
+
+    /**
+     * 异步写入
+     */
+    public void set(String key, int expiry, Object value) {
+        pendingWrites.put(key, value);
+        submit(key, () -> client.setWithNoReply(key, expiry, value), value, 0);
+    }
+
+    /**
+     * 异步删除
+     */
+    public void delete(String key) {
+        pendingWrites.put(key, DELETED);
+        submit(key, () -> client.deleteWithNoReply(key), DELETED, 0);
+    }
+
+    /**
+     * 查询尚未写入完成的值
+     * @param key 缓存键
+     * @return 未完成的写入值；没有未完成写入时返回null；有未完成的删除时返回 {@link #isDeleted} 为true的标记
+     */
+    public Object pendingValue(String key) {
+        return pendingWrites.get(key);
+    }
+
+    public boolean isDeleted(Object pendingValue) {
+        return pendingValue == DELETED;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("writes", writes.sum());
+        stats.put("pending", pendingWrites.size());
+        stats.put("retries", retries.sum());
+        stats.put("failures", failures.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("syncDeletes", syncDeletes.sum());
+        return stats;
+    }
+
+    public void shutdown() {
+        retryScheduler.shutdownNow();
+        for (ExecutorService shard : shards) {
+            shard.shutdown();
+        }
+    }
+
+    private void submit(String key, WriteOperation operation, Object value, int attempt) {
+        ExecutorService shard = shards[Math.floorMod(key.hashCode(), shards.length)];
+        try {
+            shard.execute(() -> attempt(key, operation, value, attempt));
+        } catch (RejectedExecutionException e) {
+            if (value == DELETED) {
+                deleteSynchronously(key);
+                return;
+            }
+            dropped.increment();
+            pendingWrites.remove(key, value);
+            log.warn("Memcached write queue full, dropping write for key: {}", key);
+        }
+    }
+
+    /**
+     * 在调用线程上同步删除，等待服务端响应
+     * <p>
+     * 分片队列中同一个键更早的set看到DELETED标记后会跳过，不会在删除之后把旧值写回
+     */
+    private void deleteSynchronously(String key) {
+        syncDeletes.increment();
+        log.warn("Memcached write queue full, deleting key synchronously: {}", key);
+        try {
+            client.delete(key);
+            writes.increment();
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            failures.increment();
+            log.error("Synchronous delete from Memcached failed, key: {}", key, e);
+        } finally {
+            pendingWrites.remove(key, DELETED);
+        }
+    }
+
+    private void attempt(String key, WriteOperation operation, Object value, int attempt) {
+        // 同一个键已有更新的写入时，旧的写入不再发送
+        if (pendingWrites.get(key) != value) {
+            return;
+        }
+        try {
+            operation.run();
+            writes.increment();
+            pendingWrites.remove(key, value);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (attempt < maxRetries && !retryScheduler.isShutdown()) {
+                retries.increment();
+                long delay = 100L * (1L << attempt);
+                log.warn("Async write to Memcached failed (attempt {}/{}), key: {}, retry in {}ms: {}",
+                        attempt + 1, maxRetries + 1, key, delay, e.getMessage());
+                retryScheduler.schedule(() -> submit(key, operation, value, attempt + 1), delay, TimeUnit.MILLISECONDS);
+            } else {
+                failures.increment();
+                pendingWrites.remove(key, value);
+                log.error("Async write to Memcached failed after retries, key: {}", key, e);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface WriteOperation {
+        void run() throws Exception;
+    }
+}
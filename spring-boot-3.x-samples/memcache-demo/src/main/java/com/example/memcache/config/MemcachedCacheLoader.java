@@ -0,0 +1,396 @@
+package com.example.memcache.config;
+
+import net.rubyeye.xmemcached.GetsResponse;
+import net.rubyeye.xmemcached.MemcachedClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.support.NullValue;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 缓存未命中时的加载协调器，防止热点键过期时大量请求同时访问数据库
+ * <ul>
+ *     <li>单机合并：同一个键同一时刻只有一个线程执行加载，其余线程等待同一个结果；
+ *     抢到加载权后重新读取一次缓存，上一次加载刚刚完成时直接使用其结果</li>
+ *     <li>跨节点租约（可选）：加载前用Memcached的add命令抢占租约键，抢不到的节点返回旧值或等待持有者写入；
+ *     租约值是本次抢占的令牌，释放时通过gets/cas只删除自己持有的租约</li>
+ *     <li>旧值保留：值在Memcached中比逻辑过期时间多保存 staleSeconds 秒，供租约被占用时返回</li>
+ *     <li>提前刷新：按XFetch算法在过期前随机触发后台刷新，加载越慢、越接近过期，刷新概率越高</li>
+ * </ul>
+ * 通过加载器写入的值包装为 {@link LoadedValue}，读路径需要调用 {@link #unwrap} 取出实际值
+ */
+public class MemcachedCacheLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(MemcachedCacheLoader.class);
+
+    private static final String LEASE_SUFFIX = ":lease";
+    private static final long LEASE_POLL_MILLIS = 20;
+
+    private final MemcachedClient client;
+    private final EntryWriter entryWriter;
+    private final EntryReader entryReader;
+    private final boolean leaseEnabled;
+    private final int leaseSeconds;
+    private final long leaseWaitMillis;
+    private final int staleSeconds;
+    private final double earlyRefreshBeta;
+    private final long loadWaitMillis;
+    private final ThreadPoolExecutor refreshExecutor;
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName();
+    private final AtomicLong leaseSequence = new AtomicLong();
+
+    /**
+     * 正在加载的键，同一个键的并发请求共享一个结果
+     */
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder staleServed = new LongAdder();
+    private final LongAdder leaseWaitTimeouts = new LongAdder();
+    private final LongAdder loadWaitTimeouts = new LongAdder();
+    private final LongAdder refreshRejected = new LongAdder();
+    private final LongAdder earlyRefreshes = new LongAdder();
+
+    /**
+     * @param client Memcached客户端
+     * @param entryWriter 写入加载结果的方式，与所属缓存的写路径保持一致
+     * @param entryReader 读取原始缓存值的方式，需要能读到 entryWriter 尚未写入完成的值
+     * @param leaseEnabled 是否启用跨节点租约
+     * @param leaseSeconds 租约有效期（秒），加载节点宕机时租约自动过期
+     * @param leaseWaitMillis 没有旧值时等待租约持有者写入的最长时间（毫秒），超时后自行加载
+     * @param staleSeconds 逻辑过期后旧值继续保留的时间（秒）
+     * @param earlyRefreshBeta 提前刷新系数，0表示关闭，越大越早刷新
+     * @param loadWaitMillis 等待本机同一个键的加载结果的最长时间（毫秒），超时后自行加载
+     * @param refreshThreads 后台刷新线程数
+     * @param refreshQueueCapacity 等待执行的后台刷新数上限，队列满时跳过本次刷新
+     */
+    public MemcachedCacheLoader(MemcachedClient client, EntryWriter entryWriter, EntryReader entryReader, boolean leaseEnabled,
+                                int leaseSeconds, long leaseWaitMillis, int staleSeconds, double earlyRefreshBeta,
+                                long loadWaitMillis, int refreshThreads, int refreshQueueCapacity) {
+        this.client = client;
+        this.entryWriter = entryWriter;
+        this.entryReader = entryReader;
+        this.leaseEnabled = leaseEnabled;
+        this.leaseSeconds = leaseSeconds;
+        this.leaseWaitMillis = leaseWaitMillis;
+        this.staleSeconds = staleSeconds;
+        this.earlyRefreshBeta = earlyRefreshBeta;
+        this.loadWaitMillis = loadWaitMillis;
+        // 队列满时抛出 RejectedExecutionException，由 refreshAsync 撤销已登记的加载，不能静默丢弃
+        this.refreshExecutor = new ThreadPoolExecutor(refreshThreads, refreshThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(refreshQueueCapacity), MemcachedGetBatcher.namedThreadFactory("memcached-refresh"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 根据已读取到的缓存值返回结果，未命中或已过期时加载
+     * @param cacheKey 缓存键
+     * @param cached 从Memcached读取到的原始值
+     * @param expiry 过期时间（秒）
+     * @param valueLoader 加载器
+     * @return 缓存值或加载结果，缓存的null值返回null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String cacheKey, Object cached, int expiry, Callable<T> valueLoader) throws Exception {
+        LoadedValue stale = null;
+        if (cached instanceof LoadedValue loaded) {
+            if (!loaded.isExpired()) {
+                if (shouldRefreshEarly(loaded)) {
+                    refreshAsync(cacheKey, expiry, valueLoader);
+                }
+                return (T) fromStoreValue(loaded.value());
+            }
+            stale = loaded;
+        } else if (cached != null) {
+            return (T) fromStoreValue(cached);
+        }
+        return (T) loadSingleFlight(cacheKey, expiry, valueLoader, stale);
+    }
+
+    /**
+     * 取出实际缓存值
+     * @param cached 从Memcached读取到的原始值
+     * @return 实际值（null值为 {@link NullValue#INSTANCE}）；逻辑上已过期时返回null
+     */
+    public static Object unwrap(Object cached) {
+        if (cached instanceof LoadedValue loaded) {
+            return loaded.isExpired() ? null : loaded.value();
+        }
+        return cached;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("loads", loads.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("staleServed", staleServed.sum());
+        stats.put("leaseWaitTimeouts", leaseWaitTimeouts.sum());
+        stats.put("loadWaitTimeouts", loadWaitTimeouts.sum());
+        stats.put("refreshRejected", refreshRejected.sum());
+        stats.put("earlyRefreshes", earlyRefreshes.sum());
+        stats.put("inFlight", inFlight.size());
+        return stats;
+    }
+
+    public void shutdown() {
+        // 还在队列中的刷新不会再执行，撤销它们登记的加载，等待者重新竞争加载权
+        for (Runnable queued : refreshExecutor.shutdownNow()) {
+            if (queued instanceof RefreshTask task) {
+                task.abandon();
+            }
+        }
+    }
+
+    private Object loadSingleFlight(String cacheKey, int expiry, Callable<?> valueLoader, LoadedValue stale) throws Exception {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> existing;
+        while ((existing = inFlight.putIfAbsent(cacheKey, mine)) != null) {
+            coalesced.increment();
+            try {
+                return await(existing);
+            } catch (CancellationException e) {
+                // 等待的是一次被跳过的后台刷新，重新竞争加载权
+            } catch (TimeoutException e) {
+                // 正在进行的加载迟迟没有结果，不再等待，自行加载
+                loadWaitTimeouts.increment();
+                log.debug("Timed out waiting for in-flight load of key: {}", cacheKey);
+                return loadWithLease(cacheKey, expiry, valueLoader, stale);
+            }
+        }
+        try {
+            // 读到未命中之后、抢到加载权之前，上一个加载者可能刚刚写入并释放了加载权
+            Object cached = readQuietly(cacheKey);
+            if (cached instanceof LoadedValue loaded) {
+                if (!loaded.isExpired()) {
+                    coalesced.increment();
+                    Object value = fromStoreValue(loaded.value());
+                    mine.complete(value);
+                    return value;
+                }
+                stale = loaded;
+            } else if (cached != null) {
+                Object value = fromStoreValue(cached);
+                mine.complete(value);
+                return value;
+            }
+            Object value = loadWithLease(cacheKey, expiry, valueLoader, stale);
+            mine.complete(value);
+            return value;
+        } catch (Exception e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cacheKey, mine);
+        }
+    }
+
+    private Object loadWithLease(String cacheKey, int expiry, Callable<?> valueLoader, LoadedValue stale) throws Exception {
+        if (!leaseEnabled) {
+            return loadAndStore(cacheKey, expiry, valueLoader);
+        }
+        String leaseKey = cacheKey + LEASE_SUFFIX;
+        String leaseToken = tryAcquireLease(leaseKey);
+        if (leaseToken == null) {
+            // 其他节点正在加载：有旧值时直接返回旧值，否则等待对方写入
+            if (stale != null) {
+                staleServed.increment();
+                return fromStoreValue(stale.value());
+            }
+            long deadline = System.currentTimeMillis() + leaseWaitMillis;
+            while (System.currentTimeMillis() < deadline) {
+                Thread.sleep(LEASE_POLL_MILLIS);
+                Object value = unwrap(client.get(cacheKey));
+                if (value != null) {
+                    return fromStoreValue(value);
+                }
+            }
+            leaseWaitTimeouts.increment();
+            log.debug("Timed out waiting for lease holder to load key: {}", cacheKey);
+            return loadAndStore(cacheKey, expiry, valueLoader);
+        }
+        try {
+            return loadAndStore(cacheKey, expiry, valueLoader);
+        } finally {
+            releaseLease(leaseKey, leaseToken);
+        }
+    }
+
+    private Object loadAndStore(String cacheKey, int expiry, Callable<?> valueLoader) throws Exception {
+        loads.increment();
+        long start = System.currentTimeMillis();
+        Object value = valueLoader.call();
+        long now = System.currentTimeMillis();
+        LoadedValue loaded = new LoadedValue(value != null ? value : NullValue.INSTANCE,
+                now + TimeUnit.SECONDS.toMillis(expiry), now - start);
+        try {
+            // 物理过期时间比逻辑过期时间长 staleSeconds，过期后的旧值可以在租约被占用时返回
+            entryWriter.write(cacheKey, expiry + staleSeconds, loaded);
+        } catch (Exception e) {
+            log.warn("Error storing loaded value to Memcached for key {}: {}", cacheKey, e.getMessage());
+        }
+        return value;
+    }
+
+    /**
+     * XFetch：now - delta * beta * ln(rand) >= expireAt 时提前刷新，ln(rand) 为负数
+     */
+    private boolean shouldRefreshEarly(LoadedValue loaded) {
+        if (earlyRefreshBeta <= 0) {
+            return false;
+        }
+        double gap = loaded.loadMillis() * earlyRefreshBeta * Math.log(ThreadLocalRandom.current().nextDouble());
+        return System.currentTimeMillis() - gap >= loaded.expireAtMillis();
+    }
+
+    private void refreshAsync(String cacheKey, int expiry, Callable<?> valueLoader) {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(cacheKey, mine) != null) {
+            return;
+        }
+        RefreshTask task = new RefreshTask(cacheKey, expiry, valueLoader, mine);
+        try {
+            refreshExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            refreshRejected.increment();
+            task.abandon();
+        }
+    }
+
+    /**
+     * 一次后台刷新，执行前已在 inFlight 中登记
+     */
+    private final class RefreshTask implements Runnable {
+        private final String cacheKey;
+        private final int expiry;
+        private final Callable<?> valueLoader;
+        private final CompletableFuture<Object> future;
+
+        private RefreshTask(String cacheKey, int expiry, Callable<?> valueLoader, CompletableFuture<Object> future) {
+            this.cacheKey = cacheKey;
+            this.expiry = expiry;
+            this.valueLoader = valueLoader;
+            this.future = future;
+        }
+
+        @Override
+        public void run() {
+            String leaseKey = cacheKey + LEASE_SUFFIX;
+            String leaseToken = leaseEnabled ? tryAcquireLease(leaseKey) : null;
+            try {
+                // 其他节点已经在刷新时跳过
+                if (leaseEnabled && leaseToken == null) {
+                    return;
+                }
+                earlyRefreshes.increment();
+                future.complete(loadAndStore(cacheKey, expiry, valueLoader));
+            } catch (Exception e) {
+                log.warn("Early refresh failed for key {}: {}", cacheKey, e.getMessage());
+            } finally {
+                if (leaseToken != null) {
+                    releaseLease(leaseKey, leaseToken);
+                }
+                // 刷新被跳过或失败时取消，等待者会重新竞争加载权
+                abandon();
+            }
+        }
+
+        /**
+         * 撤销登记：刷新被拒绝、被丢弃或已经结束
+         */
+        private void abandon() {
+            inFlight.remove(cacheKey, future);
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * 抢占加载租约
+     * @return 本次抢占的令牌；租约被其他节点持有或Memcached不可用时返回null，
+     * 按未抢到处理，避免Memcached故障时所有节点同时访问数据库
+     */
+    private String tryAcquireLease(String leaseKey) {
+        String token = nodeId + ":" + leaseSequence.incrementAndGet();
+        try {
+            // add只在键不存在时成功，相当于一个带过期时间的互斥锁
+            return client.add(leaseKey, leaseSeconds, token) ? token : null;
+        } catch (Exception e) {
+            log.warn("Error acquiring load lease {}, treating as held by another node: {}", leaseKey, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 释放加载租约，只删除令牌一致的租约：加载超过租约有效期时，租约可能已经过期并被其他节点抢占
+     */
+    private void releaseLease(String leaseKey, String token) {
+        try {
+            GetsResponse<Object> current = client.gets(leaseKey);
+            if (current != null && token.equals(current.getValue())) {
+                client.delete(leaseKey, current.getCas(), client.getOpTimeout());
+            }
+        } catch (Exception e) {
+            log.debug("Error releasing load lease {}: {}", leaseKey, e.getMessage());
+        }
+    }
+
+    private Object readQuietly(String cacheKey) {
+        try {
+            return entryReader.read(cacheKey);
+        } catch (Exception e) {
+            log.debug("Error re-reading cache for key {}: {}", cacheKey, e.getMessage());
+            return null;
+        }
+    }
+
+    private Object await(CompletableFuture<Object> future) throws Exception {
+        try {
+            return future.get(loadWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception exception) {
+                throw exception;
+            }
+            throw e;
+        }
+    }
+
+    private static Object fromStoreValue(Object value) {
+        return value == NullValue.INSTANCE ? null : value;
+    }
+
+    /**
+     * 写入缓存条目
+     */
+    @FunctionalInterface
+    public interface EntryWriter {
+        void write(String key, int expiry, Object value) throws Exception;
+    }
+
+    /**
+     * 读取原始缓存值
+     */
+    @FunctionalInterface
+    public interface EntryReader {
+        Object read(String key) throws Exception;
+    }
+
+    /**
+     * 加载器写入的缓存条目
+     * @param value 实际值，null值为 {@link NullValue#INSTANCE}
+     * @param expireAtMillis 逻辑过期时间戳（毫秒）
+     * @param loadMillis 加载耗时（毫秒），用于计算提前刷新概率
+     */
+    record LoadedValue(Object value, long expireAtMillis, long loadMillis) implements Serializable {
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expireAtMillis;
+        }
+    }
+}
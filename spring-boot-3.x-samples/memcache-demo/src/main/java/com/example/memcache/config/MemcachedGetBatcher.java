@@ -0,0 +1,134 @@
+package com.example.memcache.config;
+
+import net.rubyeye.xmemcached.MemcachedClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Memcached读请求合并器
+ * 在一个很短的时间窗口内收集并发的get请求，合并成一次XMemcached多键get；
+ * 同一窗口内对同一个键的多次请求共享一个结果
+ */
+public class MemcachedGetBatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(MemcachedGetBatcher.class);
+
+    private final MemcachedClient client;
+    private final long windowMicros;
+    private final int maxBatchSize;
+    private final long opTimeout;
+
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService fetchExecutor;
+
+    private final Object lock = new Object();
+    private Map<String, CompletableFuture<Object>> pending = new HashMap<>();
+    private boolean flushScheduled;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder requestedKeys = new LongAdder();
+    private final LongAdder fetchedKeys = new LongAdder();
+
+    /**
+     * @param client Memcached客户端
+     * @param windowMicros 合并窗口（微秒）
+     * @param maxBatchSize 单次多键get的最大键数，达到后立即发送
+     * @param fetchThreads 执行多键get的线程数
+     * @param opTimeout 多键get的超时时间（毫秒）
+     */
+    public MemcachedGetBatcher(MemcachedClient client, long windowMicros, int maxBatchSize, int fetchThreads, long opTimeout) {
+        this.client = client;
+        this.windowMicros = windowMicros;
+        this.maxBatchSize = maxBatchSize;
+        this.opTimeout = opTimeout;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(namedThreadFactory("memcached-batch-window"));
+        this.fetchExecutor = Executors.newFixedThreadPool(fetchThreads, namedThreadFactory("memcached-batch-get"));
+    }
+
+    /**
+     * 提交一个读请求
+     * @param key 缓存键
+     * @return 读取结果，键不存在时为null
+     */
+    public CompletableFuture<Object> get(String key) {
+        requestedKeys.increment();
+        Map<String, CompletableFuture<Object>> full = null;
+        CompletableFuture<Object> future;
+        synchronized (lock) {
+            future = pending.computeIfAbsent(key, k -> new CompletableFuture<>());
+            if (pending.size() >= maxBatchSize) {
+                full = pending;
+                pending = new HashMap<>();
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                scheduler.schedule(this::flushPending, windowMicros, TimeUnit.MICROSECONDS);
+            }
+        }
+        if (full != null) {
+            submit(full);
+        }
+        return future;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        long batchCount = batches.sum();
+        stats.put("batches", batchCount);
+        stats.put("requestedKeys", requestedKeys.sum());
+        stats.put("fetchedKeys", fetchedKeys.sum());
+        stats.put("avgBatchSize", batchCount == 0 ? 0.0 : (double) fetchedKeys.sum() / batchCount);
+        return stats;
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+        fetchExecutor.shutdownNow();
+    }
+
+    private void flushPending() {
+        Map<String, CompletableFuture<Object>> batch;
+        synchronized (lock) {
+            batch = pending;
+            pending = new HashMap<>();
+            flushScheduled = false;
+        }
+        if (!batch.isEmpty()) {
+            submit(batch);
+        }
+    }
+
+    private void submit(Map<String, CompletableFuture<Object>> batch) {
+        try {
+            fetchExecutor.execute(() -> fetch(batch));
+        } catch (RejectedExecutionException e) {
+            batch.values().forEach(f -> f.completeExceptionally(e));
+        }
+    }
+
+    private void fetch(Map<String, CompletableFuture<Object>> batch) {
+        batches.increment();
+        fetchedKeys.add(batch.size());
+        try {
+            Map<String, Object> values = client.get(batch.keySet(), opTimeout);
+            batch.forEach((key, future) -> future.complete(values != null ? values.get(key) : null));
+        } catch (Exception e) {
+            log.warn("Memcached multi-get failed for {} keys: {}", batch.size(), e.getMessage());
+            batch.values().forEach(f -> f.completeExceptionally(e));
+        }
+    }
+
+    static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.memcache.config;
+
+import net.rubyeye.xmemcached.MemcachedClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 缓存命名空间版本管理
+ * <p>
+ * 每个缓存在Memcached中有一个版本号计数器（ns:缓存名），缓存键格式为 缓存名:版本号:业务键。
+ * 清空缓存只需要对计数器执行一次incr，旧版本的键不再被访问，由Memcached按过期时间或LRU淘汰，
+ * 不需要知道缓存里有哪些键。
+ * <p>
+ * 版本号在本地缓存，由后台任务每隔 refreshMillis 从Memcached同步一次，生成缓存键不需要额外的网络往返；
+ * 其他节点清空缓存后，本节点最多在 refreshMillis 后看到新版本。
+ * <p>
+ * Memcached中的版本号只增不减（计数器被淘汰后以当前时间重建，也大于旧版本号），本地缓存同样只接受更大的版本号：
+ * 后台同步读到旧版本后、写回本地之前如果发生了清空，不会把本地版本覆盖回清空前的值。
+ */
+public class MemcachedNamespaceManager {
+
+    private static final Logger log = LoggerFactory.getLogger(MemcachedNamespaceManager.class);
+
+    private static final String NAMESPACE_PREFIX = "ns:";
+    private static final int MAX_KEY_LENGTH = 250; // Memcached键长度上限（字节）
+    private static final int SUFFIX_RESERVE = 16; // 为租约等派生键的后缀预留长度
+
+    private final MemcachedClient client;
+    private final long opTimeout;
+    private final ScheduledExecutorService refresher;
+
+    /**
+     * 本地缓存的各命名空间版本号
+     */
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+
+    private final LongAdder clears = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+    private final LongAdder hashedKeys = new LongAdder();
+
+    /**
+     * @param client Memcached客户端
+     * @param refreshMillis 版本号同步间隔（毫秒）
+     * @param opTimeout 操作超时时间（毫秒）
+     */
+    public MemcachedNamespaceManager(MemcachedClient client, long refreshMillis, long opTimeout) {
+        this.client = client;
+        this.opTimeout = opTimeout;
+        this.refresher = Executors.newSingleThreadScheduledExecutor(MemcachedGetBatcher.namedThreadFactory("memcached-namespace"));
+        refresher.scheduleWithFixedDelay(this::refreshAll, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 生成缓存键，遵循Memcached键的最佳实践
+     * 1. 包含缓存名称和命名空间版本号作为前缀，清空缓存时整体失效
+     * 2. 键长度超过限制或包含空白、控制字符时，业务键使用截断的SHA-256摘要代替
+     */
+    public String key(String cacheName, Object key) {
+        String prefix = cacheName + ":" + generation(cacheName) + ":";
+        String rawKey = key != null ? key.toString() : "null";
+        String cacheKey = prefix + rawKey;
+        if (cacheKey.getBytes(StandardCharsets.UTF_8).length > MAX_KEY_LENGTH - SUFFIX_RESERVE || !isValidKey(rawKey)) {
+            hashedKeys.increment();
+            cacheKey = prefix + digest(rawKey);
+            log.debug("Cache key too long or contains invalid characters, using digest: {}", cacheKey);
+        }
+        return cacheKey;
+    }
+
+    /**
+     * 清空缓存：命名空间版本号加一
+     */
+    public void clear(String cacheName) {
+        String namespaceKey = NAMESPACE_PREFIX + cacheName;
+        try {
+            long generation = client.incr(namespaceKey, 1, initialGeneration(), opTimeout, 0);
+            advance(cacheName, generation);
+            clears.increment();
+            log.info("已清除缓存: {}，命名空间版本: {}", cacheName, generation);
+        } catch (Exception e) {
+            log.error("清除缓存时发生错误: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 获取命名空间版本号，首次访问时从Memcached加载
+     */
+    public long generation(String cacheName) {
+        Long generation = generations.get(cacheName);
+        if (generation != null) {
+            return generation;
+        }
+        Long loaded = load(cacheName);
+        if (loaded == null) {
+            // 加载失败时使用0，不放入本地缓存，下次访问重新加载
+            return 0L;
+        }
+        Long existing = generations.putIfAbsent(cacheName, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("generations", new HashMap<>(generations));
+        stats.put("clears", clears.sum());
+        stats.put("refreshFailures", refreshFailures.sum());
+        stats.put("hashedKeys", hashedKeys.sum());
+        return stats;
+    }
+
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * 计算SHA-256摘要并截取前128位，返回32位十六进制字符串
+     * 只用于缩短缓存键，128位对于缓存键数量来说碰撞概率可以忽略
+     */
+    static String digest(String value) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            byte[] hash = sha256.digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    }
+
+    private void refreshAll() {
+        for (String cacheName : generations.keySet()) {
+            Long loaded = load(cacheName);
+            if (loaded != null) {
+                advance(cacheName, loaded);
+            }
+        }
+    }
+
+    private void advance(String cacheName, long generation) {
+        generations.merge(cacheName, generation, Math::max);
+    }
+
+    private Long load(String cacheName) {
+        try {
+            // incr 0 读取当前版本号，计数器不存在时以初始值创建
+            return client.incr(NAMESPACE_PREFIX + cacheName, 0, initialGeneration(), opTimeout, 0);
+        } catch (Exception e) {
+            refreshFailures.increment();
+            log.warn("Error loading namespace generation for cache {}: {}", cacheName, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 计数器被淘汰后重新创建时使用当前时间作为初始值，保证不会回到用过的旧版本号
+     */
+    private long initialGeneration() {
+        return System.currentTimeMillis();
+    }
+
+    private boolean isValidKey(String rawKey) {
+        for (int i = 0; i < rawKey.length(); i++) {
+            char c = rawKey.charAt(i);
+            if (c <= ' ' || c == 0x7f) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
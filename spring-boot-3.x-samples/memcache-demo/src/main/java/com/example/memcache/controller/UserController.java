@@ -1,8 +1,10 @@
 package com.example.memcache.controller;
 
+import com.example.memcache.config.CacheConfig;
 import com.example.memcache.model.User;
 import com.example.memcache.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
@@ -20,6 +22,9 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private CacheManager cacheManager;
+
     // 跳转到测试页面
     @GetMapping("/")
     public String index(Model model) {
@@ -129,6 +134,22 @@ public class UserController {
         return ResponseEntity.ok(response);
     }
 
+    // 缓存组件统计信息
+    @GetMapping("/cache-stats")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> cacheStats() {
+        Map<String, Object> response = new HashMap<>();
+        if (cacheManager instanceof CacheConfig.XMemcachedCacheManager manager) {
+            response.put("success", true);
+            response.put("data", manager.stats());
+            response.put("message", "获取缓存统计成功");
+        } else {
+            response.put("success", false);
+            response.put("message", "当前缓存管理器不支持统计");
+        }
+        return ResponseEntity.ok(response);
+    }
+
     // 缓存性能测试
     @GetMapping("/performance-test/{id}")
     @ResponseBody
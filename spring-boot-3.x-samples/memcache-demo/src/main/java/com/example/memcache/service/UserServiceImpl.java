@@ -40,7 +40,8 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    @Cacheable(value = "userCache", key = "#id")
+    // sync=true 时走 Cache.get(key, valueLoader)，并发未命中只加载一次
+    @Cacheable(value = "userCache", key = "#id", sync = true)
     public User getUserById(Long id) {
         // 模拟数据库查询延迟
         try {
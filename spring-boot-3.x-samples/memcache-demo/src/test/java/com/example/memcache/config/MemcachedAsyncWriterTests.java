@@ -0,0 +1,88 @@
+package com.example.memcache.config;
+
+import net.rubyeye.xmemcached.MemcachedClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 异步写入器测试
+ * 使用一个写线程、一个排队名额，阻塞写线程后填满分片队列
+ */
+class MemcachedAsyncWriterTests {
+
+    private final MemcachedClient client = mock(MemcachedClient.class);
+    private final MemcachedAsyncWriter writer = new MemcachedAsyncWriter(client, 1, 1, 0);
+
+    @AfterEach
+    void tearDown() {
+        writer.shutdown();
+    }
+
+    @Test
+    void fullQueueDropsSetButDeletesSynchronously() throws Exception {
+        CountDownLatch writeStarted = new CountDownLatch(1);
+        CountDownLatch releaseWrite = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writeStarted.countDown();
+            releaseWrite.await();
+            return null;
+        }).when(client).setWithNoReply(eq("blocking"), anyInt(), any());
+        try {
+            writer.set("blocking", 60, "v0");
+            assertTrue(writeStarted.await(5, TimeUnit.SECONDS));
+            // 占满唯一的排队名额
+            writer.set("queued", 60, "v1");
+
+            writer.set("dropped", 60, "v2");
+            assertNull(writer.pendingValue("dropped"));
+            assertEquals(1L, writer.stats().get("dropped"));
+
+            writer.delete("evicted");
+            verify(client).delete("evicted");
+            assertNull(writer.pendingValue("evicted"));
+            assertEquals(1L, writer.stats().get("syncDeletes"));
+            assertEquals(1L, writer.stats().get("dropped"));
+        } finally {
+            releaseWrite.countDown();
+        }
+        verify(client, timeout(5000)).setWithNoReply("queued", 60, "v1");
+        verify(client, never()).setWithNoReply(eq("dropped"), anyInt(), any());
+    }
+
+    @Test
+    void synchronousDeleteSkipsQueuedSetForSameKey() throws Exception {
+        CountDownLatch writeStarted = new CountDownLatch(1);
+        CountDownLatch releaseWrite = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writeStarted.countDown();
+            releaseWrite.await();
+            return null;
+        }).when(client).setWithNoReply(eq("blocking"), anyInt(), any());
+        try {
+            writer.set("blocking", 60, "v0");
+            assertTrue(writeStarted.await(5, TimeUnit.SECONDS));
+            writer.set("user:1", 60, "stale");
+            writer.delete("user:1");
+            verify(client).delete("user:1");
+        } finally {
+            releaseWrite.countDown();
+        }
+        // 写线程处理完排队的旧值后再写入标记；旧值出队之前标记可能因队列满被丢弃，需要重新提交
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        long dropped;
+        do {
+            dropped = (long) writer.stats().get("dropped");
+            writer.set("marker", 60, "done");
+        } while ((long) writer.stats().get("dropped") > dropped && System.nanoTime() < deadline);
+        verify(client, timeout(5000)).setWithNoReply("marker", 60, "done");
+        // 排队中的旧值在删除之后不会再写回
+        verify(client, never()).setWithNoReply("user:1", 60, "stale");
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.memcache.config;
+
+import net.rubyeye.xmemcached.GetsResponse;
+import net.rubyeye.xmemcached.MemcachedClient;
+import net.rubyeye.xmemcached.exception.MemcachedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 加载协调器测试
+ * 使用本地Map代替Memcached中的缓存值，模拟的客户端只用于租约
+ */
+class MemcachedCacheLoaderTests {
+
+    private static final String KEY = "userCache:1";
+    private static final String LEASE_KEY = KEY + ":lease";
+
+    private final MemcachedClient client = mock(MemcachedClient.class);
+    private final Map<String, Object> store = new ConcurrentHashMap<>();
+    private final AtomicInteger loaderCalls = new AtomicInteger();
+    private MemcachedCacheLoader loader;
+
+    @AfterEach
+    void tearDown() {
+        if (loader != null) {
+            loader.shutdown();
+        }
+    }
+
+    @Test
+    void concurrentMissesLoadOnce() throws Exception {
+        loader = newLoader(false);
+        int requests = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>(requests);
+        try {
+            for (int i = 0; i < requests; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    // 和缓存的读路径一样，先读取再交给加载器；读取未命中到进入加载器之间有随机延迟，
+                    // 部分请求会在第一次加载完成、释放加载权之后才进入加载器
+                    Object cached = store.get(KEY);
+                    TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextInt(40));
+                    return loader.get(KEY, cached, 60, this::load);
+                }));
+            }
+            start.countDown();
+            for (Future<String> result : results) {
+                assertEquals("user-1", result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loaderCalls.get());
+    }
+
+    @Test
+    void leaseErrorServesStaleValueWithoutLoading() throws Exception {
+        loader = newLoader(true);
+        when(client.add(eq(LEASE_KEY), anyInt(), any())).thenThrow(new MemcachedException("connection reset"));
+        long now = System.currentTimeMillis();
+        MemcachedCacheLoader.LoadedValue stale = new MemcachedCacheLoader.LoadedValue("stale", now - 1, 10);
+        store.put(KEY, stale);
+
+        assertEquals("stale", loader.get(KEY, stale, 60, this::load));
+        assertEquals(0, loaderCalls.get());
+    }
+
+    @Test
+    void releaseDeletesOnlyOwnLease() throws Exception {
+        loader = newLoader(true);
+        List<String> tokens = new CopyOnWriteArrayList<>();
+        when(client.add(eq(LEASE_KEY), anyInt(), any())).thenAnswer(invocation -> {
+            tokens.add(invocation.getArgument(2));
+            return true;
+        });
+        when(client.getOpTimeout()).thenReturn(1000L);
+
+        // 加载耗时超过租约有效期，租约已被其他节点抢占
+        when(client.gets(LEASE_KEY)).thenReturn(new GetsResponse<>(7L, "other-node:1"));
+        assertEquals("user-1", loader.get(KEY, null, 60, this::load));
+        verify(client, never()).delete(eq(LEASE_KEY), anyLong(), anyLong());
+
+        // 租约仍由本节点持有
+        store.clear();
+        when(client.gets(LEASE_KEY)).thenAnswer(invocation -> new GetsResponse<>(8L, tokens.get(tokens.size() - 1)));
+        assertEquals("user-1", loader.get(KEY, null, 60, this::load));
+        verify(client).delete(LEASE_KEY, 8L, 1000L);
+    }
+
+    @Test
+    void missAfterRejectedRefreshStillReturns() throws Exception {
+        // 一个刷新线程、一个排队名额，必定触发提前刷新
+        loader = new MemcachedCacheLoader(client, (key, expiry, value) -> store.put(key, value), store::get,
+                false, 5, 200, 60, 1.0, 10_000, 1, 1);
+        CountDownLatch refreshStarted = new CountDownLatch(1);
+        CountDownLatch releaseRefresh = new CountDownLatch(1);
+        Callable<String> blockingLoad = () -> {
+            refreshStarted.countDown();
+            releaseRefresh.await();
+            return "refreshed";
+        };
+        try {
+            assertEquals("cached", loader.get("userCache:1", dueForRefresh(), 60, blockingLoad));
+            assertTrue(refreshStarted.await(5, TimeUnit.SECONDS));
+            // 第二个刷新排队，第三个被拒绝
+            assertEquals("cached", loader.get("userCache:2", dueForRefresh(), 60, blockingLoad));
+            assertEquals("cached", loader.get("userCache:3", dueForRefresh(), 60, blockingLoad));
+            assertEquals(1L, loader.stats().get("refreshRejected"));
+
+            // 被拒绝的刷新没有留下未完成的加载，未命中直接加载
+            assertEquals("user-1", assertTimeoutPreemptively(Duration.ofSeconds(5),
+                    () -> loader.get("userCache:3", null, 60, this::load)));
+
+            // 关闭时丢弃的排队刷新同样被撤销
+            loader.shutdown();
+            assertEquals("user-1", assertTimeoutPreemptively(Duration.ofSeconds(5),
+                    () -> loader.get("userCache:2", null, 60, this::load)));
+        } finally {
+            releaseRefresh.countDown();
+        }
+    }
+
+    @Test
+    void missWaitingOnStuckLoadFallsBackToLoading() throws Exception {
+        loader = new MemcachedCacheLoader(client, (key, expiry, value) -> store.put(key, value), store::get,
+                false, 5, 200, 60, 1.0, 100, 1, 1);
+        CountDownLatch refreshStarted = new CountDownLatch(1);
+        CountDownLatch releaseRefresh = new CountDownLatch(1);
+        try {
+            loader.get(KEY, dueForRefresh(), 60, () -> {
+                refreshStarted.countDown();
+                releaseRefresh.await();
+                return "refreshed";
+            });
+            assertTrue(refreshStarted.await(5, TimeUnit.SECONDS));
+
+            // 后台刷新卡住，等待 loadWaitMillis 后自行加载
+            assertEquals("user-1", assertTimeoutPreemptively(Duration.ofSeconds(5),
+                    () -> loader.get(KEY, null, 60, this::load)));
+            assertEquals(1L, loader.stats().get("loadWaitTimeouts"));
+        } finally {
+            releaseRefresh.countDown();
+        }
+    }
+
+    /**
+     * 未过期、但加载耗时极长的缓存值，提前刷新的概率接近1
+     */
+    private static MemcachedCacheLoader.LoadedValue dueForRefresh() {
+        return new MemcachedCacheLoader.LoadedValue("cached", System.currentTimeMillis() + 60_000, 1_000_000_000_000L);
+    }
+
+    private MemcachedCacheLoader newLoader(boolean leaseEnabled) {
+        return new MemcachedCacheLoader(client, (key, expiry, value) -> store.put(key, value), store::get,
+                leaseEnabled, 5, 200, 60, 0, 10_000, 1, 1000);
+    }
+
+    private String load() throws InterruptedException {
+        loaderCalls.incrementAndGet();
+        TimeUnit.MILLISECONDS.sleep(20);
+        return "user-1";
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.memcache.config;
+
+import net.rubyeye.xmemcached.MemcachedClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 命名空间版本管理测试
+ */
+class MemcachedNamespaceManagerTests {
+
+    private static final String CACHE = "userCache";
+    private static final String NAMESPACE_KEY = "ns:" + CACHE;
+
+    private final MemcachedClient client = mock(MemcachedClient.class);
+    private MemcachedNamespaceManager namespaces;
+
+    @AfterEach
+    void tearDown() {
+        if (namespaces != null) {
+            namespaces.shutdown();
+        }
+    }
+
+    @Test
+    void refreshReadingOldGenerationDoesNotUndoConcurrentClear() throws Exception {
+        CountDownLatch refreshLoaded = new CountDownLatch(1);
+        CountDownLatch cleared = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        // 第一次读取是首次访问，第二次是后台同步：读到旧版本后等待清空完成再返回
+        doAnswer(invocation -> {
+            if (loads.incrementAndGet() == 2) {
+                refreshLoaded.countDown();
+                cleared.await(5, TimeUnit.SECONDS);
+            }
+            return 100L;
+        }).when(client).incr(eq(NAMESPACE_KEY), eq(0L), anyLong(), anyLong(), anyInt());
+        doReturn(101L).when(client).incr(eq(NAMESPACE_KEY), eq(1L), anyLong(), anyLong(), anyInt());
+
+        namespaces = new MemcachedNamespaceManager(client, 20, 1000);
+        assertEquals(100L, namespaces.generation(CACHE));
+
+        assertTrue(refreshLoaded.await(5, TimeUnit.SECONDS));
+        namespaces.clear(CACHE);
+        assertEquals(101L, namespaces.generation(CACHE));
+        cleared.countDown();
+
+        // 等到同步任务至少再执行一轮，确认旧版本没有被写回
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (loads.get() < 3 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertTrue(loads.get() >= 3);
+        assertEquals(101L, namespaces.generation(CACHE));
+        assertEquals(CACHE + ":101:1", namespaces.key(CACHE, 1));
+    }
+}
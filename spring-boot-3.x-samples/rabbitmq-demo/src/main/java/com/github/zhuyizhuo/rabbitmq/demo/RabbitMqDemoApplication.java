@@ -8,6 +8,7 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.net.InetAddress;
 
@@ -19,6 +20,7 @@ import java.net.InetAddress;
  * @date 2025/10/02
  */
 @SpringBootApplication
+@EnableScheduling
 public class RabbitMqDemoApplication {
 
     private static final Logger logger = LoggerFactory.getLogger(RabbitMqDemoApplication.class);
@@ -1,11 +1,15 @@
 package com.github.zhuyizhuo.rabbitmq.demo.config;
 
+import com.github.zhuyizhuo.rabbitmq.demo.metrics.QueueListenerMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.amqp.core.*;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -20,6 +24,8 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class RabbitConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(RabbitConfig.class);
+
     // ==================== Direct Exchange ====================
     public static final String DIRECT_EXCHANGE = "demo.direct.exchange";
     public static final String DIRECT_QUEUE = "demo.direct.queue";
@@ -47,6 +53,22 @@ public class RabbitConfig {
     public static final String DLX_QUEUE = "demo.dlx.queue";
     public static final String DLX_ROUTING_KEY = "demo.dlx.routing.key";
 
+    // ==================== Benchmark ====================
+    public static final String BENCHMARK_QUEUE = "demo.benchmark.queue";
+    public static final String BENCHMARK_ROUTING_KEY = "demo.benchmark.routing.key";
+
+    // ==================== Listener Container ====================
+    public static final String BATCH_LISTENER_CONTAINER_FACTORY = "batchRabbitListenerContainerFactory";
+
+    @Value("${app.rabbitmq.consumer.concurrency:3}")
+    private int concurrentConsumers;
+
+    @Value("${app.rabbitmq.consumer.max-concurrency:10}")
+    private int maxConcurrentConsumers;
+
+    @Value("${app.rabbitmq.consumer.prefetch:5}")
+    private int prefetchCount;
+
     /**
      * 配置消息转换器，使用JSON格式
      */
@@ -63,18 +85,22 @@ public class RabbitConfig {
         RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
         rabbitTemplate.setMessageConverter(messageConverter());
         
-        // 开启发送确认
+        // 无法路由的消息退回给生产者，而不是被Broker直接丢弃
+        rabbitTemplate.setMandatory(true);
+
+        // 开启发送确认，每条消息的确认结果由 CorrelationData 的 future 处理，见 BatchMessagePublisher
         rabbitTemplate.setConfirmCallback((correlationData, ack, cause) -> {
             if (ack) {
-                System.out.println("消息发送成功: " + correlationData);
+                logger.debug("消息发送成功: {}", correlationData);
             } else {
-                System.err.println("消息发送失败: " + cause);
+                logger.warn("消息发送失败: {}, 原因: {}", correlationData, cause);
             }
         });
         
         // 开启返回确认
         rabbitTemplate.setReturnsCallback(returned -> {
-            System.err.println("消息未能投递到队列: " + returned.getMessage());
+            logger.warn("消息未能投递到队列: exchange={}, routingKey={}, replyText={}",
+                    returned.getExchange(), returned.getRoutingKey(), returned.getReplyText());
         });
         
         return rabbitTemplate;
@@ -82,15 +108,44 @@ public class RabbitConfig {
 
     /**
      * 配置监听器容器工厂
+     * 开启自适应调整时，消费者数量和预取数量由 ListenerConcurrencyTuner 根据处理耗时和队列积压调整
      */
     @Bean
-    public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(ConnectionFactory connectionFactory) {
+    public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(ConnectionFactory connectionFactory,
+                                                                               QueueListenerMetrics queueListenerMetrics) {
+        return createListenerContainerFactory(connectionFactory, queueListenerMetrics);
+    }
+
+    /**
+     * 配置批量监听器容器工厂
+     * 每次最多取 batch.size 条消息，或等待 batch.receive-timeout-ms 后把已收到的消息作为一批交给监听器，
+     * 手动确认，监听器处理完一批后用一次 basicAck(multiple=true) 确认整批消息
+     */
+    @Bean(BATCH_LISTENER_CONTAINER_FACTORY)
+    public SimpleRabbitListenerContainerFactory batchRabbitListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            QueueListenerMetrics queueListenerMetrics,
+            @Value("${app.rabbitmq.consumer.batch.size:50}") int batchSize,
+            @Value("${app.rabbitmq.consumer.batch.receive-timeout-ms:200}") long receiveTimeout) {
+        SimpleRabbitListenerContainerFactory factory = createListenerContainerFactory(connectionFactory, queueListenerMetrics);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(receiveTimeout);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        return factory;
+    }
+
+    private SimpleRabbitListenerContainerFactory createListenerContainerFactory(ConnectionFactory connectionFactory,
+                                                                                QueueListenerMetrics queueListenerMetrics) {
         SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
         factory.setConnectionFactory(connectionFactory);
         factory.setMessageConverter(messageConverter());
-        factory.setConcurrentConsumers(3);
-        factory.setMaxConcurrentConsumers(10);
-        factory.setPrefetchCount(5);
+        factory.setConcurrentConsumers(concurrentConsumers);
+        factory.setMaxConcurrentConsumers(maxConcurrentConsumers);
+        factory.setPrefetchCount(prefetchCount);
+        // 按队列统计处理量和耗时
+        factory.setAdviceChain(queueListenerMetrics.listenerAdvice());
         return factory;
     }
 
@@ -213,5 +268,22 @@ public class RabbitConfig {
     public Binding dlxBinding() {
         return BindingBuilder.bind(dlxQueue()).to(dlxExchange()).with(DLX_ROUTING_KEY);
     }
+
+    // ==================== Benchmark 配置 ====================
+
+    /**
+     * 吞吐量测试队列，没有消费者，非持久化并且消息60秒过期，避免测试消息堆积
+     */
+    @Bean
+    public Queue benchmarkQueue() {
+        return QueueBuilder.nonDurable(BENCHMARK_QUEUE)
+                .withArgument("x-message-ttl", 60000)
+                .build();
+    }
+
+    @Bean
+    public Binding benchmarkBinding() {
+        return BindingBuilder.bind(benchmarkQueue()).to(directExchange()).with(BENCHMARK_ROUTING_KEY);
+    }
 }
 
@@ -1,5 +1,7 @@
 package com.github.zhuyizhuo.rabbitmq.demo.controller;
 
+import com.github.zhuyizhuo.rabbitmq.demo.metrics.QueueListenerMetrics;
+import com.github.zhuyizhuo.rabbitmq.demo.model.BatchPublishResult;
 import com.github.zhuyizhuo.rabbitmq.demo.model.MessageDto;
 import com.github.zhuyizhuo.rabbitmq.demo.model.MessageType;
 import com.github.zhuyizhuo.rabbitmq.demo.service.MessageProducerService;
@@ -12,7 +14,11 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * 消息发送控制器
@@ -27,9 +33,14 @@ import java.util.Map;
 @Tag(name = "消息管理", description = "RabbitMQ消息发送相关接口")
 public class MessageController {
 
+    private static final long BATCH_CONFIRM_WAIT_SECONDS = 30;
+
     @Autowired
     private MessageProducerService messageProducerService;
 
+    @Autowired
+    private QueueListenerMetrics queueListenerMetrics;
+
     /**
      * 发送Direct类型消息
      */
@@ -145,12 +156,53 @@ public class MessageController {
     public ResponseEntity<Map<String, Object>> sendBatchMessages(
             @Valid @RequestBody MessageDto[] messages) {
         
-        messageProducerService.sendBatchMessages(messages);
+        Map<String, Object> response = new HashMap<>();
+        response.put("count", messages.length);
+        try {
+            BatchPublishResult result = messageProducerService.sendBatchMessages(messages)
+                    .get(BATCH_CONFIRM_WAIT_SECONDS, TimeUnit.SECONDS);
+            response.put("success", result.isAllConfirmed());
+            response.put("message", result.isAllConfirmed() ? "批量消息发送成功" : "部分消息发送失败: " + result.firstError());
+            response.put("result", result);
+        } catch (TimeoutException e) {
+            response.put("success", false);
+            response.put("message", "等待Broker确认超时，未确认的消息仍会在后台重发");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待批量消息确认被中断", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("批量消息发送失败", e.getCause());
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 批量发送吞吐量测试
+     */
+    @PostMapping("/batch/benchmark")
+    @Operation(summary = "批量发送吞吐量测试", description = "按不同批次大小发送测试消息，比较每秒确认的消息数")
+    public ResponseEntity<Map<String, Object>> runBatchBenchmark(
+            @Parameter(description = "每轮发送的消息数") @RequestParam(value = "count", defaultValue = "10000") int count,
+            @Parameter(description = "批次大小列表") @RequestParam(value = "batchSizes", defaultValue = "1,10,100,500") List<Integer> batchSizes) {
+        
+        List<BatchPublishResult> results = messageProducerService.runPublishBenchmark(count, batchSizes);
         
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
-        response.put("message", "批量消息发送成功");
-        response.put("count", messages.length);
+        response.put("count", count);
+        response.put("results", results);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 查询各队列的消费统计
+     */
+    @GetMapping("/consumers")
+    @Operation(summary = "消费统计", description = "各队列的吞吐量、平均处理耗时、积压以及当前消费者和预取数量")
+    public ResponseEntity<Map<String, Object>> getConsumerStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("queues", queueListenerMetrics.getStats());
         return ResponseEntity.ok(response);
     }
 
@@ -0,0 +1,217 @@
+package com.github.zhuyizhuo.rabbitmq.demo.metrics;
+
+import com.github.zhuyizhuo.rabbitmq.demo.model.QueueListenerStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.amqp.core.Message;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按队列统计监听器的处理量和处理耗时，并通过 Micrometer 暴露：
+ * <ul>
+ *     <li>rabbitmq.listener.messages / rabbitmq.listener.failed：累计处理、失败的消息数</li>
+ *     <li>rabbitmq.listener.throughput：最近一个采样周期每秒处理的消息数</li>
+ *     <li>rabbitmq.listener.latency：最近一个采样周期每条消息的平均处理耗时（毫秒）</li>
+ *     <li>rabbitmq.listener.invocation：每次调用监听器（单条或整批）的耗时分布</li>
+ *     <li>rabbitmq.queue.depth / rabbitmq.listener.consumers / rabbitmq.listener.prefetch：队列积压和当前消费配置</li>
+ * </ul>
+ * 统计数据由监听器容器的 advice chain 记录，业务监听方法不需要改动
+ *
+ * @author zhuyizhuo
+ */
+@Component
+public class QueueListenerMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, QueueStats> queues = new ConcurrentHashMap<>();
+
+    public QueueListenerMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 监听器容器的 advice，拦截 invokeListener(Channel, Object data)，
+     * data 为单条 Message 或批量监听时的 List&lt;Message&gt;
+     */
+    public MethodInterceptor listenerAdvice() {
+        return invocation -> {
+            Object data = invocation.getArguments()[1];
+            List<Message> messages = toMessages(data);
+            String queue = messages.isEmpty() ? null : messages.get(0).getMessageProperties().getConsumerQueue();
+            QueueStats stats = queue == null ? null : stats(queue);
+            if (stats != null) {
+                stats.inFlight.incrementAndGet();
+            }
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                Object result = invocation.proceed();
+                success = true;
+                return result;
+            } finally {
+                if (stats != null) {
+                    stats.inFlight.decrementAndGet();
+                    record(queue, messages.size(), System.nanoTime() - start, success);
+                }
+            }
+        };
+    }
+
+    /**
+     * 记录一次监听器调用
+     *
+     * @param queue 队列名称
+     * @param messages 本次处理的消息数
+     * @param elapsedNanos 处理耗时
+     * @param success 监听器是否正常返回，抛出异常时整批记为失败
+     */
+    public void record(String queue, int messages, long elapsedNanos, boolean success) {
+        if (queue == null) {
+            return;
+        }
+        QueueStats stats = stats(queue);
+        stats.processed.add(messages);
+        stats.busyNanos.add(elapsedNanos);
+        stats.invocationTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (!success) {
+            stats.failed.add(messages);
+        }
+    }
+
+    /**
+     * 记录批量监听器中单独处理失败的消息
+     */
+    public void recordFailures(String queue, int messages) {
+        if (queue != null && messages > 0) {
+            stats(queue).failed.add(messages);
+        }
+    }
+
+    /**
+     * 正在执行的监听器调用数，手动确认模式下这些调用中的消息还没有确认
+     */
+    public int inFlight(String queue) {
+        QueueStats stats = queues.get(queue);
+        return stats == null ? 0 : stats.inFlight.get();
+    }
+
+    /**
+     * 结束一个采样周期，计算这段时间内的吞吐量和平均耗时
+     *
+     * @param queue 队列名称
+     * @param depth 队列积压的消息数
+     * @return 本周期的统计结果
+     */
+    public synchronized QueueListenerStats sample(String queue, long depth) {
+        QueueStats stats = stats(queue);
+        long now = System.nanoTime();
+        long processed = stats.processed.sum();
+        long busyNanos = stats.busyNanos.sum();
+        long deltaMessages = processed - stats.lastProcessed;
+        long deltaNanos = now - stats.lastSampleNanos;
+
+        stats.messagesPerSecond = deltaNanos > 0 ? deltaMessages * 1_000_000_000.0 / deltaNanos : 0;
+        if (deltaMessages > 0) {
+            // 没有消息时保留上一次的耗时，避免空闲后耗时被当成0
+            stats.avgLatencyMillis = (busyNanos - stats.lastBusyNanos) / 1_000_000.0 / deltaMessages;
+        }
+        stats.depth = depth;
+        stats.lastProcessed = processed;
+        stats.lastBusyNanos = busyNanos;
+        stats.lastSampleNanos = now;
+        return snapshot(queue, stats);
+    }
+
+    /**
+     * 记录队列当前使用的消费者数量和预取数量
+     */
+    public void updateSettings(String queue, int consumers, int prefetch) {
+        QueueStats stats = stats(queue);
+        stats.consumers = consumers;
+        stats.prefetch = prefetch;
+    }
+
+    /**
+     * 所有队列最近一次采样的统计结果
+     */
+    public List<QueueListenerStats> getStats() {
+        List<QueueListenerStats> result = new ArrayList<>(queues.size());
+        queues.forEach((queue, stats) -> result.add(snapshot(queue, stats)));
+        result.sort((a, b) -> a.queue().compareTo(b.queue()));
+        return result;
+    }
+
+    private QueueListenerStats snapshot(String queue, QueueStats stats) {
+        return new QueueListenerStats(queue, stats.processed.sum(), stats.failed.sum(), stats.messagesPerSecond,
+                stats.avgLatencyMillis, stats.depth, stats.consumers, stats.prefetch);
+    }
+
+    private QueueStats stats(String queue) {
+        return queues.computeIfAbsent(queue, this::register);
+    }
+
+    private QueueStats register(String queue) {
+        QueueStats stats = new QueueStats(Timer.builder("rabbitmq.listener.invocation")
+                .description("监听器单次调用耗时")
+                .tag("queue", queue)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry));
+        FunctionCounter.builder("rabbitmq.listener.messages", stats.processed, LongAdder::sum)
+                .description("累计处理的消息数").tag("queue", queue).register(meterRegistry);
+        FunctionCounter.builder("rabbitmq.listener.failed", stats.failed, LongAdder::sum)
+                .description("累计处理失败的消息数").tag("queue", queue).register(meterRegistry);
+        Gauge.builder("rabbitmq.listener.throughput", stats, s -> s.messagesPerSecond)
+                .description("每秒处理的消息数").tag("queue", queue).register(meterRegistry);
+        Gauge.builder("rabbitmq.listener.latency", stats, s -> s.avgLatencyMillis)
+                .description("每条消息的平均处理耗时（毫秒）").tag("queue", queue).register(meterRegistry);
+        Gauge.builder("rabbitmq.queue.depth", stats, s -> s.depth)
+                .description("队列积压的消息数").tag("queue", queue).register(meterRegistry);
+        Gauge.builder("rabbitmq.listener.consumers", stats, s -> s.consumers)
+                .description("当前消费者数量").tag("queue", queue).register(meterRegistry);
+        Gauge.builder("rabbitmq.listener.prefetch", stats, s -> s.prefetch)
+                .description("当前每个消费者的预取数量").tag("queue", queue).register(meterRegistry);
+        return stats;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Message> toMessages(Object data) {
+        if (data instanceof Message message) {
+            return List.of(message);
+        }
+        if (data instanceof List<?> list) {
+            return (List<Message>) list;
+        }
+        return List.of();
+    }
+
+    private static class QueueStats {
+        private final Timer invocationTimer;
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile double messagesPerSecond;
+        private volatile double avgLatencyMillis;
+        private volatile long depth = -1;
+        private volatile int consumers;
+        private volatile int prefetch;
+        private long lastProcessed;
+        private long lastBusyNanos;
+        private long lastSampleNanos = System.nanoTime();
+
+        private QueueStats(Timer invocationTimer) {
+            this.invocationTimer = invocationTimer;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.github.zhuyizhuo.rabbitmq.demo.model;
+
+/**
+ * 批量发送结果
+ *
+ * @param total 消息总数
+ * @param confirmed 收到Broker确认(ack)的消息数
+ * @param failed 重试次数用完仍未确认，或无法路由到队列的消息数
+ * @param republished 因nack或确认超时重新发送的次数
+ * @param batchSize 每个通道连续发送的消息数
+ * @param elapsedMillis 从开始发送到所有消息有结果的耗时（毫秒）
+ * @param messagesPerSecond 每秒确认的消息数
+ * @param firstError 第一条失败消息的原因，全部成功时为null
+ * @author zhuyizhuo
+ */
+public record BatchPublishResult(int total, int confirmed, int failed, int republished, int batchSize,
+                                 long elapsedMillis, double messagesPerSecond, String firstError) {
+
+    public boolean isAllConfirmed() {
+        return failed == 0 && confirmed == total;
+    }
+}
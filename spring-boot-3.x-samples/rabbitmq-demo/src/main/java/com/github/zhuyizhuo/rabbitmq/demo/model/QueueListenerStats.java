@@ -0,0 +1,18 @@
+package com.github.zhuyizhuo.rabbitmq.demo.model;
+
+/**
+ * 单个队列的消费统计
+ *
+ * @param queue 队列名称
+ * @param processed 累计处理的消息数
+ * @param failed 累计处理失败的消息数
+ * @param messagesPerSecond 最近一个采样周期内每秒处理的消息数
+ * @param avgLatencyMillis 最近一个采样周期内每条消息的平均处理耗时（毫秒）
+ * @param depth 队列中等待投递的消息数，查询失败时为-1
+ * @param consumers 当前消费者数量
+ * @param prefetch 当前每个消费者的预取数量
+ * @author zhuyizhuo
+ */
+public record QueueListenerStats(String queue, long processed, long failed, double messagesPerSecond,
+                                 double avgLatencyMillis, long depth, int consumers, int prefetch) {
+}
@@ -0,0 +1,315 @@
+package com.github.zhuyizhuo.rabbitmq.demo.service;
+
+import com.github.zhuyizhuo.rabbitmq.demo.model.BatchPublishResult;
+import com.github.zhuyizhuo.rabbitmq.demo.model.MessageDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 批量消息发送服务
+ * <p>
+ * 1. 每 batchSize 条消息在同一个通道上连续发送，不需要每条消息都从缓存中取出、归还通道
+ * 2. 每条消息带独立的 CorrelationData，发送后放入待确认表 outstandingConfirms，Broker异步确认后移除
+ * 3. 收到nack或超过 confirm-timeout-ms 未确认的消息自动重新发送，最多发送 max-attempts 次
+ * 4. 无法路由到队列的消息（returned）直接记为失败，重发不会改变路由结果
+ * <p>
+ * 需要开启 spring.rabbitmq.publisher-confirm-type=correlated 和 publisher-returns=true
+ *
+ * @author zhuyizhuo
+ */
+@Service
+public class BatchMessagePublisher implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchMessagePublisher.class);
+
+    private final RabbitTemplate rabbitTemplate;
+    private final int defaultBatchSize;
+    private final long confirmTimeoutMillis;
+    private final int maxAttempts;
+
+    /**
+     * 待确认的消息，key为每次发送的关联ID（消息ID:发送次数）
+     */
+    private final Map<String, PendingConfirm> outstandingConfirms = new ConcurrentHashMap<>();
+
+    /**
+     * 检查确认超时以及重新发送消息的线程，确认回调运行在连接线程上，不能在回调中直接发送
+     */
+    private final ScheduledExecutorService scheduler;
+
+    public BatchMessagePublisher(RabbitTemplate rabbitTemplate,
+                                 @Value("${app.rabbitmq.batch.size:100}") int defaultBatchSize,
+                                 @Value("${app.rabbitmq.batch.confirm-timeout-ms:5000}") long confirmTimeoutMillis,
+                                 @Value("${app.rabbitmq.batch.max-attempts:3}") int maxAttempts) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.defaultBatchSize = defaultBatchSize;
+        this.confirmTimeoutMillis = confirmTimeoutMillis;
+        this.maxAttempts = maxAttempts;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rabbit-batch-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long checkInterval = Math.max(10, confirmTimeoutMillis / 2);
+        scheduler.scheduleWithFixedDelay(this::checkTimeouts, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 使用默认批次大小批量发送消息
+     */
+    public CompletableFuture<BatchPublishResult> publishBatch(String exchange, String routingKey, List<MessageDto> messages) {
+        return publishBatch(exchange, routingKey, messages, defaultBatchSize);
+    }
+
+    /**
+     * 批量发送消息
+     *
+     * @param exchange 交换机
+     * @param routingKey 路由键
+     * @param messages 消息列表
+     * @param batchSize 每个通道连续发送的消息数
+     * @return 所有消息确认或重试次数用完后完成
+     */
+    public CompletableFuture<BatchPublishResult> publishBatch(String exchange, String routingKey,
+                                                              List<MessageDto> messages, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("批次大小必须大于0");
+        }
+        BatchTracker tracker = new BatchTracker(messages.size(), batchSize);
+        List<PendingConfirm> chunk = new ArrayList<>(Math.min(batchSize, messages.size()));
+        for (MessageDto messageDto : messages) {
+            messageDto.setMessageId(UUID.randomUUID().toString());
+            messageDto.setSendTime(LocalDateTime.now());
+            chunk.add(new PendingConfirm(tracker, exchange, routingKey, messageDto));
+            if (chunk.size() == batchSize) {
+                publishChunk(chunk);
+                chunk = new ArrayList<>(batchSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            publishChunk(chunk);
+        }
+        return tracker.future;
+    }
+
+    /**
+     * 当前等待Broker确认的消息数
+     */
+    public int getOutstandingConfirms() {
+        return outstandingConfirms.size();
+    }
+
+    /**
+     * 在同一个通道上连续发送一批消息
+     */
+    private void publishChunk(List<PendingConfirm> chunk) {
+        try {
+            rabbitTemplate.invoke(operations -> {
+                for (PendingConfirm pending : chunk) {
+                    publish(operations, pending);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            // 获取通道失败，本批次中还没有发出的消息重新发送
+            for (PendingConfirm pending : chunk) {
+                if (!pending.done.get() && (pending.correlationId == null
+                        || !outstandingConfirms.containsKey(pending.correlationId))) {
+                    retryOrFail(pending, "获取通道失败: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void publish(RabbitOperations operations, PendingConfirm pending) {
+        if (pending.done.get()) {
+            return;
+        }
+        int attempt = pending.attempts.incrementAndGet();
+        String correlationId = pending.messageDto.getMessageId() + ":" + attempt;
+        CorrelationData correlationData = new CorrelationData(correlationId);
+        pending.correlationId = correlationId;
+        pending.sentAtNanos = System.nanoTime();
+        outstandingConfirms.put(correlationId, pending);
+        correlationData.getFuture().whenComplete((confirm, ex) -> {
+            if (ex != null) {
+                onConfirm(correlationId, false, ex.getMessage(), false);
+            } else {
+                onConfirm(correlationId, confirm.isAck(), confirm.getReason(), correlationData.getReturned() != null);
+            }
+        });
+        try {
+            operations.convertAndSend(pending.exchange, pending.routingKey, pending.messageDto, correlationData);
+        } catch (Exception e) {
+            if (outstandingConfirms.remove(correlationId, pending)) {
+                retryOrFail(pending, "发送失败: " + e.getMessage());
+            }
+        }
+    }
+
+    private void onConfirm(String correlationId, boolean ack, String reason, boolean returned) {
+        PendingConfirm pending = outstandingConfirms.remove(correlationId);
+        if (pending == null) {
+            // 已经按超时处理并重新发送
+            return;
+        }
+        if (returned) {
+            pending.fail("消息无法路由到队列");
+        } else if (ack) {
+            pending.confirm();
+        } else {
+            retryOrFail(pending, "Broker拒绝消息(nack): " + reason);
+        }
+    }
+
+    private void checkTimeouts() {
+        long deadline = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMillis);
+        outstandingConfirms.forEach((correlationId, pending) -> {
+            if (pending.sentAtNanos < deadline && outstandingConfirms.remove(correlationId, pending)) {
+                retryOrFail(pending, "等待确认超时");
+            }
+        });
+    }
+
+    private void retryOrFail(PendingConfirm pending, String reason) {
+        if (pending.attempts.get() >= maxAttempts) {
+            logger.warn("消息发送失败，已发送{}次: messageId={}, 原因: {}",
+                    pending.attempts.get(), pending.messageDto.getMessageId(), reason);
+            pending.fail(reason);
+            return;
+        }
+        // 可能在连接线程上调用，服务已关闭时不能抛出异常，直接把消息记为失败
+        if (scheduler.isShutdown()) {
+            pending.fail(reason + "，服务已关闭，不再重新发送");
+            return;
+        }
+        logger.debug("消息重新发送: messageId={}, 原因: {}", pending.messageDto.getMessageId(), reason);
+        try {
+            scheduler.execute(new RetryTask(pending));
+            pending.tracker.republished.incrementAndGet();
+        } catch (RejectedExecutionException e) {
+            pending.fail(reason + "，服务已关闭，不再重新发送");
+        }
+    }
+
+    @Override
+    public void destroy() {
+        // 还没有执行的重新发送任务不会再执行，对应的消息记为失败，避免批次结果一直不完成
+        for (Runnable task : scheduler.shutdownNow()) {
+            if (task instanceof RetryTask retryTask) {
+                retryTask.pending.fail("服务已关闭，不再重新发送");
+            }
+        }
+    }
+
+    /**
+     * 重新发送一条消息的任务，关闭时用来找出被丢弃的消息
+     */
+    private class RetryTask implements Runnable {
+        private final PendingConfirm pending;
+
+        private RetryTask(PendingConfirm pending) {
+            this.pending = pending;
+        }
+
+        @Override
+        public void run() {
+            publishChunk(List.of(pending));
+        }
+    }
+
+    /**
+     * 一条等待确认的消息
+     */
+    private static class PendingConfirm {
+        private final BatchTracker tracker;
+        private final String exchange;
+        private final String routingKey;
+        private final MessageDto messageDto;
+        private final AtomicInteger attempts = new AtomicInteger();
+        private final AtomicBoolean done = new AtomicBoolean();
+        private volatile String correlationId;
+        private volatile long sentAtNanos;
+
+        private PendingConfirm(BatchTracker tracker, String exchange, String routingKey, MessageDto messageDto) {
+            this.tracker = tracker;
+            this.exchange = exchange;
+            this.routingKey = routingKey;
+            this.messageDto = messageDto;
+        }
+
+        private void confirm() {
+            if (done.compareAndSet(false, true)) {
+                tracker.confirmed.incrementAndGet();
+                tracker.countDown();
+            }
+        }
+
+        private void fail(String reason) {
+            if (done.compareAndSet(false, true)) {
+                tracker.failed.incrementAndGet();
+                tracker.firstError.compareAndSet(null, reason);
+                tracker.countDown();
+            }
+        }
+    }
+
+    /**
+     * 汇总一次批量发送的结果
+     */
+    private static class BatchTracker {
+        private final CompletableFuture<BatchPublishResult> future = new CompletableFuture<>();
+        private final long startNanos = System.nanoTime();
+        private final int total;
+        private final int batchSize;
+        private final AtomicInteger remaining;
+        private final AtomicInteger confirmed = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicInteger republished = new AtomicInteger();
+        private final AtomicReference<String> firstError = new AtomicReference<>();
+
+        private BatchTracker(int total, int batchSize) {
+            this.total = total;
+            this.batchSize = batchSize;
+            this.remaining = new AtomicInteger(total);
+            if (total == 0) {
+                finish();
+            }
+        }
+
+        private void countDown() {
+            if (remaining.decrementAndGet() == 0) {
+                finish();
+            }
+        }
+
+        private void finish() {
+            long elapsedNanos = System.nanoTime() - startNanos;
+            double seconds = elapsedNanos / 1_000_000_000.0;
+            future.complete(new BatchPublishResult(total, confirmed.get(), failed.get(), republished.get(), batchSize,
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                    seconds > 0 ? confirmed.get() / seconds : 0, firstError.get()));
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.github.zhuyizhuo.rabbitmq.demo.service;
+
+import com.github.zhuyizhuo.rabbitmq.demo.metrics.QueueListenerMetrics;
+import com.github.zhuyizhuo.rabbitmq.demo.model.QueueListenerStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 根据处理耗时和队列积压自动调整监听器的消费者数量和预取数量
+ * <p>
+ * 每个采样周期对每个监听器容器：
+ * 1. 单个消费者每秒能处理的消息数 = 1000 / 平均处理耗时(ms)
+ * 2. 需要的处理速度 = 当前吞吐量 + 积压消息数 / target-drain-seconds，据此计算消费者数量，
+ *    每次最多增加 max-step 个、减少1个，避免来回抖动
+ * 3. 预取数量 = 单个消费者在 prefetch-buffer-ms 内能处理的消息数，处理越快预取越多，
+ *    处理越慢预取越少，避免消息压在一个繁忙的消费者上
+ * <p>
+ * 消费者数量调整会立即生效；预取数量只对新建的消费者生效，
+ * 所以预取数量相差一倍以上时重启容器，两次重启至少间隔 restart-cooldown-ms。
+ * 手动确认的批量监听器在返回前才确认整批消息，监听器执行过程中重启会关闭通道，已处理但未确认的消息会被重新投递，
+ * 所以容器还有正在执行的监听器调用时推迟重启；检查之后才开始的调用由 stop() 等待其结束（最长为容器的 shutdownTimeout）
+ *
+ * @author zhuyizhuo
+ */
+@Service
+public class ListenerConcurrencyTuner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListenerConcurrencyTuner.class);
+
+    @Autowired
+    private RabbitListenerEndpointRegistry listenerEndpointRegistry;
+
+    @Autowired
+    private AmqpAdmin amqpAdmin;
+
+    @Autowired
+    private QueueListenerMetrics queueListenerMetrics;
+
+    @Value("${app.rabbitmq.consumer.adaptive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.rabbitmq.consumer.concurrency:3}")
+    private int initialConsumers;
+
+    @Value("${app.rabbitmq.consumer.prefetch:5}")
+    private int initialPrefetch;
+
+    @Value("${app.rabbitmq.consumer.adaptive.min-consumers:1}")
+    private int minConsumers;
+
+    @Value("${app.rabbitmq.consumer.adaptive.max-consumers:10}")
+    private int maxConsumers;
+
+    @Value("${app.rabbitmq.consumer.adaptive.max-step:2}")
+    private int maxStep;
+
+    @Value("${app.rabbitmq.consumer.adaptive.min-prefetch:1}")
+    private int minPrefetch;
+
+    @Value("${app.rabbitmq.consumer.adaptive.max-prefetch:250}")
+    private int maxPrefetch;
+
+    @Value("${app.rabbitmq.consumer.adaptive.target-drain-seconds:10}")
+    private double targetDrainSeconds;
+
+    @Value("${app.rabbitmq.consumer.adaptive.prefetch-buffer-ms:500}")
+    private long prefetchBufferMillis;
+
+    @Value("${app.rabbitmq.consumer.adaptive.restart-cooldown-ms:60000}")
+    private long restartCooldownMillis;
+
+    /**
+     * 每个容器当前使用的配置，key为监听器ID
+     */
+    private final Map<String, ContainerSettings> settings = new ConcurrentHashMap<>();
+
+    /**
+     * 采样所有队列的吞吐量和积压，开启自适应时调整监听器配置
+     */
+    @Scheduled(fixedDelayString = "${app.rabbitmq.consumer.adaptive.interval-ms:5000}",
+            initialDelayString = "${app.rabbitmq.consumer.adaptive.interval-ms:5000}")
+    public void tune() {
+        for (String id : listenerEndpointRegistry.getListenerContainerIds()) {
+            MessageListenerContainer container = listenerEndpointRegistry.getListenerContainer(id);
+            if (!(container instanceof SimpleMessageListenerContainer simpleContainer) || !container.isRunning()) {
+                continue;
+            }
+            try {
+                tune(id, simpleContainer);
+            } catch (Exception e) {
+                logger.warn("调整监听器配置失败: queues={}, 原因: {}",
+                        String.join(",", simpleContainer.getQueueNames()), e.getMessage());
+            }
+        }
+    }
+
+    private void tune(String id, SimpleMessageListenerContainer container) {
+        ContainerSettings current = settings.get(id);
+        if (current == null) {
+            current = new ContainerSettings(initialConsumers, initialPrefetch, 0);
+            if (enabled) {
+                applyConsumers(container, Integer.MAX_VALUE, initialConsumers);
+            }
+            settings.put(id, current);
+        }
+
+        long depth = 0;
+        double messagesPerSecond = 0;
+        double maxLatencyMillis = 0;
+        for (String queue : container.getQueueNames()) {
+            QueueListenerStats stats = queueListenerMetrics.sample(queue, queueDepth(queue));
+            depth += Math.max(0, stats.depth());
+            messagesPerSecond += stats.messagesPerSecond();
+            maxLatencyMillis = Math.max(maxLatencyMillis, stats.avgLatencyMillis());
+        }
+
+        ContainerSettings target = enabled
+                ? calculate(current, depth, messagesPerSecond, maxLatencyMillis)
+                : current;
+        if (target.consumers() != current.consumers()) {
+            applyConsumers(container, current.consumers(), target.consumers());
+        }
+        if (target.prefetch() != current.prefetch()) {
+            container.setPrefetchCount(target.prefetch());
+            if (needsRestart(current, target) && !hasInFlight(container)) {
+                logger.info("监听器 {} 预取数量 {} -> {}，重启容器使其生效", id, current.prefetch(), target.prefetch());
+                container.stop();
+                container.start();
+                target = new ContainerSettings(target.consumers(), target.prefetch(), System.currentTimeMillis());
+            } else {
+                // 还没有生效（变化不大、冷却中或有未确认的批次），等下次消费者变化或重启时再应用
+                target = new ContainerSettings(target.consumers(), current.prefetch(), current.lastRestartMillis());
+            }
+        }
+        if (!target.equals(current)) {
+            logger.debug("监听器 {} 调整: 消费者 {} -> {}, 预取 {} -> {}, 积压={}, 吞吐={}/s, 耗时={}ms",
+                    id, current.consumers(), target.consumers(), current.prefetch(), target.prefetch(),
+                    depth, String.format("%.1f", messagesPerSecond), String.format("%.1f", maxLatencyMillis));
+            settings.put(id, target);
+        }
+        for (String queue : container.getQueueNames()) {
+            queueListenerMetrics.updateSettings(queue, target.consumers(), target.prefetch());
+        }
+    }
+
+    /**
+     * 计算目标消费者数量和预取数量
+     */
+    ContainerSettings calculate(ContainerSettings current, long depth, double messagesPerSecond, double latencyMillis) {
+        if (latencyMillis <= 0) {
+            // 还没有处理过消息，没有耗时数据
+            return current;
+        }
+        double perConsumerRate = 1000.0 / latencyMillis;
+        double requiredRate = messagesPerSecond + depth / targetDrainSeconds;
+        int wanted = clamp((int) Math.ceil(requiredRate / perConsumerRate), minConsumers, maxConsumers);
+        int consumers = wanted > current.consumers()
+                ? Math.min(wanted, current.consumers() + maxStep)
+                : Math.max(wanted, current.consumers() - 1);
+
+        int prefetch = clamp((int) Math.ceil(perConsumerRate * prefetchBufferMillis / 1000.0), minPrefetch, maxPrefetch);
+        return new ContainerSettings(consumers, prefetch, current.lastRestartMillis());
+    }
+
+    private boolean needsRestart(ContainerSettings current, ContainerSettings target) {
+        int larger = Math.max(current.prefetch(), target.prefetch());
+        int smaller = Math.max(1, Math.min(current.prefetch(), target.prefetch()));
+        return larger >= smaller * 2
+                && System.currentTimeMillis() - current.lastRestartMillis() >= restartCooldownMillis;
+    }
+
+    private boolean hasInFlight(SimpleMessageListenerContainer container) {
+        for (String queue : container.getQueueNames()) {
+            if (queueListenerMetrics.inFlight(queue) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 同时设置最小和最大消费者数量，关闭容器自带的按空闲情况伸缩，由这里统一调整
+     */
+    private void applyConsumers(SimpleMessageListenerContainer container, int from, int to) {
+        if (to > from) {
+            container.setMaxConcurrentConsumers(to);
+            container.setConcurrentConsumers(to);
+        } else {
+            container.setConcurrentConsumers(to);
+            container.setMaxConcurrentConsumers(to);
+        }
+    }
+
+    private long queueDepth(String queue) {
+        try {
+            QueueInformation information = amqpAdmin.getQueueInfo(queue);
+            return information == null ? -1 : information.getMessageCount();
+        } catch (Exception e) {
+            logger.debug("查询队列 {} 积压失败: {}", queue, e.getMessage());
+            return -1;
+        }
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * 监听器容器的消费配置
+     *
+     * @param consumers 消费者数量
+     * @param prefetch 预取数量
+     * @param lastRestartMillis 上次为应用预取数量重启容器的时间
+     */
+    record ContainerSettings(int consumers, int prefetch, long lastRestartMillis) {
+    }
+}
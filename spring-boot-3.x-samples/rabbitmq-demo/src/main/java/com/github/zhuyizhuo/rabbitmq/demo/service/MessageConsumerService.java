@@ -1,17 +1,24 @@
 package com.github.zhuyizhuo.rabbitmq.demo.service;
 
 import com.github.zhuyizhuo.rabbitmq.demo.config.RabbitConfig;
+import com.github.zhuyizhuo.rabbitmq.demo.metrics.QueueListenerMetrics;
 import com.github.zhuyizhuo.rabbitmq.demo.model.MessageDto;
+import com.rabbitmq.client.Channel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitHandler;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Headers;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -26,13 +33,75 @@ public class MessageConsumerService {
 
     private static final Logger logger = LoggerFactory.getLogger(MessageConsumerService.class);
 
+    @Autowired
+    private QueueListenerMetrics queueListenerMetrics;
+
     /**
-     * 消费Direct队列消息
+     * 模拟每条消息的业务处理耗时（毫秒）
+     */
+    @Value("${app.rabbitmq.consumer.simulated-processing-millis:100}")
+    private long simulatedProcessingMillis;
+
+    /**
+     * 批量消费Direct队列消息，app.rabbitmq.consumer.batch.enabled=true 时启用
+     * <p>
+     * 一批消息逐条处理，处理失败的消息单独 basicNack 进入死信队列，
+     * 其余消息处理完后用一次 basicAck(multiple=true) 确认，不再每条消息确认一次。
+     * 手动确认模式下监听器抛出异常时容器不会确认或拒绝消息，所以处理中途出现意外异常时，
+     * 已处理成功的消息照常确认，还没处理的消息 basicNack 重新入队，不会一直处于未确认状态
+     * 
+     * @param messages 一批消息，消息头中带有各自的 deliveryTag
+     * @param channel 接收这批消息的通道
+     */
+    @RabbitListener(id = "directBatchListener", queues = RabbitConfig.DIRECT_QUEUE,
+            containerFactory = RabbitConfig.BATCH_LISTENER_CONTAINER_FACTORY,
+            autoStartup = "${app.rabbitmq.consumer.batch.enabled:true}")
+    public void handleDirectMessageBatch(List<org.springframework.messaging.Message<MessageDto>> messages,
+                                         Channel channel) throws IOException {
+        logger.info("接收到一批Direct消息: {}条", messages.size());
+        long lastSuccessTag = -1;
+        int settled = 0;
+        int failed = 0;
+        try {
+            for (org.springframework.messaging.Message<MessageDto> message : messages) {
+                long deliveryTag = deliveryTag(message);
+                try {
+                    processBusinessLogic(message.getPayload(), "DIRECT_BATCH");
+                    lastSuccessTag = Math.max(lastSuccessTag, deliveryTag);
+                } catch (Exception e) {
+                    failed++;
+                    logger.error("Direct消息处理失败，转入死信队列: {}", message.getPayload().getMessageId(), e);
+                    channel.basicNack(deliveryTag, false, false);
+                }
+                settled++;
+            }
+        } finally {
+            if (lastSuccessTag >= 0) {
+                channel.basicAck(lastSuccessTag, true);
+            }
+            if (settled < messages.size()) {
+                logger.warn("Direct消息批量处理中断，剩余{}条消息重新入队", messages.size() - settled);
+                for (org.springframework.messaging.Message<MessageDto> message : messages.subList(settled, messages.size())) {
+                    channel.basicNack(deliveryTag(message), false, true);
+                }
+            }
+            queueListenerMetrics.recordFailures(RabbitConfig.DIRECT_QUEUE, failed);
+        }
+        logger.info("Direct消息批量处理完成: 成功{}条, 失败{}条", messages.size() - failed, failed);
+    }
+
+    private static long deliveryTag(org.springframework.messaging.Message<MessageDto> message) {
+        return message.getHeaders().get(AmqpHeaders.DELIVERY_TAG, Long.class);
+    }
+
+    /**
+     * 消费Direct队列消息，app.rabbitmq.consumer.batch.enabled=false 时启用
      * 
      * @param messageDto 消息内容
      * @param message 原始消息
      */
-    @RabbitListener(queues = RabbitConfig.DIRECT_QUEUE)
+    @RabbitListener(queues = RabbitConfig.DIRECT_QUEUE,
+            autoStartup = "#{!${app.rabbitmq.consumer.batch.enabled:true}}")
     @RabbitHandler
     public void handleDirectMessage(@Payload MessageDto messageDto, Message message) {
         try {
@@ -209,7 +278,9 @@ public class MessageConsumerService {
     private void processBusinessLogic(MessageDto messageDto, String processorType) {
         try {
             // 模拟业务处理时间
-            Thread.sleep(100);
+            if (simulatedProcessingMillis > 0) {
+                Thread.sleep(simulatedProcessingMillis);
+            }
             
             logger.info("业务处理完成 - 处理器类型: {}, 消息ID: {}, 消息类型: {}", 
                     processorType, messageDto.getMessageId(), messageDto.getMessageType());
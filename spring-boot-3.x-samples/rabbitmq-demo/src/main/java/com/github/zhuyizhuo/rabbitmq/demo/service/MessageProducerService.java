@@ -1,6 +1,7 @@
 package com.github.zhuyizhuo.rabbitmq.demo.service;
 
 import com.github.zhuyizhuo.rabbitmq.demo.config.RabbitConfig;
+import com.github.zhuyizhuo.rabbitmq.demo.model.BatchPublishResult;
 import com.github.zhuyizhuo.rabbitmq.demo.model.MessageDto;
 import com.github.zhuyizhuo.rabbitmq.demo.model.MessageType;
 import org.slf4j.Logger;
@@ -13,7 +14,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 消息生产者服务
@@ -30,6 +35,9 @@ public class MessageProducerService {
     @Autowired
     private RabbitTemplate rabbitTemplate;
 
+    @Autowired
+    private BatchMessagePublisher batchMessagePublisher;
+
     /**
      * 发送Direct类型消息
      * 
@@ -195,13 +203,48 @@ public class MessageProducerService {
 
     /**
      * 批量发送消息
+     * 多条消息在同一个通道上连续发送，异步等待Broker确认，nack或确认超时的消息自动重新发送
      * 
      * @param messages 消息列表
+     * @return 所有消息确认或重试次数用完后完成
+     */
+    public CompletableFuture<BatchPublishResult> sendBatchMessages(MessageDto... messages) {
+        CompletableFuture<BatchPublishResult> future = batchMessagePublisher.publishBatch(
+                RabbitConfig.DIRECT_EXCHANGE,
+                RabbitConfig.DIRECT_ROUTING_KEY,
+                Arrays.asList(messages)
+        );
+        logger.info("批量消息已发送{}条，等待Broker确认", messages.length);
+        return future;
+    }
+
+    /**
+     * 发送吞吐量测试
+     * 按给定的批次大小依次发送 count 条消息到没有消费者的测试队列，每轮等待全部确认后再开始下一轮
+     * 
+     * @param count 每轮发送的消息数
+     * @param batchSizes 批次大小列表
+     * @return 每个批次大小的发送结果
      */
-    public void sendBatchMessages(MessageDto... messages) {
-        for (MessageDto message : messages) {
-            sendDirectMessage(message);
+    public List<BatchPublishResult> runPublishBenchmark(int count, List<Integer> batchSizes) {
+        List<BatchPublishResult> results = new ArrayList<>(batchSizes.size());
+        for (Integer batchSize : batchSizes) {
+            List<MessageDto> messages = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                messages.add(new MessageDto("benchmark-" + i, MessageType.NORMAL));
+            }
+            BatchPublishResult result = batchMessagePublisher.publishBatch(
+                    RabbitConfig.DIRECT_EXCHANGE,
+                    RabbitConfig.BENCHMARK_ROUTING_KEY,
+                    messages,
+                    batchSize
+            ).join();
+            logger.info("吞吐量测试 batchSize={}: 确认{}条, 失败{}条, 重发{}次, 耗时{}ms, {} msg/s",
+                    batchSize, result.confirmed(), result.failed(), result.republished(),
+                    result.elapsedMillis(), String.format("%.0f", result.messagesPerSecond()));
+            results.add(result);
         }
+        return results;
     }
 }
 
@@ -0,0 +1,147 @@
+package com.github.zhuyizhuo.rabbitmq.demo.service;
+
+import com.github.zhuyizhuo.rabbitmq.demo.model.BatchPublishResult;
+import com.github.zhuyizhuo.rabbitmq.demo.model.MessageDto;
+import com.github.zhuyizhuo.rabbitmq.demo.model.MessageType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 批量发送确认跟踪测试，使用模拟的 RabbitTemplate，不需要连接 RabbitMQ
+ *
+ * @author zhuyizhuo
+ */
+class BatchMessagePublisherTests {
+
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final RabbitOperations operations = mock(RabbitOperations.class);
+    private BatchMessagePublisher publisher;
+
+    @AfterEach
+    void tearDown() {
+        publisher.destroy();
+    }
+
+    @Test
+    void ackedMessagesAreConfirmed() throws Exception {
+        publisher = createPublisher(5000, 3);
+
+        var future = publisher.publishBatch("exchange", "key", messages(5), 2);
+        List<CorrelationData> sent = captureSent(5);
+        // 三个批次分别在同一个通道上发送
+        verify(rabbitTemplate, times(3)).invoke(any());
+        assertEquals(5, publisher.getOutstandingConfirms());
+
+        sent.forEach(correlationData -> correlationData.getFuture().complete(new CorrelationData.Confirm(true, null)));
+
+        BatchPublishResult result = future.get(1, TimeUnit.SECONDS);
+        assertTrue(result.isAllConfirmed());
+        assertEquals(0, result.republished());
+        assertEquals(0, publisher.getOutstandingConfirms());
+    }
+
+    @Test
+    void nackedMessageIsRepublished() throws Exception {
+        publisher = createPublisher(5000, 3);
+
+        var future = publisher.publishBatch("exchange", "key", messages(1));
+        CorrelationData first = captureSent(1).get(0);
+        first.getFuture().complete(new CorrelationData.Confirm(false, "nack"));
+
+        CorrelationData second = captureSent(2).get(1);
+        assertFalse(future.isDone());
+        second.getFuture().complete(new CorrelationData.Confirm(true, null));
+
+        BatchPublishResult result = future.get(1, TimeUnit.SECONDS);
+        assertEquals(1, result.confirmed());
+        assertEquals(1, result.republished());
+        assertTrue(first.getId().endsWith(":1"));
+        assertTrue(second.getId().endsWith(":2"));
+    }
+
+    @Test
+    void unconfirmedMessageFailsAfterMaxAttempts() throws Exception {
+        publisher = createPublisher(50, 2);
+
+        BatchPublishResult result = publisher.publishBatch("exchange", "key", messages(1)).get(2, TimeUnit.SECONDS);
+
+        assertEquals(0, result.confirmed());
+        assertEquals(1, result.failed());
+        assertEquals(1, result.republished());
+        assertEquals("等待确认超时", result.firstError());
+        assertEquals(0, publisher.getOutstandingConfirms());
+    }
+
+    @Test
+    void returnedMessageFailsWithoutRetry() throws Exception {
+        publisher = createPublisher(5000, 3);
+
+        var future = publisher.publishBatch("exchange", "key", messages(1));
+        CorrelationData correlationData = captureSent(1).get(0);
+        correlationData.setReturned(new ReturnedMessage(new Message(new byte[0], new MessageProperties()),
+                312, "NO_ROUTE", "exchange", "key"));
+        correlationData.getFuture().complete(new CorrelationData.Confirm(true, null));
+
+        BatchPublishResult result = future.get(1, TimeUnit.SECONDS);
+        assertEquals(1, result.failed());
+        assertEquals(0, result.republished());
+    }
+
+    @Test
+    void nackAfterDestroyFailsInsteadOfRepublishing() throws Exception {
+        publisher = createPublisher(5000, 3);
+
+        var future = publisher.publishBatch("exchange", "key", messages(1));
+        CorrelationData correlationData = captureSent(1).get(0);
+        publisher.destroy();
+        correlationData.getFuture().complete(new CorrelationData.Confirm(false, "nack"));
+
+        BatchPublishResult result = future.get(1, TimeUnit.SECONDS);
+        assertEquals(1, result.failed());
+        assertEquals(0, result.republished());
+        assertTrue(result.firstError().startsWith("Broker拒绝消息(nack)"));
+        verify(operations, times(1)).convertAndSend(eq("exchange"), eq("key"), any(Object.class), any(CorrelationData.class));
+    }
+
+    private BatchMessagePublisher createPublisher(long confirmTimeoutMillis, int maxAttempts) {
+        when(rabbitTemplate.invoke(any())).thenAnswer(invocation ->
+                invocation.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(operations));
+        return new BatchMessagePublisher(rabbitTemplate, 100, confirmTimeoutMillis, maxAttempts);
+    }
+
+    private List<CorrelationData> captureSent(int expected) {
+        ArgumentCaptor<CorrelationData> captor = ArgumentCaptor.forClass(CorrelationData.class);
+        verify(operations, timeout(1000).times(expected))
+                .convertAndSend(eq("exchange"), eq("key"), any(Object.class), captor.capture());
+        return captor.getAllValues();
+    }
+
+    private static List<MessageDto> messages(int count) {
+        MessageDto[] messages = new MessageDto[count];
+        for (int i = 0; i < count; i++) {
+            messages[i] = new MessageDto("message-" + i, MessageType.NORMAL);
+        }
+        return List.of(messages);
+    }
+}
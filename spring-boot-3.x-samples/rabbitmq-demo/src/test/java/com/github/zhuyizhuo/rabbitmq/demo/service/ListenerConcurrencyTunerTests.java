@@ -0,0 +1,129 @@
+package com.github.zhuyizhuo.rabbitmq.demo.service;
+
+import com.github.zhuyizhuo.rabbitmq.demo.metrics.QueueListenerMetrics;
+import com.github.zhuyizhuo.rabbitmq.demo.model.QueueListenerStats;
+import com.github.zhuyizhuo.rabbitmq.demo.service.ListenerConcurrencyTuner.ContainerSettings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * 自适应调整计算和队列统计测试，不需要连接 RabbitMQ
+ *
+ * @author zhuyizhuo
+ */
+class ListenerConcurrencyTunerTests {
+
+    private final ListenerConcurrencyTuner tuner = new ListenerConcurrencyTuner();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(tuner, "minConsumers", 1);
+        ReflectionTestUtils.setField(tuner, "maxConsumers", 10);
+        ReflectionTestUtils.setField(tuner, "maxStep", 2);
+        ReflectionTestUtils.setField(tuner, "minPrefetch", 1);
+        ReflectionTestUtils.setField(tuner, "maxPrefetch", 250);
+        ReflectionTestUtils.setField(tuner, "targetDrainSeconds", 10.0);
+        ReflectionTestUtils.setField(tuner, "prefetchBufferMillis", 500L);
+    }
+
+    @Test
+    void backlogAddsConsumersGradually() {
+        // 每条消息100ms，单个消费者10条/秒；积压1000条需要 (30 + 1000/10) / 10 = 13 个，受最大值和步长限制
+        ContainerSettings target = tuner.calculate(new ContainerSettings(3, 5, 0), 1000, 30, 100);
+        assertEquals(5, target.consumers());
+        // 单个消费者500ms内处理5条
+        assertEquals(5, target.prefetch());
+
+        target = tuner.calculate(target, 1000, 50, 100);
+        target = tuner.calculate(target, 1000, 70, 100);
+        target = tuner.calculate(target, 1000, 90, 100);
+        assertEquals(10, target.consumers());
+    }
+
+    @Test
+    void idleQueueRemovesConsumersOneAtATime() {
+        ContainerSettings target = tuner.calculate(new ContainerSettings(6, 5, 0), 0, 0, 100);
+        assertEquals(5, target.consumers());
+    }
+
+    @Test
+    void fastConsumersGetLargerPrefetch() {
+        // 每条消息1ms，500ms内处理500条，受最大预取数量限制
+        assertEquals(250, tuner.calculate(new ContainerSettings(3, 5, 0), 0, 100, 1).prefetch());
+        // 每条消息2秒，预取1条
+        assertEquals(1, tuner.calculate(new ContainerSettings(3, 5, 0), 0, 1, 2000).prefetch());
+    }
+
+    @Test
+    void noLatencyDataKeepsCurrentSettings() {
+        ContainerSettings current = new ContainerSettings(3, 5, 0);
+        assertEquals(current, tuner.calculate(current, 500, 0, 0));
+    }
+
+    @Test
+    void restartWaitsForInFlightBatches() {
+        RabbitListenerEndpointRegistry registry = mock(RabbitListenerEndpointRegistry.class);
+        SimpleMessageListenerContainer container = mock(SimpleMessageListenerContainer.class);
+        QueueListenerMetrics metrics = mock(QueueListenerMetrics.class);
+        when(registry.getListenerContainerIds()).thenReturn(Set.of("batch"));
+        when(registry.getListenerContainer("batch")).thenReturn(container);
+        when(container.isRunning()).thenReturn(true);
+        when(container.getQueueNames()).thenReturn(new String[]{"queue"});
+        // 每条消息1ms，预取数量从5调整到250，需要重启容器
+        when(metrics.sample(eq("queue"), anyLong()))
+                .thenReturn(new QueueListenerStats("queue", 100, 0, 100, 1, 0, 3, 5));
+        ReflectionTestUtils.setField(tuner, "listenerEndpointRegistry", registry);
+        ReflectionTestUtils.setField(tuner, "amqpAdmin", mock(AmqpAdmin.class));
+        ReflectionTestUtils.setField(tuner, "queueListenerMetrics", metrics);
+        ReflectionTestUtils.setField(tuner, "enabled", true);
+        ReflectionTestUtils.setField(tuner, "initialConsumers", 3);
+        ReflectionTestUtils.setField(tuner, "initialPrefetch", 5);
+        ReflectionTestUtils.setField(tuner, "restartCooldownMillis", 0L);
+
+        // 还有批次没有确认，推迟重启
+        when(metrics.inFlight("queue")).thenReturn(1);
+        tuner.tune();
+        verify(container, never()).stop();
+
+        when(metrics.inFlight("queue")).thenReturn(0);
+        tuner.tune();
+        verify(container).stop();
+        verify(container).start();
+        verify(metrics).updateSettings(eq("queue"), anyInt(), eq(250));
+    }
+
+    @Test
+    void metricsSampleThroughputAndLatency() throws Exception {
+        QueueListenerMetrics metrics = new QueueListenerMetrics(new SimpleMeterRegistry());
+        metrics.sample("queue", 0);
+        metrics.record("queue", 10, TimeUnit.MILLISECONDS.toNanos(50), true);
+        metrics.record("queue", 1, TimeUnit.MILLISECONDS.toNanos(5), false);
+        Thread.sleep(20);
+
+        QueueListenerStats stats = metrics.sample("queue", 42);
+        assertEquals(11, stats.processed());
+        assertEquals(1, stats.failed());
+        assertEquals(5.0, stats.avgLatencyMillis(), 0.001);
+        assertEquals(42, stats.depth());
+        assertTrue(stats.messagesPerSecond() > 0);
+
+        // 空闲周期吞吐量归零，耗时保留上一次的值
+        stats = metrics.sample("queue", 0);
+        assertEquals(0, stats.messagesPerSecond(), 0.001);
+        assertEquals(5.0, stats.avgLatencyMillis(), 0.001);
+    }
+}
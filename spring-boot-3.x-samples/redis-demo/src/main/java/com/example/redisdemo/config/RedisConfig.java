@@ -1,5 +1,8 @@
 package com.example.redisdemo.config;
 
+import com.example.redisdemo.serializer.CompactBinaryRedisSerializer;
+import com.example.redisdemo.serializer.OrderBinarySchema;
+import com.example.redisdemo.serializer.UserBinarySchema;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -10,8 +13,11 @@ import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.listener.KeyExpirationEventMessageListener;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.util.List;
+
 @Configuration
 public class RedisConfig {
     
@@ -26,6 +32,12 @@ public class RedisConfig {
     
     @Value("${spring.redis.database}")
     private int database;
+
+    @Value("${redis.serializer.type:json}")
+    private String serializerType;
+
+    @Value("${redis.serializer.compress-threshold:1024}")
+    private int compressThreshold;
     
     @Bean
     public RedisConnectionFactory redisConnectionFactory() {
@@ -37,22 +49,37 @@ public class RedisConfig {
         return new LettuceConnectionFactory(configuration);
     }
 
+    /**
+     * 值序列化器，通过 redis.serializer.type 选择：
+     * json - GenericJackson2JsonRedisSerializer（默认）
+     * binary - 紧凑二进制格式，User/Order 按模式编码，超过压缩阈值时压缩
+     */
+    @Bean
+    public RedisSerializer<Object> redisValueSerializer() {
+        if ("binary".equalsIgnoreCase(serializerType)) {
+            return new CompactBinaryRedisSerializer(compressThreshold,
+                    List.of(new UserBinarySchema(), new OrderBinarySchema()));
+        }
+        return new GenericJackson2JsonRedisSerializer();
+    }
+
     /**
      * 配置RedisTemplate，提供各种Redis操作的高级封装
      */
     @Bean
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory,
+                                                       RedisSerializer<Object> redisValueSerializer) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
         
         // 设置键序列化器
         template.setKeySerializer(new StringRedisSerializer());
         // 设置值序列化器
-        template.setValueSerializer(new GenericJackson2JsonRedisSerializer());
+        template.setValueSerializer(redisValueSerializer);
         // 设置哈希键序列化器
         template.setHashKeySerializer(new StringRedisSerializer());
         // 设置哈希值序列化器
-        template.setHashValueSerializer(new GenericJackson2JsonRedisSerializer());
+        template.setHashValueSerializer(redisValueSerializer);
         
         template.afterPropertiesSet();
         return template;
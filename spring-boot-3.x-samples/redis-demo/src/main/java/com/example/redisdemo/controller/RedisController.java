@@ -1,15 +1,27 @@
 package com.example.redisdemo.controller;
 
+import com.example.redisdemo.expiration.ExpirationDispatcher;
+import com.example.redisdemo.expiration.ExpirationReconciler;
 import com.example.redisdemo.model.User;
+import com.example.redisdemo.service.LockContentionBenchmark;
+import com.example.redisdemo.service.NearCache;
+import com.example.redisdemo.service.RedisLock;
 import com.example.redisdemo.service.RedisService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/redis")
@@ -17,6 +29,21 @@ public class RedisController {
 
     @Autowired
     private RedisService redisService;
+
+    @Autowired
+    private NearCache nearCache;
+
+    @Autowired
+    private RedisLock redisLock;
+
+    @Autowired
+    private ExpirationDispatcher expirationDispatcher;
+
+    @Autowired
+    private ExpirationReconciler expirationReconciler;
+
+    @Autowired
+    private LockContentionBenchmark lockContentionBenchmark;
     
     /**
      * 测试Redis连接状态的端点
@@ -264,6 +291,85 @@ public class RedisController {
         return ResponseEntity.ok(result);
     }
 
+    // ============================ 批量操作演示 ============================
+
+    @PostMapping("/batch/string")
+    public ResponseEntity<String> batchSetString(@RequestBody Map<String, Object> values,
+                                               @RequestParam(required = false) Long expire) {
+        if (expire != null && expire > 0) {
+            redisService.mSet(values, expire, TimeUnit.SECONDS);
+            return ResponseEntity.ok("批量设置成功，数量：" + values.size() + "，过期时间：" + expire + "秒");
+        } else {
+            redisService.mSet(values);
+            return ResponseEntity.ok("批量设置成功，数量：" + values.size());
+        }
+    }
+
+    @PostMapping("/batch/string/get")
+    public ResponseEntity<Map<String, Object>> batchGetString(@RequestBody List<String> keys) {
+        List<Object> values = redisService.mGet(keys);
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            result.put(keys.get(i), values.get(i));
+        }
+        return ResponseEntity.ok(result);
+    }
+
+    @PostMapping("/batch/user")
+    public ResponseEntity<String> batchSaveUser(@RequestBody List<User> users,
+                                              @RequestParam(required = false) Long expireSeconds) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (User user : users) {
+            if (user.getCreateTime() == null) {
+                user.setCreateTime(now);
+            }
+            user.setUpdateTime(now);
+            values.put("user:" + user.getId(), user);
+        }
+        if (expireSeconds != null && expireSeconds > 0) {
+            redisService.mSet(values, expireSeconds, TimeUnit.SECONDS);
+        } else {
+            redisService.mSet(values);
+        }
+        return ResponseEntity.ok("批量保存用户成功，数量：" + users.size());
+    }
+
+    @GetMapping("/batch/user")
+    public ResponseEntity<List<Object>> batchGetUser(@RequestParam List<Long> ids) {
+        List<String> keys = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            keys.add("user:" + id);
+        }
+        List<Object> users = redisService.mGet(keys);
+        users.removeIf(Objects::isNull);
+        return ResponseEntity.ok(users);
+    }
+
+    @GetMapping("/batch/hash/{key}")
+    public ResponseEntity<Map<String, Object>> batchGetHashFields(@PathVariable String key,
+                                                                @RequestParam List<String> fields) {
+        List<Object> values = redisService.hMGet(key, fields);
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            result.put(fields.get(i), values.get(i));
+        }
+        return ResponseEntity.ok(result);
+    }
+
+    @PostMapping("/batch/zset")
+    public ResponseEntity<String> batchAddToZSet(@RequestParam String key, @RequestBody Map<String, Double> scores) {
+        long count = redisService.zAddAll(key, scores);
+        return ResponseEntity.ok("有序集合批量添加成功，新增数量：" + count);
+    }
+
+    @DeleteMapping("/batch/keys")
+    public ResponseEntity<String> batchDeleteKeys(@RequestBody List<String> keys,
+                                                @RequestParam(defaultValue = "" + RedisService.DEFAULT_BATCH_SIZE) int batchSize) {
+        long count = redisService.deleteInBatches(keys, batchSize);
+        return ResponseEntity.ok("已删除 " + count + " 个键");
+    }
+
     // ============================ 计数器操作演示 ============================
 
     @PostMapping("/counter/increment")
@@ -291,6 +397,55 @@ public class RedisController {
         return ResponseEntity.ok(result);
     }
 
+    // ============================ 近端缓存演示 ============================
+
+    @GetMapping("/near-cache/stats")
+    public ResponseEntity<Map<String, Object>> nearCacheStats() {
+        return ResponseEntity.ok(nearCache.stats());
+    }
+
+    @DeleteMapping("/near-cache")
+    public ResponseEntity<String> clearNearCache() {
+        nearCache.invalidateAll();
+        return ResponseEntity.ok("近端缓存已清空");
+    }
+
+    // ============================ 分布式锁演示 ============================
+
+    /**
+     * 一次网络往返同时锁定多个键，要么全部成功，要么全部失败
+     */
+    @PostMapping("/lock/all")
+    public ResponseEntity<Map<String, String>> lockAll(@RequestBody List<String> keys,
+                                                     @RequestParam(defaultValue = "30") long expireSeconds) {
+        String lockId = redisLock.lockAll(keys, expireSeconds);
+        if (lockId == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        Map<String, String> result = new HashMap<>();
+        result.put("lockId", lockId);
+        return ResponseEntity.ok(result);
+    }
+
+    @DeleteMapping("/lock/all")
+    public ResponseEntity<String> unlockAll(@RequestBody List<String> keys, @RequestParam String lockId) {
+        long count = redisLock.unlockAll(keys, lockId);
+        return ResponseEntity.ok("已释放 " + count + " 个锁");
+    }
+
+    /**
+     * 锁竞争压测，mode 可选 spin（轮询锁）或 reentrant（可重入锁）
+     */
+    @PostMapping("/lock/benchmark")
+    public ResponseEntity<Map<String, Object>> lockBenchmark(@RequestParam(defaultValue = "reentrant") String mode,
+                                                           @RequestParam(defaultValue = "8") int contenders,
+                                                           @RequestParam(defaultValue = "5") int durationSeconds) throws InterruptedException {
+        if (contenders <= 0 || contenders > 256 || durationSeconds <= 0 || durationSeconds > 60) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(lockContentionBenchmark.run(mode, contenders, durationSeconds));
+    }
+
     // ============================ 键过期监听演示 ============================
 
     @PostMapping("/demo/expiration")
@@ -303,6 +458,27 @@ public class RedisController {
         return ResponseEntity.ok("已创建测试键：" + key + "，过期时间：" + expireSeconds + "秒，请注意查看日志");
     }
 
+    /**
+     * 键过期处理流水线的队列深度、处理延迟和对账统计
+     */
+    @GetMapping("/expiration/stats")
+    public ResponseEntity<Map<String, Object>> expirationStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("pipelines", expirationDispatcher.stats());
+        result.put("reconciler", expirationReconciler.stats());
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 立即执行一次过期对账，补发丢失的过期通知
+     */
+    @PostMapping("/expiration/reconcile")
+    public ResponseEntity<Map<String, Integer>> reconcileExpiration() {
+        Map<String, Integer> result = new HashMap<>();
+        result.put("redispatched", expirationReconciler.reconcile());
+        return ResponseEntity.ok(result);
+    }
+
     // ============================ 键管理演示 ============================
 
     @GetMapping("/keys")
@@ -311,14 +487,34 @@ public class RedisController {
         return ResponseEntity.ok(keys);
     }
 
+    /**
+     * 以流的方式返回匹配的键，每个键一行，边扫描边输出
+     */
+    @GetMapping(value = "/keys/stream", produces = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamKeys(@RequestParam(defaultValue = "*") String pattern,
+                                                          @RequestParam(required = false) Long count) {
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            try (Stream<String> keys = count != null ? redisService.scan(pattern, count) : redisService.scan(pattern)) {
+                Iterator<String> iterator = keys.iterator();
+                while (iterator.hasNext()) {
+                    writer.write(iterator.next());
+                    writer.write('\n');
+                }
+            }
+            writer.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.TEXT_PLAIN).body(body);
+    }
+
     @DeleteMapping("/keys")
-    public ResponseEntity<String> deleteKeys(@RequestParam String pattern) {
-        Set<String> keys = redisService.keys(pattern);
-        if (!keys.isEmpty()) {
-            long count = redisService.delete(keys);
+    public ResponseEntity<String> deleteKeys(@RequestParam String pattern,
+                                           @RequestParam(defaultValue = "" + RedisService.DEFAULT_BATCH_SIZE) int batchSize) {
+        long count = redisService.unlinkByPattern(pattern, batchSize);
+        if (count > 0) {
             return ResponseEntity.ok("已删除 " + count + " 个键");
         } else {
             return ResponseEntity.ok("没有找到匹配的键");
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,405 @@
+package com.example.redisdemo.expiration;
+
+import com.example.redisdemo.service.RedisScriptRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.zset.DefaultTuple;
+import org.springframework.data.redis.connection.zset.Tuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 键过期事件分发器
+ * <p>
+ * 监听线程只负责把过期事件放入队列：每个键前缀对应一组分片，按ID哈希选择分片，
+ * 每个分片是一个有界队列和一个工作线程，保证同一ID的事件按顺序处理。
+ * 工作线程从队列中批量取出事件交给 {@link ExpirationHandler}，队列满时监听线程最多阻塞
+ * offer-timeout-millis，仍然放不进去的事件由 {@link ExpirationReconciler} 对账补发。
+ * <p>
+ * 设置了过期时间的键会登记到一个有序集合（分数为预期过期时间），处理成功后从中移除，
+ * 对账任务据此发现 Redis 丢失的过期通知。登记与写入在同一个管道或脚本中发送，不额外增加网络往返；
+ * 处理成功后只移除预期过期时间不晚于事件发生时间的登记，处理期间键被重新设置过期时间产生的新登记会保留。
+ */
+@Slf4j
+@Component
+public class ExpirationDispatcher implements InitializingBean, DisposableBean {
+
+    /**
+     * 设置过期时间成功后登记到有序集合，键不存在时不登记
+     * KEYS[1]: 键, KEYS[2]: 登记有序集合, ARGV[1]: 过期时间（毫秒）, ARGV[2]: 预期过期时间戳（毫秒）
+     */
+    static final String EXPIRE_AND_TRACK_SCRIPT_TEXT =
+            "if (redis.call('pexpire', KEYS[1], ARGV[1]) == 1) then " +
+            "redis.call('zadd', KEYS[2], ARGV[2], KEYS[1]); " +
+            "return 1; " +
+            "end; " +
+            "return 0;";
+
+    /**
+     * 只移除分数不大于给定值的登记，避免删掉键被重新设置过期时间后的新登记
+     * KEYS[1]: 登记有序集合, ARGV: 依次为键和允许移除的最大分数
+     */
+    static final String UNTRACK_IF_NOT_AFTER_SCRIPT_TEXT =
+            "local removed = 0; " +
+            "for i = 1, #ARGV, 2 do " +
+            "local score = redis.call('zscore', KEYS[1], ARGV[i]); " +
+            "if (score and tonumber(score) <= tonumber(ARGV[i + 1])) then " +
+            "removed = removed + redis.call('zrem', KEYS[1], ARGV[i]); " +
+            "end; " +
+            "end; " +
+            "return removed;";
+
+    private final List<ExpirationHandler> handlers;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisScriptRegistry scriptRegistry;
+    private final RedisScriptRegistry.Script<Long> expireAndTrackScript;
+    private final RedisScriptRegistry.Script<Long> untrackIfNotAfterScript;
+
+    @Value("${redis.expiration.shards-per-prefix:4}")
+    private int shardsPerPrefix;
+
+    @Value("${redis.expiration.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${redis.expiration.batch-size:500}")
+    private int batchSize;
+
+    @Value("${redis.expiration.batch-wait-millis:50}")
+    private long batchWaitMillis;
+
+    @Value("${redis.expiration.offer-timeout-millis:100}")
+    private long offerTimeoutMillis;
+
+    @Value("${redis.expiration.index-key:expiration:index}")
+    private String indexKey;
+
+    private final Map<String, PrefixPipeline> pipelines = new LinkedHashMap<>();
+
+    private volatile boolean running = true;
+
+    public ExpirationDispatcher(List<ExpirationHandler> handlers, StringRedisTemplate stringRedisTemplate,
+                                RedisScriptRegistry scriptRegistry) {
+        this.handlers = handlers;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.scriptRegistry = scriptRegistry;
+        this.expireAndTrackScript = scriptRegistry.register("expiration-expire-and-track",
+                EXPIRE_AND_TRACK_SCRIPT_TEXT, Long.class);
+        this.untrackIfNotAfterScript = scriptRegistry.register("expiration-untrack-if-not-after",
+                UNTRACK_IF_NOT_AFTER_SCRIPT_TEXT, Long.class);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        for (ExpirationHandler handler : handlers) {
+            PrefixPipeline pipeline = new PrefixPipeline(handler);
+            pipelines.put(handler.prefix(), pipeline);
+            pipeline.start();
+        }
+        log.info("键过期分发器已启动，前缀: {}，每个前缀分片数: {}", pipelines.keySet(), shardsPerPrefix);
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        for (PrefixPipeline pipeline : pipelines.values()) {
+            pipeline.stop();
+        }
+    }
+
+    public String getIndexKey() {
+        return indexKey;
+    }
+
+    /**
+     * 分发过期事件
+     * @param key 过期的键
+     * @return 是否有对应的处理器
+     */
+    public boolean dispatch(String key) {
+        return dispatch(key, false);
+    }
+
+    /**
+     * 分发过期事件
+     * @param key 过期的键
+     * @param reconciled 是否由对账任务补发
+     * @return 是否有对应的处理器
+     */
+    public boolean dispatch(String key, boolean reconciled) {
+        PrefixPipeline pipeline = findPipeline(key);
+        if (pipeline == null) {
+            return false;
+        }
+        String id = key.substring(pipeline.handler.prefix().length());
+        pipeline.offer(new ExpirationEvent(key, id, System.currentTimeMillis()), reconciled);
+        return true;
+    }
+
+    /**
+     * 键是否由某个处理器负责
+     */
+    public boolean isTracked(String key) {
+        return findPipeline(key) != null;
+    }
+
+    /**
+     * 在调用方的连接上登记设置了过期时间的键，供对账任务发现丢失的过期通知
+     * <p>
+     * 调用方在同一个管道中写入值并登记，两条命令只产生一次网络往返
+     * @param connection 调用方正在使用的（管道）连接
+     * @param expireAtMillis 键和预期过期时间戳（毫秒）的映射
+     */
+    public void track(RedisConnection connection, Map<String, Long> expireAtMillis) {
+        Set<Tuple> tuples = new HashSet<>();
+        expireAtMillis.forEach((key, expireAt) -> {
+            if (isTracked(key)) {
+                tuples.add(new DefaultTuple(key.getBytes(StandardCharsets.UTF_8), expireAt.doubleValue()));
+            }
+        });
+        if (!tuples.isEmpty()) {
+            connection.zSetCommands().zAdd(indexKey.getBytes(StandardCharsets.UTF_8), tuples);
+        }
+    }
+
+    /**
+     * 设置键的过期时间，需要登记的键通过脚本在同一次往返中设置过期时间并登记
+     * @param key 键
+     * @param ttlMillis 过期时间（毫秒）
+     * @return 是否设置成功，键不存在时返回 false
+     */
+    public boolean expireAndTrack(String key, long ttlMillis) {
+        if (!isTracked(key)) {
+            return Boolean.TRUE.equals(stringRedisTemplate.expire(key, ttlMillis, TimeUnit.MILLISECONDS));
+        }
+        Long result = scriptRegistry.execute(expireAndTrackScript, List.of(key, indexKey),
+                ttlMillis, System.currentTimeMillis() + ttlMillis);
+        return result != null && result == 1L;
+    }
+
+    /**
+     * 批量登记设置了过期时间的键，一次 ZADD 完成
+     * @param expireAtMillis 键和预期过期时间戳（毫秒）的映射
+     */
+    public void track(Map<String, Long> expireAtMillis) {
+        Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>();
+        expireAtMillis.forEach((key, expireAt) -> {
+            if (isTracked(key)) {
+                tuples.add(ZSetOperations.TypedTuple.of(key, expireAt.doubleValue()));
+            }
+        });
+        if (!tuples.isEmpty()) {
+            stringRedisTemplate.opsForZSet().add(indexKey, tuples);
+        }
+    }
+
+    /**
+     * 取消登记，例如键被删除或改为永不过期，否则对账任务会把被删除的键当作过期处理
+     */
+    public void untrack(Collection<String> keys) {
+        Object[] tracked = keys.stream().filter(this::isTracked).toArray();
+        if (tracked.length > 0) {
+            stringRedisTemplate.opsForZSet().remove(indexKey, tracked);
+        }
+    }
+
+    /**
+     * 按观察到的预期过期时间取消登记：只移除分数不大于给定值的登记。
+     * 处理或对账期间键被重新设置了过期时间时，新登记的分数更大，不会被移除
+     * @param maxExpireAtMillis 键和允许移除的最大预期过期时间戳（毫秒）的映射
+     * @return 移除的登记数量
+     */
+    public long untrackIfNotAfter(Map<String, Long> maxExpireAtMillis) {
+        List<Object> args = new ArrayList<>(maxExpireAtMillis.size() * 2);
+        maxExpireAtMillis.forEach((key, maxExpireAt) -> {
+            if (isTracked(key)) {
+                args.add(key);
+                args.add(maxExpireAt);
+            }
+        });
+        if (args.isEmpty()) {
+            return 0;
+        }
+        Long removed = scriptRegistry.execute(untrackIfNotAfterScript, List.of(indexKey), args.toArray());
+        return removed != null ? removed : 0;
+    }
+
+    /**
+     * 获取各前缀的队列深度、处理延迟等统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (PrefixPipeline pipeline : pipelines.values()) {
+            stats.put(pipeline.handler.prefix(), pipeline.stats());
+        }
+        return stats;
+    }
+
+    private PrefixPipeline findPipeline(String key) {
+        for (Map.Entry<String, PrefixPipeline> entry : pipelines.entrySet()) {
+            if (key.startsWith(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 过期事件
+     * @param key 过期的键
+     * @param id 从键中提取的ID
+     * @param enqueuedAt 入队时间戳（毫秒）
+     */
+    record ExpirationEvent(String key, String id, long enqueuedAt) {
+    }
+
+    /**
+     * 单个键前缀的处理流水线
+     */
+    private final class PrefixPipeline {
+        private final ExpirationHandler handler;
+        private final List<BlockingQueue<ExpirationEvent>> queues = new ArrayList<>();
+        private final List<Thread> workers = new ArrayList<>();
+
+        private final LongAdder enqueued = new LongAdder();
+        private final LongAdder reconciled = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder batches = new LongAdder();
+        private final AtomicLong lastLagMillis = new AtomicLong();
+        private final AtomicLong maxLagMillis = new AtomicLong();
+
+        private PrefixPipeline(ExpirationHandler handler) {
+            this.handler = handler;
+        }
+
+        private void start() {
+            for (int i = 0; i < shardsPerPrefix; i++) {
+                BlockingQueue<ExpirationEvent> queue = new ArrayBlockingQueue<>(queueCapacity);
+                Thread worker = new Thread(() -> work(queue), "expiration-" + handler.prefix().replace(":", "") + "-" + i);
+                worker.setDaemon(true);
+                queues.add(queue);
+                workers.add(worker);
+                worker.start();
+            }
+        }
+
+        private void stop() {
+            workers.forEach(Thread::interrupt);
+        }
+
+        private void offer(ExpirationEvent event, boolean fromReconciler) {
+            BlockingQueue<ExpirationEvent> queue = queues.get(Math.floorMod(event.id().hashCode(), queues.size()));
+            try {
+                if (queue.offer(event, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    enqueued.increment();
+                    if (fromReconciler) {
+                        reconciled.increment();
+                    }
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // 丢弃的事件仍然登记在有序集合中，由对账任务补发
+            dropped.increment();
+            log.warn("键过期事件队列已满，事件交由对账任务补发: {}", event.key());
+        }
+
+        private void work(BlockingQueue<ExpirationEvent> queue) {
+            List<ExpirationEvent> batch = new ArrayList<>(batchSize);
+            while (running) {
+                try {
+                    ExpirationEvent first = queue.poll(1, TimeUnit.SECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    // 在等待窗口内尽量凑满一批，突发过期时一次处理 batch-size 个事件
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchWaitMillis);
+                    while (batch.size() < batchSize) {
+                        queue.drainTo(batch, batchSize - batch.size());
+                        long remaining = deadline - System.nanoTime();
+                        if (batch.size() >= batchSize || remaining <= 0) {
+                            break;
+                        }
+                        ExpirationEvent next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                    process(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+
+        private void process(List<ExpirationEvent> batch) {
+            // 同一批中重复的ID（例如通知和对账补发同时到达）只处理一次
+            Set<String> ids = new LinkedHashSet<>();
+            // 过期发生在事件入队之前，入队时间之后的登记来自键被重新设置过期时间
+            Map<String, Long> observed = new HashMap<>();
+            for (ExpirationEvent event : batch) {
+                ids.add(event.id());
+                observed.merge(event.key(), event.enqueuedAt(), Math::max);
+            }
+            long lag = System.currentTimeMillis() - batch.get(0).enqueuedAt();
+            lastLagMillis.set(lag);
+            maxLagMillis.accumulateAndGet(lag, Math::max);
+            try {
+                handler.handle(new ArrayList<>(ids));
+                processed.add(batch.size());
+                batches.increment();
+            } catch (Exception e) {
+                // 处理失败的键保留在有序集合中，由对账任务重试
+                failed.add(batch.size());
+                log.error("处理键过期事件失败，前缀: {}，数量: {}", handler.prefix(), batch.size(), e);
+                return;
+            }
+            try {
+                untrackIfNotAfter(observed);
+            } catch (Exception e) {
+                log.warn("移除过期键登记失败: {}", e.getMessage());
+            }
+        }
+
+        private Map<String, Object> stats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            List<Integer> depths = new ArrayList<>(queues.size());
+            int total = 0;
+            for (BlockingQueue<ExpirationEvent> queue : queues) {
+                depths.add(queue.size());
+                total += queue.size();
+            }
+            stats.put("queueDepth", total);
+            stats.put("shardDepths", depths);
+            stats.put("queueCapacityPerShard", queueCapacity);
+            stats.put("enqueued", enqueued.sum());
+            stats.put("reconciled", reconciled.sum());
+            stats.put("dropped", dropped.sum());
+            stats.put("processed", processed.sum());
+            stats.put("failed", failed.sum());
+            stats.put("batches", batches.sum());
+            stats.put("lastLagMillis", lastLagMillis.get());
+            stats.put("maxLagMillis", maxLagMillis.get());
+            return stats;
+        }
+    }
+}
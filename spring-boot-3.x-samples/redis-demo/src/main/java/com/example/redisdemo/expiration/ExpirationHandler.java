@@ -0,0 +1,23 @@
+package com.example.redisdemo.expiration;
+
+import java.util.List;
+
+/**
+ * 键过期业务处理器
+ * <p>
+ * 每个处理器负责一个键前缀，过期事件按ID分片后批量交给处理器，同一ID的事件始终由同一个线程按顺序处理。
+ * 由于对账任务会补发丢失的过期通知，同一个键可能被处理多次，处理逻辑需要保证幂等。
+ */
+public interface ExpirationHandler {
+
+    /**
+     * 处理的键前缀，例如 "order:"
+     */
+    String prefix();
+
+    /**
+     * 批量处理过期的ID
+     * @param ids 从过期键中提取的ID
+     */
+    void handle(List<String> ids);
+}
@@ -0,0 +1,139 @@
+package com.example.redisdemo.expiration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 键过期对账任务
+ * <p>
+ * Redis 的键空间通知是发后即忘的：订阅连接断开、客户端缓冲区溢出或分发队列已满时通知都会丢失。
+ * 对账任务定期扫描登记有序集合中预期过期时间已过去的键：
+ * <ul>
+ *     <li>键已不存在：说明过期通知丢失或处理失败，补发过期事件</li>
+ *     <li>键仍然存在且有过期时间：过期时间被延长，更新登记的预期过期时间</li>
+ *     <li>键仍然存在但没有过期时间：取消登记</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class ExpirationReconciler implements InitializingBean, DisposableBean {
+
+    private final ExpirationDispatcher dispatcher;
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Value("${redis.expiration.reconcile-interval-seconds:30}")
+    private long intervalSeconds;
+
+    @Value("${redis.expiration.reconcile-grace-seconds:5}")
+    private long graceSeconds;
+
+    @Value("${redis.expiration.reconcile-batch-size:1000}")
+    private int reconcileBatchSize;
+
+    private final LongAdder sweeps = new LongAdder();
+    private final LongAdder redispatched = new LongAdder();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "expiration-reconciler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ExpirationReconciler(ExpirationDispatcher dispatcher, StringRedisTemplate stringRedisTemplate) {
+        this.dispatcher = dispatcher;
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                reconcile();
+            } catch (Exception e) {
+                log.warn("键过期对账失败: {}", e.getMessage());
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 执行一次对账
+     * @return 补发的过期事件数量
+     */
+    public int reconcile() {
+        sweeps.increment();
+        String indexKey = dispatcher.getIndexKey();
+        // 留出宽限期，避免与正常到达的过期通知重复处理
+        long maxScore = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(graceSeconds);
+        Set<String> candidates = stringRedisTemplate.opsForZSet()
+                .rangeByScore(indexKey, Double.NEGATIVE_INFINITY, maxScore, 0, reconcileBatchSize);
+        if (candidates == null || candidates.isEmpty()) {
+            return 0;
+        }
+        List<String> keys = new ArrayList<>(candidates);
+
+        // 一次管道查询所有候选键的剩余过期时间
+        List<Object> ttls = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (String key : keys) {
+                stringConnection.pTtl(key);
+            }
+            return null;
+        });
+
+        int count = 0;
+        long now = System.currentTimeMillis();
+        Map<String, Long> extended = new HashMap<>();
+        Map<String, Long> persistent = new HashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            long ttl = ((Number) ttls.get(i)).longValue();
+            String key = keys.get(i);
+            if (ttl == -2) {
+                dispatcher.dispatch(key, true);
+                count++;
+            } else if (ttl == -1) {
+                // 对账期间键可能被重新设置过期时间，只移除本次看到的不晚于 maxScore 的登记
+                persistent.put(key, maxScore);
+            } else {
+                extended.put(key, now + ttl);
+            }
+        }
+        if (!extended.isEmpty()) {
+            dispatcher.track(extended);
+        }
+        dispatcher.untrackIfNotAfter(persistent);
+        redispatched.add(count);
+        if (count > 0) {
+            log.info("键过期对账补发事件数量: {}", count);
+        }
+        return count;
+    }
+
+    /**
+     * 获取对账统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sweeps", sweeps.sum());
+        stats.put("redispatched", redispatched.sum());
+        Long pending = stringRedisTemplate.opsForZSet().zCard(dispatcher.getIndexKey());
+        stats.put("trackedKeys", pending != null ? pending : 0);
+        return stats;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.redisdemo.expiration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 处理订单相关的键过期
+ */
+@Slf4j
+@Component
+public class OrderExpirationHandler implements ExpirationHandler {
+
+    @Override
+    public String prefix() {
+        return "order:";
+    }
+
+    @Override
+    public void handle(List<String> orderIds) {
+        log.info("处理订单键过期，数量: {}，订单ID: {}", orderIds.size(), orderIds);
+        // 这里可以实现订单相关的业务逻辑，如一次数据库调用批量取消超时未支付订单：
+        // UPDATE t_order SET status = 'CANCELLED' WHERE id IN (...) AND status = 'UNPAID'
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.redisdemo.expiration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 处理会话相关的键过期
+ */
+@Slf4j
+@Component
+public class SessionExpirationHandler implements ExpirationHandler {
+
+    @Override
+    public String prefix() {
+        return "session:";
+    }
+
+    @Override
+    public void handle(List<String> sessionIds) {
+        log.info("处理会话键过期，数量: {}，会话ID: {}", sessionIds.size(), sessionIds);
+        // 这里可以实现会话相关的业务逻辑，如清理会话数据、记录用户下线日志等
+    }
+}
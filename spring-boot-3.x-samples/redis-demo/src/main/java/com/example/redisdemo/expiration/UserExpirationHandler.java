@@ -0,0 +1,25 @@
+package com.example.redisdemo.expiration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 处理用户相关的键过期
+ */
+@Slf4j
+@Component
+public class UserExpirationHandler implements ExpirationHandler {
+
+    @Override
+    public String prefix() {
+        return "user:";
+    }
+
+    @Override
+    public void handle(List<String> userIds) {
+        log.info("处理用户键过期，数量: {}，用户ID: {}", userIds.size(), userIds);
+        // 这里可以实现用户相关的业务逻辑，如清理用户缓存、更新用户状态等
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.redisdemo.listener;
+
+import com.example.redisdemo.service.NearCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+/**
+ * 近端缓存失效消息监听器
+ * 订阅其他节点发布的失效通知，删除本地缓存中对应的条目
+ */
+@Slf4j
+@Component
+public class NearCacheInvalidationListener implements MessageListener, InitializingBean {
+
+    private final RedisMessageListenerContainer listenerContainer;
+    private final NearCache nearCache;
+
+    public NearCacheInvalidationListener(RedisMessageListenerContainer listenerContainer, NearCache nearCache) {
+        this.listenerContainer = listenerContainer;
+        this.nearCache = nearCache;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (nearCache.isEnabled()) {
+            listenerContainer.addMessageListener(this, new ChannelTopic(nearCache.getChannel()));
+            log.info("近端缓存失效监听已注册，频道: {}", nearCache.getChannel());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        nearCache.onInvalidationMessage(message.getBody());
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.redisdemo.serializer;
+
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * 紧凑二进制读取器，与 {@link BinaryWriter} 的编码方式对应
+ */
+public class BinaryReader {
+
+    private final byte[] buffer;
+    private int position;
+    private final int limit;
+
+    public BinaryReader(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    public int readByte() {
+        require(1);
+        return buffer[position++] & 0xFF;
+    }
+
+    public byte[] readBytes(int length) {
+        require(length);
+        byte[] bytes = new byte[length];
+        System.arraycopy(buffer, position, bytes, 0, length);
+        position += length;
+        return bytes;
+    }
+
+    public long readVarLong() {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new SerializationException("Malformed varint");
+    }
+
+    public long readSignedVarLong() {
+        long raw = readVarLong();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    public int readLength() {
+        long length = readVarLong();
+        if (length < 0 || length > limit - position) {
+            throw new SerializationException("Invalid length prefix: " + length);
+        }
+        return (int) length;
+    }
+
+    public double readDouble() {
+        require(8);
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits = (bits << 8) | (buffer[position++] & 0xFF);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    /**
+     * 读取一段长度前缀的数据，返回只能访问该段数据的读取器
+     */
+    public BinaryReader readSection() {
+        int length = readLength();
+        BinaryReader section = new BinaryReader(buffer, position, length);
+        position += length;
+        return section;
+    }
+
+    public byte[] readLengthPrefixed() {
+        return readBytes(readLength());
+    }
+
+    public String readString() {
+        int length = readLength();
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    public BigDecimal readBigDecimal() {
+        int scale = (int) readSignedVarLong();
+        return new BigDecimal(new BigInteger(readLengthPrefixed()), scale);
+    }
+
+    public LocalDateTime readDateTime() {
+        long epochSecond = readSignedVarLong();
+        int nano = (int) readVarLong();
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+
+    // ============================ 可空字段 ============================
+    // 已读到数据末尾时返回 null：旧版本写入的数据不包含后来追加的字段，读取时视为 null
+
+    public String readNullableString() {
+        return isAbsent() ? null : readString();
+    }
+
+    public Long readNullableLong() {
+        return isAbsent() ? null : readSignedVarLong();
+    }
+
+    public Integer readNullableInt() {
+        return isAbsent() ? null : (int) readSignedVarLong();
+    }
+
+    public BigDecimal readNullableBigDecimal() {
+        return isAbsent() ? null : readBigDecimal();
+    }
+
+    public LocalDateTime readNullableDateTime() {
+        return isAbsent() ? null : readDateTime();
+    }
+
+    public int remaining() {
+        return limit - position;
+    }
+
+    /**
+     * 读取可空字段的标记，字段不存在（已到数据末尾）或值为 null 时返回 true
+     */
+    private boolean isAbsent() {
+        return position == limit || readByte() == 0;
+    }
+
+    private void require(int length) {
+        if (length < 0 || position + length > limit) {
+            throw new SerializationException("Unexpected end of binary value");
+        }
+    }
+}
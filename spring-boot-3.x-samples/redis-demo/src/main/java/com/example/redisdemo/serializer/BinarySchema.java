@@ -0,0 +1,33 @@
+package com.example.redisdemo.serializer;
+
+/**
+ * 二进制序列化模式
+ * 每个模型类对应一个模式，按固定字段顺序读写，不写入字段名和类名
+ * <p>
+ * 字段只能追加在末尾，且必须用可空方法读写：每个模型的数据带长度前缀，
+ * 旧版本读取新数据时忽略多出的字段，新版本读取旧数据时缺少的字段读为 null
+ *
+ * @param <T> 模型类型
+ */
+public interface BinarySchema<T> {
+
+    /**
+     * 模式编号，写入每个值的头部用于反序列化时定位模式，注册后不可更改
+     */
+    int id();
+
+    /**
+     * 模式对应的模型类型
+     */
+    Class<T> type();
+
+    /**
+     * 写入对象的所有字段
+     */
+    void write(BinaryWriter writer, T value);
+
+    /**
+     * 按写入顺序读取所有字段
+     */
+    T read(BinaryReader reader);
+}
@@ -0,0 +1,134 @@
+package com.example.redisdemo.serializer;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * 紧凑二进制写入器
+ * 整数使用变长编码（varint/zigzag），字符串和字节数组使用长度前缀
+ */
+public class BinaryWriter {
+
+    private byte[] buffer;
+    private int position;
+
+    public BinaryWriter(int initialCapacity) {
+        this.buffer = new byte[Math.max(initialCapacity, 16)];
+    }
+
+    public void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeBytes(byte[] bytes, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(bytes, offset, buffer, position, length);
+        position += length;
+    }
+
+    /**
+     * 写入无符号变长整数
+     */
+    public void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    /**
+     * 写入有符号变长整数（zigzag 编码，小的负数也只占少量字节）
+     */
+    public void writeSignedVarLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeDouble(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        ensureCapacity(8);
+        for (int i = 7; i >= 0; i--) {
+            buffer[position++] = (byte) (bits >>> (i * 8));
+        }
+    }
+
+    public void writeLengthPrefixed(byte[] bytes) {
+        writeVarLong(bytes.length);
+        writeBytes(bytes, 0, bytes.length);
+    }
+
+    public void writeString(String value) {
+        writeLengthPrefixed(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void writeBigDecimal(BigDecimal value) {
+        writeSignedVarLong(value.scale());
+        writeLengthPrefixed(value.unscaledValue().toByteArray());
+    }
+
+    public void writeDateTime(LocalDateTime value) {
+        writeSignedVarLong(value.toEpochSecond(ZoneOffset.UTC));
+        writeVarLong(value.getNano());
+    }
+
+    // ============================ 可空字段 ============================
+    // 可空字段先写一个存在标记字节，字段为 null 时只占 1 个字节
+
+    public void writeNullableString(String value) {
+        writeByte(value == null ? 0 : 1);
+        if (value != null) {
+            writeString(value);
+        }
+    }
+
+    public void writeNullableLong(Long value) {
+        writeByte(value == null ? 0 : 1);
+        if (value != null) {
+            writeSignedVarLong(value);
+        }
+    }
+
+    public void writeNullableInt(Integer value) {
+        writeByte(value == null ? 0 : 1);
+        if (value != null) {
+            writeSignedVarLong(value);
+        }
+    }
+
+    public void writeNullableBigDecimal(BigDecimal value) {
+        writeByte(value == null ? 0 : 1);
+        if (value != null) {
+            writeBigDecimal(value);
+        }
+    }
+
+    public void writeNullableDateTime(LocalDateTime value) {
+        writeByte(value == null ? 0 : 1);
+        if (value != null) {
+            writeDateTime(value);
+        }
+    }
+
+    public int size() {
+        return position;
+    }
+
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (position + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.redisdemo.serializer;
+
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 紧凑二进制值序列化器
+ * <p>
+ * 已注册模式的模型类（如 User、Order）按字段顺序写入，不包含类名和字段名；
+ * 常用标量、List 和 Map 使用内置类型标记；其他类型回退到 JSON。
+ * 序列化结果超过压缩阈值时使用 Deflate 压缩。
+ * <p>
+ * 数据格式：魔数(1字节) + 标志(1字节) + [原始长度(varint)，仅压缩时] + 值
+ * <br>
+ * 不以魔数开头的数据（如 INCR 写入的数字、切换序列化方式之前写入的 JSON）交给 JSON 序列化器处理。
+ * <p>
+ * 顶层的 Integer、Long 与 JSON 模式一样写成十进制数字字符串，不加魔数，INCR/DECR 可以直接在这些键上计数；
+ * List、Map 和模型对象中的整数仍然使用类型标记。
+ */
+public class CompactBinaryRedisSerializer implements RedisSerializer<Object> {
+
+    private static final int MAGIC = 0xB1;
+    private static final int FLAG_COMPRESSED = 1;
+
+    /**
+     * 解压后长度的上限：Redis 字符串值最大 512MB，Deflate 的压缩率不超过约 1032:1
+     */
+    private static final long MAX_INFLATED_LENGTH = 512L * 1024 * 1024;
+    private static final int MAX_DEFLATE_RATIO = 1032;
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_STRING = 1;
+    private static final int TAG_INT = 2;
+    private static final int TAG_LONG = 3;
+    private static final int TAG_DOUBLE = 4;
+    private static final int TAG_TRUE = 5;
+    private static final int TAG_FALSE = 6;
+    private static final int TAG_BIG_DECIMAL = 7;
+    private static final int TAG_DATE_TIME = 8;
+    private static final int TAG_LIST = 9;
+    private static final int TAG_MAP = 10;
+    private static final int TAG_SCHEMA = 11;
+    private static final int TAG_JSON = 12;
+
+    private final Map<Class<?>, BinarySchema<?>> schemasByType = new HashMap<>();
+    private final Map<Integer, BinarySchema<?>> schemasById = new HashMap<>();
+    private final GenericJackson2JsonRedisSerializer fallback = new GenericJackson2JsonRedisSerializer();
+    private final int compressThreshold;
+
+    /**
+     * @param compressThreshold 压缩阈值（字节），小于等于0表示不压缩
+     * @param schemas 模型类的二进制模式
+     */
+    public CompactBinaryRedisSerializer(int compressThreshold, Collection<BinarySchema<?>> schemas) {
+        this.compressThreshold = compressThreshold;
+        for (BinarySchema<?> schema : schemas) {
+            if (schemasById.put(schema.id(), schema) != null) {
+                throw new IllegalArgumentException("Duplicate binary schema id: " + schema.id());
+            }
+            schemasByType.put(schema.type(), schema);
+        }
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        if (value instanceof Integer || value instanceof Long) {
+            // Redis 只对十进制数字字符串执行 INCR，读取时由 JSON 序列化器解析
+            return value.toString().getBytes(StandardCharsets.US_ASCII);
+        }
+        BinaryWriter body = new BinaryWriter(64);
+        writeValue(body, value);
+
+        BinaryWriter out;
+        if (compressThreshold > 0 && body.size() >= compressThreshold) {
+            byte[] compressed = deflate(body.buffer(), body.size());
+            if (compressed.length < body.size()) {
+                out = new BinaryWriter(compressed.length + 12);
+                out.writeByte(MAGIC);
+                out.writeByte(FLAG_COMPRESSED);
+                out.writeVarLong(body.size());
+                out.writeBytes(compressed, 0, compressed.length);
+                return out.toByteArray();
+            }
+        }
+        out = new BinaryWriter(body.size() + 2);
+        out.writeByte(MAGIC);
+        out.writeByte(0);
+        out.writeBytes(body.buffer(), 0, body.size());
+        return out.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if ((bytes[0] & 0xFF) != MAGIC) {
+            return fallback.deserialize(bytes);
+        }
+        BinaryReader header = new BinaryReader(bytes, 1, bytes.length - 1);
+        int flags = header.readByte();
+        if ((flags & FLAG_COMPRESSED) != 0) {
+            long originalLength = header.readVarLong();
+            int offset = bytes.length - header.remaining();
+            int compressedLength = bytes.length - offset;
+            // 先检查头部声明的长度再分配缓冲区，损坏或伪造的数据不能触发超大数组分配
+            if (originalLength < 0 || originalLength > MAX_INFLATED_LENGTH
+                    || originalLength > (long) compressedLength * MAX_DEFLATE_RATIO) {
+                throw new SerializationException("Invalid compressed value length: " + originalLength);
+            }
+            byte[] body = inflate(bytes, offset, compressedLength, (int) originalLength);
+            return readValue(new BinaryReader(body, 0, body.length));
+        }
+        return readValue(header);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeValue(BinaryWriter writer, Object value) {
+        if (value == null) {
+            writer.writeByte(TAG_NULL);
+        } else if (value instanceof String s) {
+            writer.writeByte(TAG_STRING);
+            writer.writeString(s);
+        } else if (value instanceof Integer i) {
+            writer.writeByte(TAG_INT);
+            writer.writeSignedVarLong(i);
+        } else if (value instanceof Long l) {
+            writer.writeByte(TAG_LONG);
+            writer.writeSignedVarLong(l);
+        } else if (value instanceof Double d) {
+            writer.writeByte(TAG_DOUBLE);
+            writer.writeDouble(d);
+        } else if (value instanceof Boolean b) {
+            writer.writeByte(b ? TAG_TRUE : TAG_FALSE);
+        } else if (value instanceof BigDecimal decimal) {
+            writer.writeByte(TAG_BIG_DECIMAL);
+            writer.writeBigDecimal(decimal);
+        } else if (value instanceof LocalDateTime dateTime) {
+            writer.writeByte(TAG_DATE_TIME);
+            writer.writeDateTime(dateTime);
+        } else if (value instanceof List<?> list) {
+            writer.writeByte(TAG_LIST);
+            writer.writeVarLong(list.size());
+            for (Object element : list) {
+                writeValue(writer, element);
+            }
+        } else if (value instanceof Map<?, ?> map) {
+            writer.writeByte(TAG_MAP);
+            writer.writeVarLong(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(writer, entry.getKey());
+                writeValue(writer, entry.getValue());
+            }
+        } else {
+            BinarySchema<Object> schema = (BinarySchema<Object>) schemasByType.get(value.getClass());
+            if (schema != null) {
+                // 模型对象带长度前缀，新版本追加的字段不会影响旧版本读取后续数据
+                BinaryWriter section = new BinaryWriter(64);
+                schema.write(section, value);
+                writer.writeByte(TAG_SCHEMA);
+                writer.writeVarLong(schema.id());
+                writer.writeVarLong(section.size());
+                writer.writeBytes(section.buffer(), 0, section.size());
+            } else {
+                writer.writeByte(TAG_JSON);
+                writer.writeLengthPrefixed(fallback.serialize(value));
+            }
+        }
+    }
+
+    private Object readValue(BinaryReader reader) {
+        int tag = reader.readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_STRING:
+                return reader.readString();
+            case TAG_INT:
+                return (int) reader.readSignedVarLong();
+            case TAG_LONG:
+                return reader.readSignedVarLong();
+            case TAG_DOUBLE:
+                return reader.readDouble();
+            case TAG_TRUE:
+                return Boolean.TRUE;
+            case TAG_FALSE:
+                return Boolean.FALSE;
+            case TAG_BIG_DECIMAL:
+                return reader.readBigDecimal();
+            case TAG_DATE_TIME:
+                return reader.readDateTime();
+            case TAG_LIST: {
+                int size = reader.readLength();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(reader));
+                }
+                return list;
+            }
+            case TAG_MAP: {
+                int size = reader.readLength();
+                Map<Object, Object> map = new LinkedHashMap<>(size * 2);
+                for (int i = 0; i < size; i++) {
+                    map.put(readValue(reader), readValue(reader));
+                }
+                return map;
+            }
+            case TAG_SCHEMA: {
+                int id = (int) reader.readVarLong();
+                BinarySchema<?> schema = schemasById.get(id);
+                if (schema == null) {
+                    throw new SerializationException("Unknown binary schema id: " + id);
+                }
+                return schema.read(reader.readSection());
+            }
+            case TAG_JSON:
+                return fallback.deserialize(reader.readLengthPrefixed());
+            default:
+                throw new SerializationException("Unknown binary value tag: " + tag);
+        }
+    }
+
+    private static byte[] deflate(byte[] input, int length) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(input, 0, length);
+            deflater.finish();
+            BinaryWriter out = new BinaryWriter(length / 2 + 16);
+            byte[] chunk = new byte[Math.min(length + 16, 8192)];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk);
+                out.writeBytes(chunk, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] input, int offset, int length, int originalLength) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input, offset, length);
+            byte[] out = new byte[originalLength];
+            int total = 0;
+            while (total < originalLength && !inflater.finished()) {
+                int n = inflater.inflate(out, total, originalLength - total);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                total += n;
+            }
+            if (total != originalLength) {
+                throw new SerializationException("Corrupted compressed value");
+            }
+            return out;
+        } catch (DataFormatException e) {
+            throw new SerializationException("Corrupted compressed value", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
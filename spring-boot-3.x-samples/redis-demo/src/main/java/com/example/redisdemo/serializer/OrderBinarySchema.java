@@ -0,0 +1,46 @@
+package com.example.redisdemo.serializer;
+
+import com.example.redisdemo.model.Order;
+
+/**
+ * {@link Order} 的二进制序列化模式
+ * 新增字段只能追加在末尾，旧数据中缺少的字段读为 null，见 {@link BinarySchema}
+ */
+public class OrderBinarySchema implements BinarySchema<Order> {
+
+    @Override
+    public int id() {
+        return 2;
+    }
+
+    @Override
+    public Class<Order> type() {
+        return Order.class;
+    }
+
+    @Override
+    public void write(BinaryWriter writer, Order order) {
+        writer.writeNullableLong(order.getId());
+        writer.writeNullableLong(order.getUserId());
+        writer.writeNullableString(order.getOrderNo());
+        writer.writeNullableBigDecimal(order.getAmount());
+        writer.writeNullableString(order.getStatus());
+        writer.writeNullableString(order.getPaymentMethod());
+        writer.writeNullableDateTime(order.getCreateTime());
+        writer.writeNullableDateTime(order.getUpdateTime());
+    }
+
+    @Override
+    public Order read(BinaryReader reader) {
+        Order order = new Order();
+        order.setId(reader.readNullableLong());
+        order.setUserId(reader.readNullableLong());
+        order.setOrderNo(reader.readNullableString());
+        order.setAmount(reader.readNullableBigDecimal());
+        order.setStatus(reader.readNullableString());
+        order.setPaymentMethod(reader.readNullableString());
+        order.setCreateTime(reader.readNullableDateTime());
+        order.setUpdateTime(reader.readNullableDateTime());
+        return order;
+    }
+}
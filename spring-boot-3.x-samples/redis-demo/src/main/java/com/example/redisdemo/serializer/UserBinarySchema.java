@@ -0,0 +1,46 @@
+package com.example.redisdemo.serializer;
+
+import com.example.redisdemo.model.User;
+
+/**
+ * {@link User} 的二进制序列化模式
+ * 新增字段只能追加在末尾，旧数据中缺少的字段读为 null，见 {@link BinarySchema}
+ */
+public class UserBinarySchema implements BinarySchema<User> {
+
+    @Override
+    public int id() {
+        return 1;
+    }
+
+    @Override
+    public Class<User> type() {
+        return User.class;
+    }
+
+    @Override
+    public void write(BinaryWriter writer, User user) {
+        writer.writeNullableLong(user.getId());
+        writer.writeNullableString(user.getUsername());
+        writer.writeNullableString(user.getEmail());
+        writer.writeNullableString(user.getPhone());
+        writer.writeNullableInt(user.getAge());
+        writer.writeNullableString(user.getAddress());
+        writer.writeNullableDateTime(user.getCreateTime());
+        writer.writeNullableDateTime(user.getUpdateTime());
+    }
+
+    @Override
+    public User read(BinaryReader reader) {
+        User user = new User();
+        user.setId(reader.readNullableLong());
+        user.setUsername(reader.readNullableString());
+        user.setEmail(reader.readNullableString());
+        user.setPhone(reader.readNullableString());
+        user.setAge(reader.readNullableInt());
+        user.setAddress(reader.readNullableString());
+        user.setCreateTime(reader.readNullableDateTime());
+        user.setUpdateTime(reader.readNullableDateTime());
+        return user;
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.redisdemo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分布式锁竞争压测
+ * 多个线程反复竞争同一把锁，统计每秒获取次数和等待时间分位数，用于对比轮询锁和可重入锁
+ */
+@Slf4j
+@Component
+public class LockContentionBenchmark {
+
+    /**
+     * 轮询模式下的重试间隔（毫秒）
+     */
+    private static final long SPIN_RETRY_INTERVAL = 10;
+
+    @Autowired
+    private RedisLock redisLock;
+
+    @Autowired
+    private ReentrantRedisLock reentrantRedisLock;
+
+    /**
+     * 执行压测
+     * @param mode 锁模式：spin（{@link RedisLock#tryLock} 轮询）或 reentrant（{@link ReentrantRedisLock} 通知唤醒）
+     * @param contenders 竞争线程数
+     * @param durationSeconds 压测时长（秒）
+     * @return 压测结果
+     */
+    public Map<String, Object> run(String mode, int contenders, int durationSeconds) throws InterruptedException {
+        boolean spin = "spin".equalsIgnoreCase(mode);
+        String key = "benchmark:" + UUID.randomUUID().toString().substring(0, 8);
+        long durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+        LongAdder failures = new LongAdder();
+        List<long[]> samples = Collections.synchronizedList(new ArrayList<>());
+
+        ExecutorService executor = Executors.newFixedThreadPool(contenders);
+        CountDownLatch ready = new CountDownLatch(contenders);
+        CountDownLatch start = new CountDownLatch(1);
+        long[] startedAt = new long[1];
+        for (int i = 0; i < contenders; i++) {
+            executor.execute(() -> {
+                long[] waits = new long[1024];
+                int count = 0;
+                ready.countDown();
+                try {
+                    start.await();
+                    long end = startedAt[0] + durationNanos;
+                    long now;
+                    while ((now = System.nanoTime()) < end) {
+                        boolean acquired;
+                        String lockId = null;
+                        if (spin) {
+                            int retries = (int) Math.max(1, TimeUnit.NANOSECONDS.toMillis(end - now) / SPIN_RETRY_INTERVAL);
+                            lockId = redisLock.tryLock(key, 30, retries, SPIN_RETRY_INTERVAL);
+                            acquired = lockId != null;
+                        } else {
+                            acquired = reentrantRedisLock.tryLock(key, end - now, TimeUnit.NANOSECONDS);
+                        }
+                        long waited = System.nanoTime() - now;
+                        if (!acquired) {
+                            failures.increment();
+                            continue;
+                        }
+                        if (spin) {
+                            redisLock.unlock(key, lockId);
+                        } else {
+                            reentrantRedisLock.unlock(key);
+                        }
+                        if (count == waits.length) {
+                            waits = Arrays.copyOf(waits, count * 2);
+                        }
+                        waits[count++] = waited;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    samples.add(Arrays.copyOf(waits, count));
+                }
+            });
+        }
+        ready.await();
+        startedAt[0] = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(durationSeconds + 60L, TimeUnit.SECONDS);
+        long elapsedNanos = System.nanoTime() - startedAt[0];
+
+        long[] all = samples.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("mode", spin ? "spin" : "reentrant");
+        result.put("contenders", contenders);
+        result.put("durationSeconds", durationSeconds);
+        result.put("acquisitions", all.length);
+        result.put("failures", failures.sum());
+        result.put("acquisitionsPerSecond", all.length * 1_000_000_000.0 / elapsedNanos);
+        result.put("p50WaitMillis", percentileMillis(all, 0.50));
+        result.put("p99WaitMillis", percentileMillis(all, 0.99));
+        result.put("maxWaitMillis", all.length == 0 ? 0.0 : all[all.length - 1] / 1_000_000.0);
+        log.info("锁竞争压测结果: {}", result);
+        return result;
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,452 @@
+package com.example.redisdemo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 进程内近端缓存（L1），位于 RedisTemplate 读操作之前
+ * 容量按 LRU 淘汰，每个条目有固定存活时间；写操作通过 Redis 发布/订阅通知其他节点失效本地条目
+ * 条目按键的哈希分到多个段，每段单独加锁、单独做 LRU，不同段的键互不阻塞
+ */
+@Slf4j
+@Component
+public class NearCache {
+
+    /**
+     * 失效消息类型：失效指定的键 / 清空全部
+     */
+    private static final byte INVALIDATE_KEYS = 1;
+    private static final byte INVALIDATE_ALL = 2;
+
+    /**
+     * 段数，必须是2的幂
+     */
+    private static final int SEGMENTS = 16;
+
+    /**
+     * 版本号条带数，必须是2的幂
+     */
+    private static final int VERSION_STRIPES = 1024;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Value("${redis.near-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${redis.near-cache.channel:near-cache:invalidate}")
+    private String channel;
+
+    private final int maxSize;
+    private final long ttlMillis;
+
+    /**
+     * 当前节点标识，用于忽略自己发布的失效消息
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 按键的哈希分条带的版本号，失效某个键时递增它所在条带的版本号，
+     * 读操作回填时据此判断期间这个键是否被写过，避免把旧值写回缓存。
+     * 版本号不放在条目里，因为键还没有缓存时的写入同样要让并发的回填失效；
+     * 只有落在同一条带的键会互相影响
+     */
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder remoteInvalidations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    public NearCache(@Value("${redis.near-cache.max-size:10000}") int maxSize,
+                     @Value("${redis.near-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000;
+        int segmentSize = Math.max(1, (maxSize + SEGMENTS - 1) / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    /**
+     * 获取键当前的版本号，在读取 Redis 之前调用，回填时传回
+     * @param key 键
+     */
+    public long version(String key) {
+        return versions.get(stripe(key));
+    }
+
+    /**
+     * 获取缓存的值
+     * @param key 键
+     * @return 值，未命中或已过期返回null
+     */
+    public Object get(String key) {
+        Entry entry = getEntry(key);
+        if (entry == null || entry.value == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * 获取缓存的哈希字段值
+     * @param key 键
+     * @param field 字段
+     * @return 值，未命中或已过期返回null
+     */
+    public Object getHashField(String key, String field) {
+        Entry entry = getEntry(key);
+        Object value = entry != null && entry.fields != null ? entry.fields.get(field) : null;
+        if (value == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return value;
+    }
+
+    /**
+     * 回填缓存，如果读取期间这个键被失效过则放弃回填
+     * @param key 键
+     * @param value 值
+     * @param readVersion 读取 Redis 之前获取的版本号
+     */
+    public void put(String key, Object value, long readVersion) {
+        if (value == null) {
+            return;
+        }
+        Segment segment = segment(key);
+        synchronized (segment) {
+            // 检查和写入在段锁内完成，失效先递增版本号再在段锁内删除条目，两者不会交错出旧值
+            if (versions.get(stripe(key)) != readVersion) {
+                return;
+            }
+            segment.put(key, new Entry(value, null, System.currentTimeMillis() + ttlMillis));
+        }
+    }
+
+    /**
+     * 回填哈希字段，如果读取期间这个键被失效过则放弃回填
+     * @param key 键
+     * @param field 字段
+     * @param value 值
+     * @param readVersion 读取 Redis 之前获取的版本号
+     */
+    public void putHashField(String key, String field, Object value, long readVersion) {
+        if (value == null) {
+            return;
+        }
+        Segment segment = segment(key);
+        synchronized (segment) {
+            if (versions.get(stripe(key)) != readVersion) {
+                return;
+            }
+            Entry entry = segment.get(key);
+            if (entry == null || entry.fields == null || entry.isExpired(System.currentTimeMillis())) {
+                entry = new Entry(null, new ConcurrentHashMap<>(), System.currentTimeMillis() + ttlMillis);
+                segment.put(key, entry);
+            }
+            entry.fields.put(field, value);
+        }
+    }
+
+    /**
+     * 失效本地条目并通知其他节点
+     * @param key 键
+     */
+    public void invalidate(String key) {
+        invalidate(Collections.singletonList(key));
+    }
+
+    /**
+     * 失效本地条目并通知其他节点，一批键只发布一条消息
+     * @param keys 键集合
+     */
+    public void invalidate(Collection<String> keys) {
+        if (!enabled || keys.isEmpty()) {
+            return;
+        }
+        invalidateLocal(keys);
+        publish(keys);
+    }
+
+    /**
+     * 清空本地缓存并通知其他节点
+     */
+    public void invalidateAll() {
+        if (!enabled) {
+            return;
+        }
+        clearLocal();
+        publish(null);
+    }
+
+    /**
+     * 只失效本地条目，不通知其他节点
+     * @param keys 键集合
+     */
+    public void invalidateLocal(Collection<String> keys) {
+        for (String key : keys) {
+            versions.incrementAndGet(stripe(key));
+            Segment segment = segment(key);
+            synchronized (segment) {
+                if (segment.remove(key) != null) {
+                    invalidations.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * 只清空本地缓存，不通知其他节点
+     */
+    public void clearLocal() {
+        for (int i = 0; i < VERSION_STRIPES; i++) {
+            versions.incrementAndGet(i);
+        }
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                invalidations.add(segment.size());
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * 处理其他节点发布的失效消息，格式见 {@link #encodeInvalidation}
+     * 无法解析的消息按清空全部处理，宁可多回源也不继续返回可能已经过期的值
+     * @param body 消息体
+     */
+    public void onInvalidationMessage(byte[] body) {
+        Invalidation invalidation;
+        try {
+            invalidation = decodeInvalidation(body);
+        } catch (IllegalArgumentException e) {
+            log.warn("无法解析近端缓存失效消息，清空本地缓存: {}", e.getMessage());
+            remoteInvalidations.increment();
+            clearLocal();
+            return;
+        }
+        if (nodeId.equals(invalidation.sender())) {
+            return;
+        }
+        remoteInvalidations.increment();
+        if (invalidation.all()) {
+            clearLocal();
+        } else {
+            invalidateLocal(invalidation.keys());
+        }
+    }
+
+    /**
+     * 编码失效消息
+     * 格式：类型(1字节) + 节点标识 + 键数量(4字节) + 每个键，字符串均为 长度(4字节) + UTF-8字节；
+     * 键按长度前缀编码，键中包含任何字符（包括换行和空串）都能原样还原
+     * @param sender 发布消息的节点标识
+     * @param keys 要失效的键，null表示清空全部
+     */
+    static byte[] encodeInvalidation(String sender, Collection<String> keys) {
+        byte[] senderBytes = sender.getBytes(StandardCharsets.UTF_8);
+        List<byte[]> keyBytes = new ArrayList<>(keys == null ? 0 : keys.size());
+        int size = 1 + 4 + senderBytes.length + 4;
+        if (keys != null) {
+            for (String key : keys) {
+                byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+                keyBytes.add(bytes);
+                size += 4 + bytes.length;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(keys == null ? INVALIDATE_ALL : INVALIDATE_KEYS);
+        buffer.putInt(senderBytes.length).put(senderBytes);
+        buffer.putInt(keyBytes.size());
+        for (byte[] bytes : keyBytes) {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 解码失效消息
+     * @param body 消息体
+     * @throws IllegalArgumentException 消息类型未知、长度不合法或有多余字节
+     */
+    static Invalidation decodeInvalidation(byte[] body) {
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        try {
+            byte type = buffer.get();
+            if (type != INVALIDATE_KEYS && type != INVALIDATE_ALL) {
+                throw new IllegalArgumentException("未知的失效消息类型: " + type);
+            }
+            String sender = readString(buffer);
+            int count = buffer.getInt();
+            // 每个键至少占4字节长度，据此拒绝伪造的超大数量
+            if (count < 0 || count > buffer.remaining() / 4) {
+                throw new IllegalArgumentException("键数量不合法: " + count);
+            }
+            List<String> keys = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                keys.add(readString(buffer));
+            }
+            if (buffer.hasRemaining()) {
+                throw new IllegalArgumentException("失效消息末尾有多余的 " + buffer.remaining() + " 字节");
+            }
+            return new Invalidation(sender, keys, type == INVALIDATE_ALL);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("失效消息被截断", e);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("字符串长度不合法: " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 解码后的失效消息
+     * @param sender 发布消息的节点标识
+     * @param keys 要失效的键
+     * @param all 是否清空全部
+     */
+    record Invalidation(String sender, List<String> keys, boolean all) {
+    }
+
+    /**
+     * 获取缓存统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        stats.put("enabled", enabled);
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        stats.put("size", size);
+        stats.put("maxSize", maxSize);
+        stats.put("ttlSeconds", ttlMillis / 1000);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", total == 0 ? 0.0 : (double) hitCount / total);
+        stats.put("invalidations", invalidations.sum());
+        stats.put("remoteInvalidations", remoteInvalidations.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        return stats;
+    }
+
+    private Entry getEntry(String key) {
+        Segment segment = segment(key);
+        synchronized (segment) {
+            Entry entry = segment.get(key);
+            if (entry != null && entry.isExpired(System.currentTimeMillis())) {
+                segment.remove(key);
+                expirations.increment();
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    private static int spread(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int stripe(String key) {
+        return spread(key) & (VERSION_STRIPES - 1);
+    }
+
+    private Segment segment(String key) {
+        // 段用哈希的高位选择，和条带用的低位错开
+        return segments[(spread(key) >>> 16) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * 发布失效消息
+     * @param keys 要失效的键，null表示清空全部
+     */
+    private void publish(Collection<String> keys) {
+        byte[] channelBytes = channel.getBytes(StandardCharsets.UTF_8);
+        byte[] body = encodeInvalidation(nodeId, keys);
+        try {
+            redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(channelBytes, body));
+        } catch (Exception e) {
+            // 通知失败时其他节点依赖条目存活时间兜底
+            log.warn("发布近端缓存失效消息失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 一个段，访问顺序的 LinkedHashMap 实现段内 LRU，调用方持有段锁
+     */
+    private final class Segment extends LinkedHashMap<String, Entry> {
+        private final int capacity;
+
+        private Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final Map<String, Object> fields;
+        private final long expireAt;
+
+        private Entry(Object value, Map<String, Object> fields, long expireAt) {
+            this.value = value;
+            this.fields = fields;
+            this.expireAt = expireAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expireAt;
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package com.example.redisdemo.service;
 
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.UUID;
 
@@ -14,15 +18,65 @@ import java.util.UUID;
  * 提供分布式环境下的互斥访问控制
  */
 @Component
-public class RedisLock {
+public class RedisLock implements InitializingBean {
 
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
+    @Autowired
+    private RedisScriptRegistry scriptRegistry;
+
     private static final long DEFAULT_EXPIRE_TIME = 30;
     private static final long DEFAULT_RETRY_INTERVAL = 100;
     private static final int DEFAULT_MAX_RETRY = 3;
 
+    /**
+     * 释放锁：先检查锁标识是否匹配，再删除锁
+     */
+    private static final String UNLOCK_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end";
+
+    /**
+     * 续期：先检查锁标识是否匹配，再延长过期时间
+     */
+    private static final String RENEW_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end";
+
+    /**
+     * 批量加锁：所有键都未被锁定时才全部加锁，否则一个都不加
+     */
+    private static final String LOCK_ALL_SCRIPT =
+            "for i = 1, #KEYS do " +
+            "if redis.call('exists', KEYS[i]) == 1 then return 0 end " +
+            "end " +
+            "for i = 1, #KEYS do " +
+            "redis.call('set', KEYS[i], ARGV[1], 'PX', ARGV[2]) " +
+            "end " +
+            "return 1";
+
+    /**
+     * 批量释放锁：只删除锁标识匹配的键，返回删除数量
+     */
+    private static final String UNLOCK_ALL_SCRIPT =
+            "local count = 0 " +
+            "for i = 1, #KEYS do " +
+            "if redis.call('get', KEYS[i]) == ARGV[1] then count = count + redis.call('del', KEYS[i]) end " +
+            "end " +
+            "return count";
+
+    private RedisScriptRegistry.Script<Long> unlockScript;
+    private RedisScriptRegistry.Script<Long> renewScript;
+    private RedisScriptRegistry.Script<Long> lockAllScript;
+    private RedisScriptRegistry.Script<Long> unlockAllScript;
+
+    @Override
+    public void afterPropertiesSet() {
+        unlockScript = scriptRegistry.register("lock:unlock", UNLOCK_SCRIPT, Long.class);
+        renewScript = scriptRegistry.register("lock:renew", RENEW_SCRIPT, Long.class);
+        lockAllScript = scriptRegistry.register("lock:lock-all", LOCK_ALL_SCRIPT, Long.class);
+        unlockAllScript = scriptRegistry.register("lock:unlock-all", UNLOCK_ALL_SCRIPT, Long.class);
+    }
+
     /**
      * 加锁
      * @param key 锁的键
@@ -102,11 +156,8 @@ public class RedisLock {
         
         String lockKey = "lock:" + key;
         
-        // Lua脚本，先检查锁标识是否匹配，再删除锁
-        String script = "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end";
-        DefaultRedisScript<Long> redisScript = new DefaultRedisScript<>(script, Long.class);
-        
-        Long result = redisTemplate.execute(redisScript, Collections.singletonList(lockKey), lockId);
+        // 使用预加载的Lua脚本，锁标识按值序列化器编码，与加锁时写入的值一致
+        Long result = scriptRegistry.execute(unlockScript, Collections.singletonList(lockKey), serializeLockId(lockId));
         
         return result != null && result > 0;
     }
@@ -125,16 +176,44 @@ public class RedisLock {
         
         String lockKey = "lock:" + key;
         
-        // Lua脚本，先检查锁标识是否匹配，再延长过期时间
-        String script = "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end";
-        DefaultRedisScript<Long> redisScript = new DefaultRedisScript<>(script, Long.class);
-        
-        Long result = redisTemplate.execute(redisScript, Collections.singletonList(lockKey), 
-                lockId, TimeUnit.SECONDS.toMillis(expireTime));
+        // 使用预加载的Lua脚本，先检查锁标识是否匹配，再延长过期时间
+        Long result = scriptRegistry.execute(renewScript, Collections.singletonList(lockKey),
+                serializeLockId(lockId), TimeUnit.SECONDS.toMillis(expireTime));
         
         return result != null && result > 0;
     }
 
+    /**
+     * 批量加锁，所有键一次网络往返，要么全部加锁成功，要么全部失败
+     * 集群模式下所有键需要位于同一个哈希槽，例如使用 {tag} 形式的键
+     * @param keys 锁的键集合
+     * @param expireTime 过期时间（秒）
+     * @return 锁标识，如果任意一个键已被锁定返回null
+     */
+    public String lockAll(Collection<String> keys, long expireTime) {
+        if (keys.isEmpty()) {
+            return null;
+        }
+        String lockId = UUID.randomUUID().toString();
+        Long result = scriptRegistry.execute(lockAllScript, toLockKeys(keys),
+                serializeLockId(lockId), TimeUnit.SECONDS.toMillis(expireTime));
+        return result != null && result > 0 ? lockId : null;
+    }
+
+    /**
+     * 批量释放通过 {@link #lockAll} 获取的锁
+     * @param keys 锁的键集合
+     * @param lockId 锁标识
+     * @return 释放成功的数量
+     */
+    public long unlockAll(Collection<String> keys, String lockId) {
+        if (lockId == null || keys.isEmpty()) {
+            return 0;
+        }
+        Long result = scriptRegistry.execute(unlockAllScript, toLockKeys(keys), serializeLockId(lockId));
+        return result != null ? result : 0;
+    }
+
     /**
      * 检查锁是否存在
      * @param key 锁的键
@@ -144,4 +223,20 @@ public class RedisLock {
         String lockKey = "lock:" + key;
         return redisTemplate.hasKey(lockKey);
     }
+
+    private List<String> toLockKeys(Collection<String> keys) {
+        List<String> lockKeys = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            lockKeys.add("lock:" + key);
+        }
+        return lockKeys;
+    }
+
+    /**
+     * 锁标识通过 RedisTemplate 写入，比较时需要按相同的值序列化方式编码
+     */
+    @SuppressWarnings("unchecked")
+    private byte[] serializeLockId(String lockId) {
+        return ((RedisSerializer<Object>) redisTemplate.getValueSerializer()).serialize(lockId);
+    }
 }
\ No newline at end of file
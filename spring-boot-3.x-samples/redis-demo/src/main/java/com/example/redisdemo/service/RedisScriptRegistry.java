@@ -0,0 +1,165 @@
+package com.example.redisdemo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lua脚本注册中心
+ * <p>
+ * 脚本在各组件初始化时注册，应用启动完成后统一通过 SCRIPT LOAD 预加载到 Redis，
+ * 执行时使用 EVALSHA 只发送脚本摘要；Redis 重启或执行过 SCRIPT FLUSH 导致返回 NOSCRIPT 时，
+ * 改用 EVAL 执行并重新加载。
+ */
+@Slf4j
+@Component
+public class RedisScriptRegistry implements SmartInitializingSingleton {
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final Map<String, Script<?>> scripts = new ConcurrentHashMap<>();
+
+    public RedisScriptRegistry(RedisTemplate<String, Object> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * 注册脚本，脚本摘要只在注册时计算一次
+     * @param name 脚本名称
+     * @param scriptText 脚本内容
+     * @param resultType 返回值类型，支持 Long、Boolean、String、byte[]、List
+     * @return 脚本句柄
+     */
+    public <T> Script<T> register(String name, String scriptText, Class<T> resultType) {
+        Script<T> script = new Script<>(name, scriptText, resultType);
+        Script<?> existing = scripts.putIfAbsent(name, script);
+        if (existing != null && !existing.sha1.equals(script.sha1)) {
+            throw new IllegalStateException("Lua script already registered with different content: " + name);
+        }
+        return script;
+    }
+
+    /**
+     * 启动时预加载所有已注册的脚本
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            loadAll();
+        } catch (Exception e) {
+            // Redis 暂不可用时不阻止启动，首次执行时会通过 EVAL 回退加载
+            log.warn("预加载Lua脚本失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 通过 SCRIPT LOAD 加载所有已注册的脚本
+     */
+    public void loadAll() {
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            for (Script<?> script : scripts.values()) {
+                String sha1 = connection.scriptingCommands().scriptLoad(script.bytes);
+                if (!script.sha1.equals(sha1)) {
+                    log.warn("Lua脚本摘要不一致: name = {}, local = {}, redis = {}", script.name, script.sha1, sha1);
+                }
+            }
+            return null;
+        });
+        log.info("已预加载 {} 个Lua脚本", scripts.size());
+    }
+
+    /**
+     * 执行脚本
+     * @param script 脚本句柄
+     * @param keys 键列表
+     * @param args 参数，String 按 UTF-8 编码，byte[] 原样传递，其他类型使用 toString()
+     * @return 脚本返回值
+     */
+    public <T> T execute(Script<T> script, List<String> keys, Object... args) {
+        byte[][] keysAndArgs = new byte[keys.size() + args.length][];
+        int i = 0;
+        for (String key : keys) {
+            keysAndArgs[i++] = key.getBytes(StandardCharsets.UTF_8);
+        }
+        for (Object arg : args) {
+            keysAndArgs[i++] = toBytes(arg);
+        }
+        Object result = redisTemplate.execute((RedisCallback<Object>) connection ->
+                evalSha(connection, script, keys.size(), keysAndArgs));
+        return script.convert(result);
+    }
+
+    private Object evalSha(RedisConnection connection, Script<?> script, int numKeys, byte[][] keysAndArgs) {
+        try {
+            return connection.scriptingCommands().evalSha(script.sha1, script.returnType, numKeys, keysAndArgs);
+        } catch (Exception e) {
+            if (!isNoScriptError(e)) {
+                throw e;
+            }
+            log.debug("Lua脚本未加载，使用EVAL执行: {}", script.name);
+            // EVAL 执行后脚本会被 Redis 缓存，后续 EVALSHA 可以直接命中
+            return connection.scriptingCommands().eval(script.bytes, script.returnType, numKeys, keysAndArgs);
+        }
+    }
+
+    private static boolean isNoScriptError(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t.getMessage() != null && t.getMessage().contains("NOSCRIPT")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] toBytes(Object arg) {
+        if (arg instanceof byte[] bytes) {
+            return bytes;
+        }
+        return String.valueOf(arg).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 已注册的脚本
+     */
+    public static final class Script<T> {
+        private final String name;
+        private final byte[] bytes;
+        private final String sha1;
+        private final Class<T> resultType;
+        private final ReturnType returnType;
+
+        private Script(String name, String scriptText, Class<T> resultType) {
+            this.name = name;
+            this.bytes = scriptText.getBytes(StandardCharsets.UTF_8);
+            this.sha1 = new DefaultRedisScript<>(scriptText, resultType).getSha1();
+            this.resultType = resultType;
+            this.returnType = ReturnType.fromJavaType(resultType);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getSha1() {
+            return sha1;
+        }
+
+        @SuppressWarnings("unchecked")
+        private T convert(Object result) {
+            if (result instanceof byte[] bytes && resultType == String.class) {
+                return (T) new String(bytes, StandardCharsets.UTF_8);
+            }
+            return (T) result;
+        }
+    }
+}
@@ -1,17 +1,44 @@
 package com.example.redisdemo.service;
 
+import com.example.redisdemo.expiration.ExpirationDispatcher;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class RedisService {
 
+    /**
+     * 批量操作默认的分片大小，每个分片只产生一次网络往返
+     */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private NearCache nearCache;
+
+    @Autowired
+    private ExpirationDispatcher expirationDispatcher;
+
+    /**
+     * SCAN 命令的 COUNT 提示值，每次迭代大约返回的键数量
+     */
+    @Value("${redis.scan.count:1000}")
+    private long scanCount;
     
     /**
      * 测试Redis连接状态
@@ -29,26 +56,53 @@ public class RedisService {
      */
     public void set(String key, Object value) {
         redisTemplate.opsForValue().set(key, value);
+        nearCache.invalidate(key);
     }
 
     /**
      * 设置字符串值并指定过期时间
+     * 需要登记过期时间的键，SET 与登记的 ZADD 在同一个管道中发送
      * @param key 键
      * @param value 值
      * @param timeout 过期时间
      * @param unit 时间单位
      */
     public void set(String key, Object value, long timeout, TimeUnit unit) {
-        redisTemplate.opsForValue().set(key, value, timeout, unit);
-    }
-
-    /**
-     * 获取字符串值
+        if (!expirationDispatcher.isTracked(key)) {
+            redisTemplate.opsForValue().set(key, value, timeout, unit);
+        } else {
+            Map<String, Long> expireAt = Collections.singletonMap(key, System.currentTimeMillis() + unit.toMillis(timeout));
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    ops.opsForValue().set(key, value, timeout, unit);
+                    trackInPipeline(ops, expireAt);
+                    return null;
+                }
+            });
+        }
+        nearCache.invalidate(key);
+    }
+
+    /**
+     * 获取字符串值，优先读取近端缓存
      * @param key 键
      * @return 值
      */
     public Object get(String key) {
-        return redisTemplate.opsForValue().get(key);
+        if (!nearCache.isEnabled()) {
+            return redisTemplate.opsForValue().get(key);
+        }
+        Object value = nearCache.get(key);
+        if (value != null) {
+            return value;
+        }
+        long version = nearCache.version(key);
+        value = redisTemplate.opsForValue().get(key);
+        nearCache.put(key, value, version);
+        return value;
     }
 
     /**
@@ -57,7 +111,10 @@ public class RedisService {
      * @return 是否删除成功
      */
     public boolean delete(String key) {
-        return redisTemplate.delete(key);
+        boolean deleted = redisTemplate.delete(key);
+        nearCache.invalidate(key);
+        expirationDispatcher.untrack(Collections.singletonList(key));
+        return deleted;
     }
 
     /**
@@ -66,7 +123,10 @@ public class RedisService {
      * @return 删除成功的数量
      */
     public long delete(Collection<String> keys) {
-        return redisTemplate.delete(keys);
+        long count = redisTemplate.delete(keys);
+        nearCache.invalidate(keys);
+        expirationDispatcher.untrack(keys);
+        return count;
     }
 
     /**
@@ -77,7 +137,7 @@ public class RedisService {
      * @return 是否设置成功
      */
     public boolean expire(String key, long timeout, TimeUnit unit) {
-        return redisTemplate.expire(key, timeout, unit);
+        return expirationDispatcher.expireAndTrack(key, unit.toMillis(timeout));
     }
 
     /**
@@ -109,6 +169,7 @@ public class RedisService {
      */
     public void hSet(String key, String field, Object value) {
         redisTemplate.opsForHash().put(key, field, value);
+        nearCache.invalidate(key);
     }
 
     /**
@@ -118,16 +179,27 @@ public class RedisService {
      */
     public void hPutAll(String key, Map<String, Object> map) {
         redisTemplate.opsForHash().putAll(key, map);
+        nearCache.invalidate(key);
     }
 
     /**
-     * 获取哈希字段值
+     * 获取哈希字段值，优先读取近端缓存
      * @param key 键
      * @param field 字段
      * @return 值
      */
     public Object hGet(String key, String field) {
-        return redisTemplate.opsForHash().get(key, field);
+        if (!nearCache.isEnabled()) {
+            return redisTemplate.opsForHash().get(key, field);
+        }
+        Object value = nearCache.getHashField(key, field);
+        if (value != null) {
+            return value;
+        }
+        long version = nearCache.version(key);
+        value = redisTemplate.opsForHash().get(key, field);
+        nearCache.putHashField(key, field, value, version);
+        return value;
     }
 
     /**
@@ -146,7 +218,9 @@ public class RedisService {
      * @return 删除成功的数量
      */
     public long hDelete(String key, Object... fields) {
-        return redisTemplate.opsForHash().delete(key, fields);
+        long count = redisTemplate.opsForHash().delete(key, fields);
+        nearCache.invalidate(key);
+        return count;
     }
 
     /**
@@ -333,6 +407,183 @@ public class RedisService {
         return redisTemplate.opsForZSet().size(key);
     }
 
+    // ============================ 批量(Batch)操作 ============================
+
+    /**
+     * 批量获取字符串值（MGET），按分片执行，每个分片一次网络往返
+     * @param keys 键集合
+     * @return 值列表，顺序与键一致，不存在的键对应 null
+     */
+    public List<Object> mGet(Collection<String> keys) {
+        List<Object> values = new ArrayList<>(keys.size());
+        for (List<String> chunk : partition(keys, DEFAULT_BATCH_SIZE)) {
+            List<Object> chunkValues = redisTemplate.opsForValue().multiGet(chunk);
+            if (chunkValues != null) {
+                values.addAll(chunkValues);
+            } else {
+                values.addAll(Collections.nCopies(chunk.size(), null));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 批量设置字符串值（MSET），按分片执行
+     * @param map 键和值的映射
+     */
+    public void mSet(Map<String, Object> map) {
+        for (List<String> chunk : partition(map.keySet(), DEFAULT_BATCH_SIZE)) {
+            Map<String, Object> chunkMap = new LinkedHashMap<>(chunk.size() * 2);
+            for (String key : chunk) {
+                chunkMap.put(key, map.get(key));
+            }
+            redisTemplate.opsForValue().multiSet(chunkMap);
+            nearCache.invalidate(chunk);
+        }
+    }
+
+    /**
+     * 批量设置字符串值并统一指定过期时间
+     * MSET 不支持过期时间，因此使用管道发送 SET EX，每个分片一次网络往返
+     * @param map 键和值的映射
+     * @param timeout 过期时间
+     * @param unit 时间单位
+     */
+    public void mSet(Map<String, Object> map, long timeout, TimeUnit unit) {
+        Map<String, Long> timeouts = new LinkedHashMap<>(map.size() * 2);
+        long millis = unit.toMillis(timeout);
+        for (String key : map.keySet()) {
+            timeouts.put(key, millis);
+        }
+        mSetWithTtl(map, timeouts);
+    }
+
+    /**
+     * 批量设置字符串值，每个键可单独指定过期时间（毫秒）
+     * 未指定或小于等于0的键不设置过期时间
+     * @param map 键和值的映射
+     * @param ttlMillis 键和过期时间（毫秒）的映射
+     */
+    public void mSetWithTtl(Map<String, Object> map, Map<String, Long> ttlMillis) {
+        long now = System.currentTimeMillis();
+        for (List<String> chunk : partition(map.keySet(), DEFAULT_BATCH_SIZE)) {
+            Map<String, Long> expireAt = new HashMap<>();
+            for (String key : chunk) {
+                Long ttl = ttlMillis.get(key);
+                if (ttl != null && ttl > 0) {
+                    expireAt.put(key, now + ttl);
+                }
+            }
+            // 过期时间登记与写入在同一个管道中发送
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    for (String key : chunk) {
+                        Long ttl = ttlMillis.get(key);
+                        if (ttl != null && ttl > 0) {
+                            ops.opsForValue().set(key, map.get(key), ttl, TimeUnit.MILLISECONDS);
+                        } else {
+                            ops.opsForValue().set(key, map.get(key));
+                        }
+                    }
+                    trackInPipeline(ops, expireAt);
+                    return null;
+                }
+            });
+            nearCache.invalidate(chunk);
+        }
+    }
+
+    /**
+     * 在当前管道绑定的连接上登记过期时间，不产生单独的网络往返
+     */
+    private void trackInPipeline(RedisOperations<String, Object> ops, Map<String, Long> expireAt) {
+        if (expireAt.isEmpty()) {
+            return;
+        }
+        ops.execute((RedisCallback<Object>) connection -> {
+            expirationDispatcher.track(connection, expireAt);
+            return null;
+        });
+    }
+
+    /**
+     * 批量获取哈希字段值（HMGET）
+     * @param key 键
+     * @param fields 字段集合
+     * @return 值列表，顺序与字段一致，不存在的字段对应 null
+     */
+    public List<Object> hMGet(String key, Collection<String> fields) {
+        return redisTemplate.opsForHash().multiGet(key, new ArrayList<>(fields));
+    }
+
+    /**
+     * 批量添加元素到有序集合（一次 ZADD 携带多个成员）
+     * @param key 键
+     * @param tuples 元素和分数
+     * @return 新增的元素数量
+     */
+    public long zAddAll(String key, Set<ZSetOperations.TypedTuple<Object>> tuples) {
+        if (tuples.isEmpty()) {
+            return 0;
+        }
+        Long count = redisTemplate.opsForZSet().add(key, tuples);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * 批量添加元素到有序集合
+     * @param key 键
+     * @param scoreMap 元素和分数的映射
+     * @return 新增的元素数量
+     */
+    public long zAddAll(String key, Map<?, Double> scoreMap) {
+        Set<ZSetOperations.TypedTuple<Object>> tuples = new HashSet<>(scoreMap.size() * 2);
+        scoreMap.forEach((value, score) -> tuples.add(ZSetOperations.TypedTuple.of(value, score)));
+        return zAddAll(key, tuples);
+    }
+
+    /**
+     * 分片批量删除键，避免一次 DEL 携带过多键阻塞 Redis
+     * @param keys 键集合
+     * @param batchSize 每个分片的键数量
+     * @return 删除成功的数量
+     */
+    public long deleteInBatches(Collection<String> keys, int batchSize) {
+        long count = 0;
+        for (List<String> chunk : partition(keys, batchSize)) {
+            Long deleted = redisTemplate.delete(chunk);
+            count += deleted != null ? deleted : 0;
+            nearCache.invalidate(chunk);
+            expirationDispatcher.untrack(chunk);
+        }
+        return count;
+    }
+
+    /**
+     * 将键集合按固定大小切分
+     */
+    private static List<List<String>> partition(Collection<String> keys, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        List<List<String>> chunks = new ArrayList<>();
+        List<String> current = new ArrayList<>(Math.min(batchSize, keys.size()));
+        for (String key : keys) {
+            current.add(key);
+            if (current.size() == batchSize) {
+                chunks.add(current);
+                current = new ArrayList<>(batchSize);
+            }
+        }
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+        return chunks;
+    }
+
     // ============================ 其他常用操作 ============================
 
     /**
@@ -341,7 +592,9 @@ public class RedisService {
      * @return 递增后的值
      */
     public long increment(String key) {
-        return redisTemplate.opsForValue().increment(key);
+        long value = redisTemplate.opsForValue().increment(key);
+        nearCache.invalidate(key);
+        return value;
     }
 
     /**
@@ -351,7 +604,9 @@ public class RedisService {
      * @return 递增后的值
      */
     public long incrementBy(String key, long delta) {
-        return redisTemplate.opsForValue().increment(key, delta);
+        long value = redisTemplate.opsForValue().increment(key, delta);
+        nearCache.invalidate(key);
+        return value;
     }
 
     /**
@@ -360,7 +615,9 @@ public class RedisService {
      * @return 递减后的值
      */
     public long decrement(String key) {
-        return redisTemplate.opsForValue().decrement(key);
+        long value = redisTemplate.opsForValue().decrement(key);
+        nearCache.invalidate(key);
+        return value;
     }
 
     /**
@@ -370,16 +627,79 @@ public class RedisService {
      * @return 递减后的值
      */
     public long decrementBy(String key, long delta) {
-        return redisTemplate.opsForValue().decrement(key, delta);
+        long value = redisTemplate.opsForValue().decrement(key, delta);
+        nearCache.invalidate(key);
+        return value;
     }
 
     /**
      * 查找匹配的键
+     * 基于 SCAN 游标实现，不会像 KEYS 一样长时间阻塞 Redis
      * @param pattern 匹配模式
      * @return 匹配的键集合
      */
     public Set<String> keys(String pattern) {
-        return redisTemplate.keys(pattern);
+        try (Stream<String> keys = scan(pattern)) {
+            return keys.collect(Collectors.toCollection(LinkedHashSet::new));
+        }
+    }
+
+    /**
+     * 使用 SCAN 游标惰性遍历匹配的键（使用默认 COUNT 提示值）
+     * 返回的流持有 Redis 连接，使用完毕后必须关闭
+     * @param pattern 匹配模式
+     * @return 键的流
+     */
+    public Stream<String> scan(String pattern) {
+        return scan(pattern, scanCount);
+    }
+
+    /**
+     * 使用 SCAN 游标惰性遍历匹配的键
+     * 返回的流持有 Redis 连接，使用完毕后必须关闭
+     * @param pattern 匹配模式
+     * @param count 每次迭代的 COUNT 提示值
+     * @return 键的流
+     */
+    public Stream<String> scan(String pattern, long count) {
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(count).build();
+        Cursor<String> cursor = redisTemplate.scan(options);
+        return cursor.stream();
+    }
+
+    /**
+     * 按模式批量删除键
+     * 通过 SCAN 游标分批获取键，每批使用 UNLINK 异步释放内存
+     * @param pattern 匹配模式
+     * @param batchSize 每批删除的键数量
+     * @return 删除成功的数量
+     */
+    public long unlinkByPattern(String pattern, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        long count = 0;
+        List<String> batch = new ArrayList<>(batchSize);
+        try (Cursor<String> cursor = redisTemplate.scan(ScanOptions.scanOptions().match(pattern).count(scanCount).build())) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() == batchSize) {
+                    count += unlink(batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            count += unlink(batch);
+        }
+        return count;
+    }
+
+    private long unlink(Collection<String> keys) {
+        Long unlinked = redisTemplate.unlink(keys);
+        nearCache.invalidate(keys);
+        expirationDispatcher.untrack(keys);
+        return unlinked != null ? unlinked : 0;
     }
     
     /**
@@ -396,5 +716,6 @@ public class RedisService {
      */
     public void flushDb() {
         redisTemplate.getConnectionFactory().getConnection().flushDb();
+        nearCache.invalidateAll();
     }
 }
\ No newline at end of file
@@ -0,0 +1,324 @@
+package com.example.redisdemo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 可重入的Redis分布式锁
+ * <p>
+ * 与 {@link RedisLock} 相比：
+ * <ul>
+ *     <li>锁保存在哈希中，字段为持有者标识（节点标识 + 线程ID），值为重入次数</li>
+ *     <li>未指定租期时由看门狗定时续期，持有期间锁不会因超时被释放</li>
+ *     <li>等待锁时订阅释放通知，锁释放后立即唤醒本地等待者（公平队列），不再轮询 SET NX</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class ReentrantRedisLock implements MessageListener, InitializingBean, DisposableBean {
+
+    private static final String LOCK_PREFIX = "rlock:";
+    private static final String CHANNEL_PREFIX = "rlock:channel:";
+    private static final String UNLOCK_MESSAGE = "0";
+
+    /**
+     * 加锁：锁不存在或由当前持有者持有时重入次数加1并设置过期时间，返回nil；否则返回锁的剩余毫秒数
+     */
+    static final String ACQUIRE_SCRIPT_TEXT =
+            "if (redis.call('exists', KEYS[1]) == 0) or (redis.call('hexists', KEYS[1], ARGV[2]) == 1) then " +
+            "redis.call('hincrby', KEYS[1], ARGV[2], 1); " +
+            "redis.call('pexpire', KEYS[1], ARGV[1]); " +
+            "return nil; " +
+            "end; " +
+            "return redis.call('pttl', KEYS[1]);";
+
+    /**
+     * 解锁：非持有者返回nil；重入次数减1，仍大于0时返回0，否则删除锁、发布释放通知并返回1
+     * <p>
+     * 部分解锁不修改过期时间：看门狗管理的锁由续期任务刷新，指定了租期的锁保持加锁时设置的租期，
+     * 不能被看门狗超时覆盖
+     */
+    static final String RELEASE_SCRIPT_TEXT =
+            "if (redis.call('hexists', KEYS[1], ARGV[1]) == 0) then " +
+            "return nil; " +
+            "end; " +
+            "local counter = redis.call('hincrby', KEYS[1], ARGV[1], -1); " +
+            "if (counter > 0) then " +
+            "return 0; " +
+            "end; " +
+            "redis.call('del', KEYS[1]); " +
+            "redis.call('publish', KEYS[2], ARGV[2]); " +
+            "return 1;";
+
+    /**
+     * 续期：与 {@link RedisLock#renewLock} 的逻辑一致，先确认持有者再延长过期时间
+     */
+    static final String RENEW_SCRIPT_TEXT =
+            "if (redis.call('hexists', KEYS[1], ARGV[2]) == 1) then " +
+            "return redis.call('pexpire', KEYS[1], ARGV[1]); " +
+            "end; " +
+            "return 0;";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisScriptRegistry scriptRegistry;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final long watchdogTimeoutMillis;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 每个锁在本节点的等待队列，收到释放通知时按先来先到唤醒一个等待者
+     * 最后一个等待者离开时移除，不会随锁键的数量无限增长
+     */
+    private final ConcurrentMap<String, WaitQueue> waiters = new ConcurrentHashMap<>();
+
+    /**
+     * 看门狗续期任务，键为锁键 + 持有者标识
+     */
+    private final ConcurrentMap<String, ScheduledFuture<?>> renewals = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "redis-lock-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 预加载的Lua脚本，参数按字符串原样传递，不受 RedisTemplate 值序列化方式影响
+     */
+    private final RedisScriptRegistry.Script<Long> acquireScript;
+    private final RedisScriptRegistry.Script<Long> releaseScript;
+    private final RedisScriptRegistry.Script<Long> renewScript;
+
+    public ReentrantRedisLock(RedisTemplate<String, Object> redisTemplate,
+                              RedisScriptRegistry scriptRegistry,
+                              RedisMessageListenerContainer listenerContainer,
+                              @Value("${redis.lock.watchdog-timeout-seconds:30}") long watchdogTimeoutSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.scriptRegistry = scriptRegistry;
+        this.acquireScript = scriptRegistry.register("rlock:acquire", ACQUIRE_SCRIPT_TEXT, Long.class);
+        this.releaseScript = scriptRegistry.register("rlock:release", RELEASE_SCRIPT_TEXT, Long.class);
+        this.renewScript = scriptRegistry.register("rlock:renew", RENEW_SCRIPT_TEXT, Long.class);
+        this.listenerContainer = listenerContainer;
+        this.watchdogTimeoutMillis = TimeUnit.SECONDS.toMillis(watchdogTimeoutSeconds);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        // 所有锁共用一个模式订阅，避免每个锁单独订阅
+        listenerContainer.addMessageListener(this, new PatternTopic(CHANNEL_PREFIX + "*"));
+    }
+
+    @Override
+    public void destroy() {
+        watchdog.shutdownNow();
+    }
+
+    /**
+     * 加锁，一直等待直到获取成功，持有期间由看门狗续期
+     * @param key 锁的键
+     * @throws InterruptedException 等待被中断
+     */
+    public void lock(String key) throws InterruptedException {
+        tryLock(key, Long.MAX_VALUE, -1, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 尝试加锁，持有期间由看门狗续期
+     * @param key 锁的键
+     * @param waitTime 最长等待时间
+     * @param unit 时间单位
+     * @return 是否获取成功
+     * @throws InterruptedException 等待被中断
+     */
+    public boolean tryLock(String key, long waitTime, TimeUnit unit) throws InterruptedException {
+        return tryLock(key, waitTime, -1, unit);
+    }
+
+    /**
+     * 尝试加锁
+     * @param key 锁的键
+     * @param waitTime 最长等待时间
+     * @param leaseTime 租期，小于等于0表示由看门狗续期直到解锁
+     * @param unit 时间单位
+     * @return 是否获取成功
+     * @throws InterruptedException 等待被中断
+     */
+    public boolean tryLock(String key, long waitTime, long leaseTime, TimeUnit unit) throws InterruptedException {
+        boolean useWatchdog = leaseTime <= 0;
+        long leaseMillis = useWatchdog ? watchdogTimeoutMillis : unit.toMillis(leaseTime);
+        long deadline = waitTime == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + unit.toNanos(waitTime);
+        String owner = currentOwner();
+
+        Long ttl = tryAcquire(key, owner, leaseMillis);
+        if (ttl == null) {
+            onAcquired(key, owner, useWatchdog);
+            return true;
+        }
+
+        // 先登记为等待者再重试，保证重试失败到开始等待之间到达的释放通知不会丢失
+        WaitQueue queue = waiters.compute(key, (k, existing) -> {
+            WaitQueue q = existing != null ? existing : new WaitQueue();
+            q.waiting.incrementAndGet();
+            return q;
+        });
+        try {
+            while (true) {
+                ttl = tryAcquire(key, owner, leaseMillis);
+                if (ttl == null) {
+                    onAcquired(key, owner, useWatchdog);
+                    return true;
+                }
+                long remainingNanos = deadline == Long.MAX_VALUE ? Long.MAX_VALUE : deadline - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                // 最多等待到锁过期，防止持有者宕机后没有释放通知
+                long ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttl > 0 ? ttl : 1);
+                queue.semaphore.tryAcquire(Math.min(remainingNanos, ttlNanos), TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            leave(key);
+        }
+    }
+
+    /**
+     * 解锁，重入次数减为0时才真正释放
+     * @param key 锁的键
+     * @return 是否成功减少重入次数，当前线程未持有锁时返回false
+     */
+    public boolean unlock(String key) {
+        String owner = currentOwner();
+        String lockKey = LOCK_PREFIX + key;
+        Long result = scriptRegistry.execute(releaseScript, Arrays.asList(lockKey, CHANNEL_PREFIX + key),
+                owner, UNLOCK_MESSAGE);
+        if (result == null) {
+            return false;
+        }
+        if (result == 1) {
+            cancelRenewal(lockKey, owner);
+        }
+        return true;
+    }
+
+    /**
+     * 获取当前线程对锁的重入次数
+     * @param key 锁的键
+     * @return 重入次数，未持有返回0
+     */
+    public int getHoldCount(String key) {
+        byte[] lockKey = (LOCK_PREFIX + key).getBytes(StandardCharsets.UTF_8);
+        byte[] field = currentOwner().getBytes(StandardCharsets.UTF_8);
+        byte[] value = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.hashCommands().hGet(lockKey, field));
+        return value == null ? 0 : Integer.parseInt(new String(value, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 当前线程是否持有锁
+     * @param key 锁的键
+     * @return 是否持有
+     */
+    public boolean isHeldByCurrentThread(String key) {
+        return getHoldCount(key) > 0;
+    }
+
+    /**
+     * 锁是否被任何持有者持有
+     * @param key 锁的键
+     * @return 锁是否存在
+     */
+    public boolean isLocked(String key) {
+        return Boolean.TRUE.equals(redisTemplate.hasKey(LOCK_PREFIX + key));
+    }
+
+    /**
+     * 处理锁释放通知，唤醒本地一个等待者
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        WaitQueue queue = waiters.get(channel.substring(CHANNEL_PREFIX.length()));
+        if (queue != null && queue.waiting.get() > 0) {
+            queue.semaphore.release();
+        }
+    }
+
+    /**
+     * 等待者离开队列，和登记一样在 compute 中完成，不会移除刚有人登记的队列
+     */
+    private void leave(String key) {
+        waiters.computeIfPresent(key, (k, queue) -> {
+            int remaining = queue.waiting.decrementAndGet();
+            if (remaining == 0) {
+                return null;
+            }
+            // 超时离开的等待者可能留下了发给它的许可，只保留不超过剩余等待者数量的许可，避免后来的等待者被无效唤醒
+            int excess = queue.semaphore.availablePermits() - remaining;
+            if (excess > 0) {
+                queue.semaphore.tryAcquire(excess);
+            }
+            return queue;
+        });
+    }
+
+    private Long tryAcquire(String key, String owner, long leaseMillis) {
+        List<String> keys = List.of(LOCK_PREFIX + key);
+        return scriptRegistry.execute(acquireScript, keys, leaseMillis, owner);
+    }
+
+    private void onAcquired(String key, String owner, boolean useWatchdog) {
+        if (useWatchdog) {
+            scheduleRenewal(LOCK_PREFIX + key, owner);
+        }
+    }
+
+    private void scheduleRenewal(String lockKey, String owner) {
+        long period = watchdogTimeoutMillis / 3;
+        // 重入时续期任务已存在，无需重复调度
+        renewals.computeIfAbsent(lockKey + ":" + owner, k -> watchdog.scheduleAtFixedRate(() -> {
+            try {
+                Long renewed = scriptRegistry.execute(renewScript, List.of(lockKey), watchdogTimeoutMillis, owner);
+                if (renewed == null || renewed == 0) {
+                    cancelRenewal(lockKey, owner);
+                }
+            } catch (Exception e) {
+                log.warn("锁续期失败: key = {}, error = {}", lockKey, e.getMessage());
+            }
+        }, period, period, TimeUnit.MILLISECONDS));
+    }
+
+    private void cancelRenewal(String lockKey, String owner) {
+        ScheduledFuture<?> future = renewals.remove(lockKey + ":" + owner);
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    private String currentOwner() {
+        return nodeId + ":" + Thread.currentThread().getId();
+    }
+
+    /**
+     * 单个锁在本节点的等待队列
+     */
+    private static final class WaitQueue {
+        private final Semaphore semaphore = new Semaphore(0, true);
+        private final AtomicInteger waiting = new AtomicInteger();
+    }
+}
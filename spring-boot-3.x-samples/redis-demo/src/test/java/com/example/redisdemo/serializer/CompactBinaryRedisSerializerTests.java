@@ -0,0 +1,89 @@
+package com.example.redisdemo.serializer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 紧凑二进制值序列化器测试
+ */
+class CompactBinaryRedisSerializerTests {
+
+    private final CompactBinaryRedisSerializer serializer = new CompactBinaryRedisSerializer(1024, List.of());
+
+    @Test
+    void topLevelIntegersAreWrittenAsDecimalDigits() {
+        // 与 JSON 模式一致，INCR/DECR 可以在这些键上继续计数
+        assertArrayEquals("42".getBytes(StandardCharsets.US_ASCII), serializer.serialize(42));
+        assertArrayEquals("-7".getBytes(StandardCharsets.US_ASCII), serializer.serialize(-7L));
+        assertArrayEquals(String.valueOf(Long.MAX_VALUE).getBytes(StandardCharsets.US_ASCII),
+                serializer.serialize(Long.MAX_VALUE));
+    }
+
+    @Test
+    void decimalDigitsAreReadBack() {
+        assertEquals(42, serializer.deserialize(serializer.serialize(42)));
+        assertEquals(-7, serializer.deserialize(serializer.serialize(-7L)));
+        assertEquals(Long.MAX_VALUE, serializer.deserialize(serializer.serialize(Long.MAX_VALUE)));
+        // INCR 写入的值
+        assertEquals(43, serializer.deserialize("43".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    void nestedNumbersKeepTheirTypes() {
+        List<Object> list = List.of(1, -2L, "三", Map.of("count", Long.MIN_VALUE));
+
+        byte[] bytes = serializer.serialize(list);
+
+        assertEquals(0xB1, bytes[0] & 0xFF);
+        assertEquals(list, serializer.deserialize(bytes));
+    }
+
+    @Test
+    void compressedValueRoundTrips() {
+        String value = "重复的内容".repeat(500);
+
+        byte[] bytes = serializer.serialize(value);
+
+        assertEquals(1, bytes[1]);
+        assertEquals(value, serializer.deserialize(bytes));
+    }
+
+    @Test
+    void oversizedOriginalLengthIsRejectedBeforeAllocating() {
+        // 声明解压后 2GB，实际只有几个字节的压缩数据
+        BinaryWriter writer = new BinaryWriter(16);
+        writer.writeByte(0xB1);
+        writer.writeByte(1);
+        writer.writeVarLong(Integer.MAX_VALUE);
+        writer.writeBytes(new byte[]{0x78, 0x01, 0x03, 0x00}, 0, 4);
+
+        SerializationException e = assertThrows(SerializationException.class,
+                () -> serializer.deserialize(writer.toByteArray()));
+        assertTrue(e.getMessage().contains("length"));
+    }
+
+    @Test
+    void negativeOriginalLengthIsRejected() {
+        BinaryWriter writer = new BinaryWriter(16);
+        writer.writeByte(0xB1);
+        writer.writeByte(1);
+        writer.writeVarLong(-1L);
+
+        assertThrows(SerializationException.class, () -> serializer.deserialize(writer.toByteArray()));
+    }
+
+    @Test
+    void truncatedCompressedValueIsRejected() {
+        byte[] bytes = serializer.serialize("重复的内容".repeat(500));
+
+        assertThrows(SerializationException.class,
+                () -> serializer.deserialize(Arrays.copyOf(bytes, bytes.length - 4)));
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.redisdemo.serializer;
+
+import com.example.redisdemo.model.Order;
+import com.example.redisdemo.model.User;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比 RedisConfig 中两种值序列化器（json / binary）处理 redis-demo 模型的耗时
+ * 每个值序列化后的字节数在每组参数开始时输出
+ * <p>
+ * RedisConfig 中的 GenericJackson2JsonRedisSerializer 没有注册 JavaTimeModule，无法序列化模型中的 LocalDateTime 字段，
+ * 这里的 json 方式注册了 JavaTimeModule，其余配置相同
+ * <p>
+ * 运行：执行 main 方法，或 mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.redisdemo.serializer.ValueSerializerBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValueSerializerBenchmark {
+
+    @Param({"json", "binary"})
+    private String serializerType;
+
+    @Param({"user", "order", "userList"})
+    private String model;
+
+    private RedisSerializer<Object> serializer;
+    private Object value;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        if ("binary".equals(serializerType)) {
+            serializer = new CompactBinaryRedisSerializer(1024, List.of(new UserBinarySchema(), new OrderBinarySchema()));
+        } else {
+            GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+            json.configure(mapper -> mapper.registerModule(new JavaTimeModule()));
+            serializer = json;
+        }
+        value = switch (model) {
+            case "user" -> user(1);
+            case "order" -> order(1);
+            default -> userList(200);
+        };
+        bytes = serializer.serialize(value);
+        System.out.println("[" + serializerType + "/" + model + "] bytes per value: " + bytes.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(value);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serializer.deserialize(bytes);
+    }
+
+    private static User user(long id) {
+        LocalDateTime now = LocalDateTime.of(2024, 1, 1, 12, 0);
+        return new User(id, "user" + id, "user" + id + "@example.com", "1380000" + String.format("%04d", id % 10000),
+                20 + (int) (id % 40), "北京市朝阳区某某街道" + id + "号", now, now);
+    }
+
+    private static Order order(long id) {
+        LocalDateTime now = LocalDateTime.of(2024, 1, 1, 12, 0);
+        return new Order(id, id * 10, "ORD" + String.format("%010d", id), new BigDecimal("199.90"), "PAID", "ALIPAY",
+                now, now);
+    }
+
+    private static List<User> userList(int size) {
+        List<User> users = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            users.add(user(i));
+        }
+        return users;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ValueSerializerBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
\ No newline at end of file
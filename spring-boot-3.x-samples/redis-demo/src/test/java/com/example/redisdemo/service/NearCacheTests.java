@@ -0,0 +1,89 @@
+package com.example.redisdemo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 近端缓存失效消息编解码测试
+ */
+class NearCacheTests {
+
+    private final NearCache nearCache = new NearCache(100, 60);
+
+    @Test
+    void invalidationRoundTripPreservesKeys() {
+        List<String> keys = List.of("user:1", "line\nbreak", "", "用户:张三", "a\nb\n");
+
+        NearCache.Invalidation decoded = NearCache.decodeInvalidation(NearCache.encodeInvalidation("node-1", keys));
+
+        assertEquals("node-1", decoded.sender());
+        assertEquals(keys, decoded.keys());
+        assertFalse(decoded.all());
+    }
+
+    @Test
+    void clearAllRoundTrip() {
+        NearCache.Invalidation decoded = NearCache.decodeInvalidation(NearCache.encodeInvalidation("node-1", null));
+
+        assertTrue(decoded.all());
+        assertTrue(decoded.keys().isEmpty());
+    }
+
+    @Test
+    void remoteInvalidationRemovesOnlyTheNamedKeys() {
+        nearCache.put("a\nb", "v1", nearCache.version("a\nb"));
+        nearCache.put("a", "v2", nearCache.version("a"));
+        nearCache.put("b", "v3", nearCache.version("b"));
+
+        nearCache.onInvalidationMessage(NearCache.encodeInvalidation("other-node", List.of("a\nb")));
+
+        assertNull(nearCache.get("a\nb"));
+        assertEquals("v2", nearCache.get("a"));
+        assertEquals("v3", nearCache.get("b"));
+    }
+
+    @Test
+    void emptyKeyDoesNotClearWholeCache() {
+        nearCache.put("a", "v1", nearCache.version("a"));
+
+        nearCache.onInvalidationMessage(NearCache.encodeInvalidation("other-node", List.of("")));
+
+        assertEquals("v1", nearCache.get("a"));
+    }
+
+    @Test
+    void remoteClearAllEmptiesCache() {
+        nearCache.put("a", "v1", nearCache.version("a"));
+
+        nearCache.onInvalidationMessage(NearCache.encodeInvalidation("other-node", null));
+
+        assertNull(nearCache.get("a"));
+    }
+
+    @Test
+    void truncatedOrUnknownMessageIsRejected() {
+        byte[] body = NearCache.encodeInvalidation("node-1", List.of("user:1"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> NearCache.decodeInvalidation(Arrays.copyOf(body, body.length - 1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> NearCache.decodeInvalidation(Arrays.copyOf(body, body.length + 1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> NearCache.decodeInvalidation("node-1\nuser:1".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(IllegalArgumentException.class, () -> NearCache.decodeInvalidation(new byte[0]));
+    }
+
+    @Test
+    void unreadableMessageClearsLocalCache() {
+        nearCache.put("a", "v1", nearCache.version("a"));
+
+        nearCache.onInvalidationMessage("node-1\na".getBytes(StandardCharsets.UTF_8));
+
+        assertNull(nearCache.get("a"));
+    }
+}
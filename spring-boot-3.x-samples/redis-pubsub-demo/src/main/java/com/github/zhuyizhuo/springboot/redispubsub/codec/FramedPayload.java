@@ -0,0 +1,91 @@
+package com.github.zhuyizhuo.springboot.redispubsub.codec;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量消息的帧格式，把多条已经序列化的消息打包成一次PUBLISH的消息体：
+ * <pre>
+ * [魔数 4字节][消息条数 4字节][第1条长度 4字节][第1条内容]...[第n条长度 4字节][第n条内容]
+ * </pre>
+ * 魔数以0x00开头，JSON和普通文本不会以0x00开头，所以监听器可以区分批量消息和单条消息
+ */
+public final class FramedPayload {
+
+    private static final byte[] MAGIC = {0x00, 'F', 'R', 0x01};
+    private static final int HEADER_BYTES = MAGIC.length + 4;
+
+    private FramedPayload() {
+    }
+
+    /**
+     * 打包后的字节数
+     */
+    public static int encodedSize(int frames, int frameBytes) {
+        return HEADER_BYTES + frames * 4 + frameBytes;
+    }
+
+    /**
+     * 把多条消息打包成一个消息体
+     */
+    public static byte[] encode(List<byte[]> frames) {
+        int frameBytes = 0;
+        for (byte[] frame : frames) {
+            frameBytes += frame.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(encodedSize(frames.size(), frameBytes));
+        buffer.put(MAGIC).putInt(frames.size());
+        for (byte[] frame : frames) {
+            buffer.putInt(frame.length).put(frame);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 是否为批量消息
+     */
+    public static boolean isFramed(byte[] body) {
+        if (body == null || body.length < HEADER_BYTES) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (body[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 拆出批量消息中的每条消息
+     * @throws IllegalArgumentException 不是批量消息、消息体不完整或末尾有多余字节
+     */
+    public static List<byte[]> decode(byte[] body) {
+        if (!isFramed(body)) {
+            throw new IllegalArgumentException("不是批量消息");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(body, MAGIC.length, body.length - MAGIC.length);
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / 4) {
+            throw new IllegalArgumentException("批量消息条数错误: " + count);
+        }
+        List<byte[]> frames = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (buffer.remaining() < 4) {
+                throw new IllegalArgumentException("批量消息不完整，第" + (i + 1) + "条缺少长度");
+            }
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new IllegalArgumentException("批量消息不完整，第" + (i + 1) + "条长度为" + length);
+            }
+            byte[] frame = new byte[length];
+            buffer.get(frame);
+            frames.add(frame);
+        }
+        if (buffer.hasRemaining()) {
+            throw new IllegalArgumentException("批量消息末尾有多余的" + buffer.remaining() + "字节");
+        }
+        return frames;
+    }
+}
\ No newline at end of file
@@ -1,20 +1,30 @@
 package com.github.zhuyizhuo.springboot.redispubsub.config;
 
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
-import org.springframework.data.redis.listener.adapter.MessageListenerAdapter;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import com.github.zhuyizhuo.springboot.redispubsub.listener.FramedMessageListener;
 import com.github.zhuyizhuo.springboot.redispubsub.listener.MessageListener;
 
 @Configuration
 public class RedisConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(RedisConfig.class);
+
     // Redis消息的主题名称
     public static final String TOPIC_NAME = "demo-topic";
     public static final String USER_TOPIC_NAME = "user-topic";
@@ -49,32 +59,76 @@ public class RedisConfig {
     @Bean
     public RedisMessageListenerContainer redisMessageListenerContainer(
             RedisConnectionFactory connectionFactory,
-            MessageListenerAdapter messageListenerAdapter,
-            MessageListenerAdapter userMessageListenerAdapter) {
+            ThreadPoolTaskExecutor redisListenerExecutor,
+            FramedMessageListener messageFrameListener,
+            FramedMessageListener userMessageFrameListener) {
         RedisMessageListenerContainer container = new RedisMessageListenerContainer();
         container.setConnectionFactory(connectionFactory);
+        // 默认每条消息新建一个线程处理，改为有界线程池
+        container.setTaskExecutor(redisListenerExecutor);
         
         // 注册消息监听器，监听指定的主题
-        container.addMessageListener(messageListenerAdapter, new ChannelTopic(TOPIC_NAME));
-        container.addMessageListener(userMessageListenerAdapter, new ChannelTopic(USER_TOPIC_NAME));
+        container.addMessageListener(messageFrameListener, new ChannelTopic(TOPIC_NAME));
+        container.addMessageListener(userMessageFrameListener, new ChannelTopic(USER_TOPIC_NAME));
         
         return container;
     }
 
     /**
-     * 消息监听器适配器，用于接收普通消息
+     * 处理订阅消息的线程池
+     * 队列满时丢弃消息并计数。提交任务的是订阅连接的I/O线程（Lettuce事件循环），不能让它执行监听器代码或阻塞等待：
+     * 那样会卡住同一连接上的所有订阅，而Redis服务端仍在推送，积压只会转移到客户端缓冲区或服务端的输出缓冲区。
+     * Redis发布/订阅本身不保证送达，需要不丢消息时应改用 Stream
+     */
+    @Bean
+    public ThreadPoolTaskExecutor redisListenerExecutor(
+            @Value("${app.redis.pubsub.listener.core-pool-size:4}") int corePoolSize,
+            @Value("${app.redis.pubsub.listener.max-pool-size:8}") int maxPoolSize,
+            @Value("${app.redis.pubsub.listener.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("redis-listener-");
+        executor.setRejectedExecutionHandler(new DiscardAndCountPolicy());
+        return executor;
+    }
+
+    /**
+     * 丢弃被拒绝的消息处理任务，第一次和之后每1000次记录一条警告日志，避免过载时日志刷屏
+     */
+    static class DiscardAndCountPolicy implements RejectedExecutionHandler {
+
+        private final LongAdder discarded = new LongAdder();
+
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            discarded.increment();
+            long total = discarded.sum();
+            if (total == 1 || total % 1000 == 0) {
+                logger.warn("监听器线程池已满，丢弃订阅消息，累计丢弃{}条", total);
+            }
+        }
+
+        long getDiscarded() {
+            return discarded.sum();
+        }
+    }
+
+    /**
+     * 普通消息监听器，直接调用 MessageListener.onMessage，支持批量消息
      */
     @Bean
-    public MessageListenerAdapter messageListenerAdapter(MessageListener messageListener) {
-        return new MessageListenerAdapter(messageListener, "onMessage");
+    public FramedMessageListener messageFrameListener(MessageListener messageListener) {
+        return new FramedMessageListener(messageListener::onMessage);
     }
 
     /**
-     * 消息监听器适配器，用于接收用户消息
+     * 用户消息监听器，直接调用 MessageListener.onUserMessage，支持批量消息
      */
     @Bean
-    public MessageListenerAdapter userMessageListenerAdapter(MessageListener messageListener) {
-        return new MessageListenerAdapter(messageListener, "onUserMessage");
+    public FramedMessageListener userMessageFrameListener(MessageListener messageListener) {
+        return new FramedMessageListener(messageListener::onUserMessage);
     }
 
     /**
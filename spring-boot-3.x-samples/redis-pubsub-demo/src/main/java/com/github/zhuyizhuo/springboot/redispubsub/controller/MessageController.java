@@ -1,10 +1,14 @@
 package com.github.zhuyizhuo.springboot.redispubsub.controller;
 
+import java.util.List;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import com.github.zhuyizhuo.springboot.redispubsub.model.BenchmarkResult;
 import com.github.zhuyizhuo.springboot.redispubsub.model.User;
 import com.github.zhuyizhuo.springboot.redispubsub.service.MessagePublisherService;
+import com.github.zhuyizhuo.springboot.redispubsub.service.PubSubBenchmarkService;
 
 /**
  * 消息发布控制器，提供REST API接口用于发布Redis消息
@@ -16,6 +20,9 @@ public class MessageController {
     @Autowired
     private MessagePublisherService messagePublisherService;
 
+    @Autowired
+    private PubSubBenchmarkService pubSubBenchmarkService;
+
     /**
      * 发布普通消息
      * @param message 要发布的消息内容
@@ -71,4 +78,16 @@ public class MessageController {
         messagePublisherService.publishMessage(message);
         return "简单消息发布成功: " + message;
     }
+
+    /**
+     * 吞吐量测试，对比原来的 MessageListenerAdapter 方式和合并发布方式
+     * @param messages 每种方式发布的消息数
+     * @param payloadBytes 每条消息的大小
+     * @return 两种方式的测试结果
+     */
+    @PostMapping("/benchmark")
+    public List<BenchmarkResult> benchmark(@RequestParam(defaultValue = "10000") int messages,
+                                           @RequestParam(defaultValue = "256") int payloadBytes) throws Exception {
+        return pubSubBenchmarkService.run(messages, payloadBytes);
+    }
 }
\ No newline at end of file
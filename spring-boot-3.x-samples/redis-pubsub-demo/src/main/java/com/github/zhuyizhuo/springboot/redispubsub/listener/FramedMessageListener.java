@@ -0,0 +1,51 @@
+package com.github.zhuyizhuo.springboot.redispubsub.listener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+
+import com.github.zhuyizhuo.springboot.redispubsub.codec.FramedPayload;
+
+/**
+ * 直接实现 Redis 的 MessageListener，不经过 MessageListenerAdapter 的反射调用
+ * 批量消息拆成单条后按顺序交给处理方法，单条消息直接交给处理方法；
+ * 和 MessageListenerAdapter 默认的 StringRedisSerializer 一样，处理方法收到的是UTF-8解码后的消息体
+ */
+public class FramedMessageListener implements org.springframework.data.redis.connection.MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(FramedMessageListener.class);
+
+    private final Consumer<String> handler;
+
+    public FramedMessageListener(Consumer<String> handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        byte[] body = message.getBody();
+        if (!FramedPayload.isFramed(body)) {
+            dispatch(message, body);
+            return;
+        }
+        try {
+            for (byte[] frame : FramedPayload.decode(body)) {
+                dispatch(message, frame);
+            }
+        } catch (IllegalArgumentException e) {
+            logger.error("解析批量消息失败，主题[{}]: {}", new String(message.getChannel(), StandardCharsets.UTF_8), e.getMessage());
+        }
+    }
+
+    private void dispatch(Message message, byte[] frame) {
+        try {
+            handler.accept(new String(frame, StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            // 一条消息处理失败不影响同一批次的其他消息
+            logger.error("处理消息失败，主题[{}]", new String(message.getChannel(), StandardCharsets.UTF_8), e);
+        }
+    }
+}
\ No newline at end of file
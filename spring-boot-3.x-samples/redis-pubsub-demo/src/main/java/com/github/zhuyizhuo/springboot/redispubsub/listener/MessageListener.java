@@ -17,7 +17,7 @@ public class MessageListener {
      * @param message 接收到的消息
      */
     public void onMessage(Object message) {
-        logger.info("接收到普通消息: {}", message);
+        logger.debug("接收到普通消息: {}", message);
         // 这里可以添加消息处理逻辑
     }
 
@@ -26,7 +26,7 @@ public class MessageListener {
      * @param message 接收到的用户消息
      */
     public void onUserMessage(Object message) {
-        logger.info("接收到用户消息: {}", message);
+        logger.debug("接收到用户消息: {}", message);
         // 这里可以添加用户消息处理逻辑
     }
 }
\ No newline at end of file
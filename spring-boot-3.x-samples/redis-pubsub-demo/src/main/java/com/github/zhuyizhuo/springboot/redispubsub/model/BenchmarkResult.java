@@ -0,0 +1,49 @@
+package com.github.zhuyizhuo.springboot.redispubsub.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 发布订阅吞吐量测试结果
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BenchmarkResult {
+
+    /**
+     * 测试方式
+     */
+    private String mode;
+
+    /**
+     * 发布的消息数
+     */
+    private int messages;
+
+    /**
+     * 收到的消息数
+     */
+    private long received;
+
+    /**
+     * 执行的PUBLISH命令数
+     */
+    private long publishCommands;
+
+    /**
+     * 全部发布完成的耗时（毫秒）
+     */
+    private long publishMillis;
+
+    /**
+     * 从开始发布到监听器收到全部消息的耗时（毫秒）
+     */
+    private long totalMillis;
+
+    /**
+     * 端到端吞吐量（条/秒）
+     */
+    private double messagesPerSecond;
+}
\ No newline at end of file
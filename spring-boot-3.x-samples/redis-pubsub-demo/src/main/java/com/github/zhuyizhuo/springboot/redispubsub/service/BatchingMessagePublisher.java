@@ -0,0 +1,193 @@
+package com.github.zhuyizhuo.springboot.redispubsub.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.stereotype.Service;
+
+import com.github.zhuyizhuo.springboot.redispubsub.codec.FramedPayload;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 按主题合并发布的消息发布器
+ * <p>
+ * 每个主题一个缓冲区，消息先序列化后放入缓冲区，满足以下任一条件时打包成一次PUBLISH：
+ * 缓冲的消息数达到 max-messages、打包后的大小达到 max-bytes（由发布消息的线程直接发送），
+ * 或者缓冲区中第一条消息已经等待了 linger-ms（由后台线程发送）。
+ * Redis 对每次PUBLISH要逐个写给所有订阅者，合并后命令数和写给订阅者的次数都降为原来的 1/批量大小。
+ * 缓冲区里只有一条消息时按普通消息发布，不打包。
+ * 同一主题的批次按顺序发送
+ */
+@Service
+public class BatchingMessagePublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchingMessagePublisher.class);
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private Jackson2JsonRedisSerializer<Object> jackson2JsonRedisSerializer;
+
+    /**
+     * 每个批次最多的消息数
+     */
+    @Value("${app.redis.pubsub.batch.max-messages:100}")
+    private int maxMessages;
+
+    /**
+     * 每个批次打包后的最大字节数
+     */
+    @Value("${app.redis.pubsub.batch.max-bytes:65536}")
+    private int maxBytes;
+
+    /**
+     * 消息在缓冲区中最多等待的时间（毫秒）
+     */
+    @Value("${app.redis.pubsub.batch.linger-ms:2}")
+    private long lingerMillis;
+
+    private final Map<String, ChannelBuffer> buffers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "redis-publish-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final LongAdder publishedMessages = new LongAdder();
+    private final LongAdder publishCommands = new LongAdder();
+
+    /**
+     * 发布消息
+     * @param channel 主题名称
+     * @param message 要发布的消息
+     * @return 消息所在批次发送完成时完成
+     */
+    public CompletableFuture<Void> publish(String channel, Object message) {
+        if (flusher.isShutdown()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("发布器已关闭"));
+        }
+        byte[] frame = jackson2JsonRedisSerializer.serialize(message);
+        ChannelBuffer buffer = buffers.computeIfAbsent(channel, ChannelBuffer::new);
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        int size = buffer.add(frame, future);
+        if (size == 1) {
+            try {
+                flusher.schedule(() -> flush(buffer), lingerMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // 检查之后发布器被关闭，直接发送，保证返回的future会完成
+                flush(buffer);
+            }
+        }
+        if (size >= maxMessages || buffer.encodedSize() >= maxBytes) {
+            flush(buffer);
+        }
+        return future;
+    }
+
+    /**
+     * 立即发送所有主题中缓冲的消息
+     */
+    public void flush() {
+        buffers.values().forEach(this::flush);
+    }
+
+    /**
+     * 累计发布的消息数
+     */
+    public long getPublishedMessages() {
+        return publishedMessages.sum();
+    }
+
+    /**
+     * 累计执行的PUBLISH命令数
+     */
+    public long getPublishCommands() {
+        return publishCommands.sum();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flusher.shutdown();
+        flush();
+    }
+
+    private void flush(ChannelBuffer buffer) {
+        // 取出批次和发送在同一把锁内，保证同一主题的批次按顺序到达
+        synchronized (buffer.publishLock) {
+            Batch batch = buffer.drain();
+            if (batch == null) {
+                return;
+            }
+            byte[] payload = batch.frames().size() == 1 ? batch.frames().get(0) : FramedPayload.encode(batch.frames());
+            try {
+                redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(buffer.channel, payload));
+                publishCommands.increment();
+                publishedMessages.add(batch.frames().size());
+                batch.futures().forEach(future -> future.complete(null));
+                logger.debug("批量发布到主题[{}]: {}条消息, {}字节", buffer.name, batch.frames().size(), payload.length);
+            } catch (Exception e) {
+                logger.error("批量发布到主题[{}]失败: {}条消息", buffer.name, batch.frames().size(), e);
+                batch.futures().forEach(future -> future.completeExceptionally(e));
+            }
+        }
+    }
+
+    private static class ChannelBuffer {
+        private final String name;
+        private final byte[] channel;
+        private final Object publishLock = new Object();
+        private List<byte[]> frames = new ArrayList<>();
+        private List<CompletableFuture<Void>> futures = new ArrayList<>();
+        private int frameBytes;
+
+        private ChannelBuffer(String name) {
+            this.name = name;
+            this.channel = name.getBytes(StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @return 加入后缓冲区中的消息数
+         */
+        private synchronized int add(byte[] frame, CompletableFuture<Void> future) {
+            frames.add(frame);
+            futures.add(future);
+            frameBytes += frame.length;
+            return frames.size();
+        }
+
+        private synchronized int encodedSize() {
+            return FramedPayload.encodedSize(frames.size(), frameBytes);
+        }
+
+        private synchronized Batch drain() {
+            if (frames.isEmpty()) {
+                return null;
+            }
+            Batch batch = new Batch(frames, futures);
+            frames = new ArrayList<>();
+            futures = new ArrayList<>();
+            frameBytes = 0;
+            return batch;
+        }
+    }
+
+    private record Batch(List<byte[]> frames, List<CompletableFuture<Void>> futures) {
+    }
+}
\ No newline at end of file
@@ -1,6 +1,9 @@
 package com.github.zhuyizhuo.springboot.redispubsub.service;
 
+import java.util.concurrent.CompletionException;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.stereotype.Service;
@@ -11,6 +14,8 @@ import com.github.zhuyizhuo.springboot.redispubsub.config.RedisConfig;
 
 /**
  * Redis消息发布服务，用于发布消息到指定的主题
+ * 开启批量发布（app.redis.pubsub.batch.enabled，默认关闭）时由 BatchingMessagePublisher 按主题合并发送，
+ * 发布方法等待消息所在批次发送完成后返回，每次调用最多多等待 linger-ms，发送失败时和直接发布一样抛出异常
  */
 @Service
 public class MessagePublisherService {
@@ -26,13 +31,19 @@ public class MessagePublisherService {
     @Autowired
     private ChannelTopic userTopic;
 
+    @Autowired
+    private BatchingMessagePublisher batchingMessagePublisher;
+
+    @Value("${app.redis.pubsub.batch.enabled:false}")
+    private boolean batchEnabled;
+
     /**
      * 发布普通消息到默认主题
      * @param message 要发布的消息
      */
     public void publishMessage(Object message) {
-        logger.info("发布消息到主题[{}]: {}", RedisConfig.TOPIC_NAME, message);
-        redisTemplate.convertAndSend(RedisConfig.TOPIC_NAME, message);
+        logger.debug("发布消息到主题[{}]: {}", RedisConfig.TOPIC_NAME, message);
+        send(RedisConfig.TOPIC_NAME, message);
     }
 
     /**
@@ -40,8 +51,8 @@ public class MessagePublisherService {
      * @param message 要发布的用户消息
      */
     public void publishUserMessage(Object message) {
-        logger.info("发布用户消息到主题[{}]: {}", RedisConfig.USER_TOPIC_NAME, message);
-        redisTemplate.convertAndSend(RedisConfig.USER_TOPIC_NAME, message);
+        logger.debug("发布用户消息到主题[{}]: {}", RedisConfig.USER_TOPIC_NAME, message);
+        send(RedisConfig.USER_TOPIC_NAME, message);
     }
 
     /**
@@ -50,7 +61,22 @@ public class MessagePublisherService {
      * @param message 要发布的消息
      */
     public void publishMessageToTopic(String topicName, Object message) {
-        logger.info("发布消息到主题[{}]: {}", topicName, message);
-        redisTemplate.convertAndSend(topicName, message);
+        logger.debug("发布消息到主题[{}]: {}", topicName, message);
+        send(topicName, message);
+    }
+
+    private void send(String topicName, Object message) {
+        if (!batchEnabled) {
+            redisTemplate.convertAndSend(topicName, message);
+            return;
+        }
+        try {
+            batchingMessagePublisher.publish(topicName, message).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,151 @@
+package com.github.zhuyizhuo.springboot.redispubsub.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.adapter.MessageListenerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import com.github.zhuyizhuo.springboot.redispubsub.listener.FramedMessageListener;
+import com.github.zhuyizhuo.springboot.redispubsub.model.BenchmarkResult;
+
+/**
+ * 发布订阅吞吐量测试，对比两种方式在真实Redis上的端到端吞吐量：
+ * <ul>
+ *     <li>adapter：原来的方式，每条消息一次 convertAndSend，监听器容器使用默认执行器，经 MessageListenerAdapter 反射调用</li>
+ *     <li>batched：BatchingMessagePublisher 按主题合并发送，监听器容器使用有界线程池，FramedMessageListener 拆包后直接调用</li>
+ * </ul>
+ * 每种方式使用单独的临时主题和监听器容器，测试结束后取消订阅
+ */
+@Service
+public class PubSubBenchmarkService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PubSubBenchmarkService.class);
+
+    @Autowired
+    private RedisConnectionFactory connectionFactory;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private BatchingMessagePublisher batchingMessagePublisher;
+
+    @Autowired
+    private ThreadPoolTaskExecutor redisListenerExecutor;
+
+    /**
+     * 依次运行两种方式
+     * @param messages 每种方式发布的消息数
+     * @param payloadBytes 每条消息的大小
+     */
+    public List<BenchmarkResult> run(int messages, int payloadBytes) throws Exception {
+        String payload = "x".repeat(Math.max(1, payloadBytes));
+        List<BenchmarkResult> results = new ArrayList<>(2);
+        results.add(runAdapter(messages, payload));
+        results.add(runBatched(messages, payload));
+        results.forEach(result -> logger.info("吞吐量测试[{}]: {}条消息, {}次PUBLISH, 发布耗时{}ms, 总耗时{}ms, {}条/秒",
+                result.getMode(), result.getMessages(), result.getPublishCommands(), result.getPublishMillis(),
+                result.getTotalMillis(), String.format("%.0f", result.getMessagesPerSecond())));
+        return results;
+    }
+
+    private BenchmarkResult runAdapter(int messages, String payload) throws Exception {
+        Counter counter = new Counter(messages);
+        MessageListenerAdapter adapter = new MessageListenerAdapter(counter, "handle");
+        adapter.afterPropertiesSet();
+        String channel = "benchmark-adapter-" + System.nanoTime();
+        RedisMessageListenerContainer container = startContainer(adapter, channel, null);
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < messages; i++) {
+                redisTemplate.convertAndSend(channel, payload);
+            }
+            long publishNanos = System.nanoTime() - start;
+            return result("adapter", messages, messages, counter, start, publishNanos);
+        } finally {
+            container.destroy();
+        }
+    }
+
+    private BenchmarkResult runBatched(int messages, String payload) throws Exception {
+        Counter counter = new Counter(messages);
+        String channel = "benchmark-batched-" + System.nanoTime();
+        RedisMessageListenerContainer container = startContainer(
+                new FramedMessageListener(counter::handle), channel, redisListenerExecutor);
+        try {
+            long commandsBefore = batchingMessagePublisher.getPublishCommands();
+            long start = System.nanoTime();
+            CompletableFuture<Void> last = null;
+            for (int i = 0; i < messages; i++) {
+                last = batchingMessagePublisher.publish(channel, payload);
+            }
+            batchingMessagePublisher.flush();
+            if (last != null) {
+                last.get(30, TimeUnit.SECONDS);
+            }
+            long publishNanos = System.nanoTime() - start;
+            return result("batched", messages, batchingMessagePublisher.getPublishCommands() - commandsBefore,
+                    counter, start, publishNanos);
+        } finally {
+            container.destroy();
+        }
+    }
+
+    private RedisMessageListenerContainer startContainer(MessageListener listener, String channel,
+                                                         ThreadPoolTaskExecutor executor) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        if (executor != null) {
+            container.setTaskExecutor(executor);
+        }
+        container.addMessageListener(listener, new ChannelTopic(channel));
+        container.afterPropertiesSet();
+        // 等待订阅完成后再开始发布
+        container.start();
+        return container;
+    }
+
+    private BenchmarkResult result(String mode, int messages, long publishCommands, Counter counter,
+                                   long startNanos, long publishNanos) throws InterruptedException {
+        boolean completed = counter.latch.await(60, TimeUnit.SECONDS);
+        long totalNanos = System.nanoTime() - startNanos;
+        if (!completed) {
+            logger.warn("吞吐量测试[{}]超时，只收到{}条消息", mode, counter.received.sum());
+        }
+        long received = counter.received.sum();
+        return new BenchmarkResult(mode, messages, received, publishCommands,
+                TimeUnit.NANOSECONDS.toMillis(publishNanos), TimeUnit.NANOSECONDS.toMillis(totalNanos),
+                received * 1_000_000_000.0 / totalNanos);
+    }
+
+    /**
+     * 只计数的监听器，adapter 方式通过反射调用 handle
+     */
+    public static class Counter {
+        private final CountDownLatch latch;
+        private final LongAdder received = new LongAdder();
+
+        Counter(int expected) {
+            this.latch = new CountDownLatch(expected);
+        }
+
+        public void handle(String message) {
+            received.increment();
+            latch.countDown();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,89 @@
+package com.github.zhuyizhuo.springboot.redispubsub.codec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * 批量消息帧格式测试
+ */
+class FramedPayloadTests {
+
+    @Test
+    void encodeDecodeRoundTrip() {
+        List<byte[]> frames = List.of(bytes("{\"id\":1}"), new byte[0], bytes("消息😀"), new byte[]{0x00, (byte) 0xFF});
+
+        byte[] body = FramedPayload.encode(frames);
+
+        assertTrue(FramedPayload.isFramed(body));
+        assertEquals(FramedPayload.encodedSize(frames.size(), frames.stream().mapToInt(f -> f.length).sum()), body.length);
+        List<byte[]> decoded = FramedPayload.decode(body);
+        assertEquals(frames.size(), decoded.size());
+        for (int i = 0; i < frames.size(); i++) {
+            assertArrayEquals(frames.get(i), decoded.get(i));
+        }
+    }
+
+    @Test
+    void emptyBatchRoundTrip() {
+        assertTrue(FramedPayload.decode(FramedPayload.encode(List.of())).isEmpty());
+    }
+
+    @Test
+    void unframedBodiesAreNotFramed() {
+        assertFalse(FramedPayload.isFramed(null));
+        assertFalse(FramedPayload.isFramed(new byte[0]));
+        assertFalse(FramedPayload.isFramed(bytes("{\"id\":1,\"name\":\"test\"}")));
+        assertFalse(FramedPayload.isFramed(bytes("plain text message")));
+        // 只有魔数、缺少条数
+        assertFalse(FramedPayload.isFramed(Arrays.copyOf(FramedPayload.encode(List.of()), 4)));
+    }
+
+    @Test
+    void truncatedBodyIsRejected() {
+        byte[] body = FramedPayload.encode(List.of(bytes("first"), bytes("second")));
+
+        for (int length = 0; length < body.length; length++) {
+            byte[] truncated = Arrays.copyOf(body, length);
+            assertThrows(IllegalArgumentException.class, () -> FramedPayload.decode(truncated),
+                    "截断到" + length + "字节的消息应该被拒绝");
+        }
+    }
+
+    @Test
+    void trailingBytesAreRejected() {
+        byte[] body = FramedPayload.encode(List.of(bytes("first")));
+
+        assertThrows(IllegalArgumentException.class, () -> FramedPayload.decode(Arrays.copyOf(body, body.length + 1)));
+    }
+
+    @Test
+    void corruptCountOrLengthIsRejected() {
+        byte[] body = FramedPayload.encode(List.of(bytes("first"), bytes("second")));
+
+        byte[] hugeCount = body.clone();
+        ByteBuffer.wrap(hugeCount).putInt(4, Integer.MAX_VALUE);
+        assertThrows(IllegalArgumentException.class, () -> FramedPayload.decode(hugeCount));
+
+        byte[] negativeCount = body.clone();
+        ByteBuffer.wrap(negativeCount).putInt(4, -1);
+        assertThrows(IllegalArgumentException.class, () -> FramedPayload.decode(negativeCount));
+
+        byte[] negativeLength = body.clone();
+        ByteBuffer.wrap(negativeLength).putInt(8, -5);
+        assertThrows(IllegalArgumentException.class, () -> FramedPayload.decode(negativeLength));
+
+        byte[] oversizedLength = body.clone();
+        ByteBuffer.wrap(oversizedLength).putInt(8, body.length);
+        assertThrows(IllegalArgumentException.class, () -> FramedPayload.decode(oversizedLength));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
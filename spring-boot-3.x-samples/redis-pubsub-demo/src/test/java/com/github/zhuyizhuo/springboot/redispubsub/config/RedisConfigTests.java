@@ -0,0 +1,48 @@
+package com.github.zhuyizhuo.springboot.redispubsub.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * 监听器线程池测试：线程和队列都占满时丢弃任务，不在提交任务的线程上执行
+ */
+class RedisConfigTests {
+
+    @Test
+    void saturatedListenerExecutorDiscardsInsteadOfRunningOnCaller() throws Exception {
+        ThreadPoolTaskExecutor executor = new RedisConfig().redisListenerExecutor(1, 1, 1);
+        executor.initialize();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean rejectedTaskRan = new AtomicBoolean();
+        try {
+            executor.execute(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            executor.execute(() -> { });
+
+            executor.execute(() -> rejectedTaskRan.set(true));
+
+            assertFalse(rejectedTaskRan.get());
+            RedisConfig.DiscardAndCountPolicy policy =
+                    (RedisConfig.DiscardAndCountPolicy) executor.getThreadPoolExecutor().getRejectedExecutionHandler();
+            assertEquals(1, policy.getDiscarded());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        assertFalse(rejectedTaskRan.get());
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.zhuyizhuo.springboot.redispubsub.listener;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+
+import com.github.zhuyizhuo.springboot.redispubsub.codec.FramedPayload;
+
+/**
+ * 批量消息监听器测试
+ */
+class FramedMessageListenerTests {
+
+    private static final byte[] CHANNEL = "demo-channel".getBytes(StandardCharsets.UTF_8);
+
+    private final List<String> received = new ArrayList<>();
+    private final FramedMessageListener listener = new FramedMessageListener(received::add);
+
+    @Test
+    void unframedMessageIsPassedThrough() {
+        listener.onMessage(new DefaultMessage(CHANNEL, bytes("{\"id\":1}")), null);
+
+        assertEquals(List.of("{\"id\":1}"), received);
+    }
+
+    @Test
+    void framedMessageIsSplitInOrder() {
+        byte[] body = FramedPayload.encode(List.of(bytes("a"), bytes("b"), bytes("c")));
+
+        listener.onMessage(new DefaultMessage(CHANNEL, body), null);
+
+        assertEquals(List.of("a", "b", "c"), received);
+    }
+
+    @Test
+    void corruptBatchIsDropped() {
+        byte[] body = FramedPayload.encode(List.of(bytes("a"), bytes("b")));
+
+        listener.onMessage(new DefaultMessage(CHANNEL, Arrays.copyOf(body, body.length - 1)), null);
+
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    void failingHandlerDoesNotStopRestOfBatch() {
+        FramedMessageListener failing = new FramedMessageListener(message -> {
+            if ("b".equals(message)) {
+                throw new IllegalStateException("handler failed");
+            }
+            received.add(message);
+        });
+
+        failing.onMessage(new DefaultMessage(CHANNEL, FramedPayload.encode(List.of(bytes("a"), bytes("b"), bytes("c")))), null);
+
+        assertEquals(List.of("a", "c"), received);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
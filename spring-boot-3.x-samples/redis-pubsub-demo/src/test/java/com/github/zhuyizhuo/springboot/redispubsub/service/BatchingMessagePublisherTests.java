@@ -0,0 +1,158 @@
+package com.github.zhuyizhuo.springboot.redispubsub.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.github.zhuyizhuo.springboot.redispubsub.codec.FramedPayload;
+
+/**
+ * 合并发布测试，使用模拟的 Redis 连接记录每次 PUBLISH 的消息体和发送线程
+ */
+class BatchingMessagePublisherTests {
+
+    private static final String CHANNEL = "demo-channel";
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+    private final RedisConnection connection = mock(RedisConnection.class);
+    private final Jackson2JsonRedisSerializer<Object> serializer = new Jackson2JsonRedisSerializer<>(Object.class);
+    private final List<byte[]> published = new CopyOnWriteArrayList<>();
+    private final List<String> publishThreads = new CopyOnWriteArrayList<>();
+    private BatchingMessagePublisher publisher;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(redisTemplate.execute(any(RedisCallback.class)))
+                .thenAnswer(invocation -> invocation.<RedisCallback<Long>>getArgument(0).doInRedis(connection));
+        when(connection.publish(any(byte[].class), any(byte[].class))).thenAnswer(invocation -> {
+            published.add(invocation.getArgument(1));
+            publishThreads.add(Thread.currentThread().getName());
+            return 1L;
+        });
+        publisher = createPublisher(100, 65536, 60_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        publisher.destroy();
+    }
+
+    @Test
+    void flushesWhenMaxMessagesReached() {
+        publisher = createPublisher(3, 65536, 60_000);
+
+        CompletableFuture<Void> first = publisher.publish(CHANNEL, "a");
+        CompletableFuture<Void> second = publisher.publish(CHANNEL, "b");
+        assertTrue(published.isEmpty());
+        CompletableFuture<Void> third = publisher.publish(CHANNEL, "c");
+
+        // 第三条由发布线程直接发送，三条消息合并成一次 PUBLISH
+        assertEquals(1, published.size());
+        assertEquals(List.of("a", "b", "c"), decode(published.get(0)));
+        assertTrue(first.isDone() && second.isDone() && third.isDone());
+        assertEquals(1, publisher.getPublishCommands());
+        assertEquals(3, publisher.getPublishedMessages());
+    }
+
+    @Test
+    void flushesWhenMaxBytesReached() {
+        int frameBytes = serializer.serialize("a").length;
+        publisher = createPublisher(100, FramedPayload.encodedSize(2, 2 * frameBytes), 60_000);
+
+        publisher.publish(CHANNEL, "a");
+        assertTrue(published.isEmpty());
+        CompletableFuture<Void> second = publisher.publish(CHANNEL, "b");
+
+        assertEquals(1, published.size());
+        assertEquals(List.of("a", "b"), decode(published.get(0)));
+        assertTrue(second.isDone());
+    }
+
+    @Test
+    void lingerFlushSendsSingleMessageUnframed() throws Exception {
+        publisher = createPublisher(100, 65536, 5);
+
+        publisher.publish(CHANNEL, "a").get(5, TimeUnit.SECONDS);
+
+        // 由后台线程在等待 linger-ms 后发送，只有一条消息时不打包
+        assertEquals(List.of("redis-publish-flusher"), publishThreads);
+        assertFalse(FramedPayload.isFramed(published.get(0)));
+        assertEquals("a", serializer.deserialize(published.get(0)));
+    }
+
+    @Test
+    void channelsAreBatchedSeparately() {
+        publisher = createPublisher(2, 65536, 60_000);
+
+        publisher.publish(CHANNEL, "a");
+        publisher.publish("other-channel", "x");
+        assertTrue(published.isEmpty());
+        publisher.publish(CHANNEL, "b");
+
+        assertEquals(1, published.size());
+        assertEquals(List.of("a", "b"), decode(published.get(0)));
+    }
+
+    @Test
+    void futuresFailWhenPublishThrows() {
+        publisher = createPublisher(2, 65536, 60_000);
+        RedisConnectionFailureException failure = new RedisConnectionFailureException("connection refused");
+        doThrow(failure).when(connection).publish(any(byte[].class), any(byte[].class));
+
+        CompletableFuture<Void> first = publisher.publish(CHANNEL, "a");
+        CompletableFuture<Void> second = publisher.publish(CHANNEL, "b");
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertSame(failure, e.getCause());
+        assertTrue(second.isCompletedExceptionally());
+        assertEquals(0, publisher.getPublishCommands());
+        assertEquals(0, publisher.getPublishedMessages());
+    }
+
+    @Test
+    void publishAfterDestroyReturnsFailedFuture() {
+        publisher.destroy();
+
+        CompletableFuture<Void> future = publisher.publish(CHANNEL, "a");
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertTrue(published.isEmpty());
+    }
+
+    private BatchingMessagePublisher createPublisher(int maxMessages, int maxBytes, long lingerMillis) {
+        if (publisher != null) {
+            publisher.destroy();
+        }
+        BatchingMessagePublisher created = new BatchingMessagePublisher();
+        ReflectionTestUtils.setField(created, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(created, "jackson2JsonRedisSerializer", serializer);
+        ReflectionTestUtils.setField(created, "maxMessages", maxMessages);
+        ReflectionTestUtils.setField(created, "maxBytes", maxBytes);
+        ReflectionTestUtils.setField(created, "lingerMillis", lingerMillis);
+        return created;
+    }
+
+    private List<Object> decode(byte[] body) {
+        assertTrue(FramedPayload.isFramed(body));
+        return FramedPayload.decode(body).stream().map(serializer::deserialize).toList();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.rocketmqdemo.consumer;
+
+import com.example.rocketmqdemo.entity.ConsumeTypeStats;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 消费者处理耗时统计
+ * 按消息类型累计处理数、失败数、总耗时和最大耗时，多个消费线程并发记录时不加锁
+ */
+@Component
+public class ConsumerMetrics {
+
+    private final Map<String, TypeStats> types = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一条消息的处理结果
+     * @param messageType 消息类型
+     * @param elapsedNanos 处理耗时（纳秒）
+     * @param success 是否处理成功
+     */
+    public void record(String messageType, long elapsedNanos, boolean success) {
+        TypeStats stats = types.computeIfAbsent(messageType == null ? "UNKNOWN" : messageType, key -> new TypeStats());
+        stats.processed.increment();
+        stats.totalNanos.add(elapsedNanos);
+        stats.maxNanos.accumulate(elapsedNanos);
+        if (!success) {
+            stats.failed.increment();
+        }
+    }
+
+    /**
+     * 所有消息类型的统计结果
+     */
+    public List<ConsumeTypeStats> getStats() {
+        List<ConsumeTypeStats> result = new ArrayList<>(types.size());
+        types.forEach((messageType, stats) -> {
+            long processed = stats.processed.sum();
+            double avgMillis = processed == 0 ? 0 : stats.totalNanos.sum() / 1_000_000.0 / processed;
+            result.add(new ConsumeTypeStats(messageType, processed, stats.failed.sum(),
+                    avgMillis, stats.maxNanos.get() / 1_000_000.0));
+        });
+        result.sort(Comparator.comparing(ConsumeTypeStats::getMessageType));
+        return result;
+    }
+
+    private static class TypeStats {
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    }
+}
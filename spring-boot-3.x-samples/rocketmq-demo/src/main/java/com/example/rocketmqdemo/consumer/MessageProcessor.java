@@ -0,0 +1,52 @@
+package com.example.rocketmqdemo.consumer;
+
+import com.example.rocketmqdemo.entity.MessageDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * 消息业务处理
+ * 单条、批量和顺序消费共用，每条消息的处理耗时按类型记录到 ConsumerMetrics
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MessageProcessor {
+
+    private final ConsumerMetrics consumerMetrics;
+
+    /**
+     * 根据消息类型处理消息
+     */
+    public void processMessage(MessageDTO message) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            switch (message.getMessageType()) {
+                case "TEXT" -> {
+                    // 处理文本消息
+                    log.debug("处理文本消息：{}", message.getContent());
+                    // TODO: 执行文本消息相关的业务逻辑
+                }
+                case "NOTIFICATION" -> {
+                    // 处理通知消息
+                    log.debug("处理通知消息：{}", message.getContent());
+                    // TODO: 执行通知消息相关的业务逻辑
+                }
+                case "ORDER" -> {
+                    // 处理订单消息
+                    log.debug("处理订单消息：业务键={}, 内容={}", message.getBusinessKey(), message.getContent());
+                    // TODO: 执行订单消息相关的业务逻辑
+                }
+                default -> {
+                    // 处理未知类型消息
+                    log.warn("收到未知类型消息：类型={}, 内容={}", message.getMessageType(), message.getContent());
+                }
+            }
+            success = true;
+        } finally {
+            consumerMetrics.record(message.getMessageType(), System.nanoTime() - start, success);
+        }
+    }
+}
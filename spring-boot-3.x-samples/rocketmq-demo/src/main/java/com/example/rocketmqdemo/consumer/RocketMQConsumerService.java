@@ -1,66 +1,207 @@
 package com.example.rocketmqdemo.consumer;
 
 import com.example.rocketmqdemo.entity.MessageDTO;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.client.consumer.DefaultMQPushConsumer;
+import org.apache.rocketmq.client.consumer.listener.ConsumeConcurrentlyContext;
+import org.apache.rocketmq.client.consumer.listener.ConsumeConcurrentlyStatus;
+import org.apache.rocketmq.client.consumer.listener.MessageListenerConcurrently;
+import org.apache.rocketmq.common.message.MessageExt;
 import org.apache.rocketmq.spring.annotation.RocketMQMessageListener;
 import org.apache.rocketmq.spring.core.RocketMQListener;
+import org.apache.rocketmq.spring.core.RocketMQPushConsumerLifecycleListener;
+import org.apache.rocketmq.spring.support.RocketMQMessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * RocketMQ消息消费者服务
  * 监听普通主题消息
+ * <p>
+ * 默认每次回调处理一条消息；开启批量消费（rocketmq-demo.consumer.batch-enabled）后，
+ * 启动前替换容器的监听器，每次回调最多处理 consume-message-batch-max-size 条消息。
+ * 消费线程数、每次拉取的消息数和批量大小都可以在运行时通过 updateSettings 调整，不需要重启应用
  */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 @RocketMQMessageListener(
         topic = "demo-topic",
         consumerGroup = "demo-consumer-group",
         consumeMode = org.apache.rocketmq.spring.annotation.ConsumeMode.CONCURRENTLY,
         messageModel = org.apache.rocketmq.spring.annotation.MessageModel.CLUSTERING
 )
-public class RocketMQConsumerService implements RocketMQListener<MessageDTO> {
+public class RocketMQConsumerService implements RocketMQListener<MessageDTO>, RocketMQPushConsumerLifecycleListener {
+
+    private final MessageProcessor messageProcessor;
+
+    private final RocketMQMessageConverter rocketMQMessageConverter;
+
+    /**
+     * 是否开启批量消费
+     */
+    @Value("${rocketmq-demo.consumer.batch-enabled:false}")
+    private boolean batchEnabled;
+
+    /**
+     * 批量消费时每次回调最多处理的消息数
+     */
+    @Value("${rocketmq-demo.consumer.consume-message-batch-max-size:32}")
+    private int consumeMessageBatchMaxSize;
+
+    /**
+     * 每次从Broker拉取的消息数
+     */
+    @Value("${rocketmq-demo.consumer.pull-batch-size:32}")
+    private int pullBatchSize;
+
+    /**
+     * 消费线程数
+     */
+    @Value("${rocketmq-demo.consumer.consume-threads:20}")
+    private int consumeThreads;
+
+    /**
+     * 运行时可以调整到的最大消费线程数（不含），只在启动时生效
+     */
+    @Value("${rocketmq-demo.consumer.consume-thread-max:64}")
+    private int consumeThreadMax;
+
+    private volatile DefaultMQPushConsumer consumer;
 
     @Override
     public void onMessage(MessageDTO message) {
         try {
-            log.info("收到消息：主题=demo-topic, 消息ID={}, 内容={}, 类型={}, 发送时间={}",
+            log.debug("收到消息：主题=demo-topic, 消息ID={}, 内容={}, 类型={}, 发送时间={}",
                     message.getId(), message.getContent(), message.getMessageType(), message.getSendTime());
-            
+
             // 这里可以根据消息类型进行不同的业务处理
-            processMessage(message);
-            
-            log.info("消息处理成功：消息ID={}", message.getId());
+            messageProcessor.processMessage(message);
+
+            log.debug("消息处理成功：消息ID={}", message.getId());
         } catch (Exception e) {
             log.error("消息处理失败：消息ID={}", message.getId(), e);
             // 如果需要重试，可以抛出异常，RocketMQ会根据配置进行重试
             throw new RuntimeException("消息处理失败", e);
         }
     }
-    
+
     /**
-     * 根据消息类型处理消息
+     * 消费者启动前调用，此时容器已经注册了单条消息的监听器
      */
-    private void processMessage(MessageDTO message) {
-        switch (message.getMessageType()) {
-            case "TEXT" -> {
-                // 处理文本消息
-                log.info("处理文本消息：{}", message.getContent());
-                // TODO: 执行文本消息相关的业务逻辑
-            }
-            case "NOTIFICATION" -> {
-                // 处理通知消息
-                log.info("处理通知消息：{}", message.getContent());
-                // TODO: 执行通知消息相关的业务逻辑
+    @Override
+    public void prepareStart(DefaultMQPushConsumer consumer) {
+        // 消费线程池队列无界，实际线程数就是核心线程数；最大线程数决定运行时能调整到的上限
+        consumer.setConsumeThreadMax(Math.max(consumeThreads + 1, consumeThreadMax));
+        consumer.setConsumeThreadMin(consumeThreads);
+        consumer.setPullBatchSize(pullBatchSize);
+        if (batchEnabled) {
+            consumer.setConsumeMessageBatchMaxSize(consumeMessageBatchMaxSize);
+            consumer.registerMessageListener((MessageListenerConcurrently) this::consumeBatch);
+        }
+        this.consumer = consumer;
+        log.info("消费者配置：主题=demo-topic, {}", getSettings());
+    }
+
+    /**
+     * 批量消费一次拉取到的消息
+     * 逐条处理，某条失败时只确认它之前的消息，它和之后的消息发回Broker稍后重新投递，已成功的消息不会重复消费
+     */
+    ConsumeConcurrentlyStatus consumeBatch(List<MessageExt> messages, ConsumeConcurrentlyContext context) {
+        log.debug("收到批量消息：主题=demo-topic, 条数={}", messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            MessageExt messageExt = messages.get(i);
+            try {
+                messageProcessor.processMessage(convert(messageExt));
+            } catch (Exception e) {
+                log.error("批量消息处理失败：msgId={}, 已处理{}条，剩余{}条稍后重新投递",
+                        messageExt.getMsgId(), i, messages.size() - i, e);
+                context.setAckIndex(i - 1);
+                return ConsumeConcurrentlyStatus.CONSUME_SUCCESS;
             }
-            case "ORDER" -> {
-                // 处理订单消息
-                log.info("处理订单消息：{}", message.getContent());
-                // TODO: 执行订单消息相关的业务逻辑
+        }
+        return ConsumeConcurrentlyStatus.CONSUME_SUCCESS;
+    }
+
+    /**
+     * 调整运行中的消费者配置，参数为空时保持不变
+     * @param consumeThreads 消费线程数，需要小于启动时的最大线程数
+     * @param pullBatchSize 每次拉取的消息数（1-1024）
+     * @param consumeMessageBatchMaxSize 批量消费时每次回调的最大消息数（1-1024），只在批量消费模式下可以调整
+     * @return 调整后的配置
+     */
+    public synchronized Map<String, Object> updateSettings(Integer consumeThreads, Integer pullBatchSize,
+                                                           Integer consumeMessageBatchMaxSize) {
+        DefaultMQPushConsumer current = requireConsumer();
+        if (consumeThreads != null && (consumeThreads < 1 || consumeThreads >= current.getConsumeThreadMax())) {
+            throw new IllegalArgumentException("消费线程数需要在1到" + (current.getConsumeThreadMax() - 1) + "之间");
+        }
+        if (pullBatchSize != null && (pullBatchSize < 1 || pullBatchSize > 1024)) {
+            throw new IllegalArgumentException("每次拉取的消息数需要在1到1024之间");
+        }
+        if (consumeMessageBatchMaxSize != null) {
+            if (!batchEnabled) {
+                throw new IllegalArgumentException("未开启批量消费，不能调整批量大小");
             }
-            default -> {
-                // 处理未知类型消息
-                log.warn("收到未知类型消息：类型={}, 内容={}", message.getMessageType(), message.getContent());
+            if (consumeMessageBatchMaxSize < 1 || consumeMessageBatchMaxSize > 1024) {
+                throw new IllegalArgumentException("批量大小需要在1到1024之间");
             }
         }
+
+        if (consumeThreads != null) {
+            current.updateCorePoolSize(consumeThreads);
+            current.setConsumeThreadMin(consumeThreads);
+        }
+        // 拉取和分发消息时每次都会读取这两个配置，设置后立即生效
+        if (pullBatchSize != null) {
+            current.setPullBatchSize(pullBatchSize);
+        }
+        if (consumeMessageBatchMaxSize != null) {
+            current.setConsumeMessageBatchMaxSize(consumeMessageBatchMaxSize);
+        }
+        Map<String, Object> settings = getSettings();
+        log.info("消费者配置已调整：主题=demo-topic, {}", settings);
+        return settings;
+    }
+
+    /**
+     * 当前消费者配置
+     */
+    public Map<String, Object> getSettings() {
+        DefaultMQPushConsumer current = requireConsumer();
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("batchEnabled", batchEnabled);
+        settings.put("consumeThreads", current.getConsumeThreadMin());
+        settings.put("consumeThreadMax", current.getConsumeThreadMax());
+        settings.put("pullBatchSize", current.getPullBatchSize());
+        settings.put("consumeMessageBatchMaxSize", current.getConsumeMessageBatchMaxSize());
+        return settings;
+    }
+
+    private DefaultMQPushConsumer requireConsumer() {
+        DefaultMQPushConsumer current = consumer;
+        if (current == null) {
+            throw new IllegalStateException("消费者尚未启动");
+        }
+        return current;
+    }
+
+    /**
+     * 和容器转换单条消息的方式一致，使用 RocketMQMessageConverter 把消息体转换为 MessageDTO
+     */
+    private MessageDTO convert(MessageExt messageExt) {
+        Object payload = rocketMQMessageConverter.getMessageConverter()
+                .fromMessage(MessageBuilder.withPayload(messageExt.getBody()).build(), MessageDTO.class);
+        if (payload == null) {
+            throw new MessageConversionException("无法转换消息体：msgId=" + messageExt.getMsgId());
+        }
+        return (MessageDTO) payload;
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,8 @@
 package com.example.rocketmqdemo.consumer;
 
 import com.example.rocketmqdemo.entity.MessageDTO;
+import com.example.rocketmqdemo.scheduler.DelayDriftMetrics;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.rocketmq.spring.annotation.RocketMQMessageListener;
 import org.apache.rocketmq.spring.core.RocketMQListener;
@@ -8,10 +10,11 @@ import org.springframework.stereotype.Component;
 
 /**
  * RocketMQ延时消息消费者服务
- * 监听延时主题消息
+ * 监听延时主题消息，定时消息（带计划投递时间）的实际偏差记录到 DelayDriftMetrics
  */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 @RocketMQMessageListener(
         topic = "demo-delay-topic",
         consumerGroup = "demo-delay-consumer-group",
@@ -20,6 +23,8 @@ import org.springframework.stereotype.Component;
 )
 public class RocketMQDelayConsumerService implements RocketMQListener<MessageDTO> {
 
+    private final DelayDriftMetrics delayDriftMetrics;
+
     @Override
     public void onMessage(MessageDTO message) {
         try {
@@ -28,6 +33,11 @@ public class RocketMQDelayConsumerService implements RocketMQListener<MessageDTO
                 java.time.ZonedDateTime.of(message.getSendTime(), java.time.ZoneId.systemDefault()).toInstant().toEpochMilli() : 
                 0;
             long delayTimeSeconds = (currentTimeMillis - sendTimeMillis) / 1000;
+            if (message.getDeliverTime() != null) {
+                long driftMillis = currentTimeMillis - message.getDeliverTime();
+                delayDriftMetrics.recordConsume(driftMillis);
+                log.debug("定时消息到达：消息ID={}, 计划投递时间={}, 偏差={}ms", message.getId(), message.getDeliverTime(), driftMillis);
+            }
             
             log.info("收到延时消息：主题=demo-delay-topic, 消息ID={}, 内容={}, 类型={}, 发送时间={}, 实际延时={}秒",
                     message.getId(), message.getContent(), message.getMessageType(), message.getSendTime(), delayTimeSeconds);
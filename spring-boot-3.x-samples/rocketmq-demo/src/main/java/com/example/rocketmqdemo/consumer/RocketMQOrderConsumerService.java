@@ -0,0 +1,42 @@
+package com.example.rocketmqdemo.consumer;
+
+import com.example.rocketmqdemo.entity.MessageDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.spring.annotation.RocketMQMessageListener;
+import org.apache.rocketmq.spring.core.RocketMQListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * RocketMQ顺序消息消费者服务
+ * 监听订单主题消息，生产者按业务键（没有业务键时按消息ID）选择队列，
+ * 同一队列的消息由一个线程按顺序处理，处理失败时暂停该队列稍后重试，不会跳过失败的消息
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@RocketMQMessageListener(
+        topic = "demo-order-topic",
+        consumerGroup = "demo-order-consumer-group",
+        consumeMode = org.apache.rocketmq.spring.annotation.ConsumeMode.ORDERLY,
+        messageModel = org.apache.rocketmq.spring.annotation.MessageModel.CLUSTERING
+)
+public class RocketMQOrderConsumerService implements RocketMQListener<MessageDTO> {
+
+    private final MessageProcessor messageProcessor;
+
+    @Override
+    public void onMessage(MessageDTO message) {
+        try {
+            log.debug("收到顺序消息：主题=demo-order-topic, 消息ID={}, 业务键={}, 内容={}, 发送时间={}",
+                    message.getId(), message.getBusinessKey(), message.getContent(), message.getSendTime());
+
+            messageProcessor.processMessage(message);
+
+            log.debug("顺序消息处理成功：消息ID={}", message.getId());
+        } catch (Exception e) {
+            log.error("顺序消息处理失败：消息ID={}, 业务键={}", message.getId(), message.getBusinessKey(), e);
+            throw new RuntimeException("顺序消息处理失败", e);
+        }
+    }
+}
@@ -1,7 +1,13 @@
 package com.example.rocketmqdemo.controller;
 
+import com.example.rocketmqdemo.consumer.ConsumerMetrics;
+import com.example.rocketmqdemo.consumer.RocketMQConsumerService;
+import com.example.rocketmqdemo.entity.BatchSendResult;
+import com.example.rocketmqdemo.entity.ConsumeTypeStats;
+import com.example.rocketmqdemo.entity.DelayDriftStats;
 import com.example.rocketmqdemo.entity.MessageDTO;
 import com.example.rocketmqdemo.producer.RocketMQProducerService;
+import com.example.rocketmqdemo.scheduler.DelayMessageScheduler;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,6 +17,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * 消息发送API控制器
@@ -23,6 +30,12 @@ public class MessageController {
 
     private final RocketMQProducerService rocketMQProducerService;
 
+    private final RocketMQConsumerService rocketMQConsumerService;
+
+    private final ConsumerMetrics consumerMetrics;
+
+    private final DelayMessageScheduler delayMessageScheduler;
+
     /**
      * 发送同步消息
      */
@@ -76,11 +89,99 @@ public class MessageController {
         return ResponseEntity.ok(Map.of("status", "success", "message", "延时消息发送成功"));
     }
 
+    /**
+     * 发送任意时长的定时消息，deliverTime（毫秒时间戳）和 delayMillis 二选一
+     */
+    @PostMapping("/schedule")
+    public ResponseEntity<Map<String, String>> sendScheduledMessage(@RequestBody Map<String, String> request) {
+        String content = request.get("content");
+        String messageType = request.getOrDefault("messageType", "TEXT");
+        String topic = request.getOrDefault("topic", "demo-delay-topic");
+        long deliverTime = request.containsKey("deliverTime")
+                ? Long.parseLong(request.get("deliverTime"))
+                : System.currentTimeMillis() + Long.parseLong(request.getOrDefault("delayMillis", "10000"));
+
+        try {
+            String id = delayMessageScheduler.schedule(topic, content, messageType, deliverTime);
+            return ResponseEntity.ok(Map.of("status", "success", "message", "定时消息已保存", "id", id,
+                    "deliverTime", String.valueOf(deliverTime)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("status", "error", "message", e.getMessage()));
+        }
+    }
+
+    /**
+     * 取消还没有投递的定时消息
+     */
+    @DeleteMapping("/schedule/{id}")
+    public ResponseEntity<Map<String, String>> cancelScheduledMessage(@PathVariable String id) {
+        if (!delayMessageScheduler.cancel(id)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("status", "error", "message", "定时消息不存在、已投递或正在投递"));
+        }
+        return ResponseEntity.ok(Map.of("status", "success", "message", "定时消息已取消"));
+    }
+
+    /**
+     * 定时消息的投递偏差统计
+     */
+    @GetMapping("/schedule/metrics")
+    public ResponseEntity<DelayDriftStats> getScheduleMetrics() {
+        return ResponseEntity.ok(delayMessageScheduler.getStats());
+    }
+
+    /**
+     * 发送顺序消息
+     */
+    @PostMapping("/order")
+    public ResponseEntity<Map<String, String>> sendOrderMessage(@RequestBody Map<String, String> request) {
+        String content = request.get("content");
+        String businessKey = request.get("businessKey");
+        String topic = request.getOrDefault("topic", "demo-order-topic");
+
+        String id = rocketMQProducerService.sendOrderMessage(topic, content, businessKey);
+        return ResponseEntity.ok(Map.of("status", "success", "message", "顺序消息发送成功", "id", id));
+    }
+
+    /**
+     * 查看普通主题消费者的当前配置
+     */
+    @GetMapping("/consumer/settings")
+    public ResponseEntity<Map<String, Object>> getConsumerSettings() {
+        try {
+            return ResponseEntity.ok(rocketMQConsumerService.getSettings());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("status", "error", "message", e.getMessage()));
+        }
+    }
+
+    /**
+     * 调整普通主题消费者的消费线程数、拉取数量和批量大小，立即生效
+     */
+    @PutMapping("/consumer/settings")
+    public ResponseEntity<Map<String, Object>> updateConsumerSettings(@RequestBody Map<String, Integer> request) {
+        try {
+            return ResponseEntity.ok(rocketMQConsumerService.updateSettings(request.get("consumeThreads"),
+                    request.get("pullBatchSize"), request.get("consumeMessageBatchMaxSize")));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("status", "error", "message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("status", "error", "message", e.getMessage()));
+        }
+    }
+
+    /**
+     * 按消息类型查看消费处理耗时
+     */
+    @GetMapping("/consumer/metrics")
+    public ResponseEntity<List<ConsumeTypeStats>> getConsumerMetrics() {
+        return ResponseEntity.ok(consumerMetrics.getStats());
+    }
+
     /**
      * 发送批量消息
      */
     @PostMapping("/batch")
-    public ResponseEntity<Map<String, String>> sendBatchMessage(@RequestBody Map<String, Object> request) {
+    public ResponseEntity<Map<String, Object>> sendBatchMessage(@RequestBody Map<String, Object> request) {
         @SuppressWarnings("unchecked")
         List<java.util.LinkedHashMap<String, Object>> rawMessages = (List<java.util.LinkedHashMap<String, Object>>) request.get("messages");
         String topic = request.getOrDefault("topic", "demo-topic").toString();
@@ -100,8 +201,17 @@ public class MessageController {
             }
         }
 
-        rocketMQProducerService.sendBatchMessage(topic, messages);
-        return ResponseEntity.ok(Map.of("status", "success", "message", "批量消息发送成功"));
+        BatchSendResult result;
+        try {
+            result = rocketMQProducerService.sendBatchMessage(topic, messages);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("status", "error", "message", e.getMessage()));
+        }
+        boolean allSucceeded = result.getFailed() == 0;
+        return ResponseEntity.ok(Map.of(
+                "status", allSucceeded ? "success" : "partial",
+                "message", allSucceeded ? "批量消息发送成功" : "部分消息发送失败",
+                "result", result));
     }
 
     /**
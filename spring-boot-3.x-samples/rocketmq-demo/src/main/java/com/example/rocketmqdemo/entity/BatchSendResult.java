@@ -0,0 +1,46 @@
+package com.example.rocketmqdemo.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批量发送结果
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchSendResult {
+
+    /**
+     * 消息总数
+     */
+    private int total;
+
+    /**
+     * 发送成功的消息数
+     */
+    private int succeeded;
+
+    /**
+     * 发送失败的消息数
+     */
+    private int failed;
+
+    /**
+     * 拆分出的批次数，每个批次一次网络请求
+     */
+    private int batches;
+
+    /**
+     * 从开始发送到所有批次返回的耗时（毫秒）
+     */
+    private long elapsedMillis;
+
+    /**
+     * 每条消息的发送结果，顺序与传入的消息列表一致
+     */
+    private List<MessageSendResult> results;
+}
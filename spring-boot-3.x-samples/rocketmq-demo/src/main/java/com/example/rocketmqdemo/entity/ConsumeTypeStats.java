@@ -0,0 +1,39 @@
+package com.example.rocketmqdemo.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 按消息类型统计的消费处理耗时
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConsumeTypeStats {
+
+    /**
+     * 消息类型
+     */
+    private String messageType;
+
+    /**
+     * 累计处理的消息数
+     */
+    private long processed;
+
+    /**
+     * 累计处理失败的消息数
+     */
+    private long failed;
+
+    /**
+     * 平均处理耗时（毫秒）
+     */
+    private double avgMillis;
+
+    /**
+     * 最大处理耗时（毫秒）
+     */
+    private double maxMillis;
+}
@@ -0,0 +1,55 @@
+package com.example.rocketmqdemo.entity;
+
+import lombok.Data;
+
+/**
+ * 定时消息的投递偏差统计，偏差为实际时间减去计划投递时间（毫秒）
+ */
+@Data
+public class DelayDriftStats {
+
+    /**
+     * 等待投递的消息数
+     */
+    private long pending;
+
+    /**
+     * 已投递到主题的消息数
+     */
+    private long released;
+
+    /**
+     * 投递失败（稍后重试）的次数
+     */
+    private long releaseFailures;
+
+    /**
+     * 投递到主题时的平均偏差
+     */
+    private double avgReleaseDriftMillis;
+
+    /**
+     * 投递到主题时的最大偏差
+     */
+    private long maxReleaseDriftMillis;
+
+    /**
+     * 延时消费者收到的定时消息数
+     */
+    private long consumed;
+
+    /**
+     * 延时消费者收到消息时的平均偏差
+     */
+    private double avgConsumeDriftMillis;
+
+    /**
+     * 延时消费者收到消息时的最小偏差，为负数说明消息提前到达
+     */
+    private long minConsumeDriftMillis;
+
+    /**
+     * 延时消费者收到消息时的最大偏差
+     */
+    private long maxConsumeDriftMillis;
+}
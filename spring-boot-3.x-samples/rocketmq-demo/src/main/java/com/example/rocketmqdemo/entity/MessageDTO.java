@@ -31,4 +31,14 @@ public class MessageDTO implements Serializable {
      * 消息类型
      */
     private String messageType;
+
+    /**
+     * 业务键（如订单号），顺序消息按业务键选择队列，同一业务键的消息按发送顺序消费
+     */
+    private String businessKey;
+
+    /**
+     * 计划投递时间（毫秒时间戳），只有任意时长的定时消息才有
+     */
+    private Long deliverTime;
 }
\ No newline at end of file
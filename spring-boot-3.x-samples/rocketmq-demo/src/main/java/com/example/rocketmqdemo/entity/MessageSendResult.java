@@ -0,0 +1,34 @@
+package com.example.rocketmqdemo.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量发送中单条消息的发送结果
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageSendResult {
+
+    /**
+     * 业务消息ID（MessageDTO.id）
+     */
+    private String id;
+
+    /**
+     * RocketMQ消息ID，发送失败时为空
+     */
+    private String msgId;
+
+    /**
+     * 是否发送成功
+     */
+    private boolean success;
+
+    /**
+     * 发送状态（SEND_OK等）或失败原因
+     */
+    private String status;
+}
@@ -1,16 +1,35 @@
 package com.example.rocketmqdemo.producer;
 
+import com.example.rocketmqdemo.entity.BatchSendResult;
 import com.example.rocketmqdemo.entity.MessageDTO;
+import com.example.rocketmqdemo.entity.MessageSendResult;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.client.producer.SendCallback;
+import org.apache.rocketmq.client.producer.SendResult;
+import org.apache.rocketmq.common.message.MessageClientIDSetter;
 import org.apache.rocketmq.spring.core.RocketMQTemplate;
+import org.apache.rocketmq.spring.support.RocketMQUtil;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * RocketMQ消息生产者服务
@@ -24,6 +43,75 @@ public class RocketMQProducerService {
 
     @Value("${rocketmq.producer.group}")
     private String producerGroup;
+
+    /**
+     * 每个批次的最大字节数，不配置时使用生产者的 max-message-size（默认4MB）
+     */
+    @Value("${rocketmq-demo.batch.max-bytes:0}")
+    private long batchMaxBytes;
+
+    /**
+     * 同时在途的批次数
+     */
+    @Value("${rocketmq-demo.batch.max-in-flight:8}")
+    private int batchMaxInFlight;
+
+    /**
+     * 每个批次的发送超时时间（毫秒）
+     */
+    @Value("${rocketmq-demo.batch.send-timeout-ms:3000}")
+    private long batchSendTimeoutMillis;
+
+    /**
+     * 执行批次提交循环的线程数
+     */
+    @Value("${rocketmq-demo.batch.senders:2}")
+    private int batchSenders;
+
+    /**
+     * 排队等待提交线程的批量请求数上限，超过时新的批量请求直接失败
+     */
+    @Value("${rocketmq-demo.batch.queue-capacity:16}")
+    private int batchQueueCapacity;
+
+    /**
+     * 估算消息编码后大小时，每条消息额外预留的字节数：
+     * 编码头部（总长、魔数、CRC、标志位、消息体长度、属性长度约20字节）加上发送时才写入的 UNIQ_KEY 等属性
+     */
+    private static final int MESSAGE_OVERHEAD_BYTES = 20 + 64;
+
+    private Semaphore batchPermits;
+
+    /**
+     * 执行批次提交循环的线程，在途批次达到上限时由这些线程等待，调用线程不会被阻塞。
+     * 线程数和排队的批量请求数都有上限，队列满时新的批量请求直接失败，背压传递给调用方
+     */
+    private final AtomicInteger batchSenderCount = new AtomicInteger();
+    private ThreadPoolExecutor batchSendExecutor;
+
+    @PostConstruct
+    public void init() {
+        batchPermits = new Semaphore(Math.max(1, batchMaxInFlight));
+        if (batchSendExecutor == null) {
+            int senders = Math.max(1, batchSenders);
+            batchSendExecutor = new ThreadPoolExecutor(senders, senders, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, batchQueueCapacity)), r -> {
+                        Thread thread = new Thread(r, "rocketmq-batch-send-" + batchSenderCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }, new ThreadPoolExecutor.AbortPolicy());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        // 中断等待名额的提交线程，未发送的批次按失败计入结果；仍在排队的批量请求直接失败
+        for (Runnable queued : batchSendExecutor.shutdownNow()) {
+            if (queued instanceof BatchSubmitTask task) {
+                task.fail("生产者已关闭");
+            }
+        }
+    }
     
     // 重载方法：接受MessageDTO对象
     public String sendSyncMessage(String topic, MessageDTO messageDTO) {
@@ -151,33 +239,235 @@ public class RocketMQProducerService {
     }
 
     /**
-     * 发送批量消息
+     * 发送顺序消息（订单消息）
+     * 按业务键选择队列，同一业务键的消息进入同一个队列，由顺序消费者按发送顺序处理；没有业务键时按消息ID选择队列
+     * @param topic 主题
+     * @param content 消息内容
+     * @param businessKey 业务键，如订单号，可以为空
+     * @return 消息ID
+     */
+    public String sendOrderMessage(String topic, String content, String businessKey) {
+        try {
+            MessageDTO messageDTO = new MessageDTO();
+            messageDTO.setId(UUID.randomUUID().toString());
+            messageDTO.setContent(content);
+            messageDTO.setSendTime(LocalDateTime.now());
+            messageDTO.setMessageType("ORDER");
+            messageDTO.setBusinessKey(businessKey);
+
+            String hashKey = businessKey == null || businessKey.isBlank() ? messageDTO.getId() : businessKey;
+            Message<MessageDTO> message = MessageBuilder.withPayload(messageDTO).build();
+            SendResult sendResult = rocketMQTemplate.syncSendOrderly(topic, message, hashKey);
+            log.info("顺序消息发送成功，主题：{}，消息ID：{}，业务键：{}，队列：{}",
+                    topic, messageDTO.getId(), businessKey, sendResult.getMessageQueue());
+            return messageDTO.getId();
+        } catch (Exception e) {
+            log.error("顺序消息发送失败，主题：{}，业务键：{}", topic, businessKey, e);
+            throw e;
+        }
+    }
+
+    /**
+     * 发送批量消息，等待所有批次返回
      * @param topic 主题
      * @param messages 消息列表
+     * @return 每条消息的发送结果
      */
-    public void sendBatchMessage(String topic, java.util.List<MessageDTO> messages) {
+    public BatchSendResult sendBatchMessage(String topic, List<MessageDTO> messages) {
+        BatchSendResult result;
         try {
-            // 设置消息ID和发送时间
-            for (MessageDTO message : messages) {
-                if (message.getId() == null) {
-                    message.setId(UUID.randomUUID().toString());
-                }
-                if (message.getSendTime() == null) {
-                    message.setSendTime(LocalDateTime.now());
+            result = sendBatchMessageAsync(topic, messages).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RejectedExecutionException rejected) {
+                log.warn("批量消息发送被拒绝，主题：{}，消息数量：{}，原因：{}", topic, messages.size(), rejected.getMessage());
+                throw rejected;
+            }
+            throw e;
+        }
+        log.info("批量消息发送完成，主题：{}，消息数量：{}，成功：{}，失败：{}，批次：{}，耗时：{}ms",
+                topic, result.getTotal(), result.getSucceeded(), result.getFailed(), result.getBatches(), result.getElapsedMillis());
+        return result;
+    }
+
+    /**
+     * 异步发送批量消息
+     * <p>
+     * 消息按编码后的大小拆分成不超过 max-bytes 的批次，每个批次作为一个 MessageBatch 一次请求发给Broker，
+     * 多个批次并发异步发送。消息转换和拆分在调用线程中完成，批次提交循环在批量发送线程中执行，调用方立即拿到Future；
+     * 同时在途的批次数不超过 max-in-flight，超过时由批量发送线程等待；
+     * 批量发送线程都在忙且排队的批量请求达到 queue-capacity 时，返回的Future以 RejectedExecutionException 异常完成
+     * @param topic 主题
+     * @param messages 消息列表
+     * @return 所有批次返回后完成，单条消息超过大小限制或所在批次发送失败时对应结果为失败
+     */
+    public CompletableFuture<BatchSendResult> sendBatchMessageAsync(String topic, List<MessageDTO> messages) {
+        long start = System.nanoTime();
+        long maxBytes = batchMaxBytes > 0 ? batchMaxBytes : rocketMQTemplate.getProducer().getMaxMessageSize();
+        MessageSendResult[] results = new MessageSendResult[messages.size()];
+
+        // 转换为RocketMQ消息，与 rocketMQTemplate.syncSend 一样先用消息转换器序列化消息体
+        List<org.apache.rocketmq.common.message.Message> rocketMessages = new ArrayList<>(messages.size());
+        for (MessageDTO message : messages) {
+            if (message.getId() == null) {
+                message.setId(UUID.randomUUID().toString());
+            }
+            if (message.getSendTime() == null) {
+                message.setSendTime(LocalDateTime.now());
+            }
+            Message<?> serialized = rocketMQTemplate.getMessageConverter().toMessage(message, null);
+            rocketMessages.add(RocketMQUtil.convertToRocketMessage(rocketMQTemplate.getMessageConverter(),
+                    rocketMQTemplate.getCharset(), topic, serialized));
+        }
+
+        // 按大小拆分批次，单条就超过限制的消息直接记为失败
+        List<List<Integer>> batches = new ArrayList<>();
+        List<Integer> current = new ArrayList<>();
+        long currentBytes = 0;
+        for (int i = 0; i < rocketMessages.size(); i++) {
+            long size = estimateSize(rocketMessages.get(i));
+            if (size > maxBytes) {
+                results[i] = new MessageSendResult(messages.get(i).getId(), null, false,
+                        "消息大小" + size + "字节超过限制" + maxBytes + "字节");
+                continue;
+            }
+            if (currentBytes + size > maxBytes) {
+                batches.add(current);
+                current = new ArrayList<>();
+                currentBytes = 0;
+            }
+            current.add(i);
+            currentBytes += size;
+        }
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+
+        BatchSubmitTask task = new BatchSubmitTask(topic, batches, messages, rocketMessages, results);
+        try {
+            batchSendExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            String reason = batchSendExecutor.isShutdown() ? "生产者已关闭" : "批量发送队列已满，请稍后重试";
+            return CompletableFuture.failedFuture(new RejectedExecutionException(reason, e));
+        }
+        return task.sent.thenApply(ignored -> {
+            int succeeded = 0;
+            for (MessageSendResult result : results) {
+                if (result.isSuccess()) {
+                    succeeded++;
                 }
             }
+            return new BatchSendResult(messages.size(), succeeded, messages.size() - succeeded, batches.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), List.of(results));
+        });
+    }
+
+    /**
+     * 一次批量请求的批次提交循环，关闭时据此让仍在排队的请求失败
+     */
+    private final class BatchSubmitTask implements Runnable {
+        private final String topic;
+        private final List<List<Integer>> batches;
+        private final List<MessageDTO> messages;
+        private final List<org.apache.rocketmq.common.message.Message> rocketMessages;
+        private final MessageSendResult[] results;
+        private final CompletableFuture<Void> sent = new CompletableFuture<>();
+
+        private BatchSubmitTask(String topic, List<List<Integer>> batches, List<MessageDTO> messages,
+                                List<org.apache.rocketmq.common.message.Message> rocketMessages,
+                                MessageSendResult[] results) {
+            this.topic = topic;
+            this.batches = batches;
+            this.messages = messages;
+            this.rocketMessages = rocketMessages;
+            this.results = results;
+        }
+
+        @Override
+        public void run() {
+            List<CompletableFuture<Void>> futures = new ArrayList<>(batches.size());
+            for (List<Integer> batch : batches) {
+                futures.add(sendBatch(topic, batch, messages, rocketMessages, results));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenRun(() -> sent.complete(null));
+        }
 
-            // 对每条消息单独发送，确保与其他发送方法保持一致的序列化/反序列化方式
-            for (MessageDTO message : messages) {
-                Message<MessageDTO> springMessage = MessageBuilder.withPayload(message).build();
-                rocketMQTemplate.syncSend(topic, springMessage, 3000);
-                log.info("批量消息单条发送成功，主题：{}，消息ID：{}", topic, message.getId());
+        private void fail(String reason) {
+            for (List<Integer> batch : batches) {
+                fillFailure(batch, messages, results, reason);
             }
-            
-            log.info("批量消息全部发送成功，主题：{}，消息数量：{}", topic, messages.size());
+            sent.complete(null);
+        }
+    }
+
+    /**
+     * 异步发送一个批次，结果写入 results 中对应的位置
+     */
+    private CompletableFuture<Void> sendBatch(String topic, List<Integer> batch, List<MessageDTO> messages,
+                                              List<org.apache.rocketmq.common.message.Message> rocketMessages,
+                                              MessageSendResult[] results) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        List<org.apache.rocketmq.common.message.Message> batchMessages = new ArrayList<>(batch.size());
+        for (Integer index : batch) {
+            batchMessages.add(rocketMessages.get(index));
+        }
+        Semaphore permits = batchPermits;
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // 应用关闭时中断，剩余批次在 acquire 时同样立即失败
+            fillFailure(batch, messages, results, "发送被中断");
+            future.complete(null);
+            return future;
+        }
+        try {
+            rocketMQTemplate.getProducer().send(batchMessages, new SendCallback() {
+                @Override
+                public void onSuccess(SendResult sendResult) {
+                    permits.release();
+                    for (Integer index : batch) {
+                        results[index] = new MessageSendResult(messages.get(index).getId(),
+                                MessageClientIDSetter.getUniqID(rocketMessages.get(index)), true,
+                                sendResult.getSendStatus().name());
+                    }
+                    future.complete(null);
+                }
+
+                @Override
+                public void onException(Throwable e) {
+                    permits.release();
+                    log.error("批量消息批次发送失败，主题：{}，批次消息数：{}", topic, batch.size(), e);
+                    fillFailure(batch, messages, results, e.getMessage());
+                    future.complete(null);
+                }
+            }, batchSendTimeoutMillis);
         } catch (Exception e) {
-            log.error("批量消息发送失败，主题：{}", topic, e);
-            throw e;
+            permits.release();
+            log.error("批量消息批次发送失败，主题：{}，批次消息数：{}", topic, batch.size(), e);
+            fillFailure(batch, messages, results, e.getMessage());
+            future.complete(null);
+        }
+        return future;
+    }
+
+    private static void fillFailure(List<Integer> batch, List<MessageDTO> messages, MessageSendResult[] results, String reason) {
+        for (Integer index : batch) {
+            results[index] = new MessageSendResult(messages.get(index).getId(), null, false, reason);
+        }
+    }
+
+    /**
+     * 估算消息在 MessageBatch 中编码后的大小
+     */
+    static long estimateSize(org.apache.rocketmq.common.message.Message message) {
+        long size = message.getTopic().length() + message.getBody().length + MESSAGE_OVERHEAD_BYTES;
+        Map<String, String> properties = message.getProperties();
+        if (properties != null) {
+            for (Map.Entry<String, String> entry : properties.entrySet()) {
+                // 属性编码为 key 1 value 2 的形式
+                size += entry.getKey().length() + entry.getValue().length() + 2;
+            }
         }
+        return size;
     }
 }
\ No newline at end of file
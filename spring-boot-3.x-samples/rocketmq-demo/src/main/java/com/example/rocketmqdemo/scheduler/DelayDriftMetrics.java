@@ -0,0 +1,77 @@
+package com.example.rocketmqdemo.scheduler;
+
+import com.example.rocketmqdemo.entity.DelayDriftStats;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 定时消息的投递偏差统计
+ * <p>
+ * 分两段记录：调度器把消息投递到主题时相对计划时间的偏差，
+ * 以及 RocketMQDelayConsumerService 实际收到消息时相对计划时间的偏差，两者之差就是Broker和消费者带来的延迟
+ */
+@Component
+public class DelayDriftMetrics {
+
+    private final LongAdder released = new LongAdder();
+    private final LongAdder releaseFailures = new LongAdder();
+    private final LongAdder releaseDriftTotal = new LongAdder();
+    private final LongAccumulator releaseDriftMax = new LongAccumulator(Math::max, 0);
+
+    private final LongAdder consumed = new LongAdder();
+    private final LongAdder consumeDriftTotal = new LongAdder();
+    private final LongAccumulator consumeDriftMin = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator consumeDriftMax = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    /**
+     * 记录一条消息投递到主题
+     * @param driftMillis 投递时间减去计划投递时间
+     */
+    public void recordRelease(long driftMillis) {
+        released.increment();
+        releaseDriftTotal.add(driftMillis);
+        releaseDriftMax.accumulate(driftMillis);
+    }
+
+    /**
+     * 记录一次投递失败
+     */
+    public void recordReleaseFailure() {
+        releaseFailures.increment();
+    }
+
+    /**
+     * 记录消费者收到一条定时消息
+     * @param driftMillis 收到时间减去计划投递时间
+     */
+    public void recordConsume(long driftMillis) {
+        consumed.increment();
+        consumeDriftTotal.add(driftMillis);
+        consumeDriftMin.accumulate(driftMillis);
+        consumeDriftMax.accumulate(driftMillis);
+    }
+
+    /**
+     * 当前的统计结果
+     * @param pending 等待投递的消息数
+     */
+    public DelayDriftStats getStats(long pending) {
+        DelayDriftStats stats = new DelayDriftStats();
+        stats.setPending(pending);
+        long releasedCount = released.sum();
+        stats.setReleased(releasedCount);
+        stats.setReleaseFailures(releaseFailures.sum());
+        stats.setAvgReleaseDriftMillis(releasedCount == 0 ? 0 : (double) releaseDriftTotal.sum() / releasedCount);
+        stats.setMaxReleaseDriftMillis(releaseDriftMax.get());
+        long consumedCount = consumed.sum();
+        stats.setConsumed(consumedCount);
+        if (consumedCount > 0) {
+            stats.setAvgConsumeDriftMillis((double) consumeDriftTotal.sum() / consumedCount);
+            stats.setMinConsumeDriftMillis(consumeDriftMin.get());
+            stats.setMaxConsumeDriftMillis(consumeDriftMax.get());
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,301 @@
+package com.example.rocketmqdemo.scheduler;
+
+import com.example.rocketmqdemo.entity.DelayDriftStats;
+import com.example.rocketmqdemo.entity.MessageDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.spring.core.RocketMQTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 任意时长的定时消息调度
+ * <p>
+ * RocketMQ 4.x 的延时消息只支持18个固定级别。这里把消息先保存到本地日志（DelayMessageStore），
+ * 同时在分层时间轮中注册一个定时任务，到达计划投递时间时从日志读取消息体投递到目标主题，投递成功后标记完成。
+ * 应用重启时重放日志恢复所有未完成的消息，已经过期的消息立即投递。
+ * <p>
+ * 时间轮添加和取消任务都是O(1)，内存中每条消息只保存ID、计划时间、日志位置和时间轮任务，支持百万级待投递消息。
+ * 投递至少一次：发送成功但标记完成前进程退出时，重启后会再投递一次
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DelayMessageScheduler {
+
+    private final RocketMQTemplate rocketMQTemplate;
+
+    private final DelayDriftMetrics delayDriftMetrics;
+
+    /**
+     * 本地存储目录
+     */
+    @Value("${rocketmq-demo.delay.store-dir:${java.io.tmpdir}/rocketmq-demo/delay}")
+    private String storeDir;
+
+    /**
+     * 每次写入后是否刷盘
+     */
+    @Value("${rocketmq-demo.delay.sync-on-write:false}")
+    private boolean syncOnWrite;
+
+    /**
+     * 已完成的记录数至少达到多少时才重写日志
+     */
+    @Value("${rocketmq-demo.delay.compact-min-records:100000}")
+    private int compactMinRecords;
+
+    /**
+     * 时间轮精度（毫秒）
+     */
+    @Value("${rocketmq-demo.delay.tick-ms:1}")
+    private long tickMs;
+
+    /**
+     * 每层时间轮的槽位数
+     */
+    @Value("${rocketmq-demo.delay.wheel-size:512}")
+    private int wheelSize;
+
+    /**
+     * 投递消息的线程数
+     */
+    @Value("${rocketmq-demo.delay.dispatch-threads:4}")
+    private int dispatchThreads;
+
+    /**
+     * 投递失败后重试的间隔（毫秒）
+     */
+    @Value("${rocketmq-demo.delay.retry-delay-ms:1000}")
+    private long retryDelayMillis;
+
+    /**
+     * 发送超时时间（毫秒）
+     */
+    @Value("${rocketmq-demo.delay.send-timeout-ms:3000}")
+    private long sendTimeoutMillis;
+
+    /**
+     * 允许的最大延时
+     */
+    @Value("${rocketmq-demo.delay.max-delay:30d}")
+    private Duration maxDelay;
+
+    private DelayMessageStore store;
+    private TimingWheelTimer<String> timer;
+
+    /**
+     * 每条待投递消息在时间轮中的任务，取消消息时同时从时间轮槽位中移除
+     */
+    private final Map<String, TimerTask<String>> timerTasks = new ConcurrentHashMap<>();
+
+    /**
+     * 已经从存储读出、正在发送的消息ID，这些消息不能再取消
+     */
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 保证取消和开始投递互斥：取消成功的消息不会再被读出投递
+     */
+    private final Object deliveryLock = new Object();
+
+    private ExecutorService dispatcher;
+    private Thread clockThread;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() throws IOException {
+        store = new DelayMessageStore(Path.of(storeDir), syncOnWrite, compactMinRecords);
+        AtomicInteger threadIndex = new AtomicInteger();
+        dispatcher = Executors.newFixedThreadPool(Math.max(1, dispatchThreads),
+                runnable -> new Thread(runnable, "delay-dispatch-" + threadIndex.incrementAndGet()));
+        timer = new TimingWheelTimer<>(tickMs, wheelSize, task -> dispatcher.execute(() -> deliver(task)));
+
+        // 恢复的任务中已经到期的会立即投递，投递失败时依赖 running 判断是否重新调度，必须先置为运行状态
+        running = true;
+        Map<String, Long> pending = store.load();
+        pending.forEach(this::addTimerTask);
+
+        clockThread = new Thread(this::advanceClock, "delay-timing-wheel");
+        clockThread.setDaemon(true);
+        clockThread.start();
+        log.info("定时消息调度已启动：存储目录={}, 恢复未完成消息={}, 精度={}ms", storeDir, pending.size(), tickMs);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        running = false;
+        if (clockThread != null) {
+            clockThread.interrupt();
+            clockThread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        boolean terminated = true;
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+            if (!dispatcher.awaitTermination(sendTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                // 超过发送超时仍未结束的投递，中断后再等一次；未开始的投递留在日志中，重启后恢复
+                dispatcher.shutdownNow();
+                terminated = dispatcher.awaitTermination(sendTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (store != null) {
+            if (terminated) {
+                store.close();
+            } else {
+                // 投递线程完成后还要写入完成记录，这时关闭日志会丢失完成记录，重启后重复投递
+                log.warn("仍有定时消息正在投递，暂不关闭定时消息日志：{}", storeDir);
+            }
+        }
+    }
+
+    /**
+     * 发送定时消息，在指定时间投递到主题
+     * @param topic 主题
+     * @param content 消息内容
+     * @param messageType 消息类型
+     * @param deliverAtMillis 计划投递时间（毫秒时间戳）
+     * @return 消息ID，可以用来取消
+     */
+    public String schedule(String topic, String content, String messageType, long deliverAtMillis) {
+        long now = System.currentTimeMillis();
+        if (deliverAtMillis - now > maxDelay.toMillis()) {
+            throw new IllegalArgumentException("延时不能超过" + maxDelay);
+        }
+        MessageDTO messageDTO = new MessageDTO();
+        messageDTO.setId(UUID.randomUUID().toString());
+        messageDTO.setContent(content);
+        messageDTO.setSendTime(LocalDateTime.now());
+        messageDTO.setMessageType(messageType);
+        messageDTO.setDeliverTime(deliverAtMillis);
+
+        // 和普通消息一样用模板的消息转换器序列化，消费者按 MessageDTO 反序列化
+        byte[] body = (byte[]) rocketMQTemplate.getMessageConverter().toMessage(messageDTO, null).getPayload();
+        try {
+            store.append(new DelayedMessage(messageDTO.getId(), topic, deliverAtMillis, body));
+        } catch (IOException e) {
+            log.error("定时消息保存失败，主题：{}", topic, e);
+            throw new IllegalStateException("定时消息保存失败", e);
+        }
+        addTimerTask(messageDTO.getId(), deliverAtMillis);
+        log.info("定时消息已保存，主题：{}，消息ID：{}，延时：{}ms", topic, messageDTO.getId(), deliverAtMillis - now);
+        return messageDTO.getId();
+    }
+
+    /**
+     * 取消还没有投递的定时消息
+     * 在存储中标记完成，并把任务从时间轮槽位中移除
+     * <p>
+     * 消息到期后投递线程读出消息到发送结束之前，消息处于投递中，取消返回false：
+     * 这时消息可能已经发到Broker，也可能发送失败后重新进入等待，之后可以再次取消
+     * @return 是否取消成功；消息不存在、已投递或正在投递时返回false
+     */
+    public boolean cancel(String id) {
+        boolean cancelled;
+        synchronized (deliveryLock) {
+            if (inFlight.contains(id)) {
+                log.info("取消定时消息失败，消息正在投递，消息ID：{}", id);
+                return false;
+            }
+            try {
+                cancelled = store.remove(id);
+            } catch (IOException e) {
+                log.error("取消定时消息失败，消息ID：{}", id, e);
+                throw new IllegalStateException("取消定时消息失败", e);
+            }
+        }
+        TimerTask<String> task = timerTasks.remove(id);
+        if (task != null) {
+            task.cancel();
+        }
+        log.info("取消定时消息，消息ID：{}，结果：{}", id, cancelled);
+        return cancelled;
+    }
+
+    /**
+     * 投递偏差统计
+     */
+    public DelayDriftStats getStats() {
+        return delayDriftMetrics.getStats(store.size());
+    }
+
+    private void advanceClock() {
+        while (running) {
+            try {
+                timer.advanceClock(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("推进时间轮失败", e);
+            }
+        }
+    }
+
+    /**
+     * 先保存任务引用再放入时间轮，已经到期的任务在放入时就会交给投递线程
+     */
+    private void addTimerTask(String id, long deliverAtMillis) {
+        TimerTask<String> task = new TimerTask<>(deliverAtMillis, id);
+        timerTasks.put(id, task);
+        timer.add(task);
+    }
+
+    private void deliver(TimerTask<String> task) {
+        String id = task.getPayload();
+        timerTasks.remove(id, task);
+        DelayedMessage message;
+        synchronized (deliveryLock) {
+            try {
+                message = store.get(id);
+            } catch (IOException e) {
+                log.error("读取定时消息失败，消息ID：{}", id, e);
+                return;
+            }
+            if (message == null) {
+                // 已经取消
+                return;
+            }
+            inFlight.add(id);
+        }
+        try {
+            try {
+                rocketMQTemplate.syncSend(message.topic(), MessageBuilder.withPayload(message.body()).build(), sendTimeoutMillis);
+            } catch (Exception e) {
+                delayDriftMetrics.recordReleaseFailure();
+                log.warn("定时消息投递失败，{}ms后重试，主题：{}，消息ID：{}，原因：{}",
+                        retryDelayMillis, message.topic(), id, e.getMessage());
+                if (running) {
+                    addTimerTask(id, System.currentTimeMillis() + retryDelayMillis);
+                }
+                return;
+            }
+            long drift = System.currentTimeMillis() - message.deliverAtMillis();
+            delayDriftMetrics.recordRelease(drift);
+            log.debug("定时消息已投递，主题：{}，消息ID：{}，偏差：{}ms", message.topic(), id, drift);
+            try {
+                store.remove(id);
+            } catch (IOException e) {
+                // 消息已经投递，不再重试；重启后会再投递一次
+                log.error("定时消息标记完成失败，消息ID：{}", id, e);
+            }
+        } finally {
+            inFlight.remove(id);
+        }
+    }
+}
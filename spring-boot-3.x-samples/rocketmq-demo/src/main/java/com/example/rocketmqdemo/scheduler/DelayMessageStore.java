@@ -0,0 +1,318 @@
+package com.example.rocketmqdemo.scheduler;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 定时消息的本地持久化存储
+ * <p>
+ * 只追加写的日志文件，每条记录格式为 [长度][CRC32][类型][内容]：
+ * ADD 记录保存完整的消息，DONE 记录表示消息已经投递或取消。
+ * 内存中只保存每条未完成消息在文件中的位置，消息体到期投递时再从文件读取，百万级待投递消息也不会占用太多内存。
+ * 启动时顺序重放日志恢复未完成的消息，进程崩溃时写了一半的记录通过长度和CRC识别并截断。
+ * 已完成的记录数超过未完成的记录数时重写日志，只保留未完成的消息，均摊到每条消息仍是O(1)
+ */
+@Slf4j
+public class DelayMessageStore implements Closeable {
+
+    private static final String LOG_FILE = "delay-messages.log";
+    private static final byte ADD = 1;
+    private static final byte DONE = 2;
+    private static final int HEADER_BYTES = 8;
+
+    private final Path directory;
+    private final Path logFile;
+    private final boolean syncOnWrite;
+    private final int compactMinRecords;
+
+    /**
+     * 未完成的消息，key为消息ID
+     */
+    private final Map<String, Entry> pending = new HashMap<>();
+
+    private FileChannel channel;
+    private long position;
+    private long deadRecords;
+
+    /**
+     * @param directory 存储目录
+     * @param syncOnWrite 每次写入后是否刷盘，关闭时只保证进程崩溃不丢消息，操作系统崩溃可能丢失最近写入的消息
+     * @param compactMinRecords 已完成的记录数至少达到多少时才重写日志
+     */
+    public DelayMessageStore(Path directory, boolean syncOnWrite, int compactMinRecords) {
+        this.directory = directory;
+        this.logFile = directory.resolve(LOG_FILE);
+        this.syncOnWrite = syncOnWrite;
+        this.compactMinRecords = compactMinRecords;
+    }
+
+    /**
+     * 打开日志文件并重放
+     * @return 未完成消息的ID和计划投递时间
+     */
+    public synchronized Map<String, Long> load() throws IOException {
+        Files.createDirectories(directory);
+        channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        pending.clear();
+        deadRecords = 0;
+        long size = channel.size();
+        long offset = 0;
+        while (offset < size) {
+            ByteBuffer record = readRecord(offset, size);
+            if (record == null) {
+                log.warn("定时消息日志在位置{}处记录不完整，截断{}字节", offset, size - offset);
+                channel.truncate(offset);
+                break;
+            }
+            byte type = record.get();
+            String id = readString(record);
+            if (type == ADD) {
+                long deliverAtMillis = record.getLong();
+                pending.put(id, new Entry(offset, deliverAtMillis));
+            } else if (pending.remove(id) != null) {
+                // ADD 和 DONE 两条记录都已无用
+                deadRecords += 2;
+            }
+            offset += HEADER_BYTES + record.limit();
+        }
+        position = offset;
+
+        Map<String, Long> messages = new HashMap<>(pending.size() * 2);
+        pending.forEach((id, entry) -> messages.put(id, entry.deliverAtMillis));
+        log.info("定时消息日志加载完成：文件={}, 未完成消息={}", logFile, messages.size());
+        return messages;
+    }
+
+    /**
+     * 保存一条定时消息
+     */
+    public synchronized void append(DelayedMessage message) throws IOException {
+        ensureOpen();
+        if (pending.containsKey(message.id())) {
+            throw new IllegalArgumentException("消息ID已存在：" + message.id());
+        }
+        long offset = write(encodeAdd(message));
+        pending.put(message.id(), new Entry(offset, message.deliverAtMillis()));
+    }
+
+    /**
+     * 读取未完成的消息
+     * @return 消息，已经投递或取消时返回 null
+     */
+    public synchronized DelayedMessage get(String id) throws IOException {
+        ensureOpen();
+        Entry entry = pending.get(id);
+        if (entry == null) {
+            return null;
+        }
+        ByteBuffer record = readRecord(entry.offset, position);
+        if (record == null) {
+            throw new IOException("定时消息记录已损坏：" + id);
+        }
+        record.get();
+        readString(record);
+        long deliverAtMillis = record.getLong();
+        String topic = readString(record);
+        byte[] body = new byte[record.getInt()];
+        record.get(body);
+        return new DelayedMessage(id, topic, deliverAtMillis, body);
+    }
+
+    /**
+     * 标记消息已经投递或取消
+     * @return 消息是否存在且未完成
+     * @throws IOException 日志已关闭或写入失败，已关闭时消息仍保留为未完成
+     */
+    public synchronized boolean remove(String id) throws IOException {
+        ensureOpen();
+        if (pending.remove(id) == null) {
+            return false;
+        }
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(1 + 2 + idBytes.length);
+        payload.put(DONE).putShort((short) idBytes.length).put(idBytes).flip();
+        write(payload);
+        deadRecords += 2;
+        if (deadRecords >= compactMinRecords && deadRecords > pending.size()) {
+            try {
+                compact();
+            } catch (IOException e) {
+                // 原日志仍然完整，下次移除消息时再重写
+                log.warn("定时消息日志重写失败：{}", e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 未完成的消息数
+     */
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * 日志文件大小（字节）
+     */
+    public synchronized long fileSize() {
+        return position;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (channel == null) {
+            throw new IOException("定时消息日志已关闭");
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.force(true);
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * 把未完成的消息复制到新文件，替换原来的日志
+     */
+    private void compact() throws IOException {
+        Path compacted = directory.resolve(LOG_FILE + ".compact");
+        long start = System.nanoTime();
+        List<Entry> entries = new ArrayList<>(pending.values());
+        long[] offsets = new long[entries.size()];
+        long offset = 0;
+        try (FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (int i = 0; i < entries.size(); i++) {
+                ByteBuffer record = readRecord(entries.get(i).offset, position);
+                if (record == null) {
+                    throw new IOException("定时消息记录已损坏，位置：" + entries.get(i).offset);
+                }
+                ByteBuffer buffer = withHeader(record);
+                offsets[i] = offset;
+                offset += buffer.remaining();
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+            }
+            target.force(true);
+        }
+        // 新文件完整写入后再替换，失败时原日志保持不变
+        channel.close();
+        try {
+            Files.move(compacted, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            channel = FileChannel.open(logFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            entries.get(i).offset = offsets[i];
+        }
+        position = offset;
+        log.debug("定时消息日志重写完成：清理记录={}, 保留消息={}, 耗时={}ms",
+                deadRecords, pending.size(), (System.nanoTime() - start) / 1_000_000);
+        deadRecords = 0;
+    }
+
+    private long write(ByteBuffer payload) throws IOException {
+        ByteBuffer buffer = withHeader(payload);
+        long offset = position;
+        long writePosition = offset;
+        while (buffer.hasRemaining()) {
+            writePosition += channel.write(buffer, writePosition);
+        }
+        if (syncOnWrite) {
+            channel.force(false);
+        }
+        position = writePosition;
+        return offset;
+    }
+
+    /**
+     * 读取一条记录的内容（不含头部）
+     * @return 记录内容，记录不完整或校验失败时返回 null
+     */
+    private ByteBuffer readRecord(long offset, long limit) throws IOException {
+        if (offset + HEADER_BYTES > limit) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(header, offset);
+        header.flip();
+        int length = header.getInt();
+        int crc = header.getInt();
+        if (length <= 0 || offset + HEADER_BYTES + length > limit) {
+            return null;
+        }
+        ByteBuffer record = ByteBuffer.allocate(length);
+        readFully(record, offset + HEADER_BYTES);
+        record.flip();
+        if (crc(record) != crc) {
+            return null;
+        }
+        return record;
+    }
+
+    private void readFully(ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("读取定时消息日志到达文件末尾，位置：" + offset);
+            }
+        }
+    }
+
+    private static ByteBuffer encodeAdd(DelayedMessage message) {
+        byte[] idBytes = message.id().getBytes(StandardCharsets.UTF_8);
+        byte[] topicBytes = message.topic().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(1 + 2 + idBytes.length + 8 + 2 + topicBytes.length + 4 + message.body().length);
+        payload.put(ADD)
+                .putShort((short) idBytes.length).put(idBytes)
+                .putLong(message.deliverAtMillis())
+                .putShort((short) topicBytes.length).put(topicBytes)
+                .putInt(message.body().length).put(message.body())
+                .flip();
+        return payload;
+    }
+
+    private static ByteBuffer withHeader(ByteBuffer payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + payload.remaining());
+        buffer.putInt(payload.remaining()).putInt(crc(payload)).put(payload.duplicate()).flip();
+        return buffer;
+    }
+
+    private static int crc(ByteBuffer payload) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload.duplicate());
+        return (int) crc32.getValue();
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class Entry {
+        private long offset;
+        private final long deliverAtMillis;
+
+        private Entry(long offset, long deliverAtMillis) {
+            this.offset = offset;
+            this.deliverAtMillis = deliverAtMillis;
+        }
+    }
+}
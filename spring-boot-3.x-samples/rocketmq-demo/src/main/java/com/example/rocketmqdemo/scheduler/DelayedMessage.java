@@ -0,0 +1,12 @@
+package com.example.rocketmqdemo.scheduler;
+
+/**
+ * 等待投递的定时消息
+ *
+ * @param id 消息ID
+ * @param topic 到期后投递的主题
+ * @param deliverAtMillis 计划投递时间（毫秒时间戳）
+ * @param body 已经序列化的消息体
+ */
+public record DelayedMessage(String id, String topic, long deliverAtMillis, byte[] body) {
+}
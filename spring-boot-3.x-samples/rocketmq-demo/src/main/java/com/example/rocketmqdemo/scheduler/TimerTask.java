@@ -0,0 +1,51 @@
+package com.example.rocketmqdemo.scheduler;
+
+/**
+ * 时间轮中的定时任务，同时是所在槽位双向链表的节点
+ *
+ * @param <T> 到期时交给回调的数据
+ */
+public final class TimerTask<T> {
+
+    private final long expirationMs;
+    private final T payload;
+    private volatile boolean cancelled;
+
+    volatile TimerTaskList<T> list;
+    TimerTask<T> next;
+    TimerTask<T> prev;
+
+    TimerTask(long expirationMs, T payload) {
+        this.expirationMs = expirationMs;
+        this.payload = payload;
+    }
+
+    public long getExpirationMs() {
+        return expirationMs;
+    }
+
+    public T getPayload() {
+        return payload;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 取消任务并从所在槽位中移除，O(1)
+     */
+    public void cancel() {
+        cancelled = true;
+        remove();
+    }
+
+    void remove() {
+        // 任务可能正在被时间轮推进时移到其他槽位，重试直到确认已经从链表中移除
+        TimerTaskList<T> current = list;
+        while (current != null) {
+            current.remove(this);
+            current = list;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.rocketmqdemo.scheduler;
+
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 时间轮的一个槽位：带哨兵节点的环形双向链表，添加和移除任务都是O(1)
+ * <p>
+ * 槽位本身放入 DelayQueue，到期时间为槽位对应的时间，所以 DelayQueue 中的元素个数只和槽位数有关，和任务数无关
+ */
+final class TimerTaskList<T> implements Delayed {
+
+    private final AtomicInteger taskCounter;
+    private final TimerTask<T> root = new TimerTask<>(-1, null);
+    private final AtomicLong expiration = new AtomicLong(-1);
+
+    TimerTaskList(AtomicInteger taskCounter) {
+        this.taskCounter = taskCounter;
+        root.next = root;
+        root.prev = root;
+    }
+
+    /**
+     * 设置槽位的到期时间
+     * @return 到期时间是否变化，变化说明槽位被复用到新一轮，需要重新放入 DelayQueue
+     */
+    boolean setExpiration(long expirationMs) {
+        return expiration.getAndSet(expirationMs) != expirationMs;
+    }
+
+    long getExpiration() {
+        return expiration.get();
+    }
+
+    void add(TimerTask<T> task) {
+        boolean done = false;
+        while (!done) {
+            // 先从原来的槽位移除，保证一个任务只在一个槽位中
+            task.remove();
+            synchronized (this) {
+                synchronized (task) {
+                    if (task.list == null) {
+                        TimerTask<T> tail = root.prev;
+                        task.next = root;
+                        task.prev = tail;
+                        task.list = this;
+                        tail.next = task;
+                        root.prev = task;
+                        taskCounter.incrementAndGet();
+                        done = true;
+                    }
+                }
+            }
+        }
+    }
+
+    synchronized void remove(TimerTask<T> task) {
+        synchronized (task) {
+            if (task.list == this) {
+                task.next.prev = task.prev;
+                task.prev.next = task.next;
+                task.next = null;
+                task.prev = null;
+                task.list = null;
+                taskCounter.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 移除槽位中的所有任务并逐个交给 handler，重置槽位的到期时间
+     */
+    synchronized void flush(Consumer<TimerTask<T>> handler) {
+        TimerTask<T> head = root.next;
+        while (head != root) {
+            remove(head);
+            handler.accept(head);
+            head = root.next;
+        }
+        expiration.set(-1);
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(Math.max(getExpiration() - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+        return Long.compare(getExpiration(), ((TimerTaskList<?>) other).getExpiration());
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.rocketmqdemo.scheduler;
+
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分层时间轮的一层
+ * <p>
+ * 每层有 wheelSize 个槽位，每个槽位跨度 tickMs，一层能表示 tickMs * wheelSize 毫秒的时间范围；
+ * 超出范围的任务放到上一层（跨度为本层的整圈时间），上一层按需创建。
+ * 以 tickMs=1、wheelSize=512 为例，前四层分别覆盖约0.5秒、4.4分钟、37小时和2年，
+ * 添加任务只需要计算槽位下标，和待触发的任务数无关
+ */
+final class TimingWheel<T> {
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final long interval;
+    private final TimerTaskList<T>[] buckets;
+    private final AtomicInteger taskCounter;
+    private final DelayQueue<TimerTaskList<T>> queue;
+
+    /**
+     * 当前时间，向下取整为 tickMs 的整数倍
+     */
+    private long currentTime;
+
+    private volatile TimingWheel<T> overflowWheel;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(long tickMs, int wheelSize, long startMs, AtomicInteger taskCounter, DelayQueue<TimerTaskList<T>> queue) {
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.interval = tickMs * wheelSize;
+        this.taskCounter = taskCounter;
+        this.queue = queue;
+        this.currentTime = startMs - (startMs % tickMs);
+        this.buckets = new TimerTaskList[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new TimerTaskList<>(taskCounter);
+        }
+    }
+
+    /**
+     * 把任务放入对应的槽位
+     * @return 是否放入成功，任务已取消或已经到期时返回 false
+     */
+    boolean add(TimerTask<T> task) {
+        long expiration = task.getExpirationMs();
+        if (task.isCancelled()) {
+            return false;
+        }
+        if (expiration < currentTime + tickMs) {
+            return false;
+        }
+        if (expiration < currentTime + interval) {
+            long virtualId = expiration / tickMs;
+            TimerTaskList<T> bucket = buckets[(int) (virtualId % wheelSize)];
+            bucket.add(task);
+            if (bucket.setExpiration(virtualId * tickMs)) {
+                // 槽位进入新的一轮，需要重新入队；同一轮中后续添加的任务不需要再入队
+                queue.offer(bucket);
+            }
+            return true;
+        }
+        return overflowWheel().add(task);
+    }
+
+    /**
+     * 推进当前时间，上层时间轮一起推进
+     */
+    void advanceClock(long timeMs) {
+        if (timeMs >= currentTime + tickMs) {
+            currentTime = timeMs - (timeMs % tickMs);
+            TimingWheel<T> overflow = overflowWheel;
+            if (overflow != null) {
+                overflow.advanceClock(currentTime);
+            }
+        }
+    }
+
+    private TimingWheel<T> overflowWheel() {
+        TimingWheel<T> overflow = overflowWheel;
+        if (overflow == null) {
+            synchronized (this) {
+                overflow = overflowWheel;
+                if (overflow == null) {
+                    overflow = new TimingWheel<>(interval, wheelSize, currentTime, taskCounter, queue);
+                    overflowWheel = overflow;
+                }
+            }
+        }
+        return overflow;
+    }
+}
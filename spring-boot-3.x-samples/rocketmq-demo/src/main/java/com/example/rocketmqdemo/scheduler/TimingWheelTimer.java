@@ -0,0 +1,103 @@
+package com.example.rocketmqdemo.scheduler;
+
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * 基于分层时间轮的定时器
+ * <p>
+ * 添加和取消任务都是O(1)；推进时间由调用方在单独的线程中循环调用 advanceClock，
+ * 只有有任务的槽位才会进入 DelayQueue，没有任务到期时线程阻塞等待，不会按 tick 空转。
+ * 到期任务在推进时间的线程中交给 expiredHandler，handler 不应该阻塞
+ *
+ * @param <T> 任务携带的数据
+ */
+public class TimingWheelTimer<T> {
+
+    private final DelayQueue<TimerTaskList<T>> delayQueue = new DelayQueue<>();
+    private final AtomicInteger taskCounter = new AtomicInteger();
+    private final TimingWheel<T> timingWheel;
+    private final Consumer<TimerTask<T>> expiredHandler;
+
+    /**
+     * 添加任务时只读取时间轮，可以并发；推进时间会移动任务，需要独占
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * @param tickMs 最底层时间轮每个槽位的跨度，也就是定时精度（毫秒）
+     * @param wheelSize 每层时间轮的槽位数
+     * @param expiredHandler 任务到期时的回调
+     */
+    public TimingWheelTimer(long tickMs, int wheelSize, Consumer<TimerTask<T>> expiredHandler) {
+        if (tickMs < 1 || wheelSize < 2) {
+            throw new IllegalArgumentException("tickMs需要大于0，wheelSize需要大于1");
+        }
+        this.timingWheel = new TimingWheel<>(tickMs, wheelSize, System.currentTimeMillis(), taskCounter, delayQueue);
+        this.expiredHandler = expiredHandler;
+    }
+
+    /**
+     * 添加定时任务，到期时间早于当前时间的任务立即交给回调
+     * @param expirationMs 到期时间（毫秒时间戳）
+     * @param payload 任务数据
+     * @return 定时任务，可以用来取消
+     */
+    public TimerTask<T> add(long expirationMs, T payload) {
+        TimerTask<T> task = new TimerTask<>(expirationMs, payload);
+        add(task);
+        return task;
+    }
+
+    /**
+     * 添加已经创建的定时任务，调用方可以在任务可能到期之前先保存任务的引用
+     */
+    void add(TimerTask<T> task) {
+        lock.readLock().lock();
+        try {
+            addTask(task);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 推进时间，处理到期的槽位
+     * @param timeoutMs 没有槽位到期时最多等待的时间
+     * @return 是否处理了到期的槽位
+     */
+    public boolean advanceClock(long timeoutMs) throws InterruptedException {
+        TimerTaskList<T> bucket = delayQueue.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        if (bucket == null) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            while (bucket != null) {
+                timingWheel.advanceClock(bucket.getExpiration());
+                // 上层槽位的任务重新放入时会降到下层，最底层的任务此时已经到期
+                bucket.flush(this::addTask);
+                bucket = delayQueue.poll();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return true;
+    }
+
+    /**
+     * 还没有到期的任务数
+     */
+    public int size() {
+        return taskCounter.get();
+    }
+
+    private void addTask(TimerTask<T> task) {
+        if (!timingWheel.add(task) && !task.isCancelled()) {
+            expiredHandler.accept(task);
+        }
+    }
+}
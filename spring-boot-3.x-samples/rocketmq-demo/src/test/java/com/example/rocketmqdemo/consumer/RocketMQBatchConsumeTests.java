@@ -0,0 +1,135 @@
+package com.example.rocketmqdemo.consumer;
+
+import com.example.rocketmqdemo.entity.ConsumeTypeStats;
+import com.example.rocketmqdemo.entity.MessageDTO;
+import org.apache.rocketmq.client.consumer.DefaultMQPushConsumer;
+import org.apache.rocketmq.client.consumer.listener.ConsumeConcurrentlyContext;
+import org.apache.rocketmq.client.consumer.listener.ConsumeConcurrentlyStatus;
+import org.apache.rocketmq.client.consumer.listener.MessageListenerConcurrently;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.apache.rocketmq.common.message.MessageQueue;
+import org.apache.rocketmq.spring.support.RocketMQMessageConverter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 批量消费、运行时调整和处理耗时统计测试，不需要连接 RocketMQ
+ */
+class RocketMQBatchConsumeTests {
+
+    private final RocketMQMessageConverter rocketMQMessageConverter = new RocketMQMessageConverter();
+    private final ConsumerMetrics consumerMetrics = new ConsumerMetrics();
+    private final List<String> processed = new ArrayList<>();
+    private RocketMQConsumerService consumerService;
+    private DefaultMQPushConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        MessageProcessor messageProcessor = new MessageProcessor(consumerMetrics) {
+            @Override
+            public void processMessage(MessageDTO message) {
+                if (message.getContent().startsWith("fail")) {
+                    consumerMetrics.record(message.getMessageType(), 0, false);
+                    throw new IllegalStateException("处理失败");
+                }
+                super.processMessage(message);
+                processed.add(message.getId());
+            }
+        };
+        consumerService = new RocketMQConsumerService(messageProcessor, rocketMQMessageConverter);
+        ReflectionTestUtils.setField(consumerService, "batchEnabled", true);
+        ReflectionTestUtils.setField(consumerService, "consumeMessageBatchMaxSize", 16);
+        ReflectionTestUtils.setField(consumerService, "pullBatchSize", 64);
+        ReflectionTestUtils.setField(consumerService, "consumeThreads", 8);
+        ReflectionTestUtils.setField(consumerService, "consumeThreadMax", 32);
+
+        consumer = new DefaultMQPushConsumer("test-group");
+        consumerService.prepareStart(consumer);
+    }
+
+    @Test
+    void prepareStartAppliesSettingsAndBatchListener() {
+        assertEquals(8, consumer.getConsumeThreadMin());
+        assertEquals(32, consumer.getConsumeThreadMax());
+        assertEquals(64, consumer.getPullBatchSize());
+        assertEquals(16, consumer.getConsumeMessageBatchMaxSize());
+        assertInstanceOf(MessageListenerConcurrently.class, consumer.getMessageListener());
+    }
+
+    @Test
+    void batchIsProcessedInOneCallback() {
+        ConsumeConcurrentlyContext context = context();
+        ConsumeConcurrentlyStatus status = listener().consumeMessage(
+                List.of(message("1", "TEXT", "a"), message("2", "NOTIFICATION", "b"), message("3", "TEXT", "c")), context);
+
+        assertEquals(ConsumeConcurrentlyStatus.CONSUME_SUCCESS, status);
+        assertEquals(List.of("1", "2", "3"), processed);
+        assertEquals(Integer.MAX_VALUE, context.getAckIndex());
+    }
+
+    @Test
+    void failedMessageAcksOnlyPrecedingMessages() {
+        ConsumeConcurrentlyContext context = context();
+        ConsumeConcurrentlyStatus status = listener().consumeMessage(
+                List.of(message("1", "TEXT", "a"), message("2", "ORDER", "fail"), message("3", "TEXT", "c")), context);
+
+        // 第1条确认，第2、3条发回Broker重新投递
+        assertEquals(ConsumeConcurrentlyStatus.CONSUME_SUCCESS, status);
+        assertEquals(0, context.getAckIndex());
+        assertEquals(List.of("1"), processed);
+    }
+
+    @Test
+    void metricsAreRecordedPerType() {
+        listener().consumeMessage(List.of(message("1", "TEXT", "a"), message("2", "TEXT", "b"),
+                message("3", "ORDER", "c"), message("4", "ORDER", "fail")), context());
+
+        List<ConsumeTypeStats> stats = consumerMetrics.getStats();
+        assertEquals(List.of("ORDER", "TEXT"), stats.stream().map(ConsumeTypeStats::getMessageType).toList());
+        assertEquals(2, stats.get(0).getProcessed());
+        assertEquals(1, stats.get(0).getFailed());
+        assertEquals(2, stats.get(1).getProcessed());
+        assertEquals(0, stats.get(1).getFailed());
+        assertTrue(stats.get(1).getMaxMillis() >= stats.get(1).getAvgMillis());
+    }
+
+    @Test
+    void settingsCanBeChangedAtRuntime() {
+        Map<String, Object> settings = consumerService.updateSettings(null, 128, 4);
+
+        assertEquals(8, settings.get("consumeThreads"));
+        assertEquals(128, consumer.getPullBatchSize());
+        assertEquals(4, consumer.getConsumeMessageBatchMaxSize());
+        assertThrows(IllegalArgumentException.class, () -> consumerService.updateSettings(32, null, null));
+        assertThrows(IllegalArgumentException.class, () -> consumerService.updateSettings(null, 0, null));
+    }
+
+    private MessageListenerConcurrently listener() {
+        return (MessageListenerConcurrently) consumer.getMessageListener();
+    }
+
+    private static ConsumeConcurrentlyContext context() {
+        return new ConsumeConcurrentlyContext(new MessageQueue("demo-topic", "broker-a", 0));
+    }
+
+    private MessageExt message(String id, String messageType, String content) {
+        MessageDTO messageDTO = new MessageDTO();
+        messageDTO.setId(id);
+        messageDTO.setMessageType(messageType);
+        messageDTO.setContent(content);
+        MessageConverter converter = rocketMQMessageConverter.getMessageConverter();
+        MessageExt messageExt = new MessageExt();
+        messageExt.setTopic("demo-topic");
+        messageExt.setBody((byte[]) converter.toMessage(messageDTO, null).getPayload());
+        messageExt.setMsgId("msg-" + id);
+        return messageExt;
+    }
+}
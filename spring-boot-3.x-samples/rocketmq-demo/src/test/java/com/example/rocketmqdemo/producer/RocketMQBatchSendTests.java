@@ -0,0 +1,259 @@
+package com.example.rocketmqdemo.producer;
+
+import com.example.rocketmqdemo.entity.BatchSendResult;
+import com.example.rocketmqdemo.entity.MessageDTO;
+import com.example.rocketmqdemo.entity.MessageSendResult;
+import org.apache.rocketmq.client.producer.DefaultMQProducer;
+import org.apache.rocketmq.client.producer.SendCallback;
+import org.apache.rocketmq.client.producer.SendResult;
+import org.apache.rocketmq.client.producer.SendStatus;
+import org.apache.rocketmq.common.message.Message;
+import org.apache.rocketmq.spring.core.RocketMQTemplate;
+import org.apache.rocketmq.spring.support.RocketMQMessageConverter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 批量发送测试
+ * 使用模拟的生产者代替Broker：每次请求固定往返耗时 RTT_MILLIS，异步请求在另一个线程中回调
+ */
+class RocketMQBatchSendTests {
+
+    private static final long RTT_MILLIS = 1;
+
+    private final RocketMQTemplate rocketMQTemplate = mock(RocketMQTemplate.class);
+    private final DefaultMQProducer producer = mock(DefaultMQProducer.class);
+    private final ScheduledExecutorService broker = Executors.newScheduledThreadPool(4);
+    private final List<Integer> batchSizes = new ArrayList<>();
+    private final List<Long> batchBytes = new ArrayList<>();
+    private final AtomicInteger batchRequests = new AtomicInteger();
+    private RocketMQProducerService producerService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(rocketMQTemplate.getProducer()).thenReturn(producer);
+        when(rocketMQTemplate.getMessageConverter()).thenReturn(new RocketMQMessageConverter().getMessageConverter());
+        when(rocketMQTemplate.getCharset()).thenReturn("UTF-8");
+        when(producer.getMaxMessageSize()).thenReturn(4 * 1024 * 1024);
+
+        // 批量异步发送：每个批次一次往返
+        doAnswer(invocation -> {
+            Collection<Message> messages = invocation.getArgument(0);
+            SendCallback callback = invocation.getArgument(1);
+            long bytes = messages.stream().mapToLong(RocketMQProducerService::estimateSize).sum();
+            synchronized (batchSizes) {
+                batchSizes.add(messages.size());
+                batchBytes.add(bytes);
+            }
+            batchRequests.incrementAndGet();
+            if (bytes > producer.getMaxMessageSize()) {
+                callback.onException(new IllegalArgumentException("批次超过4MB"));
+            } else {
+                broker.schedule(() -> callback.onSuccess(sendResult()), RTT_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            return null;
+        }).when(producer).send(anyCollection(), any(SendCallback.class), anyLong());
+
+        producerService = new RocketMQProducerService(rocketMQTemplate);
+        ReflectionTestUtils.setField(producerService, "batchMaxInFlight", 8);
+        ReflectionTestUtils.setField(producerService, "batchSendTimeoutMillis", 3000L);
+        ReflectionTestUtils.setField(producerService, "batchSenders", 2);
+        ReflectionTestUtils.setField(producerService, "batchQueueCapacity", 16);
+        producerService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        producerService.destroy();
+        broker.shutdownNow();
+    }
+
+    @Test
+    void splitsBatchesUnderMaxBytes() {
+        ReflectionTestUtils.setField(producerService, "batchMaxBytes", 16 * 1024L);
+
+        BatchSendResult result = producerService.sendBatchMessage("demo-topic", messages(100, 1024));
+
+        assertEquals(100, result.getSucceeded());
+        assertEquals(0, result.getFailed());
+        assertTrue(result.getBatches() > 1);
+        assertEquals(result.getBatches(), batchRequests.get());
+        assertEquals(100, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        // 结果顺序与传入的消息一致
+        assertEquals("id-0000", result.getResults().get(0).getId());
+        assertEquals("id-0099", result.getResults().get(99).getId());
+        assertEquals("SEND_OK", result.getResults().get(0).getStatus());
+    }
+
+    @Test
+    void largeBatchStaysUnderBrokerLimit() {
+        // 共约12MB，必须拆成多个4MB以内的批次
+        BatchSendResult result = producerService.sendBatchMessage("demo-topic", messages(300, 40 * 1024));
+
+        assertEquals(300, result.getSucceeded());
+        assertTrue(result.getBatches() >= 3);
+    }
+
+    @Test
+    void oversizedMessageFailsWithoutSending() {
+        ReflectionTestUtils.setField(producerService, "batchMaxBytes", 4096L);
+        List<MessageDTO> messages = messages(3, 100);
+        messages.get(1).setContent("x".repeat(8192));
+
+        BatchSendResult result = producerService.sendBatchMessage("demo-topic", messages);
+
+        assertEquals(2, result.getSucceeded());
+        MessageSendResult oversized = result.getResults().get(1);
+        assertFalse(oversized.isSuccess());
+        assertTrue(oversized.getStatus().contains("超过限制"));
+    }
+
+    @Test
+    void failedBatchMarksItsMessagesFailed() throws Exception {
+        doAnswer(invocation -> {
+            invocation.<SendCallback>getArgument(1).onException(new RuntimeException("broker busy"));
+            return null;
+        }).when(producer).send(anyCollection(), any(SendCallback.class), anyLong());
+
+        BatchSendResult result = producerService.sendBatchMessage("demo-topic", messages(10, 100));
+
+        assertEquals(10, result.getFailed());
+        assertEquals("broker busy", result.getResults().get(0).getStatus());
+    }
+
+    @Test
+    void packsMessagesIntoFewestBatchRequests() throws Exception {
+        long maxBytes = 16 * 1024L;
+        ReflectionTestUtils.setField(producerService, "batchMaxBytes", maxBytes);
+        int count = 2000;
+
+        BatchSendResult result = producerService.sendBatchMessage("demo-topic", messages(count, 256));
+
+        assertEquals(count, result.getSucceeded());
+        // 每个批次一次 send(Collection) 请求，没有逐条发送
+        verify(producer, times(result.getBatches())).send(anyCollection(), any(SendCallback.class), anyLong());
+        verify(rocketMQTemplate, never()).syncSend(anyString(), any(org.springframework.messaging.Message.class), anyLong());
+        // 消息大小相同，除最后一批外每批消息数相同，且再加一条就会超过 max-bytes
+        int perBatch = batchSizes.get(0);
+        long perMessage = batchBytes.get(0) / perBatch;
+        assertTrue(batchBytes.get(0) + perMessage > maxBytes);
+        assertEquals((count + perBatch - 1) / perBatch, result.getBatches());
+        for (int i = 0; i < batchSizes.size(); i++) {
+            assertTrue(batchBytes.get(i) <= maxBytes);
+            if (i < batchSizes.size() - 1) {
+                assertEquals(perBatch, batchSizes.get(i));
+            }
+        }
+        assertEquals(count, batchSizes.stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    void asyncSendDoesNotBlockCallerWhenInFlightLimitReached() throws Exception {
+        ReflectionTestUtils.setField(producerService, "batchMaxBytes", 4096L);
+        ReflectionTestUtils.setField(producerService, "batchMaxInFlight", 1);
+        producerService.init();
+        // Broker不回调，第一个批次一直在途
+        List<SendCallback> callbacks = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            callbacks.add(invocation.getArgument(1));
+            return null;
+        }).when(producer).send(anyCollection(), any(SendCallback.class), anyLong());
+
+        CompletableFuture<BatchSendResult> future = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> producerService.sendBatchMessageAsync("demo-topic", messages(20, 1024)));
+        assertFalse(future.isDone());
+
+        // 逐个确认在途批次，后面的批次依次发出
+        for (int confirmed = 0; !future.isDone(); confirmed++) {
+            int next = confirmed;
+            await(() -> callbacks.size() > next);
+            callbacks.get(next).onSuccess(sendResult());
+        }
+        BatchSendResult result = future.join();
+        assertEquals(20, result.getSucceeded());
+        assertEquals(result.getBatches(), callbacks.size());
+    }
+
+    @Test
+    void rejectsBatchRequestWhenSenderQueueIsFull() {
+        // 一个提交线程、一个排队名额、一个在途批次
+        producerService.destroy();
+        producerService = new RocketMQProducerService(rocketMQTemplate);
+        ReflectionTestUtils.setField(producerService, "batchMaxBytes", 4096L);
+        ReflectionTestUtils.setField(producerService, "batchMaxInFlight", 1);
+        ReflectionTestUtils.setField(producerService, "batchSendTimeoutMillis", 3000L);
+        ReflectionTestUtils.setField(producerService, "batchSenders", 1);
+        ReflectionTestUtils.setField(producerService, "batchQueueCapacity", 1);
+        producerService.init();
+        // Broker不回调，提交线程发出第一个批次后等待名额
+        List<SendCallback> callbacks = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            callbacks.add(invocation.getArgument(1));
+            return null;
+        }).when(producer).send(anyCollection(), any(SendCallback.class), anyLong());
+
+        CompletableFuture<BatchSendResult> running = producerService.sendBatchMessageAsync("demo-topic", messages(20, 1024));
+        await(() -> callbacks.size() == 1);
+        CompletableFuture<BatchSendResult> queued = producerService.sendBatchMessageAsync("demo-topic", messages(20, 1024));
+        CompletableFuture<BatchSendResult> rejected = producerService.sendBatchMessageAsync("demo-topic", messages(20, 1024));
+
+        assertFalse(running.isDone());
+        assertFalse(queued.isDone());
+        CompletionException e = assertThrows(CompletionException.class, rejected::join);
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+        assertThrows(RejectedExecutionException.class,
+                () -> producerService.sendBatchMessage("demo-topic", messages(20, 1024)));
+
+        // 关闭时排队中的请求以失败结果完成，不会一直挂起
+        producerService.destroy();
+        BatchSendResult queuedResult = assertTimeoutPreemptively(Duration.ofSeconds(5), queued::join);
+        assertEquals(20, queuedResult.getFailed());
+        assertEquals("生产者已关闭", queuedResult.getResults().get(0).getStatus());
+    }
+
+    private static void await(BooleanSupplier condition) {
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            while (!condition.getAsBoolean()) {
+                TimeUnit.MILLISECONDS.sleep(1);
+            }
+        });
+    }
+
+    private static List<MessageDTO> messages(int count, int contentBytes) {
+        List<MessageDTO> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            MessageDTO message = new MessageDTO();
+            message.setId(String.format("id-%04d", i));
+            message.setContent("x".repeat(contentBytes));
+            message.setMessageType("TEXT");
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private static SendResult sendResult() {
+        SendResult sendResult = new SendResult();
+        sendResult.setSendStatus(SendStatus.SEND_OK);
+        return sendResult;
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.rocketmqdemo.scheduler;
+
+import com.example.rocketmqdemo.entity.DelayDriftStats;
+import org.apache.rocketmq.client.producer.SendResult;
+import org.apache.rocketmq.spring.core.RocketMQTemplate;
+import org.apache.rocketmq.spring.support.RocketMQMessageConverter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.messaging.Message;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 定时消息调度测试，使用模拟的 RocketMQTemplate 记录投递时间
+ */
+class DelayMessageSchedulerTests {
+
+    @TempDir
+    Path directory;
+
+    private final RocketMQTemplate rocketMQTemplate = mock(RocketMQTemplate.class);
+    private final List<Long> sentAt = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean brokerDown = new AtomicBoolean();
+    private final CountDownLatch sendStarted = new CountDownLatch(1);
+    private volatile CountDownLatch sendGate;
+    private DelayMessageScheduler scheduler;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(rocketMQTemplate.getMessageConverter()).thenReturn(new RocketMQMessageConverter().getMessageConverter());
+        when(rocketMQTemplate.syncSend(anyString(), any(Message.class), anyLong())).thenAnswer(invocation -> {
+            if (brokerDown.get()) {
+                throw new IllegalStateException("broker down");
+            }
+            sendStarted.countDown();
+            CountDownLatch gate = sendGate;
+            if (gate != null) {
+                gate.await();
+            }
+            sentAt.add(System.currentTimeMillis());
+            return new SendResult();
+        });
+        scheduler = createScheduler();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        scheduler.stop();
+    }
+
+    @Test
+    void messageIsReleasedAtScheduledTime() throws Exception {
+        long deliverAt = System.currentTimeMillis() + 300;
+        scheduler.schedule("demo-delay-topic", "hello", "TEXT", deliverAt);
+
+        awaitSent(1);
+        // 投递时间受线程调度影响，只检查没有提前投递
+        assertTrue(sentAt.get(0) >= deliverAt, "消息不应该提前投递");
+        DelayDriftStats stats = scheduler.getStats();
+        assertEquals(1, stats.getReleased());
+        assertEquals(0, stats.getPending());
+    }
+
+    @Test
+    void cancelledMessageIsNotReleased() throws Exception {
+        String id = scheduler.schedule("demo-delay-topic", "hello", "TEXT", System.currentTimeMillis() + 100);
+        assertTrue(scheduler.cancel(id));
+
+        Thread.sleep(300);
+        assertTrue(sentAt.isEmpty());
+    }
+
+    @Test
+    void cancelRemovesTimerTask() {
+        String id = scheduler.schedule("demo-delay-topic", "hello", "TEXT", System.currentTimeMillis() + 60_000);
+        TimingWheelTimer<?> timer = (TimingWheelTimer<?>) ReflectionTestUtils.getField(scheduler, "timer");
+        assertEquals(1, timer.size());
+
+        assertTrue(scheduler.cancel(id));
+        assertEquals(0, timer.size());
+        assertFalse(scheduler.cancel(id));
+    }
+
+    @Test
+    void messageBeingSentCannotBeCancelled() throws Exception {
+        sendGate = new CountDownLatch(1);
+        String id = scheduler.schedule("demo-delay-topic", "hello", "TEXT", System.currentTimeMillis() + 10);
+        assertTrue(sendStarted.await(3, TimeUnit.SECONDS));
+
+        assertFalse(scheduler.cancel(id));
+        sendGate.countDown();
+        awaitSent(1);
+        assertEquals(1, scheduler.getStats().getReleased());
+        assertEquals(0, scheduler.getStats().getPending());
+    }
+
+    @Test
+    void pendingMessagesAreRecoveredAfterRestart() throws Exception {
+        long deliverAt = System.currentTimeMillis() + 500;
+        scheduler.schedule("demo-delay-topic", "hello", "TEXT", deliverAt);
+        scheduler.stop();
+
+        scheduler = createScheduler();
+        assertEquals(1, scheduler.getStats().getPending());
+        awaitSent(1);
+        assertTrue(sentAt.get(0) >= deliverAt);
+    }
+
+    @Test
+    void overdueRecoveredMessageIsRetriedAfterFailedRelease() throws Exception {
+        scheduler.schedule("demo-delay-topic", "hello", "TEXT", System.currentTimeMillis() + 300);
+        scheduler.stop();
+        Thread.sleep(400);
+
+        // 重启时消息已经到期，恢复后立即投递并失败
+        brokerDown.set(true);
+        scheduler = createScheduler();
+        await(() -> scheduler.getStats().getReleaseFailures() > 0);
+        assertEquals(1, scheduler.getStats().getPending());
+
+        brokerDown.set(false);
+        awaitSent(1);
+        assertEquals(0, scheduler.getStats().getPending());
+    }
+
+    @Test
+    void failedReleaseIsRetried() throws Exception {
+        ReflectionTestUtils.setField(scheduler, "retryDelayMillis", 50L);
+        brokerDown.set(true);
+        scheduler.schedule("demo-delay-topic", "hello", "TEXT", System.currentTimeMillis() + 10);
+        await(() -> scheduler.getStats().getReleaseFailures() > 0);
+        assertEquals(1, scheduler.getStats().getPending());
+
+        brokerDown.set(false);
+        awaitSent(1);
+        assertEquals(1, scheduler.getStats().getReleased());
+    }
+
+    @Test
+    void stopKeepsStoreOpenForRunningDelivery() throws Exception {
+        ReflectionTestUtils.setField(scheduler, "sendTimeoutMillis", 50L);
+        // 发送不响应中断，超过两次等待后仍在进行
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            sendStarted.countDown();
+            while (true) {
+                try {
+                    release.await();
+                    break;
+                } catch (InterruptedException ignored) {
+                    // 模拟不响应中断的网络调用
+                }
+            }
+            sentAt.add(System.currentTimeMillis());
+            return new SendResult();
+        }).when(rocketMQTemplate).syncSend(anyString(), any(Message.class), anyLong());
+        scheduler.schedule("demo-delay-topic", "hello", "TEXT", System.currentTimeMillis() + 10);
+        assertTrue(sendStarted.await(3, TimeUnit.SECONDS));
+
+        scheduler.stop();
+        release.countDown();
+        awaitSent(1);
+        // 投递完成后仍能写入完成记录
+        DelayMessageScheduler stopped = scheduler;
+        await(() -> stopped.getStats().getPending() == 0);
+
+        scheduler = createScheduler();
+        assertEquals(0, scheduler.getStats().getPending());
+    }
+
+    @Test
+    void delayBeyondLimitIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> scheduler.schedule("demo-delay-topic", "hello", "TEXT",
+                System.currentTimeMillis() + Duration.ofDays(31).toMillis()));
+    }
+
+    private DelayMessageScheduler createScheduler() throws Exception {
+        DelayMessageScheduler scheduler = new DelayMessageScheduler(rocketMQTemplate, new DelayDriftMetrics());
+        ReflectionTestUtils.setField(scheduler, "storeDir", directory.toString());
+        ReflectionTestUtils.setField(scheduler, "compactMinRecords", 100);
+        ReflectionTestUtils.setField(scheduler, "tickMs", 1L);
+        ReflectionTestUtils.setField(scheduler, "wheelSize", 512);
+        ReflectionTestUtils.setField(scheduler, "dispatchThreads", 2);
+        ReflectionTestUtils.setField(scheduler, "retryDelayMillis", 1000L);
+        ReflectionTestUtils.setField(scheduler, "sendTimeoutMillis", 3000L);
+        ReflectionTestUtils.setField(scheduler, "maxDelay", Duration.ofDays(30));
+        scheduler.start();
+        return scheduler;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 3000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    private void awaitSent(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 3000;
+        while (sentAt.size() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, sentAt.size());
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.rocketmqdemo.scheduler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 定时消息本地存储测试
+ */
+class DelayMessageStoreTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void pendingMessagesSurviveRestart() throws Exception {
+        try (DelayMessageStore store = new DelayMessageStore(directory, false, 100)) {
+            store.load();
+            store.append(message("a", 1000));
+            store.append(message("b", 2000));
+            store.append(message("c", 3000));
+            assertTrue(store.remove("b"));
+            assertFalse(store.remove("b"));
+        }
+
+        try (DelayMessageStore store = new DelayMessageStore(directory, false, 100)) {
+            Map<String, Long> pending = store.load();
+            assertEquals(Map.of("a", 1000L, "c", 3000L), pending);
+            DelayedMessage message = store.get("c");
+            assertEquals("demo-delay-topic", message.topic());
+            assertEquals("body-c", new String(message.body(), StandardCharsets.UTF_8));
+            assertNull(store.get("b"));
+        }
+    }
+
+    @Test
+    void incompleteRecordIsTruncated() throws Exception {
+        long validSize;
+        try (DelayMessageStore store = new DelayMessageStore(directory, false, 100)) {
+            store.load();
+            store.append(message("a", 1000));
+            validSize = store.fileSize();
+            store.append(message("b", 2000));
+        }
+        // 模拟写到一半时进程崩溃
+        Path logFile = directory.resolve("delay-messages.log");
+        try (var channel = Files.newByteChannel(logFile, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(logFile) - 3);
+        }
+
+        try (DelayMessageStore store = new DelayMessageStore(directory, false, 100)) {
+            assertEquals(Map.of("a", 1000L), store.load());
+            assertEquals(validSize, Files.size(logFile));
+            // 截断后可以继续写入
+            store.append(message("c", 3000));
+            assertEquals("body-c", new String(store.get("c").body(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void completedRecordsAreCompacted() throws Exception {
+        try (DelayMessageStore store = new DelayMessageStore(directory, false, 10)) {
+            store.load();
+            store.append(message("keep", 99_000));
+            for (int i = 0; i < 100; i++) {
+                store.append(message("m" + i, i));
+                store.remove("m" + i);
+            }
+            // 日志中只剩下未完成的消息和最近几条记录
+            assertTrue(store.fileSize() < 20 * 100, "日志没有被重写：" + store.fileSize());
+            assertEquals("body-keep", new String(store.get("keep").body(), StandardCharsets.UTF_8));
+        }
+
+        try (DelayMessageStore store = new DelayMessageStore(directory, false, 10)) {
+            assertEquals(Map.of("keep", 99_000L), store.load());
+        }
+    }
+
+    @Test
+    void removeAfterCloseKeepsMessagePending() throws Exception {
+        DelayMessageStore store = new DelayMessageStore(directory, false, 100);
+        store.load();
+        store.append(message("a", 1000));
+        store.close();
+
+        assertThrows(IOException.class, () -> store.remove("a"));
+        assertThrows(IOException.class, () -> store.append(message("b", 2000)));
+
+        try (DelayMessageStore reopened = new DelayMessageStore(directory, false, 100)) {
+            assertEquals(Map.of("a", 1000L), reopened.load());
+        }
+    }
+
+    private static DelayedMessage message(String id, long deliverAtMillis) {
+        return new DelayedMessage(id, "demo-delay-topic", deliverAtMillis, ("body-" + id).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.rocketmqdemo.scheduler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分层时间轮测试
+ */
+class TimingWheelTimerTests {
+
+    private final Map<Integer, Long> firedAt = new ConcurrentHashMap<>();
+    private final List<Integer> order = new CopyOnWriteArrayList<>();
+    private final TimingWheelTimer<Integer> timer = new TimingWheelTimer<>(1, 32, task -> {
+        firedAt.put(task.getPayload(), System.currentTimeMillis());
+        order.add(task.getPayload());
+    });
+    private final Thread clock = new Thread(() -> {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                timer.advanceClock(100);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    });
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        clock.interrupt();
+        clock.join();
+    }
+
+    @Test
+    void tasksFireAtTheirExpirationInOrder() throws InterruptedException {
+        clock.start();
+        long now = System.currentTimeMillis();
+        // 跨越多层时间轮：32ms、1s、32s；相邻延时至少相差几十毫秒，添加任务的耗时不会打乱触发顺序
+        long[] delays = {1500, 100, 600, 300, 1000, 40};
+        for (int i = 0; i < delays.length; i++) {
+            timer.add(now + delays[i], i);
+        }
+
+        awaitFired(delays.length, 5000);
+
+        assertEquals(List.of(5, 1, 3, 2, 4, 0), order);
+        // 触发时间受线程调度影响，只检查没有提前触发
+        for (int i = 0; i < delays.length; i++) {
+            assertTrue(firedAt.get(i) >= now + delays[i], "任务" + i + "不应该提前触发");
+        }
+        assertEquals(0, timer.size());
+    }
+
+    @Test
+    void expiredTaskFiresImmediately() {
+        timer.add(System.currentTimeMillis() - 1000, 1);
+        assertEquals(List.of(1), order);
+    }
+
+    @Test
+    void cancelledTaskDoesNotFire() throws InterruptedException {
+        clock.start();
+        long now = System.currentTimeMillis();
+        TimerTask<Integer> cancelled = timer.add(now + 50, 1);
+        timer.add(now + 100, 2);
+        cancelled.cancel();
+
+        awaitFired(1, 2000);
+        Thread.sleep(50);
+        assertEquals(List.of(2), order);
+    }
+
+    private void awaitFired(int expected, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (order.size() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, order.size());
+    }
+}